@@ -1,5 +1,7 @@
 package entities;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 
 import system.components.AbstractComponent;
@@ -61,4 +63,13 @@ public abstract class Entity implements UpdatableObject
 	{
 		return this.components.containsKey(componentKey);
 	}
+	
+	/**
+	 * Obtient l'ensemble des composants associés à l'entité
+	 * @return Les composants de l'entité, non modifiables
+	 */
+	public Collection<AbstractComponent> getComponents()
+	{
+		return Collections.unmodifiableCollection(this.components.values());
+	}
 }
@@ -0,0 +1,388 @@
+package environment.map;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import math.Vector2;
+import utils.FrogException;
+
+/**
+ * <h1>Gestionnaire de résidence des chunks</h1>
+ * <p>Conserve en mémoire les chunks d'une {@link MappedGameMap} dans la limite d'un budget mémoire. Les chunks
+ * situés dans le rayon d'un joueur actif sont épinglés. Au-delà du budget, les autres chunks sont libérés selon
+ * l'algorithme de l'horloge, approximation de LRU : chaque accès marque le chunk, l'aiguille parcourt les chunks
+ * conservés en effaçant les marques et libère le premier chunk non marqué. Un chunk modifié est enregistré dans
+ * le fichier de carte avant sa libération, et conservé si la carte est ouverte en lecture seule.</p>
+ * <p>Lorsqu'un joueur change de chunk, les chunks de sa nouvelle zone et ceux de la zone suivante dans sa
+ * direction de déplacement sont chargés par un thread dédié, avant d'être demandés.</p>
+ * <p>Les accès doivent passer par {@link #getChunk(int, int)} afin d'être comptés et d'alimenter l'horloge.
+ * Les chunks épinglés ne sont jamais libérés, le budget peut donc être dépassé par de nombreux joueurs dispersés.
+ * La taille d'un chunk est réévaluée au premier contrôle du budget suivant son accès, ainsi qu'à chaque passage
+ * de l'aiguille : les modifications réalisées après l'accès sont prises en compte.</p>
+ */
+public class ChunkResidencyManager
+{
+	public static final int DEFAULT_RADIUS = 2;
+	public static final long DEFAULT_BUDGET = 256L << 20;
+
+	private MappedGameMap map;
+	private long budget;
+	private int radius;
+	private Map<Long, Resident> residents;
+	private Map<Object, Long> centers;
+	private Queue<Resident> accessed;
+	private ChunkResidencyStatistics statistics;
+	private ExecutorService preloader;
+
+	// Accès protégés par le verrou du gestionnaire
+	private ArrayDeque<Resident> clock;
+	private Map<Long, Integer> pins;
+
+	public ChunkResidencyManager(MappedGameMap map)
+	{
+		this(map, DEFAULT_BUDGET, DEFAULT_RADIUS);
+	}
+
+	/**
+	 * Constructeur du gestionnaire de résidence
+	 * @param map La carte dont les chunks sont conservés
+	 * @param budget La mémoire estimée maximum des chunks conservés, en octets
+	 * @param radius Le rayon en nombre de chunks de la zone épinglée autour de chaque joueur
+	 */
+	public ChunkResidencyManager(MappedGameMap map, long budget, int radius)
+	{
+		this.map = map;
+		this.budget = Math.max(0, budget);
+		this.radius = Math.max(0, radius);
+		this.residents = new ConcurrentHashMap<Long, Resident>();
+		this.centers = new ConcurrentHashMap<Object, Long>();
+		this.accessed = new ConcurrentLinkedQueue<Resident>();
+		this.statistics = new ChunkResidencyStatistics();
+		this.clock = new ArrayDeque<Resident>();
+		this.pins = new HashMap<Long, Integer>();
+		this.preloader = Executors.newSingleThreadExecutor(runnable ->
+		{
+			Thread thread = new Thread(runnable, "ChunkPreloader");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Obtient le chunk à la position spécifiée, décodé et conservé s'il ne l'est pas déjà
+	 * @param x La valeur horizontale (axe x) de la position
+	 * @param y La valeur verticale (axe y) de la position
+	 * @return Le chunk si existant, null dans le cas contraire
+	 */
+	public GameMapChunk getChunk(int x, int y)
+	{
+		Resident resident = this.residents.get(key(x, y));
+		if(resident != null)
+		{
+			// Aucun verrou : le chunk n'est pas décodé de nouveau s'il a été libéré entre-temps
+			GameMapChunk chunk = this.map.getResidentChunk(x, y);
+			if(chunk != null)
+			{
+				resident.referenced = true;
+				this.statistics.recordHit();
+				this.touch(resident);
+				return chunk;
+			}
+		}
+
+		this.statistics.recordMiss();
+		return this.load(x, y);
+	}
+
+	/**
+	 * Met à jour la position d'un joueur. Lorsque le joueur change de chunk, les chunks de sa zone sont épinglés
+	 * et chargés par anticipation, ainsi que ceux de la zone suivante dans sa direction de déplacement.
+	 * @param player Le joueur
+	 * @param absoluteX La position horizontale absolue du joueur (en nombre de tuiles)
+	 * @param absoluteY La position verticale absolue du joueur (en nombre de tuiles)
+	 */
+	public void updatePosition(Object player, int absoluteX, int absoluteY)
+	{
+		Vector2<Integer> chunk = this.map.getChunkCoordinatesFromAbsLocation(absoluteX, absoluteY);
+		int x = chunk.getX(), y = chunk.getY();
+		long center = key(x, y);
+
+		Long previous = this.centers.put(player, center);
+		if(previous != null && previous == center)
+			return;
+
+		int directionX = 0, directionY = 0;
+		synchronized(this)
+		{
+			if(previous != null)
+			{
+				directionX = Integer.signum(x - keyX(previous));
+				directionY = Integer.signum(y - keyY(previous));
+				this.pin(keyX(previous), keyY(previous), -1);
+			}
+			this.pin(x, y, 1);
+		}
+
+		this.preload(Math.min(x, x + directionX) - this.radius, Math.min(y, y + directionY) - this.radius,
+				Math.max(x, x + directionX) + this.radius, Math.max(y, y + directionY) + this.radius);
+	}
+
+	/**
+	 * Retire un joueur, les chunks de sa zone ne sont plus épinglés
+	 * @param player Le joueur à retirer
+	 */
+	public void remove(Object player)
+	{
+		Long center = this.centers.remove(player);
+		if(center == null)
+			return;
+
+		synchronized(this)
+		{
+			this.pin(keyX(center), keyY(center), -1);
+			this.evict(null);
+		}
+	}
+
+	/**
+	 * Obtient les statistiques de résidence
+	 * @return Les statistiques
+	 */
+	public ChunkResidencyStatistics getStatistics()
+	{
+		return this.statistics;
+	}
+
+	/**
+	 * Obtient la carte dont les chunks sont conservés
+	 * @return La carte
+	 */
+	public MappedGameMap getMap()
+	{
+		return this.map;
+	}
+
+	/**
+	 * Obtient le budget mémoire des chunks conservés
+	 * @return Le budget en octets
+	 */
+	public long getBudget()
+	{
+		return this.budget;
+	}
+
+	/**
+	 * Arrête le chargement anticipé et enregistre les chunks modifiés conservés, si la carte est ouverte en écriture
+	 * @return Le nombre de chunks enregistrés
+	 */
+	public synchronized int stop()
+	{
+		this.preloader.shutdownNow();
+		if(!this.map.isWritable())
+			return 0;
+
+		int count = 0;
+		for(Resident resident : this.clock)
+		{
+			if(this.persist(resident))
+				count++;
+		}
+		return count;
+	}
+
+	private GameMapChunk load(int x, int y)
+	{
+		// Décodage hors verrou, la carte ne conserve qu'un seul chunk par position
+		GameMapChunk chunk = this.map.getChunk(x, y);
+		if(chunk == null)
+			return null;
+
+		// La libération d'un chunk et son retrait des chunks conservés étant réalisés sous le verrou, un chunk
+		// décodé de nouveau après sa libération est toujours enregistré
+		synchronized(this)
+		{
+			long key = key(x, y);
+			if(!this.residents.containsKey(key))
+			{
+				Resident resident = new Resident(x, y, chunk.getMemorySize());
+				this.residents.put(key, resident);
+				this.clock.addLast(resident);
+				this.statistics.recordLoad(resident.bytes);
+				this.evict(resident);
+				this.touch(resident);
+			}
+		}
+		return chunk;
+	}
+
+	private void preload(int minX, int minY, int maxX, int maxY)
+	{
+		try
+		{
+			this.preloader.execute(() ->
+			{
+				for(int j = minY; j <= maxY; j++)
+				{
+					for(int i = minX; i <= maxX; i++)
+					{
+						if(Thread.currentThread().isInterrupted())
+							return;
+						if(this.residents.containsKey(key(i, j)))
+							continue;
+						if(this.load(i, j) != null)
+							this.statistics.recordPreload();
+					}
+				}
+			});
+		}
+		catch(RejectedExecutionException e)
+		{
+			// Gestionnaire arrêté, aucun chargement anticipé
+		}
+	}
+
+	/**
+	 * Libère des chunks jusqu'au respect du budget, verrou du gestionnaire acquis
+	 * @param loaded Le chunk venant d'être chargé, conservé afin d'être retourné (peut être null)
+	 */
+	private void evict(Resident loaded)
+	{
+		// Chunks accédés depuis le contrôle précédent, éventuellement modifiés
+		Resident touched;
+		while((touched = this.accessed.poll()) != null)
+		{
+			touched.queued = false;
+			GameMapChunk chunk = this.map.getResidentChunk(touched.x, touched.y);
+			if(chunk != null)
+				this.resize(touched, chunk);
+		}
+
+		// Deux tours au plus : le premier efface les marques, le second libère les chunks non marqués
+		int visits = 2 * this.clock.size();
+		while(this.statistics.getResidentBytes() > this.budget && visits-- > 0)
+		{
+			Resident resident = this.clock.pollFirst();
+			GameMapChunk chunk = this.map.getResidentChunk(resident.x, resident.y);
+			if(chunk != null)
+				this.resize(resident, chunk);
+
+			if(resident == loaded || resident.referenced || this.pins.containsKey(key(resident.x, resident.y)))
+			{
+				resident.referenced = false;
+				this.clock.addLast(resident);
+				continue;
+			}
+
+			boolean saved = this.map.isWritable() && this.persist(resident);
+			if(this.map.unloadChunk(resident.x, resident.y))
+			{
+				this.residents.remove(key(resident.x, resident.y));
+				synchronized(resident)
+				{
+					resident.evicted = true;
+					this.statistics.recordEviction(resident.bytes, saved);
+				}
+			}
+			else
+			{
+				// Chunk modifié non enregistré
+				if(saved)
+					this.statistics.recordPersisted();
+				this.clock.addLast(resident);
+			}
+		}
+	}
+
+	/**
+	 * Retient l'accès à un chunk conservé, sa taille est réévaluée au contrôle suivant du budget
+	 */
+	private void touch(Resident resident)
+	{
+		if(resident.queued)
+			return;
+		resident.queued = true;
+		this.accessed.add(resident);
+	}
+
+	/**
+	 * Met à jour la taille estimée d'un chunk conservé, modifiée par l'ajout de couches ou de tuiles variées
+	 */
+	private void resize(Resident resident, GameMapChunk chunk)
+	{
+		long bytes = chunk.getMemorySize();
+		synchronized(resident)
+		{
+			if(resident.evicted || bytes == resident.bytes)
+				return;
+			this.statistics.recordResize(bytes - resident.bytes);
+			resident.bytes = bytes;
+		}
+	}
+
+	private boolean persist(Resident resident)
+	{
+		try
+		{
+			return this.map.save(resident.x, resident.y);
+		}
+		catch(IOException | FrogException e)
+		{
+			System.err.println(String.format("Enregistrement du chunk (%d, %d) impossible : %s", resident.x, resident.y, e.getMessage()));
+			return false;
+		}
+	}
+
+	/**
+	 * Met à jour les épingles de la zone entourant un chunk, verrou du gestionnaire acquis
+	 */
+	private void pin(int x, int y, int delta)
+	{
+		for(int j = y - this.radius; j <= y + this.radius; j++)
+		{
+			for(int i = x - this.radius; i <= x + this.radius; i++)
+				this.pins.merge(key(i, j), delta, (count, d) -> count + d == 0 ? null : count + d);
+		}
+	}
+
+	private static long key(int x, int y)
+	{
+		return ((long)x << 32) | (y & 0xFFFFFFFFL);
+	}
+
+	private static int keyX(long key)
+	{
+		return (int)(key >> 32);
+	}
+
+	private static int keyY(long key)
+	{
+		return (int)key;
+	}
+
+	/**
+	 * Chunk conservé, marqué à chaque accès
+	 */
+	private static class Resident
+	{
+		private int x, y;
+		private long bytes;
+		private boolean evicted;
+		private volatile boolean referenced;
+		private volatile boolean queued;
+
+		public Resident(int x, int y, long bytes)
+		{
+			this.x = x;
+			this.y = y;
+			this.bytes = bytes;
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package environment.map;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <h1>Statistiques de résidence des chunks</h1>
+ * <p>Compteurs d'un {@link ChunkResidencyManager}, permettant d'ajuster son budget mémoire :
+ * un taux de succès faible avec de nombreuses libérations indique un budget trop petit.</p>
+ */
+public class ChunkResidencyStatistics
+{
+	private LongAdder hits;
+	private LongAdder misses;
+	private LongAdder preloads;
+	private LongAdder evictions;
+	private LongAdder persisted;
+	private AtomicLong residentChunks;
+	private AtomicLong residentBytes;
+
+	public ChunkResidencyStatistics()
+	{
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		this.preloads = new LongAdder();
+		this.evictions = new LongAdder();
+		this.persisted = new LongAdder();
+		this.residentChunks = new AtomicLong();
+		this.residentBytes = new AtomicLong();
+	}
+
+	/**
+	 * Enregistre l'accès à un chunk déjà conservé en mémoire
+	 */
+	void recordHit()
+	{
+		this.hits.increment();
+	}
+
+	/**
+	 * Enregistre l'accès à un chunk devant être décodé
+	 */
+	void recordMiss()
+	{
+		this.misses.increment();
+	}
+
+	/**
+	 * Enregistre le chargement anticipé d'un chunk
+	 */
+	void recordPreload()
+	{
+		this.preloads.increment();
+	}
+
+	/**
+	 * Enregistre l'ajout d'un chunk aux chunks conservés
+	 * @param bytes La taille estimée du chunk en octets
+	 */
+	void recordLoad(long bytes)
+	{
+		this.residentChunks.incrementAndGet();
+		this.residentBytes.addAndGet(bytes);
+	}
+
+	/**
+	 * Enregistre la variation de taille d'un chunk conservé, modifié depuis son chargement
+	 * @param delta La variation de la taille estimée en octets
+	 */
+	void recordResize(long delta)
+	{
+		this.residentBytes.addAndGet(delta);
+	}
+
+	/**
+	 * Enregistre la libération d'un chunk
+	 * @param bytes La taille estimée du chunk en octets
+	 * @param saved True si le chunk a été enregistré dans le fichier avant sa libération
+	 */
+	void recordEviction(long bytes, boolean saved)
+	{
+		this.residentChunks.decrementAndGet();
+		this.residentBytes.addAndGet(-bytes);
+		this.evictions.increment();
+		if(saved)
+			this.persisted.increment();
+	}
+
+	/**
+	 * Enregistre l'enregistrement d'un chunk dans le fichier sans libération
+	 */
+	void recordPersisted()
+	{
+		this.persisted.increment();
+	}
+
+	/**
+	 * Obtient le nombre d'accès à un chunk déjà conservé en mémoire
+	 * @return Le nombre de succès
+	 */
+	public long getHitsCount()
+	{
+		return this.hits.sum();
+	}
+
+	/**
+	 * Obtient le nombre d'accès à un chunk devant être décodé
+	 * @return Le nombre d'échecs
+	 */
+	public long getMissesCount()
+	{
+		return this.misses.sum();
+	}
+
+	/**
+	 * Obtient la proportion d'accès à un chunk déjà conservé en mémoire
+	 * @return Le taux de succès entre 0 et 1, 0 si aucun accès
+	 */
+	public double getHitRatio()
+	{
+		long hits = this.hits.sum(), total = hits + this.misses.sum();
+		return total == 0 ? 0 : (double)hits / total;
+	}
+
+	/**
+	 * Obtient le nombre de chunks chargés par anticipation
+	 * @return Le nombre de chargements anticipés
+	 */
+	public long getPreloadsCount()
+	{
+		return this.preloads.sum();
+	}
+
+	/**
+	 * Obtient le nombre de chunks libérés
+	 * @return Le nombre de libérations
+	 */
+	public long getEvictionsCount()
+	{
+		return this.evictions.sum();
+	}
+
+	/**
+	 * Obtient le nombre de chunks modifiés enregistrés dans le fichier de carte
+	 * @return Le nombre d'enregistrements
+	 */
+	public long getPersistedCount()
+	{
+		return this.persisted.sum();
+	}
+
+	/**
+	 * Obtient le nombre de chunks conservés en mémoire
+	 * @return Le nombre de chunks conservés
+	 */
+	public long getResidentChunks()
+	{
+		return this.residentChunks.get();
+	}
+
+	/**
+	 * Obtient la mémoire estimée des chunks conservés
+	 * @return La taille estimée en octets
+	 */
+	public long getResidentBytes()
+	{
+		return this.residentBytes.get();
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%d chunks conservés (%.1f Mo), %d succès, %d échecs (%.1f%% de succès), %d anticipés, %d libérés, %d enregistrés",
+				this.getResidentChunks(), this.getResidentBytes() / (1024.0 * 1024.0), this.getHitsCount(), this.getMissesCount(),
+				100 * this.getHitRatio(), this.getPreloadsCount(), this.getEvictionsCount(), this.getPersistedCount());
+	}
+}
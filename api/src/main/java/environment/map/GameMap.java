@@ -1,17 +1,19 @@
 package environment.map;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import math.Vector2;
 import utils.FrogException;
 
+/**
+ * <h1>Carte de jeu découpée en chunks</h1>
+ * <p>Les chunks sont indexés par leur position dans un index creux (voir {@link GameMapChunkIndex}) :
+ * les positions peuvent être négatives ou très éloignées de l'origine, seuls les chunks existants occupent
+ * de la mémoire. Les limites de la carte sont tenues à jour à chaque ajout ou suppression de chunk.</p>
+ */
 public class GameMap 
 {
-	private List<List<GameMapChunk>> chunks;
+	private GameMapChunkIndex chunks;
 	private int tileWidth, tileHeight;
 	private int chunkTilesCountRow, chunkTilesCountColumn;
-	private int currentMapWidth;
 
 	/**
 	 * Constructeur de map dynamique
@@ -20,37 +22,11 @@ public class GameMap
 	 */
 	public GameMap(int tileWidth, int tileHeight, int chunkTilesCountRow, int chunkTilesCountColumn)
 	{
-		this.chunks = new ArrayList<List<GameMapChunk>>();
+		this.chunks = new GameMapChunkIndex();
 		this.tileWidth = tileWidth;
 		this.tileHeight = tileHeight;
 		this.chunkTilesCountRow = chunkTilesCountRow;
 		this.chunkTilesCountColumn = chunkTilesCountColumn;
-		this.currentMapWidth = 0;
-	}
-
-	/**
-	 * <p>Ajoute une nouvelle ligne dans la map</p>
-	 * <p>Ligne ajoutée en bas de la map (axe y)</p>
-	 */
-	private void addRow()
-	{
-		this.chunks.add(new ArrayList<GameMapChunk>());
-	}
-	
-	/**
-	 * Ajoute des colonnes dans la carte jusqu'à l'index spécifié
-	 * @param maxIndex L'index de la dernière colonne à droite (axe x)
-	 */
-	private void addColumns(int maxIndex)
-	{
-		for(int i = 0; i < this.chunks.size(); i++)
-		{
-			while(this.chunks.get(i).size() <= maxIndex)
-			{
-				this.chunks.get(i).add(null);
-			}
-		}
-		this.currentMapWidth = maxIndex + 1;
 	}
 	
 	/**
@@ -61,9 +37,7 @@ public class GameMap
 	 */
 	public GameMapChunk getChunk(int x, int y)
 	{
-		if(this.chunks.size() > y && this.chunks.get(y).size() > x)
-			return this.chunks.get(y).get(x);
-		return null;
+		return this.chunks.get(x, y);
 	}
 	
 	/**
@@ -71,22 +45,14 @@ public class GameMap
 	 * @param chunk Le nouveau chunk (peut être null)
 	 * @param x La valeur horizontale (axe x) de la position
 	 * @param y La valeur verticale (axe y) de la position
-	 * @throws FrogException Exception jetée si les indexs sont incorrects, ou que la map n'a pas été redimensionnée correctement
+	 * @throws FrogException Exception jetée si la position ne peut être modifiée
 	 */
 	public void setChunk(GameMapChunk chunk, int x, int y) throws FrogException
 	{
-		if(x < 0 || y < 0)
-			throw new FrogException("Les indexs ne peuvent être négatifs");
-		
-		while(this.chunks.size() <= y)
-			this.addRow();
-		while(this.chunks.get(y).size() <= x)
-			this.addColumns(x); // Mets à jour la map entière
-		
-		if(this.chunks.size() >= y && this.chunks.get(y).size() >= x)
-			this.chunks.get(y).set(x, chunk);
+		if(chunk == null)
+			this.chunks.remove(x, y);
 		else
-			throw new FrogException("Error lors de la mise à jour d'un chunk, il se peut que l'augmentation des arrays ait échouée");
+			this.chunks.put(x, y, chunk);
 	}
 	
 	/**
@@ -97,7 +63,8 @@ public class GameMap
 	 */
 	public Vector2<Integer> getChunkCoordinatesFromAbsLocation(int absoluteX, int absoluteY)
 	{
-		return new Vector2<>((int)(absoluteX / this.chunkTilesCountRow), (int)(absoluteY / this.chunkTilesCountColumn));
+		// Arrondi vers l'infini négatif : la tuile -1 appartient au chunk -1
+		return new Vector2<>(Math.floorDiv(absoluteX, this.chunkTilesCountRow), Math.floorDiv(absoluteY, this.chunkTilesCountColumn));
 	}
 	
 	/**
@@ -110,86 +77,22 @@ public class GameMap
 	 */
 	public void setTile(int layerIndex, int absoluteX, int absoluteY, int value) throws FrogException
 	{
-		Vector2<Integer> chunkCoords = this.getChunkCoordinatesFromAbsLocation(absoluteX, absoluteY);
-		GameMapChunk chunk = this.getChunk(chunkCoords.getX(), chunkCoords.getY());
+		int chunkX = Math.floorDiv(absoluteX, this.chunkTilesCountRow);
+		int chunkY = Math.floorDiv(absoluteY, this.chunkTilesCountColumn);
+		GameMapChunk chunk = this.getChunk(chunkX, chunkY);
 		if(chunk == null)
 		{
 			chunk = new GameMapChunk(this);
 			if(!chunk.hasLayer(layerIndex))
 				chunk.addLayer(layerIndex);
-			this.setChunk(chunk, chunkCoords.getX(), chunkCoords.getY());
+			this.setChunk(chunk, chunkX, chunkY);
 		}
 		
-		int relativeX = absoluteX % chunkTilesCountRow;
-		int relativeY = absoluteY % chunkTilesCountColumn;
+		int relativeX = Math.floorMod(absoluteX, this.chunkTilesCountRow);
+		int relativeY = Math.floorMod(absoluteY, this.chunkTilesCountColumn);
 		chunk.setTile(layerIndex, relativeX, relativeY, value);
 	}
 	
-	/**
-	 * <p>Découpe la map automatiquement en fonction des chunks qui l'a compose</p>
-	 * <p>La map est coupée pour être la plus petite possible (largeur / hauteur)<br/>
-	 * La découpe est faite en partant par le bord bas-droit vers le bord haut-gauche de la map</p>
-	 */
-	public void autoCrop()
-	{	
-		this.autoCropRows();
-		this.autoCropColumns();
-	}
-	
-	/**
-	 * Découpe automatiquement les lignes de la carte en partant du bas de la map
-	 */
-	private void autoCropRows()
-	{
-		boolean isRowNull = true;
-		
-		while(this.chunks.size() > 0 && isRowNull)
-		{
-			for(int i = 0; i < this.chunks.size(); i++)
-			{
-				if(this.getChunk(i, this.chunks.size() - 1) != null)
-				{
-					isRowNull = false;
-					break;
-				}
-			}
-			
-			if(isRowNull)
-			{
-				this.chunks.remove(this.chunks.size() - 1);
-			}
-		}
-	}
-	
-	/**
-	 * Découpe automatiquement les colonnes de la carte en partant de la droite de la map
-	 */
-	public void autoCropColumns()
-	{
-		boolean isColumnNull = true;
-		
-		while(currentMapWidth > 0 && isColumnNull)
-		{
-			for(int i = 0; i < this.chunks.size(); i++)
-			{
-				if(this.getChunk(currentMapWidth - 1, i) != null)
-				{
-					isColumnNull = false;
-					break;
-				}
-			}
-			
-			if(isColumnNull)
-			{
-				for(int i = 0; i < this.chunks.size(); i++)
-				{
-					this.chunks.get(i).remove(currentMapWidth - 1);
-				}
-				currentMapWidth--;
-			}
-		}
-	}
-	
 	/**
 	 * Obtient la largeur des tuiles de la map
 	 * @return La largeur des tuiles de la map
@@ -212,7 +115,7 @@ public class GameMap
 	 * Obtient la largeur des chunks de la map, en nombre de tuiles
 	 * @return La largeur des chunks en nombre de tuiles
 	 */
-	protected int getChunkTilesCountRow() 
+	public int getChunkTilesCountRow() 
 	{
 		return chunkTilesCountRow;
 	}
@@ -221,27 +124,45 @@ public class GameMap
 	 * Obtient la hauteur des chunks de la map, en nombre de tuiles
 	 * @return La largeur des chunks en nombre de tuiles
 	 */
-	protected int getChunkTilesCountColumn() 
+	public int getChunkTilesCountColumn() 
 	{
 		return chunkTilesCountColumn;
 	}
 	
 	/**
-	 * Obtient la largeur de la map en nombre de chunks
+	 * Obtient la position horizontale du chunk le plus à gauche de la map
+	 * @return La position minimum, 0 si la map est vide
+	 */
+	public int getMinX()
+	{
+		return this.chunks.getMinX();
+	}
+	
+	/**
+	 * Obtient la position verticale du chunk le plus haut de la map
+	 * @return La position minimum, 0 si la map est vide
+	 */
+	public int getMinY()
+	{
+		return this.chunks.getMinY();
+	}
+	
+	/**
+	 * Obtient la largeur de la map en nombre de chunks, du chunk le plus à gauche au chunk le plus à droite
 	 * @return La largeur de la map en nombre de chunks
 	 */
 	public int getWidth()
 	{
-		return this.currentMapWidth;
+		return this.chunks.getMaxX() - this.chunks.getMinX() + 1;
 	}
 	
 	/**
-	 * Obtient la hauteur de la map en nombre de chunks
-	 * @return La heuteur de la map en nombre de chunks
+	 * Obtient la hauteur de la map en nombre de chunks, du chunk le plus haut au chunk le plus bas
+	 * @return La hauteur de la map en nombre de chunks
 	 */
 	public int getHeight()
 	{
-		return this.chunks.size();
+		return this.chunks.getMaxY() - this.chunks.getMinY() + 1;
 	}
 	
 	/**
@@ -251,9 +172,9 @@ public class GameMap
 	public String toString()
 	{
 		StringBuilder builder = new StringBuilder();
-		for(int y = 0; y < this.chunks.size(); y++)
+		for(int y = this.getMinY(); y < this.getMinY() + this.getHeight(); y++)
 		{
-			for(int x = 0; x < this.chunks.get(y).size(); x++)
+			for(int x = this.getMinX(); x < this.getMinX() + this.getWidth(); x++)
 			{
 				if(this.getChunk(x, y) != null)
 					builder.append("[C]");
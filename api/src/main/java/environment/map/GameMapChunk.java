@@ -12,6 +12,8 @@ public class GameMapChunk implements ResourceObject
 	private int chunkTilesCountRow, chunkTilesCountColumn;
 	private int chunkWidth, chunkHeight;
 	private HashMap<Integer, GameMapLayer> layers;
+	private volatile long version;
+	private volatile long savedVersion = -1;
 	
 	public GameMapChunk(GameMap parent) 
 	{
@@ -77,6 +79,7 @@ public class GameMapChunk implements ResourceObject
 	public void addLayer(int index)
 	{
 		this.layers.put(index, new GameMapLayer(this.chunkTilesCountRow, this.chunkTilesCountColumn));
+		this.version++;
 	}
 	
 	/**
@@ -86,6 +89,7 @@ public class GameMapChunk implements ResourceObject
 	public void removeLayer(int index)
 	{
 		this.layers.remove(index);
+		this.version++;
 	}
 	
 	/**
@@ -101,6 +105,22 @@ public class GameMapChunk implements ResourceObject
 		if(this.layers.size() <= layerIndex)
 			throw new FrogException("Tentative de modification d'une tuile sur une couche inexistante");
 		this.layers.get(layerIndex).setTile(relativeX, relativeY, value);
+		this.version++;
+	}
+	
+	/**
+	 * Obtient la valeur de la tuile à la position relative spécifiée du chunk, sans allocation
+	 * @param layerIndex La couche du chunk
+	 * @param relativeX La valeur horizontale de la position
+	 * @param relativeY La valeur verticale de la position
+	 * @return La valeur de la tuile, {@value GameMapLayer#EMPTY_TILE} si inexistante
+	 * @throws FrogException Exception jetée si la couche spécifiée n'existe pas
+	 */
+	public int getTileId(int layerIndex, int relativeX, int relativeY) throws FrogException
+	{
+		if(this.layers.size() <= layerIndex)
+			throw new FrogException("Tentative d'obtention d'une tuile sur une couche inexistante");
+		return this.layers.get(layerIndex).getTileId(relativeX, relativeY);
 	}
 	
 	/**
@@ -117,4 +137,71 @@ public class GameMapChunk implements ResourceObject
 			throw new FrogException("Tentative d'obtention d'une tuile sur une couche inexistante");
 		return this.layers.get(layerIndex).getTile(relativeX, relativeY);
 	}
+	
+	/**
+	 * Obtient la version du contenu du chunk, modifiée à chaque mise à jour d'une tuile ou d'une couche
+	 * @return La version du contenu du chunk
+	 */
+	public long getVersion()
+	{
+		return this.version;
+	}
+	
+	/**
+	 * Obtient l'état de modification du chunk depuis sa dernière lecture ou écriture dans un fichier de carte
+	 * @return Vrai si le chunk a été modifié ou n'a jamais été enregistré, Faux dans le cas contraire
+	 */
+	public boolean isModified()
+	{
+		return this.version != this.savedVersion;
+	}
+	
+	/**
+	 * Marque une version du contenu comme identique à celle du fichier de carte
+	 * @param version La version lue ou écrite, une modification ultérieure laisse le chunk modifié
+	 */
+	void markSaved(long version)
+	{
+		this.savedVersion = version;
+	}
+	
+	/**
+	 * Obtient une estimation de la mémoire occupée par le chunk et ses couches
+	 * @return La taille estimée en octets
+	 */
+	public long getMemorySize()
+	{
+		// Chunk et table des couches, puis entrée de table et index de chaque couche
+		long size = 64 + 48;
+		for(GameMapLayer layer : this.layers.values())
+			size += 32 + 16 + layer.getMemorySize();
+		return size;
+	}
+	
+	/**
+	 * Obtient les couches du chunk indexées par leur index
+	 * @return Les couches du chunk
+	 */
+	HashMap<Integer, GameMapLayer> getLayers()
+	{
+		return this.layers;
+	}
+	
+	/**
+	 * Obtient le nombre de tuiles d'une ligne du chunk
+	 * @return La largeur du chunk en nombre de tuiles
+	 */
+	int getTilesCountRow()
+	{
+		return this.chunkTilesCountRow;
+	}
+	
+	/**
+	 * Obtient le nombre de tuiles d'une colonne du chunk
+	 * @return La hauteur du chunk en nombre de tuiles
+	 */
+	int getTilesCountColumn()
+	{
+		return this.chunkTilesCountColumn;
+	}
 }
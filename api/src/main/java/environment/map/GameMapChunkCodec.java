@@ -0,0 +1,105 @@
+package environment.map;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import utils.FrogException;
+
+/**
+ * <h1>Format binaire de transfert des chunks</h1>
+ * <p>Contenu : position du chunk (x, y), largeur et hauteur en nombre de tuiles, nombre de couches,
+ * puis pour chaque couche son index suivi de ses tuiles ligne par ligne (int, 4 octets, big-endian).
+ * Les tuiles inexistantes valent {@value #EMPTY_TILE}.</p>
+ */
+public class GameMapChunkCodec
+{
+	public static final int EMPTY_TILE = GameMapLayer.EMPTY_TILE;
+	
+	private static final int HEADER_SIZE = 5 * 4;
+	
+	private GameMapChunkCodec()
+	{
+		// nothing
+	}
+	
+	/**
+	 * Encode les couches d'un chunk
+	 * @param chunk Le chunk à encoder
+	 * @param x La position horizontale du chunk dans la carte
+	 * @param y La position verticale du chunk dans la carte
+	 * @return Le contenu binaire du chunk
+	 */
+	public static byte[] encode(GameMapChunk chunk, int x, int y)
+	{
+		int columns = chunk.getTilesCountRow(), rows = chunk.getTilesCountColumn();
+		Map<Integer, GameMapLayer> layers = chunk.getLayers();
+		
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + layers.size() * (4 + columns * rows * 4));
+		buffer.putInt(x).putInt(y).putInt(columns).putInt(rows).putInt(layers.size());
+		
+		for(Map.Entry<Integer, GameMapLayer> entry : layers.entrySet())
+		{
+			buffer.putInt(entry.getKey());
+			
+			// Tuiles stockées ligne par ligne, copiées en un seul bloc
+			buffer.asIntBuffer().put(entry.getValue().getTiles());
+			buffer.position(buffer.position() + columns * rows * 4);
+		}
+		
+		return buffer.array();
+	}
+	
+	/**
+	 * Décode un chunk et le place dans la carte, en remplacement du chunk existant
+	 * @param data Le contenu binaire du chunk
+	 * @param map La carte de destination
+	 * @return Le chunk décodé
+	 * @throws FrogException Exception jetée si le contenu est invalide ou incompatible avec la carte
+	 */
+	public static GameMapChunk decode(byte[] data, GameMap map) throws FrogException
+	{
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		GameMapChunk chunk = read(buffer, map);
+		map.setChunk(chunk, buffer.getInt(0), buffer.getInt(4));
+		return chunk;
+	}
+	
+	/**
+	 * Décode un chunk à partir de la position courante du buffer, sans le placer dans la carte
+	 * @param buffer Le buffer contenant le chunk, avancé jusqu'à la fin du chunk
+	 * @param map La carte parente du chunk
+	 * @return Le chunk décodé
+	 * @throws FrogException Exception jetée si le contenu est invalide ou incompatible avec la carte
+	 */
+	static GameMapChunk read(ByteBuffer buffer, GameMap map) throws FrogException
+	{
+		try
+		{
+			buffer.getInt(); // x
+			buffer.getInt(); // y
+			int columns = buffer.getInt(), rows = buffer.getInt();
+			int layersCount = buffer.getInt();
+			
+			GameMapChunk chunk = new GameMapChunk(map);
+			if(columns != chunk.getTilesCountRow() || rows != chunk.getTilesCountColumn())
+				throw new FrogException("Dimensions du chunk incompatibles avec la carte");
+			
+			for(int l = 0; l < layersCount; l++)
+			{
+				int index = buffer.getInt();
+				chunk.addLayer(index);
+				int[] tiles = new int[columns * rows];
+				buffer.asIntBuffer().get(tiles);
+				buffer.position(buffer.position() + tiles.length * 4);
+				chunk.getLayers().get(index).setTiles(tiles);
+			}
+			
+			return chunk;
+		}
+		catch(BufferUnderflowException e)
+		{
+			throw new FrogException("Contenu de chunk tronqué");
+		}
+	}
+}
@@ -0,0 +1,206 @@
+package environment.map;
+
+import java.util.TreeMap;
+
+/**
+ * <h1>Index creux des chunks d'une carte</h1>
+ * <p>Table de hachage à adressage ouvert (sondage linéaire) dont la clé regroupe les deux coordonnées du chunk
+ * dans un long : aucune allocation lors d'une recherche, et une mémoire proportionnelle au nombre de chunks
+ * existants, quelle que soit leur position (coordonnées négatives ou très éloignées de l'origine).</p>
+ * <p>Les limites de la carte sont mises à jour à chaque ajout ou suppression, à partir du nombre de chunks
+ * de chaque ligne et de chaque colonne.</p>
+ */
+class GameMapChunkIndex
+{
+	private static final int MIN_CAPACITY = 16;
+
+	private long[] keys;
+	private GameMapChunk[] values;
+	private int size;
+	private int mask;
+	private TreeMap<Integer, Integer> columns;
+	private TreeMap<Integer, Integer> rows;
+
+	GameMapChunkIndex()
+	{
+		this.keys = new long[MIN_CAPACITY];
+		this.values = new GameMapChunk[MIN_CAPACITY];
+		this.mask = MIN_CAPACITY - 1;
+		this.columns = new TreeMap<Integer, Integer>();
+		this.rows = new TreeMap<Integer, Integer>();
+	}
+
+	/**
+	 * Obtient le chunk à la position spécifiée
+	 * @param x La position horizontale du chunk
+	 * @param y La position verticale du chunk
+	 * @return Le chunk, null si inexistant
+	 */
+	GameMapChunk get(int x, int y)
+	{
+		long key = key(x, y);
+		for(int slot = hash(key) & this.mask; this.values[slot] != null; slot = (slot + 1) & this.mask)
+		{
+			if(this.keys[slot] == key)
+				return this.values[slot];
+		}
+		return null;
+	}
+
+	/**
+	 * Ajoute ou remplace le chunk à la position spécifiée
+	 * @param x La position horizontale du chunk
+	 * @param y La position verticale du chunk
+	 * @param chunk Le chunk, non null
+	 * @return Le chunk remplacé, null si inexistant
+	 */
+	GameMapChunk put(int x, int y, GameMapChunk chunk)
+	{
+		long key = key(x, y);
+		int slot = hash(key) & this.mask;
+		for(; this.values[slot] != null; slot = (slot + 1) & this.mask)
+		{
+			if(this.keys[slot] == key)
+			{
+				GameMapChunk previous = this.values[slot];
+				this.values[slot] = chunk;
+				return previous;
+			}
+		}
+
+		this.keys[slot] = key;
+		this.values[slot] = chunk;
+		increment(this.columns, x);
+		increment(this.rows, y);
+
+		// Taux de remplissage maximum de 1/2, au-delà les sondages s'allongent
+		if(++this.size > this.values.length >> 1)
+			this.resize(this.values.length << 1);
+		return null;
+	}
+
+	/**
+	 * Supprime le chunk à la position spécifiée
+	 * @param x La position horizontale du chunk
+	 * @param y La position verticale du chunk
+	 * @return Le chunk supprimé, null si inexistant
+	 */
+	GameMapChunk remove(int x, int y)
+	{
+		long key = key(x, y);
+		int slot = hash(key) & this.mask;
+		for(; this.values[slot] != null; slot = (slot + 1) & this.mask)
+		{
+			if(this.keys[slot] == key)
+				break;
+		}
+
+		GameMapChunk previous = this.values[slot];
+		if(previous == null)
+			return null;
+
+		// Décalage des entrées suivantes de la séquence de sondage, sans marque de suppression
+		int free = slot;
+		for(slot = (slot + 1) & this.mask; this.values[slot] != null; slot = (slot + 1) & this.mask)
+		{
+			int ideal = hash(this.keys[slot]) & this.mask;
+			if(((slot - ideal) & this.mask) >= ((slot - free) & this.mask))
+			{
+				this.keys[free] = this.keys[slot];
+				this.values[free] = this.values[slot];
+				free = slot;
+			}
+		}
+		this.values[free] = null;
+
+		decrement(this.columns, x);
+		decrement(this.rows, y);
+		this.size--;
+		return previous;
+	}
+
+	/**
+	 * Obtient la position horizontale du chunk le plus à gauche
+	 * @return La position minimum, 0 si aucun chunk n'existe
+	 */
+	int getMinX()
+	{
+		return this.columns.isEmpty() ? 0 : this.columns.firstKey();
+	}
+
+	/**
+	 * Obtient la position horizontale du chunk le plus à droite
+	 * @return La position maximum, -1 si aucun chunk n'existe
+	 */
+	int getMaxX()
+	{
+		return this.columns.isEmpty() ? -1 : this.columns.lastKey();
+	}
+
+	/**
+	 * Obtient la position verticale du chunk le plus haut
+	 * @return La position minimum, 0 si aucun chunk n'existe
+	 */
+	int getMinY()
+	{
+		return this.rows.isEmpty() ? 0 : this.rows.firstKey();
+	}
+
+	/**
+	 * Obtient la position verticale du chunk le plus bas
+	 * @return La position maximum, -1 si aucun chunk n'existe
+	 */
+	int getMaxY()
+	{
+		return this.rows.isEmpty() ? -1 : this.rows.lastKey();
+	}
+
+	private void resize(int capacity)
+	{
+		long[] keys = this.keys;
+		GameMapChunk[] values = this.values;
+		this.keys = new long[capacity];
+		this.values = new GameMapChunk[capacity];
+		this.mask = capacity - 1;
+
+		for(int i = 0; i < values.length; i++)
+		{
+			if(values[i] == null)
+				continue;
+
+			int slot = hash(keys[i]) & this.mask;
+			while(this.values[slot] != null)
+				slot = (slot + 1) & this.mask;
+			this.keys[slot] = keys[i];
+			this.values[slot] = values[i];
+		}
+	}
+
+	private static void increment(TreeMap<Integer, Integer> counts, int position)
+	{
+		counts.merge(position, 1, Integer::sum);
+	}
+
+	private static void decrement(TreeMap<Integer, Integer> counts, int position)
+	{
+		counts.computeIfPresent(position, (k, count) -> count == 1 ? null : count - 1);
+	}
+
+	private static long key(int x, int y)
+	{
+		return ((long)x << 32) | (y & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Mélange des bits de la clé (finalisation de MurmurHash3) : les chunks voisins sont répartis dans la table
+	 */
+	private static int hash(long key)
+	{
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int)key;
+	}
+}
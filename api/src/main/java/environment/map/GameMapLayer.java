@@ -3,14 +3,30 @@ package environment.map;
 import system.objects.ResourceObject;
 import utils.FrogException;
 
+/**
+ * <h1>Couche de tuiles d'un chunk</h1>
+ * <p>Les tuiles sont stockées ligne par ligne. Une couche comptant peu de valeurs distinctes est stockée par
+ * palette (voir {@link GameMapLayerPalette}) : une couche vide ou uniforme n'occupe que quelques octets, une
+ * couche de 16 valeurs au plus un demi-octet par tuile. Lorsque la palette est pleine, la couche passe à un
+ * unique tableau d'entiers, 4 octets par tuile. Dans les deux cas la lecture d'une tuile est un accès direct.
+ * Les tuiles inexistantes valent {@value #EMPTY_TILE}.</p>
+ * <p>La représentation courante est publiée par une unique référence volatile, remplacée par une représentation
+ * entièrement construite : une lecture concurrente d'un changement de représentation obtient l'une ou l'autre.</p>
+ */
 public class GameMapLayer implements ResourceObject
 {
-	private Integer[][] tiles;
+	/**
+	 * Valeur des tuiles inexistantes, réservée
+	 */
+	public static final int EMPTY_TILE = -1;
+	
+	// Une seule représentation à la fois : palette (GameMapLayerPalette), ou tableau (int[]) lorsque la couche est trop variée
+	private volatile Object storage;
 	private int width, height;
 	
 	public GameMapLayer(int width, int height)
 	{
-		this.tiles = new Integer[height][width];
+		this.storage = new GameMapLayerPalette(width * height, EMPTY_TILE);
 		this.width = width;
 		this.height = height;
 	}
@@ -31,31 +47,138 @@ public class GameMapLayer implements ResourceObject
 		
 	}
 	
+	/**
+	 * Obtient la valeur de la tuile à la position donnée, sans allocation
+	 * @param relativeX La valeur horizontale relative au chunk de la position
+	 * @param relativeY La valeur verticale relative au chunk de la position
+	 * @return La valeur de la tuile à la position donnée, {@value #EMPTY_TILE} si inexistant
+	 */
+	public int getTileId(int relativeX, int relativeY)
+	{
+		if(relativeX >= 0 && relativeX < this.width && relativeY >= 0 && relativeY < this.height)
+		{
+			int index = relativeY * this.width + relativeX;
+			Object storage = this.storage;
+			return storage instanceof int[] ? ((int[])storage)[index] : ((GameMapLayerPalette)storage).get(index);
+		}
+		return EMPTY_TILE;
+	}
+	
 	/**
 	 * Obtient la valeur de la tuile à la position donnée
 	 * @param relativeX La valeur horizontale relative au chunk de la position
 	 * @param relativeY La valeur verticale relative au chunk de la position
 	 * @return La valeur de la tuile à la position donnée, null si inexistant
+	 * @see #getTileId(int, int)
 	 */
 	public Integer getTile(int relativeX, int relativeY)
 	{
-		if(relativeX >= 0 && relativeX < this.width && relativeY >= 0 && relativeY < this.height)
-			return this.tiles[relativeY][relativeX];
-		return null;
+		int tile = this.getTileId(relativeX, relativeY);
+		return tile == EMPTY_TILE ? null : tile;
 	}
 	
 	/**
 	 * Met à jour la valeur de la tuile à la position donnée
 	 * @param relativeX La valeur horizontale relative au chunk de la position donnée
 	 * @param relativeY La valeur verticale relative au chunk de la position donnée
-	 * @param value La nouvelle valeur de la tuile
+	 * @param value La nouvelle valeur de la tuile, {@value #EMPTY_TILE} pour supprimer la tuile
 	 * @throws FrogException Exception jetée lorsque la position donnée est située en dehors des limites définies
 	 */
-	public void setTile(int relativeX, int relativeY, Integer value) throws FrogException
+	public void setTile(int relativeX, int relativeY, int value) throws FrogException
 	{
-		if(relativeX >= 0 && relativeX < this.width && relativeY >= 0 && relativeY < this.height)
-			this.tiles[relativeY][relativeX] = value;
-		else
+		if(relativeX < 0 || relativeX >= this.width || relativeY < 0 || relativeY >= this.height)
 			throw new FrogException("Tentative de modification d'une tuile en dehors des limites définies");
+		
+		int index = relativeY * this.width + relativeX;
+		Object storage = this.storage;
+		if(storage instanceof int[])
+			((int[])storage)[index] = value;
+		else if(!((GameMapLayerPalette)storage).set(index, value))
+		{
+			// Palette pleine : reconstruite sans les valeurs qui ne sont plus utilisées, à défaut la couche passe au tableau
+			int[] tiles = ((GameMapLayerPalette)storage).toArray();
+			tiles[index] = value;
+			this.setTiles(tiles);
+		}
+	}
+	
+	/**
+	 * Met à jour la valeur de la tuile à la position donnée
+	 * @param relativeX La valeur horizontale relative au chunk de la position donnée
+	 * @param relativeY La valeur verticale relative au chunk de la position donnée
+	 * @param value La nouvelle valeur de la tuile, null pour supprimer la tuile
+	 * @throws FrogException Exception jetée lorsque la position donnée est située en dehors des limites définies
+	 * @see #setTile(int, int, int)
+	 */
+	public void setTile(int relativeX, int relativeY, Integer value) throws FrogException
+	{
+		this.setTile(relativeX, relativeY, value == null ? EMPTY_TILE : value.intValue());
+	}
+	
+	/**
+	 * Obtient la largeur de la couche
+	 * @return La largeur en nombre de tuiles
+	 */
+	public int getWidth()
+	{
+		return this.width;
+	}
+	
+	/**
+	 * Obtient la hauteur de la couche
+	 * @return La hauteur en nombre de tuiles
+	 */
+	public int getHeight()
+	{
+		return this.height;
+	}
+	
+	/**
+	 * Obtient une estimation de la mémoire occupée par la couche
+	 * @return La taille estimée en octets, en-têtes d'objet et de tableau compris
+	 */
+	public long getMemorySize()
+	{
+		Object storage = this.storage;
+		return 32 + (storage instanceof int[] ? 16 + 4L * ((int[])storage).length : ((GameMapLayerPalette)storage).getMemorySize());
+	}
+	
+	/**
+	 * Obtient le nombre de valeurs distinctes de la palette de la couche
+	 * @return La taille de la palette, 0 si la couche est stockée dans un tableau
+	 */
+	public int getPaletteSize()
+	{
+		Object storage = this.storage;
+		return storage instanceof int[] ? 0 : ((GameMapLayerPalette)storage).size();
+	}
+	
+	/**
+	 * Reconstruit la palette de la couche, afin de libérer les valeurs qui ne sont plus utilisées
+	 * ou de revenir au stockage par palette après la suppression de tuiles variées
+	 */
+	public void compact()
+	{
+		this.setTiles(this.getTiles().clone());
+	}
+	
+	/**
+	 * Obtient les tuiles de la couche ligne par ligne
+	 * @return Le tableau des tuiles, sans copie si la couche est stockée dans un tableau : à ne pas modifier
+	 */
+	int[] getTiles()
+	{
+		Object storage = this.storage;
+		return storage instanceof int[] ? (int[])storage : ((GameMapLayerPalette)storage).toArray();
+	}
+	
+	/**
+	 * Remplace les tuiles de la couche, stockées par palette si possible
+	 * @param tiles Les tuiles ligne par ligne, conservées sans copie si la couche est trop variée
+	 */
+	void setTiles(int[] tiles)
+	{
+		GameMapLayerPalette palette = GameMapLayerPalette.of(tiles);
+		this.storage = palette == null ? tiles : palette;
 	}
 }
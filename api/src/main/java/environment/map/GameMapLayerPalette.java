@@ -0,0 +1,227 @@
+package environment.map;
+
+import java.util.Arrays;
+
+/**
+ * <h1>Tuiles d'une couche stockées par palette</h1>
+ * <p>Les valeurs distinctes des tuiles forment la palette, chaque tuile ne conserve que l'index de sa valeur
+ * dans la palette, sur 1, 2, 4 ou 8 bits selon la taille de la palette. Les index sont regroupés dans des long
+ * sans jamais chevaucher deux long : la lecture d'une tuile reste un accès direct. Une couche uniforme (vide ou
+ * remplie d'une seule tuile) n'occupe que sa palette.</p>
+ * <p>La palette ne fait que croître : au-delà de {@value #MAX_SIZE} valeurs, {@link #set(int, int)} échoue et la
+ * couche doit être reconstruite ou stockée dans un tableau.</p>
+ * <p>La palette et les index sont publiés ensemble par une unique référence volatile : l'ajout d'une valeur construit
+ * un nouvel état complet avant de le publier. Seul l'index d'une valeur déjà présente est modifié en place, un
+ * lecteur concurrent obtenant alors l'ancienne ou la nouvelle valeur de la tuile. Les écritures ne sont pas
+ * synchronisées entre elles : une couche n'est modifiée que par un thread à la fois.</p>
+ */
+class GameMapLayerPalette
+{
+	/**
+	 * Nombre maximum de valeurs de la palette, index sur 8 bits
+	 */
+	static final int MAX_SIZE = 256;
+
+	private final int count;
+	private volatile State state;
+
+	/**
+	 * Constructeur d'une couche uniforme
+	 * @param count Le nombre de tuiles
+	 * @param value La valeur de toutes les tuiles
+	 */
+	GameMapLayerPalette(int count, int value)
+	{
+		this.count = count;
+		this.state = new State(new int[] { value }, null, 0);
+	}
+
+	/**
+	 * Construit la palette de tuiles données
+	 * @param tiles Les tuiles ligne par ligne
+	 * @return La palette, null si les tuiles comptent plus de {@value #MAX_SIZE} valeurs distinctes
+	 */
+	static GameMapLayerPalette of(int[] tiles)
+	{
+		int[] sorted = tiles.clone();
+		Arrays.sort(sorted);
+		int size = 0;
+		for(int i = 0; i < sorted.length; i++)
+		{
+			if(i == 0 || sorted[i] != sorted[i - 1])
+			{
+				if(size == MAX_SIZE)
+					return null;
+				sorted[size++] = sorted[i];
+			}
+		}
+
+		GameMapLayerPalette palette = new GameMapLayerPalette(tiles.length, size == 0 ? GameMapLayer.EMPTY_TILE : sorted[0]);
+		int[] values = Arrays.copyOf(sorted, Math.max(1, size));
+		int bits = bitsFor(values.length);
+		if(bits != 0)
+		{
+			// Palette triée : index obtenu par recherche dichotomique
+			State state = new State(values, palette.newIndices(bits), bits);
+			for(int i = 0; i < tiles.length; i++)
+				state.write(i, Arrays.binarySearch(values, tiles[i]));
+			palette.state = state;
+		}
+		return palette;
+	}
+
+	/**
+	 * Obtient la valeur d'une tuile
+	 * @param index L'index de la tuile, ligne par ligne
+	 * @return La valeur de la tuile
+	 */
+	int get(int index)
+	{
+		State state = this.state;
+		if(state.bits == 0)
+			return state.palette[0];
+		return state.palette[state.read(index)];
+	}
+
+	/**
+	 * Met à jour la valeur d'une tuile, en ajoutant la valeur à la palette si nécessaire
+	 * @param index L'index de la tuile, ligne par ligne
+	 * @param value La nouvelle valeur de la tuile
+	 * @return False si la palette est pleine, la tuile n'est alors pas modifiée
+	 */
+	boolean set(int index, int value)
+	{
+		State state = this.state;
+		int entry = state.indexOf(value);
+		if(entry >= 0)
+		{
+			if(state.bits != 0)
+				state.write(index, entry);
+			return true;
+		}
+
+		int size = state.palette.length;
+		if(size == MAX_SIZE)
+			return false;
+
+		// Nouvel état construit entièrement avant sa publication, l'état courant n'est pas modifié
+		int[] palette = Arrays.copyOf(state.palette, size + 1);
+		palette[size] = value;
+		int bits = bitsFor(size + 1);
+		State next = new State(palette, this.newIndices(bits), bits);
+		if(state.bits != 0)
+		{
+			for(int i = 0; i < this.count; i++)
+				next.write(i, state.read(i));
+		}
+		next.write(index, size);
+		this.state = next;
+		return true;
+	}
+
+	/**
+	 * Obtient les tuiles ligne par ligne
+	 * @return Un nouveau tableau des tuiles
+	 */
+	int[] toArray()
+	{
+		State state = this.state;
+		int[] tiles = new int[this.count];
+		if(state.bits == 0)
+			Arrays.fill(tiles, state.palette[0]);
+		else
+		{
+			for(int i = 0; i < tiles.length; i++)
+				tiles[i] = state.palette[state.read(i)];
+		}
+		return tiles;
+	}
+
+	/**
+	 * Obtient le nombre de valeurs de la palette, certaines pouvant ne plus être utilisées
+	 * @return La taille de la palette
+	 */
+	int size()
+	{
+		return this.state.palette.length;
+	}
+
+	/**
+	 * Obtient une estimation de la mémoire occupée par la palette
+	 * @return La taille estimée en octets, en-têtes d'objet et de tableaux compris
+	 */
+	long getMemorySize()
+	{
+		State state = this.state;
+		return 24 + 24 + 16 + 4L * state.palette.length + (state.indices == null ? 0 : 16 + 8L * state.indices.length);
+	}
+
+	private long[] newIndices(int bits)
+	{
+		return bits == 0 ? null : new long[(int)(((long)this.count * bits + 63) >>> 6)];
+	}
+
+	/**
+	 * Obtient le nombre de bits des index d'une palette
+	 * @param size La taille de la palette
+	 * @return 0, 1, 2, 4 ou 8 bits
+	 */
+	private static int bitsFor(int size)
+	{
+		if(size <= 1)
+			return 0;
+		if(size <= 2)
+			return 1;
+		if(size <= 4)
+			return 2;
+		if(size <= 16)
+			return 4;
+		return 8;
+	}
+
+	/**
+	 * Valeurs de la palette et index des tuiles, publiés ensemble
+	 */
+	private static class State
+	{
+		private final int[] palette;
+		private final long[] indices;
+
+		// Index sur (1 << bitsShift) bits, aucun index si la palette ne contient qu'une valeur
+		private final int bits;
+		private final int bitsShift;
+
+		State(int[] palette, long[] indices, int bits)
+		{
+			this.palette = palette;
+			this.indices = indices;
+			this.bits = bits;
+			this.bitsShift = Integer.numberOfTrailingZeros(bits);
+		}
+
+		private int indexOf(int value)
+		{
+			for(int i = 0; i < this.palette.length; i++)
+			{
+				if(this.palette[i] == value)
+					return i;
+			}
+			return -1;
+		}
+
+		private int read(int index)
+		{
+			int offset = (index & ((64 >>> this.bitsShift) - 1)) << this.bitsShift;
+			return (int)(this.indices[index >>> (6 - this.bitsShift)] >>> offset) & ((1 << this.bits) - 1);
+		}
+
+		private void write(int index, int entry)
+		{
+			// 64 >> bitsShift index par long
+			int word = index >>> (6 - this.bitsShift);
+			int offset = (index & ((64 >>> this.bitsShift) - 1)) << this.bitsShift;
+			long mask = ((1L << this.bits) - 1) << offset;
+			this.indices[word] = (this.indices[word] & ~mask) | ((long)entry << offset);
+		}
+	}
+}
@@ -0,0 +1,11 @@
+package environment.map;
+
+public interface IChunkUnloadListener
+{
+	/**
+	 * Méthode appelée après la libération d'un chunk conservé en mémoire
+	 * @param x La position horizontale du chunk dans la carte
+	 * @param y La position verticale du chunk dans la carte
+	 */
+	void onChunkUnloaded(int x, int y);
+}
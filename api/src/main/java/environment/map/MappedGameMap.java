@@ -0,0 +1,537 @@
+package environment.map;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import system.objects.ResourceObject;
+import utils.FrogException;
+
+/**
+ * <h1>Carte de jeu projetée en mémoire depuis un fichier</h1>
+ * <p>Le fichier est projeté en mémoire à l'ouverture ({@link FileChannel#map}) et seul son en-tête est lu :
+ * la durée d'ouverture ne dépend pas de la taille de la carte. Un chunk n'est décodé qu'à son premier accès,
+ * puis conservé jusqu'à sa libération par {@link #unloadChunk(int, int)}. Les pages du fichier sont chargées
+ * et libérées par le système, la carte peut donc dépasser la taille du tas.</p>
+ * <p>Format du fichier : en-tête, index des chunks ligne par ligne depuis le chunk d'origine de la carte (position et taille du chunk, position nulle
+ * si le chunk n'existe pas), puis les chunks au format de {@link GameMapChunkCodec}. Le fichier est projeté
+ * par segments de 1 Go, aucun chunk n'étant écrit à cheval sur deux segments.</p>
+ * <p>Les dimensions de la carte sont fixées par le fichier. Les modifications ne sont conservées qu'en mémoire
+ * jusqu'à leur enregistrement par {@link #save(int, int)}, la carte devant être ouverte en écriture :
+ * un chunk modifié ou supprimé et non enregistré n'est jamais libéré.</p>
+ */
+public class MappedGameMap extends GameMap implements ResourceObject, Closeable
+{
+	public static final int MAGIC = 0x46524F47; // "FROG"
+	public static final int FORMAT_VERSION = 2;
+
+	// Magic, version, dimensions des tuiles, dimensions des chunks en tuiles, origine et dimensions de la carte en chunks
+	private static final int HEADER_SIZE = 10 * 4;
+	// Position (long) et taille (int) de chaque chunk
+	private static final int INDEX_ENTRY_SIZE = 8 + 4;
+	private static final int SEGMENT_SHIFT = 30;
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+	private FileChannel channel;
+	private MapMode mode;
+	// Remplacé lorsque le fichier grandit, les lectures en cours conservent les projections précédentes
+	private volatile MappedByteBuffer[] segments;
+	private int minX, minY, width, height;
+	private AtomicReferenceArray<GameMapChunk> resident;
+	private AtomicInteger residentCount;
+	// Marque des chunks supprimés, toujours présents dans le fichier
+	private GameMapChunk removed;
+	private volatile IChunkUnloadListener unloadListener;
+
+	private MappedGameMap(FileChannel channel, MapMode mode, MappedByteBuffer[] segments, int tileWidth, int tileHeight,
+			int chunkTilesCountRow, int chunkTilesCountColumn, int minX, int minY, int width, int height)
+	{
+		super(tileWidth, tileHeight, chunkTilesCountRow, chunkTilesCountColumn);
+		this.channel = channel;
+		this.mode = mode;
+		this.segments = segments;
+		this.minX = minX;
+		this.minY = minY;
+		this.width = width;
+		this.height = height;
+		this.resident = new AtomicReferenceArray<GameMapChunk>(width * height);
+		this.residentCount = new AtomicInteger();
+		this.removed = new GameMapChunk(this);
+	}
+
+	/**
+	 * <h1>Ouvre un fichier de carte</h1>
+	 * <p>Seul l'en-tête est lu, les chunks sont décodés à leur premier accès.</p>
+	 * @param file Le fichier de carte, écrit par {@link #write(GameMap, File)}
+	 * @return La carte projetée en mémoire
+	 * @throws IOException Exception jetée si le fichier ne peut être lu
+	 * @throws FrogException Exception jetée si le fichier n'est pas un fichier de carte valide
+	 */
+	public static MappedGameMap open(File file) throws IOException, FrogException
+	{
+		return open(file, false);
+	}
+
+	/**
+	 * <h1>Ouvre un fichier de carte</h1>
+	 * <p>Seul l'en-tête est lu, les chunks sont décodés à leur premier accès.</p>
+	 * @param file Le fichier de carte, écrit par {@link #write(GameMap, File)}
+	 * @param writable True pour permettre l'enregistrement des chunks modifiés
+	 * @return La carte projetée en mémoire
+	 * @throws IOException Exception jetée si le fichier ne peut être lu
+	 * @throws FrogException Exception jetée si le fichier n'est pas un fichier de carte valide
+	 */
+	public static MappedGameMap open(File file, boolean writable) throws IOException, FrogException
+	{
+		FileChannel channel = writable ? FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE) 
+				: FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		MapMode mode = writable ? MapMode.READ_WRITE : MapMode.READ_ONLY;
+		try
+		{
+			long size = channel.size();
+			MappedByteBuffer[] segments = new MappedByteBuffer[(int)((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+			for(int i = 0; i < segments.length; i++)
+			{
+				long position = (long)i << SEGMENT_SHIFT;
+				segments[i] = channel.map(mode, position, Math.min(SEGMENT_SIZE, size - position));
+			}
+
+			if(segments.length == 0 || segments[0].limit() < HEADER_SIZE)
+				throw new FrogException("Fichier de carte tronqué");
+
+			ByteBuffer header = segments[0];
+			if(header.getInt(0) != MAGIC)
+				throw new FrogException("Le fichier n'est pas un fichier de carte");
+			if(header.getInt(4) != FORMAT_VERSION)
+				throw new FrogException("Version du fichier de carte non supportée : " + header.getInt(4));
+
+			int width = header.getInt(32), height = header.getInt(36);
+			if(width < 0 || height < 0 || HEADER_SIZE + (long)width * height * INDEX_ENTRY_SIZE > header.limit())
+				throw new FrogException("Index des chunks du fichier de carte tronqué");
+
+			return new MappedGameMap(channel, mode, segments, header.getInt(8), header.getInt(12), header.getInt(16), header.getInt(20), 
+					header.getInt(24), header.getInt(28), width, height);
+		}
+		catch(IOException | FrogException e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * <h1>Écrit une carte dans un fichier de carte</h1>
+	 * <p>Les chunks écrits sont marqués comme non modifiés.</p>
+	 * @param map La carte à écrire
+	 * @param file Le fichier de destination, remplacé s'il existe
+	 * @throws IOException Exception jetée si le fichier ne peut être écrit
+	 * @throws FrogException Exception jetée si la carte ou l'un de ses chunks est trop grand pour le format
+	 */
+	public static void write(GameMap map, File file) throws IOException, FrogException
+	{
+		int minX = map.getMinX(), minY = map.getMinY();
+		int width = map.getWidth(), height = map.getHeight();
+		long indexSize = HEADER_SIZE + (long)width * height * INDEX_ENTRY_SIZE;
+		if(indexSize > SEGMENT_SIZE)
+			throw new FrogException("Carte trop grande pour l'index du fichier de carte");
+
+		ByteBuffer index = ByteBuffer.allocate((int)indexSize);
+		index.putInt(MAGIC).putInt(FORMAT_VERSION);
+		index.putInt(map.getTileWidth()).putInt(map.getTileHeight());
+		index.putInt(map.getChunkTilesCountRow()).putInt(map.getChunkTilesCountColumn());
+		index.putInt(minX).putInt(minY).putInt(width).putInt(height);
+
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			long position = indexSize;
+			for(int y = minY; y < minY + height; y++)
+			{
+				for(int x = minX; x < minX + width; x++)
+				{
+					GameMapChunk chunk = map.getChunk(x, y);
+					if(chunk == null)
+					{
+						index.putLong(0).putInt(0);
+						continue;
+					}
+
+					long version = chunk.getVersion();
+					byte[] data = GameMapChunkCodec.encode(chunk, x, y);
+					if(data.length > SEGMENT_SIZE)
+						throw new FrogException("Chunk trop grand pour le fichier de carte");
+
+					// Chunk repoussé au segment suivant plutôt qu'à cheval sur deux segments
+					if((position >>> SEGMENT_SHIFT) != ((position + data.length - 1) >>> SEGMENT_SHIFT))
+						position = ((position >>> SEGMENT_SHIFT) + 1) << SEGMENT_SHIFT;
+
+					index.putLong(position).putInt(data.length);
+					writeFully(channel, ByteBuffer.wrap(data), position);
+					position += data.length;
+					chunk.markSaved(version);
+				}
+			}
+
+			index.flip();
+			writeFully(channel, index, 0);
+		}
+	}
+
+	/**
+	 * Obtient le chunk à la position spécifiée, décodé depuis le fichier à son premier accès
+	 * @param x La valeur horizontale (axe x) de la position
+	 * @param y La valeur verticale (axe y) de la position
+	 * @return Obtient le chunk si existant, retourne null dans le cas contraire
+	 */
+	@Override
+	public GameMapChunk getChunk(int x, int y)
+	{
+		int index = this.indexOf(x, y);
+		if(index < 0)
+			return null;
+
+		GameMapChunk chunk;
+		while((chunk = this.resident.get(index)) == null)
+		{
+			chunk = this.read(index);
+			if(chunk == null)
+				return null;
+
+			// Un seul chunk conservé lorsque plusieurs threads accèdent au même chunk
+			if(this.resident.compareAndSet(index, null, chunk))
+			{
+				this.residentCount.incrementAndGet();
+				break;
+			}
+		}
+
+		return chunk == this.removed ? null : chunk;
+	}
+
+	/**
+	 * Met à jour un chunk à une position donnée, en mémoire uniquement
+	 * @param chunk Le nouveau chunk (peut être null)
+	 * @param x La valeur horizontale (axe x) de la position
+	 * @param y La valeur verticale (axe y) de la position
+	 * @throws FrogException Exception jetée si la position est en dehors de la carte
+	 */
+	@Override
+	public void setChunk(GameMapChunk chunk, int x, int y) throws FrogException
+	{
+		int index = this.indexOf(x, y);
+		if(index < 0)
+			throw new FrogException("Les dimensions d'une carte projetée depuis un fichier ne peuvent être modifiées");
+
+		if(this.resident.getAndSet(index, chunk == null ? this.removed : chunk) == null)
+			this.residentCount.incrementAndGet();
+	}
+
+	/**
+	 * Obtient le chunk à la position spécifiée s'il est conservé en mémoire, sans le décoder
+	 * @param x La valeur horizontale (axe x) de la position
+	 * @param y La valeur verticale (axe y) de la position
+	 * @return Le chunk conservé, null s'il n'est pas décodé ou n'existe pas
+	 */
+	public GameMapChunk getResidentChunk(int x, int y)
+	{
+		int index = this.indexOf(x, y);
+		if(index < 0)
+			return null;
+
+		GameMapChunk chunk = this.resident.get(index);
+		return chunk == this.removed ? null : chunk;
+	}
+
+	/**
+	 * <h1>Enregistre dans le fichier le chunk à la position spécifiée</h1>
+	 * <p>Un chunk dont la taille n'a pas changé est réécrit à son emplacement, les autres sont ajoutés en fin
+	 * de fichier (l'emplacement précédent n'est pas réutilisé). Un chunk supprimé est retiré de l'index.</p>
+	 * @param x La valeur horizontale (axe x) de la position
+	 * @param y La valeur verticale (axe y) de la position
+	 * @return True si le chunk a été enregistré, False s'il n'est pas conservé en mémoire ou n'a pas été modifié
+	 * @throws IOException Exception jetée si le fichier ne peut être écrit
+	 * @throws FrogException Exception jetée si la carte est ouverte en lecture seule, ou le chunk trop grand
+	 */
+	public synchronized boolean save(int x, int y) throws IOException, FrogException
+	{
+		if(this.mode != MapMode.READ_WRITE)
+			throw new FrogException("Enregistrement impossible, la carte est ouverte en lecture seule");
+
+		int index = this.indexOf(x, y);
+		GameMapChunk chunk = index < 0 ? null : this.resident.get(index);
+		if(chunk == null || !chunk.isModified())
+			return false;
+
+		int entry = HEADER_SIZE + index * INDEX_ENTRY_SIZE;
+		if(chunk == this.removed)
+		{
+			this.segments[0].putLong(entry, 0).putInt(entry + 8, 0);
+
+			// Chunk absent du fichier, aucune marque à conserver
+			if(this.resident.compareAndSet(index, chunk, null))
+				this.residentCount.decrementAndGet();
+			return true;
+		}
+
+		long version = chunk.getVersion();
+		byte[] data = GameMapChunkCodec.encode(chunk, x, y);
+		long offset = this.segments[0].getLong(entry);
+		if(offset == 0 || this.segments[0].getInt(entry + 8) != data.length)
+		{
+			offset = this.append(data);
+			this.segments[0].putInt(entry + 8, data.length).putLong(entry, offset);
+		}
+		else
+		{
+			ByteBuffer buffer = this.segments[(int)(offset >>> SEGMENT_SHIFT)].duplicate();
+			buffer.position((int)(offset & (SEGMENT_SIZE - 1)));
+			buffer.put(data);
+		}
+
+		chunk.markSaved(version);
+		return true;
+	}
+
+	/**
+	 * Enregistre dans le fichier l'ensemble des chunks modifiés ou supprimés
+	 * @return Le nombre de chunks enregistrés
+	 * @throws IOException Exception jetée si le fichier ne peut être écrit
+	 * @throws FrogException Exception jetée si la carte est ouverte en lecture seule, ou un chunk trop grand
+	 */
+	public int save() throws IOException, FrogException
+	{
+		int count = 0;
+		for(int y = this.minY; y < this.minY + this.height; y++)
+		{
+			for(int x = this.minX; x < this.minX + this.width; x++)
+			{
+				if(this.save(x, y))
+					count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Obtient l'état d'ouverture du fichier
+	 * @return True si les chunks modifiés peuvent être enregistrés, False si la carte est ouverte en lecture seule
+	 */
+	public boolean isWritable()
+	{
+		return this.mode == MapMode.READ_WRITE;
+	}
+
+	/**
+	 * Libère le chunk à la position spécifiée, qui sera de nouveau décodé depuis le fichier à son prochain accès
+	 * @param x La valeur horizontale (axe x) de la position
+	 * @param y La valeur verticale (axe y) de la position
+	 * @return True si le chunk n'est plus conservé en mémoire, False s'il a été modifié ou supprimé
+	 */
+	public boolean unloadChunk(int x, int y)
+	{
+		int index = this.indexOf(x, y);
+		if(index < 0)
+			return true;
+
+		GameMapChunk chunk = this.resident.get(index);
+		if(chunk == null)
+			return true;
+
+		// Les modifications non enregistrées n'existent qu'en mémoire
+		if(chunk.isModified() || !this.resident.compareAndSet(index, chunk, null))
+			return false;
+
+		chunk.unload();
+		this.residentCount.decrementAndGet();
+
+		IChunkUnloadListener listener = this.unloadListener;
+		if(listener != null)
+			listener.onChunkUnloaded(x, y);
+		return true;
+	}
+
+	/**
+	 * Met à jour le souscripteur notifié à chaque libération de chunk, par exemple afin de libérer ses données dérivées
+	 * @param listener Le nouveau souscripteur, null pour aucune notification
+	 */
+	public void setUnloadListener(IChunkUnloadListener listener)
+	{
+		this.unloadListener = listener;
+	}
+
+	/**
+	 * Obtient le nombre de chunks conservés en mémoire
+	 * @return Le nombre de chunks décodés, ajoutés ou supprimés et non libérés
+	 */
+	public int getResidentCount()
+	{
+		return this.residentCount.get();
+	}
+
+	/**
+	 * Obtient la taille du fichier de carte
+	 * @return La taille du fichier en octets
+	 * @throws IOException Exception jetée si le fichier est fermé
+	 */
+	public long getFileSize() throws IOException
+	{
+		return this.channel.size();
+	}
+
+	/**
+	 * Aucun chargement anticipé, les chunks sont décodés à leur premier accès
+	 */
+	public void load()
+	{
+		// nothing
+	}
+
+	/**
+	 * Libère l'ensemble des chunks non modifiés
+	 */
+	public void unload()
+	{
+		for(int y = this.minY; y < this.minY + this.height; y++)
+		{
+			for(int x = this.minX; x < this.minX + this.width; x++)
+				this.unloadChunk(x, y);
+		}
+	}
+
+	/**
+	 * Libère les chunks non modifiés et ferme le fichier, sans enregistrer les modifications. Les chunks
+	 * enregistrés sont écrits sur le disque, la projection reste lisible jusqu'à sa collecte par le ramasse-miettes.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		this.unload();
+		if(this.mode == MapMode.READ_WRITE)
+		{
+			for(MappedByteBuffer segment : this.segments)
+				segment.force();
+		}
+		this.channel.close();
+	}
+
+	/**
+	 * Obtient la position horizontale du chunk d'origine de la map
+	 * @return La position minimum définie par le fichier
+	 */
+	@Override
+	public int getMinX()
+	{
+		return this.minX;
+	}
+
+	/**
+	 * Obtient la position verticale du chunk d'origine de la map
+	 * @return La position minimum définie par le fichier
+	 */
+	@Override
+	public int getMinY()
+	{
+		return this.minY;
+	}
+
+	/**
+	 * Obtient la largeur de la map en nombre de chunks
+	 * @return La largeur de la map en nombre de chunks
+	 */
+	@Override
+	public int getWidth()
+	{
+		return this.width;
+	}
+
+	/**
+	 * Obtient la hauteur de la map en nombre de chunks
+	 * @return La hauteur de la map en nombre de chunks
+	 */
+	@Override
+	public int getHeight()
+	{
+		return this.height;
+	}
+
+	private int indexOf(int x, int y)
+	{
+		// Soustraction en long : aucun dépassement pour des positions éloignées de l'origine
+		long column = (long)x - this.minX, row = (long)y - this.minY;
+		if(column < 0 || row < 0 || column >= this.width || row >= this.height)
+			return -1;
+		return (int)(row * this.width + column);
+	}
+
+	private GameMapChunk read(int index)
+	{
+		ByteBuffer entries = this.segments[0];
+		int entry = HEADER_SIZE + index * INDEX_ENTRY_SIZE;
+		long offset = entries.getLong(entry);
+		int length = entries.getInt(entry + 8);
+		if(offset == 0)
+			return null;
+
+		// Projections lues après l'index : un chunk ajouté en fin de fichier est déjà projeté
+		MappedByteBuffer[] segments = this.segments;
+		int segment = (int)(offset >>> SEGMENT_SHIFT);
+		int position = (int)(offset & (SEGMENT_SIZE - 1));
+
+		try
+		{
+			if(segment >= segments.length || length < 0 || position + length > segments[segment].limit())
+				throw new FrogException("position hors du fichier");
+
+			// Copie de la projection : position et limite propres à chaque lecture
+			ByteBuffer buffer = segments[segment].duplicate();
+			buffer.limit(position + length);
+			buffer.position(position);
+			GameMapChunk chunk = GameMapChunkCodec.read(buffer, this);
+			chunk.markSaved(chunk.getVersion());
+			return chunk;
+		}
+		catch(FrogException e)
+		{
+			System.err.println(String.format("Chunk (%d, %d) illisible : %s", this.minX + index % this.width, this.minY + index / this.width, e.getMessage()));
+			return null;
+		}
+	}
+
+	/**
+	 * Ajoute un chunk en fin de fichier, sans chevaucher deux segments, et projette la partie ajoutée
+	 */
+	private long append(byte[] data) throws IOException, FrogException
+	{
+		if(data.length > SEGMENT_SIZE)
+			throw new FrogException("Chunk trop grand pour le fichier de carte");
+
+		long position = this.channel.size();
+		if((position >>> SEGMENT_SHIFT) != ((position + data.length - 1) >>> SEGMENT_SHIFT))
+			position = ((position >>> SEGMENT_SHIFT) + 1) << SEGMENT_SHIFT;
+		writeFully(this.channel, ByteBuffer.wrap(data), position);
+
+		// Seuls le dernier segment et les segments ajoutés sont projetés de nouveau
+		long size = position + data.length;
+		MappedByteBuffer[] segments = Arrays.copyOf(this.segments, (int)((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT));
+		for(int i = this.segments.length - 1; i < segments.length; i++)
+		{
+			long start = (long)i << SEGMENT_SHIFT;
+			segments[i] = this.channel.map(this.mode, start, Math.min(SEGMENT_SIZE, size - start));
+		}
+		this.segments = segments;
+		return position;
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+	{
+		while(buffer.hasRemaining())
+			position += channel.write(buffer, position);
+	}
+}
@@ -0,0 +1,19 @@
+package net;
+
+import net.socket.FrogChannel;
+
+public interface IChannelListener
+{
+	/**
+	 * Méthode appelée lors de l'acceptation d'une nouvelle connexion non bloquante,
+	 * avant que la connexion ne soit enregistrée auprès de sa boucle d'évènements
+	 * @param channel La nouvelle connexion cliente
+	 */
+	void onChannelAccept(FrogChannel channel);
+
+	/**
+	 * Méthode appelée une unique fois lors de la fermeture d'une connexion non bloquante
+	 * @param channel La connexion fermée
+	 */
+	void onChannelClose(FrogChannel channel);
+}
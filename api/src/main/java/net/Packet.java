@@ -1,5 +1,7 @@
 package net;
 
+import java.util.Base64;
+
 import org.json.JSONObject;
 
 import system.objects.SerializableObject;
@@ -9,11 +11,19 @@ public class Packet implements SerializableObject
 {
 	protected static final String PACKET_TYPE_KEY = "PacketType";
 	protected static final String PACKET_OBJECT_KEY = "PacketObject";
+	protected static final String REQUEST_ID_KEY = "RequestId";
+	
+	/**
+	 * Identifiant des packets n'appartenant à aucun échange requête/réponse
+	 */
+	public static final int NO_REQUEST_ID = 0;
 	
 	private PacketType packetType;
 	private String serialObject;
+	private byte[] data;
+	private int requestId;
 	
-	private Packet()
+	protected Packet()
 	{
 		// nothing
 	}
@@ -24,6 +34,35 @@ public class Packet implements SerializableObject
 		this.serialObject = serialObject;
 	}
 	
+	/**
+	 * Constructeur de packet à contenu binaire
+	 * @param packetType Le type du packet, à contenu binaire (voir {@link PacketType#hasBinaryPayload()})
+	 * @param data Le contenu binaire du packet
+	 */
+	public Packet(PacketType packetType, byte[] data)
+	{
+		this.packetType = packetType;
+		this.data = data;
+	}
+	
+	/**
+	 * Obtient l'identifiant de la requête à laquelle le packet appartient
+	 * @return L'identifiant de la requête, {@value #NO_REQUEST_ID} si le packet n'appartient à aucune requête
+	 */
+	public int getRequestId()
+	{
+		return this.requestId;
+	}
+	
+	/**
+	 * Met à jour l'identifiant de la requête à laquelle le packet appartient, repris par la réponse du serveur
+	 * @param requestId L'identifiant de la requête
+	 */
+	public void setRequestId(int requestId)
+	{
+		this.requestId = requestId;
+	}
+	
 	public PacketType getType()
 	{
 		return this.packetType;
@@ -31,9 +70,52 @@ public class Packet implements SerializableObject
 	
 	public String getSerializedObject()
 	{
+		// Contenu binaire transporté en base 64 par les formats textuels
+		if(this.serialObject == null && this.data != null)
+			this.serialObject = Base64.getEncoder().encodeToString(this.data);
 		return this.serialObject;
 	}
 	
+	/**
+	 * Obtient le contenu binaire d'un packet à contenu binaire
+	 * @return Le contenu binaire du packet
+	 * @throws IllegalArgumentException Exception jetée si le contenu reçu n'est pas un contenu binaire valide
+	 */
+	public byte[] getData()
+	{
+		if(this.data == null && this.serialObject != null)
+			this.data = Base64.getDecoder().decode(this.serialObject);
+		return this.data;
+	}
+	
+	/**
+	 * <h1>Conserve le packet au-delà de sa notification</h1>
+	 * <p>Sans effet pour un packet ordinaire. Un packet issu d'un {@link PacketPool} n'est valide que pendant sa
+	 * notification : un souscripteur devant le conserver doit appeler cette méthode, puis {@link #release()}.</p>
+	 * @return Le packet
+	 */
+	public Packet retain()
+	{
+		return this;
+	}
+	
+	/**
+	 * Libère un packet conservé par {@link #retain()}, sans effet pour un packet ordinaire
+	 */
+	public void release()
+	{
+		// Packet ordinaire, libéré par le ramasse-miettes
+	}
+	
+	/**
+	 * Obtient une version du packet pouvant être conservée sans limite de durée
+	 * @return Le packet lui-même, ou une copie indépendante pour un packet issu d'un {@link PacketPool}
+	 */
+	public Packet detach()
+	{
+		return this;
+	}
+	
 	public static Packet getPacket(String jsonData) throws FrogException
 	{
 		Packet p = new Packet();
@@ -42,6 +124,7 @@ public class Packet implements SerializableObject
 			JSONObject obj = new JSONObject(jsonData);
 			p.packetType = PacketType.values()[obj.getInt(PACKET_TYPE_KEY)];
 			p.serialObject = obj.getString(PACKET_OBJECT_KEY);
+			p.requestId = obj.optInt(REQUEST_ID_KEY, NO_REQUEST_ID);
 		} 
 		catch (Exception e) 
 		{
@@ -55,8 +138,10 @@ public class Packet implements SerializableObject
 	public String toJSON() 
 	{
 		JSONObject obj = new JSONObject();
-		obj.put(PACKET_TYPE_KEY, this.packetType.ordinal());
-		obj.put(PACKET_OBJECT_KEY, this.serialObject);
+		obj.put(PACKET_TYPE_KEY, this.getType().ordinal());
+		obj.put(PACKET_OBJECT_KEY, this.getSerializedObject());
+		if(this.getRequestId() != NO_REQUEST_ID)
+			obj.put(REQUEST_ID_KEY, this.getRequestId());
 		return obj.toString();
 	}
 }
\ No newline at end of file
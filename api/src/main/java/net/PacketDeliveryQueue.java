@@ -0,0 +1,180 @@
+package net;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <h1>Aiguilleur de packets à distribution différée</h1>
+ * <p>Les packets reçus par le thread de lecture sont placés dans une file sans verrou, puis distribués
+ * aux abonnés par le thread appelant {@link #drain()} (en général le thread de rendu du jeu) : les abonnés
+ * peuvent ainsi modifier l'état du jeu sans synchronisation.</p>
+ * <p>Chaque distribution est bornée en nombre de packets et en durée, une rafale de packets est donc
+ * répartie sur plusieurs images au lieu d'allonger l'une d'elles.</p>
+ * <p>Les types de packets décrivant un état (position d'un joueur par exemple) peuvent être regroupés :
+ * seul le dernier packet reçu d'un tel type est distribué, à la place du premier packet non distribué.</p>
+ */
+public class PacketDeliveryQueue extends PacketSubscriber
+{
+	public static final int DEFAULT_MAX_PACKETS = 256;
+	public static final long DEFAULT_MAX_MILLIS = 4;
+	
+	private Queue<Packet> queue;
+	private AtomicReferenceArray<Packet> latest;
+	private boolean[] coalesced;
+	private Packet[] markers;
+	private AtomicInteger pending;
+	private LongAdder delivered;
+	private LongAdder coalescedCount;
+	
+	private volatile int maxPackets;
+	private volatile long maxNanos;
+	
+	public PacketDeliveryQueue()
+	{
+		this(PacketType.UPDATE_MOVEMENT_RESULT);
+	}
+	
+	/**
+	 * Constructeur de l'aiguilleur à distribution différée
+	 * @param coalescedTypes Les types de packets dont seul le dernier reçu est distribué
+	 */
+	public PacketDeliveryQueue(PacketType... coalescedTypes)
+	{
+		this.queue = new ConcurrentLinkedQueue<Packet>();
+		this.latest = new AtomicReferenceArray<Packet>(PacketType.values().length);
+		this.coalesced = new boolean[PacketType.values().length];
+		this.pending = new AtomicInteger();
+		this.delivered = new LongAdder();
+		this.coalescedCount = new LongAdder();
+		this.maxPackets = DEFAULT_MAX_PACKETS;
+		this.maxNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_MILLIS);
+		
+		this.markers = new Packet[PacketType.values().length];
+		for(PacketType type : coalescedTypes)
+		{
+			this.coalesced[type.ordinal()] = true;
+			this.markers[type.ordinal()] = new Packet(type, "");
+		}
+	}
+	
+	/**
+	 * Met à jour le budget de chaque distribution
+	 * @param maxPackets Le nombre maximum de packets distribués par appel à {@link #drain()}
+	 * @param maxMillis La durée maximum d'un appel à {@link #drain()} en millisecondes
+	 */
+	public void setBudget(int maxPackets, long maxMillis)
+	{
+		this.maxPackets = Math.max(1, maxPackets);
+		this.maxNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxMillis));
+	}
+	
+	/**
+	 * <h1>Place un packet en attente de distribution</h1>
+	 * <p>Appelé par le thread de lecture, les abonnés ne sont pas notifiés avant le prochain appel à {@link #drain()}</p>
+	 * @param packet Le packet reçu
+	 */
+	@Override
+	public void pushPacket(Packet packet)
+	{
+		int type = packet.getType().ordinal();
+		if(this.coalesced[type])
+		{
+			// Un packet de ce type est déjà en file : il est remplacé sans changer de place
+			Packet previous = this.latest.getAndSet(type, packet.retain());
+			if(previous != null)
+			{
+				previous.release();
+				this.coalescedCount.increment();
+				return;
+			}
+			
+			// La place dans la file est réservée par un marqueur : le packet remplacé peut être réutilisé
+			this.pending.incrementAndGet();
+			this.queue.offer(this.markers[type]);
+			return;
+		}
+		
+		this.pending.incrementAndGet();
+		this.queue.offer(packet.retain());
+	}
+	
+	/**
+	 * <h1>Distribue les packets en attente aux abonnés</h1>
+	 * <p>Les packets sont distribués dans leur ordre de réception sur le thread appelant, jusqu'à épuisement
+	 * de la file ou du budget. Le budget est vérifié entre deux packets : un abonné lent peut le dépasser.</p>
+	 * @return Le nombre de packets distribués
+	 */
+	public int drain()
+	{
+		int maxPackets = this.maxPackets;
+		long deadline = System.nanoTime() + this.maxNanos;
+		int count = 0;
+		
+		Packet packet;
+		while(count < maxPackets && (packet = this.queue.poll()) != null)
+		{
+			this.pending.decrementAndGet();
+			
+			int type = packet.getType().ordinal();
+			if(this.coalesced[type])
+				packet = this.latest.getAndSet(type, null);
+			
+			try
+			{
+				super.pushPacket(packet);
+			}
+			finally
+			{
+				packet.release();
+			}
+			count++;
+			
+			if(System.nanoTime() - deadline >= 0)
+				break;
+		}
+		
+		this.delivered.add(count);
+		return count;
+	}
+	
+	/**
+	 * Obtient le nombre de packets en attente de distribution
+	 * @return Le nombre de packets en attente, les packets regroupés comptant pour un seul packet
+	 */
+	public int getPendingCount()
+	{
+		return this.pending.get();
+	}
+	
+	/**
+	 * Obtient le nombre total de packets distribués
+	 * @return Le nombre de packets distribués
+	 */
+	public long getDeliveredCount()
+	{
+		return this.delivered.sum();
+	}
+	
+	/**
+	 * Obtient le nombre total de packets remplacés par un packet plus récent avant leur distribution
+	 * @return Le nombre de packets regroupés
+	 */
+	public long getCoalescedCount()
+	{
+		return this.coalescedCount.sum();
+	}
+	
+	/**
+	 * Indique si les packets d'un type sont regroupés
+	 * @param type Le type de packet
+	 * @return True si seul le dernier packet reçu de ce type est distribué
+	 */
+	public boolean isCoalesced(PacketType type)
+	{
+		return this.coalesced[type.ordinal()];
+	}
+}
@@ -0,0 +1,75 @@
+package net;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <h1>Réserve de packets réutilisables</h1>
+ * <p>Fournit les {@link PooledPacket} dans lesquels le thread de lecture décode les packets reçus. Un packet
+ * libéré par tous ses détenteurs retourne dans la réserve : en régime établi, la réception ne produit
+ * plus aucun déchet.</p>
+ * <p>La réserve est bornée, les packets libérés au-delà de sa capacité sont abandonnés au ramasse-miettes.</p>
+ */
+public class PacketPool
+{
+	public static final int DEFAULT_CAPACITY = 64;
+	
+	private BlockingQueue<PooledPacket> available;
+	private LongAdder created;
+	
+	public PacketPool()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Constructeur de la réserve de packets
+	 * @param capacity Le nombre maximum de packets conservés en réserve
+	 */
+	public PacketPool(int capacity)
+	{
+		// File à tableau : aucune allocation par ajout, contrairement aux files chaînées
+		this.available = new ArrayBlockingQueue<PooledPacket>(Math.max(1, capacity));
+		this.created = new LongAdder();
+	}
+	
+	/**
+	 * Obtient un packet de la réserve, ou un nouveau packet si la réserve est vide
+	 * @return Un packet détenu par l'appelant, à libérer par {@link PooledPacket#release()}
+	 */
+	public PooledPacket acquire()
+	{
+		PooledPacket packet = this.available.poll();
+		if(packet == null)
+		{
+			packet = new PooledPacket(this);
+			this.created.increment();
+		}
+		packet.retain();
+		return packet;
+	}
+	
+	void recycle(PooledPacket packet)
+	{
+		this.available.offer(packet);
+	}
+	
+	/**
+	 * Obtient le nombre de packets disponibles en réserve
+	 * @return Le nombre de packets disponibles
+	 */
+	public int getAvailableCount()
+	{
+		return this.available.size();
+	}
+	
+	/**
+	 * Obtient le nombre total de packets créés par la réserve
+	 * @return Le nombre de packets créés, stable en régime établi
+	 */
+	public long getCreatedCount()
+	{
+		return this.created.sum();
+	}
+}
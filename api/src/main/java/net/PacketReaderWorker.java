@@ -24,14 +24,27 @@ public class PacketReaderWorker extends Thread
 		{
 			try 
 			{
-				System.out.println("Waiting for packets...");
-				String line = this.network.getReader().readLine();
-				System.out.println("Packet received : " + line);
-				Packet responsePacket = Packet.getPacket(line);
-				raiseReceivedPacketEvent(responsePacket);
+				// Packet réutilisé après sa notification, voir PooledPacket
+				PooledPacket packet = this.network.readPooledPacket();
+				try
+				{
+					raiseReceivedPacketEvent(packet);
+				}
+				finally
+				{
+					packet.release();
+				}
 			} 
-			catch (IOException | FrogException e) 
+			catch (IOException e) 
 			{
+				// Communication fermée ou corrompue, la lecture ne peut pas reprendre
+				if(this.network.isRunning())
+					System.err.println("Lecture des packets interrompue : " + e.getMessage());
+				this.network.stop();
+			}
+			catch (FrogException e) 
+			{
+				// Packet invalide ignoré, le flux reste synchronisé
 				e.printStackTrace();
 			}
 		}
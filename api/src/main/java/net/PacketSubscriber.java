@@ -1,56 +1,115 @@
 package net;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
 
 import utils.FrogException;
 
 /**
  * <h1>Aiguilleur de packets internet de jeu</h1>
- * <p>Classe permettant à des entités de souscrire à des notification. 
+ * <p>Classe permettant à des entités de souscrire à des notification.
  * Ces notification sont réalisées pour chaque reception de packets de
  * jeu et sont distribuées spécifiquement et de façon optimisé au entitées
  * ayant demandé de les recevoirs.</p>
+ * <p>Les abonnés sont rangés dans une table de tableaux indexée par l'ordinal du type de packet.
+ * Chaque modification remplace le tableau concerné par une copie : la distribution d'un packet
+ * ne prend aucun verrou et n'alloue aucun itérateur, un abonné lent ne bloque donc ni les autres
+ * distributions ni les abonnements.</p>
  */
 public class PacketSubscriber
 {
-	private HashMap<PacketType, ArrayList<IPacketListener>> listeners;
-	
+	private static final IPacketListener[] EMPTY = new IPacketListener[0];
+
+	private volatile IPacketListener[][] listeners;
+	private ReentrantLock lock;
+
 	public PacketSubscriber()
 	{
-		this.listeners = new HashMap<PacketType, ArrayList<IPacketListener>>();
-	}
-	
-	public synchronized void subscribe(PacketType type, IPacketListener packetHandler) throws FrogException
-	{
-		if(!this.listeners.containsKey(type))
-			this.listeners.put(type, new ArrayList<IPacketListener>());
-		
-		this.listeners.get(type).add(packetHandler);
+		IPacketListener[][] table = new IPacketListener[PacketType.values().length][];
+		Arrays.fill(table, EMPTY);
+		this.listeners = table;
+		this.lock = new ReentrantLock();
 	}
-	
-	public synchronized void unsubscribe(PacketType type, IPacketListener packetHandler)
+
+	public void subscribe(PacketType type, IPacketListener packetHandler) throws FrogException
 	{
-		if(this.listeners.containsKey(type))
+		this.lock.lock();
+		try
+		{
+			IPacketListener[][] table = this.listeners.clone();
+			IPacketListener[] current = table[type.ordinal()];
+			IPacketListener[] updated = Arrays.copyOf(current, current.length + 1);
+			updated[current.length] = packetHandler;
+			table[type.ordinal()] = updated;
+			this.listeners = table;
+		}
+		finally
 		{
-			List<IPacketListener> list = this.listeners.get(type);
-			list.remove(packetHandler);
-			if(list.isEmpty())
-				this.listeners.remove(type);
+			this.lock.unlock();
 		}
 	}
-	
-	public synchronized void pushPacket(Packet packet)
+
+	public void unsubscribe(PacketType type, IPacketListener packetHandler)
 	{
-		if(this.listeners.containsKey(packet.getType()))
+		this.lock.lock();
+		try
 		{
-			List<IPacketListener> list = this.listeners.get(packet.getType());
-			int size = list.size();
-			for(int i = 0; i < size; i++)
+			IPacketListener[] current = this.listeners[type.ordinal()];
+			int index = indexOf(current, packetHandler);
+			if(index < 0)
+				return;
+
+			IPacketListener[] updated = EMPTY;
+			if(current.length > 1)
 			{
-				list.get(i).onPacketReceived(packet);
+				updated = new IPacketListener[current.length - 1];
+				System.arraycopy(current, 0, updated, 0, index);
+				System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
 			}
+
+			IPacketListener[][] table = this.listeners.clone();
+			table[type.ordinal()] = updated;
+			this.listeners = table;
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * <h1>Distribue un packet aux abonnés de son type</h1>
+	 * <p>Les abonnés sont notifiés dans l'ordre de leur abonnement. Un abonnement ou désabonnement
+	 * réalisé pendant la distribution ne prend effet qu'au packet suivant.</p>
+	 * @param packet Le packet à distribuer
+	 */
+	public void pushPacket(Packet packet)
+	{
+		IPacketListener[] list = this.listeners[packet.getType().ordinal()];
+		for(int i = 0; i < list.length; i++)
+		{
+			list[i].onPacketReceived(packet);
+		}
+	}
+
+	/**
+	 * Obtient le nombre d'abonnés d'un type de packet
+	 * @param type Le type de packet
+	 * @return Le nombre d'abonnés
+	 */
+	public int getListenersCount(PacketType type)
+	{
+		return this.listeners[type.ordinal()].length;
+	}
+
+	private static int indexOf(IPacketListener[] list, IPacketListener packetHandler)
+	{
+		// Même sémantique que List.remove(Object) : première occurrence égale
+		for(int i = 0; i < list.length; i++)
+		{
+			if(packetHandler == null ? list[i] == null : packetHandler.equals(list[i]))
+				return i;
 		}
+		return -1;
 	}
 }
@@ -9,5 +9,28 @@ public enum PacketType
 	SYNC,
 	PROTOCOL_VERSION_RESULT,
 	CONNECT_RESULT,
-	UPDATE_MOVEMENT_RESULT
+	UPDATE_MOVEMENT_RESULT,
+	ERROR_RESULT,
+	CHUNK_DATA,
+	PING,
+	PONG;
+	
+	/**
+	 * Indique si le contenu des packets de ce type est binaire (voir {@link Packet#getData()})
+	 * @return True si le contenu est binaire, False s'il s'agit d'un objet sérialisé
+	 */
+	public boolean hasBinaryPayload()
+	{
+		return this == CHUNK_DATA;
+	}
+	
+	/**
+	 * Indique si les packets de ce type décrivent un état dont seule la dernière valeur compte : ils peuvent
+	 * être perdus ou remplacés sans conséquence, et sont transmis par datagramme lorsque c'est possible
+	 * @return True si la perte d'un packet de ce type est tolérée
+	 */
+	public boolean isDropTolerant()
+	{
+		return this == UPDATE_MOVEMENT_RESULT;
+	}
 }
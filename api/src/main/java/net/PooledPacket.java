@@ -0,0 +1,382 @@
+package net;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONObject;
+
+/**
+ * <h1>Packet réutilisable</h1>
+ * <p>Packet issu d'un {@link PacketPool}, dont le contenu est décodé directement dans un tampon conservé
+ * d'un packet à l'autre. Les accesseurs typés ({@link #getInt(String, int)}, {@link #getBoolean(String, boolean)}...)
+ * lisent les champs de premier niveau de l'objet JSON sans rien allouer.</p>
+ * <p>Les accesseurs hérités ({@link #getSerializedObject()}, {@link #getData()}) restent disponibles
+ * mais allouent le contenu à leur premier appel.</p>
+ * <p>Le packet n'est valide que pendant sa notification : au-delà, il est réutilisé pour un autre packet.
+ * Un souscripteur devant le conserver doit appeler {@link #retain()} puis {@link #release()}, ou en obtenir
+ * une copie par {@link #detach()}.</p>
+ */
+public class PooledPacket extends Packet
+{
+	private static final int INITIAL_SIZE = 256;
+	private static final int NOT_FOUND = -1;
+
+	private PacketPool pool;
+	private AtomicInteger references;
+	private PacketType type;
+	private int requestId;
+	private byte[] payload;
+	private int length;
+	private String serialObject;
+
+	PooledPacket(PacketPool pool)
+	{
+		this.pool = pool;
+		this.references = new AtomicInteger();
+		this.type = PacketType.NONE;
+		this.payload = new byte[INITIAL_SIZE];
+	}
+
+	/**
+	 * <h1>Prépare le packet à recevoir un nouveau contenu</h1>
+	 * <p>Réservé aux formats de transport : le contenu doit être écrit dans le tableau retourné, de la position 0
+	 * à la longueur spécifiée.</p>
+	 * @param type Le type du packet
+	 * @param requestId L'identifiant de requête du packet
+	 * @param length La longueur du contenu, en octets
+	 * @return Le tableau destiné au contenu, d'une taille au moins égale à la longueur
+	 */
+	public byte[] prepare(PacketType type, int requestId, int length)
+	{
+		// Contenu précédent inutile, l'agrandissement ne le recopie pas
+		if(this.payload.length < length)
+			this.payload = new byte[Math.max(length, this.payload.length * 2)];
+
+		this.type = type;
+		this.requestId = requestId;
+		this.length = length;
+		this.serialObject = null;
+		return this.payload;
+	}
+
+	/**
+	 * Remplace le contenu du packet par une copie du contenu spécifié, réservé aux formats de transport
+	 * @param source Le tableau contenant le nouveau contenu
+	 * @param offset La position du contenu dans le tableau
+	 * @param length La longueur du contenu
+	 */
+	public void setPayload(byte[] source, int offset, int length)
+	{
+		System.arraycopy(source, offset, this.prepare(this.type, this.requestId, length), 0, length);
+	}
+
+	/**
+	 * Copie le type, l'identifiant de requête et le contenu d'un packet ordinaire
+	 * @param packet Le packet à copier
+	 */
+	public void set(Packet packet)
+	{
+		byte[] content = packet.getType().hasBinaryPayload() ? packet.getData() : packet.getSerializedObject().getBytes(StandardCharsets.UTF_8);
+		System.arraycopy(content, 0, this.prepare(packet.getType(), packet.getRequestId(), content.length), 0, content.length);
+	}
+
+	/**
+	 * Obtient le tableau contenant le contenu du packet, valide pendant la notification uniquement
+	 * @return Le tableau, dont seuls les {@link #getPayloadLength()} premiers octets sont significatifs
+	 */
+	public byte[] getPayload()
+	{
+		return this.payload;
+	}
+
+	/**
+	 * Obtient la longueur du contenu du packet
+	 * @return La longueur du contenu, en octets
+	 */
+	public int getPayloadLength()
+	{
+		return this.length;
+	}
+
+	@Override
+	public PacketType getType()
+	{
+		return this.type;
+	}
+
+	@Override
+	public int getRequestId()
+	{
+		return this.requestId;
+	}
+
+	@Override
+	public void setRequestId(int requestId)
+	{
+		this.requestId = requestId;
+	}
+
+	@Override
+	public String getSerializedObject()
+	{
+		if(this.serialObject == null)
+		{
+			// Contenu binaire transporté en base 64 par les formats textuels
+			if(this.type.hasBinaryPayload())
+				this.serialObject = Base64.getEncoder().encodeToString(this.getData());
+			else
+				this.serialObject = new String(this.payload, 0, this.length, StandardCharsets.UTF_8);
+		}
+		return this.serialObject;
+	}
+
+	@Override
+	public byte[] getData()
+	{
+		return Arrays.copyOf(this.payload, this.length);
+	}
+
+	@Override
+	public Packet retain()
+	{
+		this.references.incrementAndGet();
+		return this;
+	}
+
+	@Override
+	public void release()
+	{
+		int count = this.references.decrementAndGet();
+		if(count < 0)
+			throw new IllegalStateException("Packet libéré plus de fois qu'il n'a été conservé");
+
+		if(count == 0)
+		{
+			this.serialObject = null;
+			this.pool.recycle(this);
+		}
+	}
+
+	@Override
+	public Packet detach()
+	{
+		Packet copy = this.type.hasBinaryPayload() ? new Packet(this.type, this.getData()) : new Packet(this.type, this.getSerializedObject());
+		copy.setRequestId(this.requestId);
+		return copy;
+	}
+
+	/**
+	 * Indique si l'objet JSON du packet contient le champ spécifié
+	 * @param key Le nom du champ (ASCII, sans séquence d'échappement)
+	 * @return True si le champ est présent au premier niveau de l'objet
+	 */
+	public boolean has(String key)
+	{
+		return this.find(key) != NOT_FOUND;
+	}
+
+	/**
+	 * Obtient la valeur d'un champ entier de l'objet JSON du packet, sans allocation
+	 * @param key Le nom du champ (ASCII, sans séquence d'échappement)
+	 * @param defaultValue La valeur retournée si le champ est absent ou n'est pas un entier
+	 * @return La valeur du champ
+	 */
+	public int getInt(String key, int defaultValue)
+	{
+		long value = this.getLong(key, Long.MIN_VALUE);
+		if(value == Long.MIN_VALUE || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+			return defaultValue;
+		return (int)value;
+	}
+
+	/**
+	 * Obtient la valeur d'un champ entier de l'objet JSON du packet, sans allocation
+	 * @param key Le nom du champ (ASCII, sans séquence d'échappement)
+	 * @param defaultValue La valeur retournée si le champ est absent ou n'est pas un entier
+	 * @return La valeur du champ
+	 */
+	public long getLong(String key, long defaultValue)
+	{
+		int i = this.find(key);
+		if(i == NOT_FOUND)
+			return defaultValue;
+
+		boolean negative = this.payload[i] == '-';
+		if(negative)
+			i++;
+
+		int start = i;
+		long value = 0;
+		while(i < this.length && this.payload[i] >= '0' && this.payload[i] <= '9')
+		{
+			// Accumulation en négatif : Long.MIN_VALUE est représentable
+			long next = value * 10 - (this.payload[i] - '0');
+			if(value < Long.MIN_VALUE / 10 || next > value)
+				return defaultValue;
+			value = next;
+			i++;
+		}
+
+		if(i == start || (i < this.length && (this.payload[i] == '.' || this.payload[i] == 'e' || this.payload[i] == 'E')))
+			return defaultValue;
+		if(!negative && value == Long.MIN_VALUE)
+			return defaultValue;
+		return negative ? value : -value;
+	}
+
+	/**
+	 * Obtient la valeur d'un champ booléen de l'objet JSON du packet, sans allocation
+	 * @param key Le nom du champ (ASCII, sans séquence d'échappement)
+	 * @param defaultValue La valeur retournée si le champ est absent ou n'est pas un booléen
+	 * @return La valeur du champ
+	 */
+	public boolean getBoolean(String key, boolean defaultValue)
+	{
+		int i = this.find(key);
+		if(i == NOT_FOUND)
+			return defaultValue;
+		if(this.matches(i, "true"))
+			return true;
+		if(this.matches(i, "false"))
+			return false;
+		return defaultValue;
+	}
+
+	/**
+	 * Obtient la valeur d'un champ texte de l'objet JSON du packet
+	 * <p>Contrairement aux autres accesseurs typés, la chaîne retournée est allouée.</p>
+	 * @param key Le nom du champ (ASCII, sans séquence d'échappement)
+	 * @return La valeur du champ, null si le champ est absent ou n'est pas un texte
+	 */
+	public String getString(String key)
+	{
+		int i = this.find(key);
+		if(i == NOT_FOUND || this.payload[i] != '"')
+			return null;
+
+		int end = this.skipString(i);
+		boolean escaped = false;
+		for(int j = i + 1; j < end - 1 && !escaped; j++)
+			escaped = this.payload[j] == '\\';
+
+		// Séquences d'échappement rares, déléguées au décodeur JSON
+		if(escaped)
+			return new JSONObject(this.getSerializedObject()).optString(key, null);
+		return new String(this.payload, i + 1, end - i - 2, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Recherche la valeur d'un champ de premier niveau de l'objet JSON du contenu
+	 * @return La position du premier octet de la valeur, {@value #NOT_FOUND} si le champ est absent
+	 */
+	private int find(String key)
+	{
+		if(this.type.hasBinaryPayload())
+			return NOT_FOUND;
+
+		int i = this.skipWhitespaces(0);
+		if(i >= this.length || this.payload[i] != '{')
+			return NOT_FOUND;
+		i++;
+
+		while(true)
+		{
+			i = this.skipWhitespaces(i);
+			if(i >= this.length || this.payload[i] != '"')
+				return NOT_FOUND;
+
+			int keyEnd = this.skipString(i);
+			boolean found = this.isKey(i + 1, keyEnd - 1, key);
+
+			i = this.skipWhitespaces(keyEnd);
+			if(i >= this.length || this.payload[i] != ':')
+				return NOT_FOUND;
+			i = this.skipWhitespaces(i + 1);
+			if(i >= this.length)
+				return NOT_FOUND;
+			if(found)
+				return i;
+
+			i = this.skipWhitespaces(this.skipValue(i));
+			if(i >= this.length || this.payload[i] != ',')
+				return NOT_FOUND;
+			i++;
+		}
+	}
+
+	private boolean isKey(int start, int end, String key)
+	{
+		if(end - start != key.length())
+			return false;
+		for(int i = 0; i < key.length(); i++)
+		{
+			if(this.payload[start + i] != key.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	private boolean matches(int start, String literal)
+	{
+		if(this.length - start < literal.length())
+			return false;
+		for(int i = 0; i < literal.length(); i++)
+		{
+			if(this.payload[start + i] != literal.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	private int skipWhitespaces(int i)
+	{
+		while(i < this.length && (this.payload[i] == ' ' || this.payload[i] == '\t' || this.payload[i] == '\n' || this.payload[i] == '\r'))
+			i++;
+		return i;
+	}
+
+	/**
+	 * @return La position suivant le guillemet fermant de la chaîne débutant à la position spécifiée
+	 */
+	private int skipString(int i)
+	{
+		i++;
+		while(i < this.length && this.payload[i] != '"')
+			i += this.payload[i] == '\\' ? 2 : 1;
+		return Math.min(i + 1, this.length);
+	}
+
+	/**
+	 * @return La position suivant la valeur débutant à la position spécifiée
+	 */
+	private int skipValue(int i)
+	{
+		if(this.payload[i] == '"')
+			return this.skipString(i);
+
+		int depth = 0;
+		while(i < this.length)
+		{
+			byte b = this.payload[i];
+			if(b == '"')
+			{
+				i = this.skipString(i);
+				continue;
+			}
+			if(b == '{' || b == '[')
+				depth++;
+			else if(b == '}' || b == ']')
+			{
+				if(depth == 0)
+					return i;
+				depth--;
+			}
+			else if(b == ',' && depth == 0)
+				return i;
+			i++;
+		}
+		return i;
+	}
+}
@@ -0,0 +1,235 @@
+package net.codec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import net.Packet;
+import net.PacketType;
+import net.PooledPacket;
+import utils.FrogException;
+
+/**
+ * <h1>Format binaire préfixé par la longueur</h1>
+ * <p>Trame : longueur (int, 4 octets, big-endian), identifiant du {@link PacketType} (1 octet),
+ * puis l'objet sérialisé du packet encodé en UTF-8 (ou son contenu binaire, voir {@link PacketType#hasBinaryPayload()}).
+ * La longueur inclut l'identifiant de type.</p>
+ * <p>Lorsque le packet appartient à une requête (voir {@link Packet#getRequestId()}), le bit {@value #REQUEST_ID_FLAG}
+ * de l'identifiant de type est positionné et l'identifiant de requête (int, 4 octets) précède le contenu.</p>
+ * <p>Contrairement au format JSON, l'objet sérialisé n'est ni ré-encodé ni échappé.</p>
+ */
+public class BinaryPacketCodec implements PacketCodec
+{
+	public static final String NAME = "binary";
+	
+	protected static final int LENGTH_SIZE = 4;
+	protected static final int TYPE_SIZE = 1;
+	protected static final int REQUEST_ID_FLAG = 0x40;
+	private static final int REQUEST_ID_SIZE = 4;
+	private static final PacketType[] TYPES = PacketType.values();
+	
+	@Override
+	public String getName()
+	{
+		return NAME;
+	}
+
+	@Override
+	public ByteBuffer encode(Packet packet)
+	{
+		byte[] payload = getPayload(packet);
+		return this.encodeFrame(packet.getType().ordinal(), packet.getRequestId(), payload, 0, payload.length);
+	}
+	
+	/**
+	 * Obtient le contenu d'un packet à placer dans une trame
+	 * @param packet Le packet à encoder
+	 * @return Le contenu binaire ou l'objet sérialisé encodé en UTF-8 du packet
+	 */
+	protected static byte[] getPayload(Packet packet)
+	{
+		if(packet.getType().hasBinaryPayload())
+			return packet.getData();
+		return packet.getSerializedObject().getBytes(StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Construit une trame à partir de son identifiant de type et de son contenu
+	 * @param typeId L'identifiant de type de la trame
+	 * @param requestId L'identifiant de requête du packet, {@link Packet#NO_REQUEST_ID} si aucun
+	 * @param body Le tableau contenant le contenu de la trame
+	 * @param offset La position du contenu dans le tableau
+	 * @param length La longueur du contenu
+	 * @return Le tampon contenant la trame, prêt à être lu
+	 */
+	protected ByteBuffer encodeFrame(int typeId, int requestId, byte[] body, int offset, int length)
+	{
+		boolean hasRequestId = requestId != Packet.NO_REQUEST_ID;
+		int size = TYPE_SIZE + (hasRequestId ? REQUEST_ID_SIZE : 0) + length;
+		
+		ByteBuffer frame = ByteBuffer.allocate(LENGTH_SIZE + size);
+		frame.putInt(size);
+		if(hasRequestId)
+			frame.put((byte)(typeId | REQUEST_ID_FLAG)).putInt(requestId);
+		else
+			frame.put((byte)typeId);
+		frame.put(body, offset, length);
+		frame.flip();
+		return frame;
+	}
+
+	@Override
+	public Packet decode(ByteBuffer buffer) throws IOException, FrogException
+	{
+		if(buffer.remaining() < LENGTH_SIZE)
+			return null;
+		
+		int start = buffer.position();
+		int length = this.checkLength(buffer.getInt(start));
+		if(buffer.remaining() < LENGTH_SIZE + length)
+			return null;
+		
+		buffer.position(start + LENGTH_SIZE);
+		int typeId = buffer.get() & 0xFF;
+		int requestId = Packet.NO_REQUEST_ID;
+		int payloadLength = length - TYPE_SIZE;
+		if((typeId & REQUEST_ID_FLAG) != 0)
+		{
+			payloadLength = this.checkRequestIdLength(payloadLength);
+			requestId = buffer.getInt();
+			typeId &= ~REQUEST_ID_FLAG;
+		}
+		
+		byte[] payload = new byte[payloadLength];
+		buffer.get(payload);
+		
+		return this.toPacket(typeId, requestId, payload);
+	}
+
+	@Override
+	public Packet read(InputStream in) throws IOException, FrogException
+	{
+		int first = in.read();
+		if(first < 0)
+			return null;
+		
+		int length = this.checkLength((first << 24) | (this.readByte(in) << 16) | (this.readByte(in) << 8) | this.readByte(in));
+		int typeId = this.readByte(in);
+		int requestId = Packet.NO_REQUEST_ID;
+		int payloadLength = length - TYPE_SIZE;
+		if((typeId & REQUEST_ID_FLAG) != 0)
+		{
+			payloadLength = this.checkRequestIdLength(payloadLength);
+			requestId = this.readInt(in);
+			typeId &= ~REQUEST_ID_FLAG;
+		}
+		byte[] payload = new byte[payloadLength];
+		this.readFully(in, payload, payloadLength);
+		
+		return this.toPacket(typeId, requestId, payload);
+	}
+	
+	@Override
+	public boolean readInto(InputStream in, PooledPacket target) throws IOException, FrogException
+	{
+		int first = in.read();
+		if(first < 0)
+			return false;
+		
+		int length = this.checkLength((first << 24) | (this.readByte(in) << 16) | (this.readByte(in) << 8) | this.readByte(in));
+		int typeId = this.readByte(in);
+		int requestId = Packet.NO_REQUEST_ID;
+		int payloadLength = length - TYPE_SIZE;
+		if((typeId & REQUEST_ID_FLAG) != 0)
+		{
+			payloadLength = this.checkRequestIdLength(payloadLength);
+			requestId = this.readInt(in);
+			typeId &= ~REQUEST_ID_FLAG;
+		}
+		
+		// Contenu lu directement dans le tampon du packet, le type est vérifié après consommation de la trame
+		this.readFully(in, target.prepare(PacketType.NONE, requestId, payloadLength), payloadLength);
+		this.toPacket(typeId, target);
+		return true;
+	}
+	
+	/**
+	 * Complète un packet réutilisable dont le contenu de trame a été lu
+	 * @param typeId L'identifiant de type de la trame
+	 * @param target Le packet contenant le contenu de la trame, dont le type est à définir
+	 * @throws FrogException Exception jetée si le contenu de la trame est invalide
+	 */
+	protected void toPacket(int typeId, PooledPacket target) throws FrogException
+	{
+		if(typeId >= TYPES.length)
+			throw new FrogException("Type de packet inconnu : " + typeId);
+		
+		target.prepare(TYPES[typeId], target.getRequestId(), target.getPayloadLength());
+	}
+	
+	private int readInt(InputStream in) throws IOException
+	{
+		return (this.readByte(in) << 24) | (this.readByte(in) << 16) | (this.readByte(in) << 8) | this.readByte(in);
+	}
+	
+	private void readFully(InputStream in, byte[] payload, int length) throws IOException
+	{
+		int offset = 0;
+		while(offset < length)
+		{
+			int count = in.read(payload, offset, length - offset);
+			if(count < 0)
+				throw new EOFException("Fin du flux atteinte au milieu d'un packet");
+			offset += count;
+		}
+	}
+	
+	private int readByte(InputStream in) throws IOException
+	{
+		int b = in.read();
+		if(b < 0)
+			throw new EOFException("Fin du flux atteinte au milieu d'un packet");
+		return b;
+	}
+	
+	private int checkRequestIdLength(int payloadLength) throws IOException
+	{
+		if(payloadLength < REQUEST_ID_SIZE)
+			throw new IOException("Identifiant de requête tronqué");
+		return payloadLength - REQUEST_ID_SIZE;
+	}
+	
+	private Packet toPacket(int typeId, int requestId, byte[] payload) throws FrogException
+	{
+		Packet packet = this.toPacket(typeId, payload);
+		packet.setRequestId(requestId);
+		return packet;
+	}
+	
+	private int checkLength(int length) throws IOException
+	{
+		if(length < TYPE_SIZE || length > MAX_FRAME_SIZE)
+			throw new IOException("Longueur de packet invalide : " + length);
+		return length;
+	}
+	
+	/**
+	 * Construit le packet correspondant au contenu d'une trame
+	 * @param typeId L'identifiant de type de la trame
+	 * @param payload Le contenu de la trame
+	 * @return Le packet décodé
+	 * @throws FrogException Exception jetée si le contenu de la trame est invalide
+	 */
+	protected Packet toPacket(int typeId, byte[] payload) throws FrogException
+	{
+		if(typeId >= TYPES.length)
+			throw new FrogException("Type de packet inconnu : " + typeId);
+		
+		PacketType type = TYPES[typeId];
+		if(type.hasBinaryPayload())
+			return new Packet(type, payload);
+		return new Packet(type, new String(payload, StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,235 @@
+package net.codec;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+import environment.map.GameMapChunk;
+import environment.map.GameMapChunkCodec;
+import net.Packet;
+import net.PacketType;
+
+/**
+ * <h1>Cache des trames de transfert de chunks</h1>
+ * <p>Les couches d'un chunk sont encodées une seule fois, puis la trame {@link PacketType#CHUNK_DATA}
+ * correspondante est construite une seule fois par format de transport dans un tampon direct en lecture seule.
+ * Une même trame peut être envoyée à un nombre quelconque de connexions sans ré-encodage ni copie
+ * (voir {@link net.socket.FrogChannel#sendFrame(ByteBuffer, PacketType)}).</p>
+ * <p>Une trame est reconstruite dès que la version du chunk change, ou que le chunk est remplacé dans la carte.
+ * Le cache ne conserve aucune référence forte vers les chunks : un chunk libéré par la carte n'est pas retenu
+ * par ses trames. Au-delà du budget mémoire, les trames les moins récemment envoyées sont supprimées.</p>
+ */
+public class ChunkFrameCache
+{
+	public static final long DEFAULT_BUDGET = 64L << 20;
+	
+	private static final String DEFLATE_KEY = DeflatePacketCodec.COMPRESSION;
+	
+	// Ordre d'accès, protégé par le verrou du cache
+	private LinkedHashMap<Long, Entry> entries;
+	private long budget;
+	private long bytes;
+	private DeflatePacketCodec deflate;
+	private LongAdder encodes;
+	private LongAdder evictions;
+	
+	public ChunkFrameCache()
+	{
+		this(DEFAULT_BUDGET);
+	}
+	
+	/**
+	 * Constructeur du cache des trames
+	 * @param budget La mémoire maximum des trames et des chunks encodés conservés, en octets
+	 */
+	public ChunkFrameCache(long budget)
+	{
+		this.entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true);
+		this.budget = Math.max(0, budget);
+		// Trame compressée une seule fois : le niveau de compression peut être plus élevé que par packet
+		this.deflate = new DeflatePacketCodec(0, Deflater.DEFAULT_COMPRESSION);
+		this.encodes = new LongAdder();
+		this.evictions = new LongAdder();
+	}
+	
+	/**
+	 * Obtient la trame de transfert d'un chunk au format de transport spécifié
+	 * @param chunk Le chunk à transférer
+	 * @param x La position horizontale du chunk dans la carte
+	 * @param y La position verticale du chunk dans la carte
+	 * @param codec Le format de transport de la connexion destinataire
+	 * @return Une vue en lecture seule de la trame partagée, prête à être lue
+	 */
+	public ByteBuffer getFrame(GameMapChunk chunk, int x, int y, PacketCodec codec)
+	{
+		long key = key(x, y);
+		// Version lue avant l'encodage : une modification concurrente provoquera un nouvel encodage
+		long version = chunk.getVersion();
+		
+		Entry entry;
+		synchronized(this)
+		{
+			entry = this.entries.get(key);
+		}
+		
+		// Encodage hors verrou, deux envois simultanés peuvent encoder le même chunk
+		if(entry == null || entry.chunk.get() != chunk || entry.version != version)
+		{
+			entry = new Entry(chunk, version, GameMapChunkCodec.encode(chunk, x, y));
+			this.encodes.increment();
+			this.store(key, entry, null, null);
+		}
+		
+		String family = codec instanceof DeflatePacketCodec ? DEFLATE_KEY : codec.getName();
+		ByteBuffer frame = entry.frames.get(family);
+		if(frame == null)
+		{
+			PacketCodec encoder = codec instanceof DeflatePacketCodec ? this.deflate : codec;
+			frame = toDirect(encoder.encode(new Packet(PacketType.CHUNK_DATA, entry.body)));
+			this.store(key, entry, family, frame);
+		}
+		
+		return frame.duplicate();
+	}
+	
+	/**
+	 * Supprime la trame d'un chunk du cache, à appeler lorsque le chunk est retiré de la carte ou libéré
+	 * @param x La position horizontale du chunk dans la carte
+	 * @param y La position verticale du chunk dans la carte
+	 */
+	public synchronized void invalidate(int x, int y)
+	{
+		Entry entry = this.entries.remove(key(x, y));
+		if(entry != null)
+			this.bytes -= entry.bytes;
+	}
+	
+	/**
+	 * Supprime l'ensemble des trames du cache
+	 */
+	public synchronized void clear()
+	{
+		this.entries.clear();
+		this.bytes = 0;
+	}
+	
+	/**
+	 * Obtient le nombre d'encodages de chunks réalisés
+	 * @return Le nombre d'encodages
+	 */
+	public long getEncodesCount()
+	{
+		return this.encodes.sum();
+	}
+	
+	/**
+	 * Obtient le nombre de chunks supprimés du cache afin de respecter le budget mémoire
+	 * @return Le nombre de suppressions
+	 */
+	public long getEvictionsCount()
+	{
+		return this.evictions.sum();
+	}
+	
+	/**
+	 * Obtient le nombre de chunks dont les trames sont conservées
+	 * @return Le nombre de chunks
+	 */
+	public synchronized int getEntriesCount()
+	{
+		return this.entries.size();
+	}
+	
+	/**
+	 * Obtient la mémoire occupée par les trames et les chunks encodés conservés
+	 * @return La taille en octets
+	 */
+	public synchronized long getCachedBytes()
+	{
+		return this.bytes;
+	}
+	
+	/**
+	 * Obtient le budget mémoire du cache
+	 * @return Le budget en octets
+	 */
+	public long getBudget()
+	{
+		return this.budget;
+	}
+	
+	/**
+	 * Enregistre un chunk encodé ou l'une de ses trames, puis supprime les chunks les moins récemment envoyés
+	 * au-delà du budget. Le chunk enregistré est conservé afin que sa trame puisse être envoyée.
+	 */
+	private synchronized void store(long key, Entry entry, String family, ByteBuffer frame)
+	{
+		if(frame != null)
+		{
+			if(entry.frames.putIfAbsent(family, frame) != null)
+				return;
+			entry.bytes += frame.capacity();
+			
+			// Chunk supprimé ou remplacé entre-temps, la trame n'est pas comptée
+			if(this.entries.get(key) != entry)
+				return;
+			this.bytes += frame.capacity();
+		}
+		else
+		{
+			Entry previous = this.entries.put(key, entry);
+			if(previous != null)
+				this.bytes -= previous.bytes;
+			this.bytes += entry.bytes;
+		}
+		
+		Iterator<Map.Entry<Long, Entry>> it = this.entries.entrySet().iterator();
+		while(this.bytes > this.budget && it.hasNext())
+		{
+			Map.Entry<Long, Entry> eldest = it.next();
+			if(eldest.getValue() == entry)
+				continue;
+			
+			it.remove();
+			this.bytes -= eldest.getValue().bytes;
+			this.evictions.increment();
+		}
+	}
+	
+	private static long key(int x, int y)
+	{
+		return ((long)x << 32) | (y & 0xFFFFFFFFL);
+	}
+	
+	private static ByteBuffer toDirect(ByteBuffer frame)
+	{
+		ByteBuffer direct = ByteBuffer.allocateDirect(frame.remaining());
+		direct.put(frame);
+		direct.flip();
+		return direct.asReadOnlyBuffer();
+	}
+	
+	private static class Entry
+	{
+		// Référence faible : permet de constater le remplacement du chunk sans le retenir en mémoire
+		private WeakReference<GameMapChunk> chunk;
+		private long version;
+		private byte[] body;
+		private Map<String, ByteBuffer> frames;
+		private long bytes;
+		
+		public Entry(GameMapChunk chunk, long version, byte[] body)
+		{
+			this.chunk = new WeakReference<GameMapChunk>(chunk);
+			this.version = version;
+			this.body = body;
+			this.frames = new ConcurrentHashMap<String, ByteBuffer>();
+			this.bytes = body.length;
+		}
+	}
+}
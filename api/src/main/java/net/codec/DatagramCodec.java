@@ -0,0 +1,121 @@
+package net.codec;
+
+import java.nio.charset.StandardCharsets;
+
+import net.Packet;
+import net.PacketType;
+import net.PooledPacket;
+import utils.FrogException;
+
+/**
+ * <h1>Format des datagrammes</h1>
+ * <p>Un datagramme contient un unique packet : numéro de séquence (int, 4 octets, big-endian), identifiant
+ * du {@link PacketType} (1 octet), puis le contenu du packet comme dans le {@link BinaryPacketCodec}.
+ * La longueur est celle du datagramme.</p>
+ * <p>Le numéro de séquence, croissant pour chaque émetteur, permet au destinataire d'ignorer les datagrammes
+ * arrivés après un datagramme plus récent du même type (voir {@link net.socket.SequenceFilter}).</p>
+ * <p>La taille d'un datagramme est limitée à {@value #MAX_DATAGRAM_SIZE} octets afin d'éviter sa fragmentation :
+ * les packets plus volumineux doivent être transmis par la connexion fiable.</p>
+ */
+public final class DatagramCodec
+{
+	public static final int MAX_DATAGRAM_SIZE = 1200;
+	public static final int HEADER_SIZE = 5;
+	
+	private static final PacketType[] TYPES = PacketType.values();
+	
+	private DatagramCodec()
+	{
+		// Classe utilitaire
+	}
+	
+	/**
+	 * Encode un packet dans un datagramme
+	 * @param packet Le packet à encoder
+	 * @param sequence Le numéro de séquence du datagramme
+	 * @param buffer Le tableau recevant le datagramme, d'au moins {@value #MAX_DATAGRAM_SIZE} octets
+	 * @return La longueur du datagramme, -1 si le packet est trop volumineux
+	 */
+	public static int encode(Packet packet, int sequence, byte[] buffer)
+	{
+		byte[] payload = BinaryPacketCodec.getPayload(packet);
+		int length = HEADER_SIZE + payload.length;
+		if(length > MAX_DATAGRAM_SIZE || length > buffer.length)
+			return -1;
+		
+		buffer[0] = (byte)(sequence >>> 24);
+		buffer[1] = (byte)(sequence >>> 16);
+		buffer[2] = (byte)(sequence >>> 8);
+		buffer[3] = (byte)sequence;
+		buffer[4] = (byte)packet.getType().ordinal();
+		System.arraycopy(payload, 0, buffer, HEADER_SIZE, payload.length);
+		return length;
+	}
+	
+	/**
+	 * Obtient le numéro de séquence d'un datagramme
+	 * @param data Le tableau contenant le datagramme
+	 * @param length La longueur du datagramme
+	 * @return Le numéro de séquence
+	 * @throws FrogException Exception jetée si le datagramme est tronqué
+	 */
+	public static int getSequence(byte[] data, int length) throws FrogException
+	{
+		checkLength(length);
+		return ((data[0] & 0xFF) << 24) | ((data[1] & 0xFF) << 16) | ((data[2] & 0xFF) << 8) | (data[3] & 0xFF);
+	}
+	
+	/**
+	 * Obtient le type du packet contenu dans un datagramme
+	 * @param data Le tableau contenant le datagramme
+	 * @param length La longueur du datagramme
+	 * @return Le type du packet
+	 * @throws FrogException Exception jetée si le datagramme est tronqué ou le type inconnu
+	 */
+	public static PacketType getType(byte[] data, int length) throws FrogException
+	{
+		checkLength(length);
+		int typeId = data[4] & 0xFF;
+		if(typeId >= TYPES.length)
+			throw new FrogException("Type de packet inconnu : " + typeId);
+		return TYPES[typeId];
+	}
+	
+	/**
+	 * Décode le packet contenu dans un datagramme
+	 * @param data Le tableau contenant le datagramme
+	 * @param length La longueur du datagramme
+	 * @return Le packet décodé
+	 * @throws FrogException Exception jetée si le datagramme est invalide
+	 */
+	public static Packet decode(byte[] data, int length) throws FrogException
+	{
+		PacketType type = getType(data, length);
+		if(type.hasBinaryPayload())
+		{
+			byte[] payload = new byte[length - HEADER_SIZE];
+			System.arraycopy(data, HEADER_SIZE, payload, 0, payload.length);
+			return new Packet(type, payload);
+		}
+		return new Packet(type, new String(data, HEADER_SIZE, length - HEADER_SIZE, StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Décode le packet contenu dans un datagramme dans un packet réutilisable, sans allocation
+	 * @param data Le tableau contenant le datagramme
+	 * @param length La longueur du datagramme
+	 * @param target Le packet recevant le contenu du datagramme
+	 * @throws FrogException Exception jetée si le datagramme est invalide
+	 */
+	public static void decodeInto(byte[] data, int length, PooledPacket target) throws FrogException
+	{
+		PacketType type = getType(data, length);
+		System.arraycopy(data, HEADER_SIZE, target.prepare(type, Packet.NO_REQUEST_ID, length - HEADER_SIZE), 0, length - HEADER_SIZE);
+	}
+	
+	private static void checkLength(int length) throws FrogException
+	{
+		if(length < HEADER_SIZE)
+			throw new FrogException("Datagramme tronqué");
+	}
+}
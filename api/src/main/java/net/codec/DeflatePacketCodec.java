@@ -0,0 +1,223 @@
+package net.codec;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import net.Packet;
+import net.PooledPacket;
+import utils.FrogException;
+
+/**
+ * <h1>Format binaire avec compression des packets volumineux</h1>
+ * <p>Trames identiques au {@link BinaryPacketCodec}, les packets dont le contenu atteint le seuil
+ * de compression sont compressés (deflate). Le bit de poids fort de l'identifiant de type signale
+ * une trame compressée, dont le contenu débute par la taille d'origine (int, 4 octets).</p>
+ * <p>Un contenu dont la compression n'apporte aucun gain est envoyé tel quel.</p>
+ * <p>Contrairement aux autres formats, une instance conserve son compresseur et son décompresseur
+ * afin d'éviter leur allocation à chaque packet : une instance doit être créée par connexion.</p>
+ */
+public class DeflatePacketCodec extends BinaryPacketCodec
+{
+	public static final String COMPRESSION = "deflate";
+	public static final int DEFAULT_THRESHOLD = 512;
+	
+	private static final int COMPRESSED_FLAG = 0x80;
+	private static final int ORIGINAL_SIZE = 4;
+	
+	private int threshold;
+	private ReentrantLock deflateLock;
+	private Deflater deflater;
+	private byte[] deflateBuffer;
+	private ReentrantLock inflateLock;
+	private Inflater inflater;
+	private byte[] inflateBuffer;
+	private volatile boolean isClosed;
+	
+	public DeflatePacketCodec(int threshold)
+	{
+		this(threshold, Deflater.BEST_SPEED);
+	}
+	
+	/**
+	 * Constructeur du format compressé
+	 * @param threshold La taille de contenu à partir de laquelle un packet est compressé, en octets
+	 * @param level Le niveau de compression (voir {@link Deflater})
+	 */
+	public DeflatePacketCodec(int threshold, int level)
+	{
+		this.threshold = Math.max(0, threshold);
+		this.deflateLock = new ReentrantLock();
+		this.deflater = new Deflater(level);
+		this.deflateBuffer = new byte[0];
+		this.inflateLock = new ReentrantLock();
+		this.inflater = new Inflater();
+		this.inflateBuffer = new byte[0];
+	}
+	
+	@Override
+	public ByteBuffer encode(Packet packet)
+	{
+		byte[] payload = getPayload(packet);
+		int typeId = packet.getType().ordinal();
+		if(payload.length < this.threshold)
+			return this.encodeFrame(typeId, packet.getRequestId(), payload, 0, payload.length);
+		
+		this.deflateLock.lock();
+		try
+		{
+			// Connexion fermée pendant l'envoi, le packet ne sera pas transmis
+			if(this.isClosed)
+				return this.encodeFrame(typeId, packet.getRequestId(), payload, 0, payload.length);
+			
+			// Un résultat plus grand que le contenu d'origine n'a aucun intérêt : inutile de prévoir plus
+			int capacity = ORIGINAL_SIZE + payload.length;
+			if(this.deflateBuffer.length < capacity)
+				this.deflateBuffer = new byte[capacity];
+			
+			this.deflater.reset();
+			this.deflater.setInput(payload);
+			this.deflater.finish();
+			
+			int length = ORIGINAL_SIZE;
+			while(!this.deflater.finished() && length < capacity)
+				length += this.deflater.deflate(this.deflateBuffer, length, capacity - length);
+			
+			if(!this.deflater.finished() || length >= capacity)
+				return this.encodeFrame(typeId, packet.getRequestId(), payload, 0, payload.length);
+			
+			ByteBuffer.wrap(this.deflateBuffer, 0, ORIGINAL_SIZE).putInt(payload.length);
+			return this.encodeFrame(typeId | COMPRESSED_FLAG, packet.getRequestId(), this.deflateBuffer, 0, length);
+		}
+		finally
+		{
+			this.deflateLock.unlock();
+		}
+	}
+	
+	@Override
+	protected Packet toPacket(int typeId, byte[] payload) throws FrogException
+	{
+		if((typeId & COMPRESSED_FLAG) == 0)
+			return super.toPacket(typeId, payload);
+		
+		byte[] original = new byte[getOriginalSize(payload, payload.length)];
+		this.inflateLock.lock();
+		try
+		{
+			this.inflate(payload, payload.length, original, original.length);
+		}
+		finally
+		{
+			this.inflateLock.unlock();
+		}
+		
+		return super.toPacket(typeId & ~COMPRESSED_FLAG, original);
+	}
+	
+	@Override
+	protected void toPacket(int typeId, PooledPacket target) throws FrogException
+	{
+		if((typeId & COMPRESSED_FLAG) != 0)
+		{
+			int originalSize = getOriginalSize(target.getPayload(), target.getPayloadLength());
+			this.inflateLock.lock();
+			try
+			{
+				// Tampon de décompression conservé : aucune allocation en régime établi
+				if(this.inflateBuffer.length < originalSize)
+					this.inflateBuffer = new byte[originalSize];
+				
+				this.inflate(target.getPayload(), target.getPayloadLength(), this.inflateBuffer, originalSize);
+				target.setPayload(this.inflateBuffer, 0, originalSize);
+			}
+			finally
+			{
+				this.inflateLock.unlock();
+			}
+		}
+		
+		super.toPacket(typeId & ~COMPRESSED_FLAG, target);
+	}
+	
+	private static int getOriginalSize(byte[] payload, int length) throws FrogException
+	{
+		if(length < ORIGINAL_SIZE)
+			throw new FrogException("Packet compressé invalide");
+		
+		int originalSize = ((payload[0] & 0xFF) << 24) | ((payload[1] & 0xFF) << 16) | ((payload[2] & 0xFF) << 8) | (payload[3] & 0xFF);
+		if(originalSize < 0 || originalSize > MAX_FRAME_SIZE)
+			throw new FrogException("Taille de packet décompressé invalide : " + originalSize);
+		return originalSize;
+	}
+	
+	/**
+	 * Décompresse le contenu d'une trame compressée, à appeler sous le verrou du décompresseur
+	 */
+	private void inflate(byte[] payload, int payloadLength, byte[] original, int originalSize) throws FrogException
+	{
+		if(this.isClosed)
+			throw new FrogException("Format de transport fermé");
+		
+		try
+		{
+			this.inflater.reset();
+			this.inflater.setInput(payload, ORIGINAL_SIZE, payloadLength - ORIGINAL_SIZE);
+			
+			int length = 0;
+			while(length < originalSize && !this.inflater.finished())
+			{
+				int count = this.inflater.inflate(original, length, originalSize - length);
+				if(count == 0 && (this.inflater.needsInput() || this.inflater.needsDictionary()))
+					break;
+				length += count;
+			}
+			
+			if(length != originalSize || !this.inflater.finished())
+				throw new FrogException("Packet compressé tronqué");
+		}
+		catch(DataFormatException e)
+		{
+			throw new FrogException("Packet compressé invalide : " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Obtient la taille de contenu à partir de laquelle un packet est compressé
+	 * @return Le seuil de compression, en octets
+	 */
+	public int getThreshold()
+	{
+		return this.threshold;
+	}
+	
+	/**
+	 * Libère les ressources natives du compresseur et du décompresseur, à appeler à la fermeture de la connexion
+	 */
+	@Override
+	public void close()
+	{
+		this.deflateLock.lock();
+		try
+		{
+			this.isClosed = true;
+			this.deflater.end();
+		}
+		finally
+		{
+			this.deflateLock.unlock();
+		}
+		
+		this.inflateLock.lock();
+		try
+		{
+			this.inflater.end();
+		}
+		finally
+		{
+			this.inflateLock.unlock();
+		}
+	}
+}
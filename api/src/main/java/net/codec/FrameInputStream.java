@@ -0,0 +1,105 @@
+package net.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <h1>Flux d'entrée tamponné sans verrou</h1>
+ * <p>Équivalent de {@link java.io.BufferedInputStream} dont les méthodes ne sont pas synchronisées :
+ * un thread virtuel bloqué en lecture sur la socket n'est ainsi pas épinglé à son thread porteur.</p>
+ * <p>Le flux ne doit être lu que par un seul thread à la fois.</p>
+ */
+public class FrameInputStream extends InputStream
+{
+	private static final int DEFAULT_BUFFER_SIZE = 8192;
+	
+	private InputStream in;
+	private byte[] buffer;
+	private int position;
+	private int count;
+	private long bytesRead;
+	
+	public FrameInputStream(InputStream in)
+	{
+		this(in, DEFAULT_BUFFER_SIZE);
+	}
+	
+	public FrameInputStream(InputStream in, int bufferSize)
+	{
+		this.in = in;
+		this.buffer = new byte[bufferSize];
+	}
+
+	@Override
+	public int read() throws IOException
+	{
+		if(this.position >= this.count && !this.fill())
+			return -1;
+		this.bytesRead++;
+		return this.buffer[this.position++] & 0xFF;
+	}
+	
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException
+	{
+		if(len == 0)
+			return 0;
+		
+		int available = this.count - this.position;
+		if(available <= 0)
+		{
+			// Lecture directe des blocs plus grands que le tampon
+			if(len >= this.buffer.length)
+			{
+				int read = this.in.read(b, off, len);
+				if(read > 0)
+					this.bytesRead += read;
+				return read;
+			}
+			if(!this.fill())
+				return -1;
+			available = this.count - this.position;
+		}
+		
+		int length = Math.min(available, len);
+		System.arraycopy(this.buffer, this.position, b, off, length);
+		this.position += length;
+		this.bytesRead += length;
+		return length;
+	}
+	
+	/**
+	 * Obtient le nombre d'octets lus depuis la création du flux, la différence entre deux lectures
+	 * donne la taille des trames décodées entre temps
+	 * @return Le nombre d'octets lus
+	 */
+	public long getBytesRead()
+	{
+		return this.bytesRead;
+	}
+	
+	@Override
+	public int available() throws IOException
+	{
+		return (this.count - this.position) + this.in.available();
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		this.in.close();
+	}
+	
+	private boolean fill() throws IOException
+	{
+		this.position = 0;
+		this.count = 0;
+		
+		int read = this.in.read(this.buffer, 0, this.buffer.length);
+		if(read <= 0)
+			return false;
+		
+		this.count = read;
+		return true;
+	}
+}
@@ -0,0 +1,93 @@
+package net.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import net.Packet;
+import utils.FrogException;
+
+/**
+ * <h1>Format historique : une ligne JSON par packet</h1>
+ * <p>Format utilisé pour la négociation du protocole, et conservé pour les clients
+ * ne supportant pas le format binaire.</p>
+ */
+public class JsonLinePacketCodec implements PacketCodec
+{
+	public static final String NAME = "json";
+	
+	private static final byte LINE_FEED = '\n';
+	private static final byte CARRIAGE_RETURN = '\r';
+	
+	@Override
+	public String getName()
+	{
+		return NAME;
+	}
+
+	@Override
+	public ByteBuffer encode(Packet packet)
+	{
+		byte[] json = packet.toJSON().getBytes(StandardCharsets.UTF_8);
+		ByteBuffer frame = ByteBuffer.allocate(json.length + 1);
+		frame.put(json).put(LINE_FEED);
+		frame.flip();
+		return frame;
+	}
+
+	@Override
+	public Packet decode(ByteBuffer buffer) throws IOException, FrogException
+	{
+		int start = buffer.position();
+		int end = -1;
+		for(int i = start; i < buffer.limit(); i++)
+		{
+			if(buffer.get(i) == LINE_FEED)
+			{
+				end = i;
+				break;
+			}
+		}
+		
+		if(end < 0)
+		{
+			if(buffer.remaining() > MAX_FRAME_SIZE)
+				throw new IOException("Taille maximale d'un packet dépassée");
+			return null;
+		}
+		
+		byte[] line = new byte[end - start];
+		buffer.get(line);
+		buffer.get(); // Délimiteur
+		
+		return this.toPacket(line, line.length);
+	}
+
+	@Override
+	public Packet read(InputStream in) throws IOException, FrogException
+	{
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int b;
+		while((b = in.read()) != LINE_FEED)
+		{
+			if(b < 0)
+				return null;
+			if(line.size() >= MAX_FRAME_SIZE)
+				throw new IOException("Taille maximale d'un packet dépassée");
+			line.write(b);
+		}
+		
+		return this.toPacket(line.toByteArray(), line.size());
+	}
+	
+	private Packet toPacket(byte[] line, int length) throws FrogException
+	{
+		// Lignes terminées par "\r\n" (PrintWriter.println sous Windows)
+		if(length > 0 && line[length - 1] == CARRIAGE_RETURN)
+			length--;
+		
+		return Packet.getPacket(new String(line, 0, length, StandardCharsets.UTF_8));
+	}
+}
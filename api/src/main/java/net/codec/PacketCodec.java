@@ -0,0 +1,96 @@
+package net.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import net.Packet;
+import net.PooledPacket;
+import utils.FrogException;
+
+/**
+ * <h1>Format de transport des packets</h1>
+ * <p>Définit la façon dont un packet est découpé et encodé sur le flux d'une connexion.
+ * Sauf mention contraire, une instance ne conserve aucun état et peut être partagée entre plusieurs connexions.</p>
+ * <p>Les erreurs de découpage (flux corrompu) sont signalées par une {@link IOException} et
+ * imposent la fermeture de la connexion. Les erreurs de contenu sont signalées par une
+ * {@link FrogException} après consommation de la trame : la connexion peut continuer.</p>
+ */
+public interface PacketCodec
+{
+	/**
+	 * Taille maximale d'une trame, en octets
+	 */
+	public static final int MAX_FRAME_SIZE = 1024 * 1024;
+	
+	/**
+	 * Obtient le nom du format, utilisé lors de la négociation du protocole
+	 * @return Le nom du format
+	 */
+	public String getName();
+	
+	/**
+	 * Encode une trame complète
+	 * @param packet Le packet à encoder
+	 * @return Le tampon contenant la trame, prêt à être lu
+	 */
+	public ByteBuffer encode(Packet packet);
+	
+	/**
+	 * Décode une trame depuis le tampon spécifié
+	 * @param buffer Le tampon de données reçues, en mode lecture
+	 * @return Le packet décodé, ou null si la trame est incomplète (la position du tampon est alors inchangée)
+	 * @throws IOException Exception jetée si le flux est corrompu
+	 * @throws FrogException Exception jetée si le contenu de la trame est invalide
+	 */
+	public Packet decode(ByteBuffer buffer) throws IOException, FrogException;
+	
+	/**
+	 * Lit une trame depuis un flux bloquant
+	 * @param in Le flux d'entrée
+	 * @return Le packet lu, null si la fin du flux est atteinte
+	 * @throws IOException Exception jetée si le flux est corrompu ou fermé
+	 * @throws FrogException Exception jetée si le contenu de la trame est invalide
+	 */
+	public Packet read(InputStream in) throws IOException, FrogException;
+	
+	/**
+	 * <h1>Lit une trame depuis un flux bloquant dans un packet réutilisable</h1>
+	 * <p>Par défaut le packet est lu par {@link #read(InputStream)} puis copié : seuls les formats
+	 * redéfinissant cette méthode décodent sans allocation.</p>
+	 * @param in Le flux d'entrée
+	 * @param target Le packet recevant le contenu de la trame
+	 * @return True si une trame a été lue, False si la fin du flux est atteinte
+	 * @throws IOException Exception jetée si le flux est corrompu ou fermé
+	 * @throws FrogException Exception jetée si le contenu de la trame est invalide
+	 */
+	public default boolean readInto(InputStream in, PooledPacket target) throws IOException, FrogException
+	{
+		Packet packet = this.read(in);
+		if(packet == null)
+			return false;
+		target.set(packet);
+		return true;
+	}
+	
+	/**
+	 * Écrit une trame sur un flux bloquant, sans le vider
+	 * @param packet Le packet à écrire
+	 * @param out Le flux de sortie
+	 * @throws IOException Exception jetée si l'écriture échoue
+	 */
+	public default void write(Packet packet, OutputStream out) throws IOException
+	{
+		ByteBuffer frame = this.encode(packet);
+		out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+	}
+	
+	/**
+	 * Libère les ressources du format, appelée à la fermeture de la connexion
+	 */
+	public default void close()
+	{
+		// Aucune ressource par défaut
+	}
+}
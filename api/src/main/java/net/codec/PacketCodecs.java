@@ -0,0 +1,127 @@
+package net.codec;
+
+import org.json.JSONArray;
+
+/**
+ * <h1>Formats de transport disponibles</h1>
+ * <p>La négociation du protocole est toujours réalisée au format JSON. Le client y propose
+ * la liste des formats qu'il supporte (clé {@value #CODECS_KEY}) et le serveur répond avec
+ * le format retenu (clé {@value #CODEC_KEY}). En l'absence de l'une de ces clés, le format
+ * JSON est conservé.</p>
+ * <p>La compression est négociée de la même façon (clés {@value #COMPRESSIONS_KEY} et
+ * {@value #COMPRESSION_KEY}), le serveur indiquant le seuil de compression retenu
+ * (clé {@value #COMPRESSION_THRESHOLD_KEY}). Elle n'est disponible qu'avec le format binaire.</p>
+ */
+public class PacketCodecs
+{
+	public static final String CODECS_KEY = "codecs";
+	public static final String CODEC_KEY = "codec";
+	public static final String COMPRESSIONS_KEY = "compressions";
+	public static final String COMPRESSION_KEY = "compression";
+	public static final String COMPRESSION_THRESHOLD_KEY = "compressionThreshold";
+	
+	public static final PacketCodec JSON = new JsonLinePacketCodec();
+	public static final PacketCodec BINARY = new BinaryPacketCodec();
+	
+	/**
+	 * Formats supportés, par ordre de préférence
+	 */
+	private static final PacketCodec[] SUPPORTED = { BINARY, JSON };
+	
+	private PacketCodecs()
+	{
+		// nothing
+	}
+	
+	/**
+	 * Obtient les noms des formats supportés, par ordre de préférence
+	 * @return La liste des noms de formats à proposer lors de la négociation
+	 */
+	public static JSONArray getSupportedNames()
+	{
+		JSONArray names = new JSONArray();
+		for(PacketCodec codec : SUPPORTED)
+			names.put(codec.getName());
+		return names;
+	}
+	
+	/**
+	 * Obtient le format portant le nom spécifié
+	 * @param name Le nom du format
+	 * @return Le format correspondant, le format JSON si le nom est inconnu ou null
+	 */
+	public static PacketCodec get(String name)
+	{
+		for(PacketCodec codec : SUPPORTED)
+		{
+			if(codec.getName().equals(name))
+				return codec;
+		}
+		return JSON;
+	}
+	
+	/**
+	 * Choisit le premier format proposé supporté
+	 * @param offered Les noms de formats proposés par le client, par ordre de préférence (peut être null)
+	 * @return Le format retenu, le format JSON si aucun format proposé n'est supporté
+	 */
+	public static PacketCodec negotiate(JSONArray offered)
+	{
+		if(offered == null)
+			return JSON;
+		
+		for(int i = 0; i < offered.length(); i++)
+		{
+			PacketCodec codec = get(offered.optString(i));
+			if(codec.getName().equals(offered.optString(i)))
+				return codec;
+		}
+		return JSON;
+	}
+	
+	/**
+	 * Obtient les noms des compressions supportées, par ordre de préférence
+	 * @return La liste des noms de compressions à proposer lors de la négociation
+	 */
+	public static JSONArray getSupportedCompressions()
+	{
+		JSONArray names = new JSONArray();
+		names.put(DeflatePacketCodec.COMPRESSION);
+		return names;
+	}
+	
+	/**
+	 * Obtient le format portant le nom spécifié, avec la compression spécifiée
+	 * @param name Le nom du format
+	 * @param compression Le nom de la compression (peut être null)
+	 * @param threshold Le seuil de compression, en octets
+	 * @return Un nouveau format compressé si la compression est supportée par le format, le format sans compression dans le cas contraire
+	 */
+	public static PacketCodec get(String name, String compression, int threshold)
+	{
+		PacketCodec codec = get(name);
+		if(codec == BINARY && DeflatePacketCodec.COMPRESSION.equals(compression))
+			return new DeflatePacketCodec(threshold);
+		return codec;
+	}
+	
+	/**
+	 * Ajoute la compression au format retenu si elle est proposée et activée
+	 * @param codec Le format retenu
+	 * @param offered Les noms de compressions proposés par le client (peut être null)
+	 * @param threshold Le seuil de compression du serveur, négatif si la compression est désactivée
+	 * @return Un nouveau format compressé si la compression est retenue, le format spécifié dans le cas contraire
+	 */
+	public static PacketCodec negotiateCompression(PacketCodec codec, JSONArray offered, int threshold)
+	{
+		if(offered == null || threshold < 0 || codec != BINARY)
+			return codec;
+		
+		for(int i = 0; i < offered.length(); i++)
+		{
+			if(DeflatePacketCodec.COMPRESSION.equals(offered.optString(i)))
+				return new DeflatePacketCodec(threshold);
+		}
+		return codec;
+	}
+}
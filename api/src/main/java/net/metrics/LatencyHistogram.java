@@ -0,0 +1,130 @@
+package net.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <h1>Histogramme de durées</h1>
+ * <p>Répartit les durées enregistrées dans des intervalles de largeur croissante : chaque puissance de deux
+ * est découpée en {@value #SUB_BUCKETS} intervalles, soit une précision relative d'environ 3% quelle que soit
+ * l'échelle (de la nanoseconde à plusieurs minutes).</p>
+ * <p>L'enregistrement n'alloue rien et ne prend aucun verrou, il peut être réalisé par plusieurs threads
+ * simultanément. Les centiles lus pendant des enregistrements sont approximatifs.</p>
+ */
+public class LatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private AtomicLongArray counts;
+	private LongAdder count;
+	private LongAdder total;
+	private LongAccumulator max;
+
+	public LatencyHistogram()
+	{
+		this.counts = new AtomicLongArray(BUCKETS);
+		this.count = new LongAdder();
+		this.total = new LongAdder();
+		this.max = new LongAccumulator(Math::max, 0);
+	}
+
+	/**
+	 * Enregistre une durée
+	 * @param nanos La durée en nanosecondes, les durées négatives sont enregistrées comme nulles
+	 */
+	public void record(long nanos)
+	{
+		long value = Math.max(0, nanos);
+		this.counts.incrementAndGet(index(value));
+		this.count.increment();
+		this.total.add(value);
+		this.max.accumulate(value);
+	}
+
+	/**
+	 * Obtient le nombre de durées enregistrées
+	 * @return Le nombre de durées
+	 */
+	public long getCount()
+	{
+		return this.count.sum();
+	}
+
+	/**
+	 * Obtient la durée moyenne enregistrée
+	 * @return La durée moyenne en nanosecondes, 0 si aucune durée n'a été enregistrée
+	 */
+	public long getMean()
+	{
+		long count = this.count.sum();
+		return count == 0 ? 0 : this.total.sum() / count;
+	}
+
+	/**
+	 * Obtient la durée maximale enregistrée
+	 * @return La durée maximale en nanosecondes, exacte
+	 */
+	public long getMax()
+	{
+		return this.max.get();
+	}
+
+	/**
+	 * Obtient le centile spécifié des durées enregistrées
+	 * @param percentile Le centile, entre 0 et 100
+	 * @return La borne supérieure de l'intervalle contenant le centile, en nanosecondes, 0 si aucune durée n'a été enregistrée
+	 */
+	public long getPercentile(double percentile)
+	{
+		long count = 0;
+		for(int i = 0; i < BUCKETS; i++)
+			count += this.counts.get(i);
+		if(count == 0)
+			return 0;
+
+		long rank = Math.max(1, (long)Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100));
+		long seen = 0;
+		for(int i = 0; i < BUCKETS; i++)
+		{
+			seen += this.counts.get(i);
+			if(seen >= rank)
+				return Math.min(upperBound(i), this.max.get());
+		}
+		return this.max.get();
+	}
+
+	/**
+	 * Remet l'histogramme à zéro, les enregistrements simultanés peuvent être partiellement conservés
+	 */
+	public void reset()
+	{
+		for(int i = 0; i < BUCKETS; i++)
+			this.counts.set(i, 0);
+		this.count.reset();
+		this.total.reset();
+		this.max.reset();
+	}
+
+	private static int index(long value)
+	{
+		// Valeurs inférieures à 2 * SUB_BUCKETS enregistrées exactement
+		if(value < SUB_BUCKETS << 1)
+			return (int)value;
+
+		int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int)(value >>> shift) - SUB_BUCKETS;
+	}
+
+	private static long upperBound(int index)
+	{
+		if(index < SUB_BUCKETS << 1)
+			return index;
+
+		int shift = index / SUB_BUCKETS - 1;
+		long sub = index % SUB_BUCKETS + SUB_BUCKETS;
+		return ((sub + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,137 @@
+package net.metrics;
+
+import net.PacketType;
+
+/**
+ * <h1>Registre des mesures réseau</h1>
+ * <p>Regroupe les {@link PacketMetrics} de chaque type de packet. L'enregistrement ne prend aucun verrou
+ * et n'alloue rien : il peut être réalisé depuis les threads de lecture, d'exécution et d'écriture
+ * sans ralentir le traitement des packets.</p>
+ * <p>Les mesures peuvent être consultées à tout moment (voir {@link #get(PacketType)}) ou restituées
+ * sous forme de tableau (voir {@link #report()}).</p>
+ */
+public class NetworkMetrics
+{
+	private PacketMetrics[] metrics;
+	private volatile long since;
+
+	public NetworkMetrics()
+	{
+		PacketType[] types = PacketType.values();
+		this.metrics = new PacketMetrics[types.length];
+		for(PacketType type : types)
+			this.metrics[type.ordinal()] = new PacketMetrics(type);
+		this.since = System.nanoTime();
+	}
+
+	/**
+	 * Obtient les mesures d'un type de packet
+	 * @param type Le type de packet
+	 * @return Les mesures du type de packet
+	 */
+	public PacketMetrics get(PacketType type)
+	{
+		return this.metrics[type.ordinal()];
+	}
+
+	/**
+	 * Enregistre la réception d'un packet
+	 * @param type Le type du packet reçu
+	 * @param bytes La taille de la trame reçue
+	 */
+	public void recordReceived(PacketType type, int bytes)
+	{
+		this.metrics[type.ordinal()].recordReceived(bytes);
+	}
+
+	/**
+	 * Enregistre l'envoi d'un packet
+	 * @param type Le type du packet envoyé
+	 * @param bytes La taille de la trame envoyée
+	 */
+	public void recordSent(PacketType type, int bytes)
+	{
+		this.metrics[type.ordinal()].recordSent(bytes);
+	}
+
+	/**
+	 * Enregistre la durée d'attente d'une requête avant son exécution
+	 * @param type Le type de la requête
+	 * @param nanos La durée d'attente en nanosecondes
+	 */
+	public void recordQueueWait(PacketType type, long nanos)
+	{
+		this.metrics[type.ordinal()].getQueueWait().record(nanos);
+	}
+
+	/**
+	 * Enregistre la durée d'exécution d'une requête
+	 * @param type Le type de la requête
+	 * @param nanos La durée d'exécution en nanosecondes
+	 */
+	public void recordExecution(PacketType type, long nanos)
+	{
+		this.metrics[type.ordinal()].getExecution().record(nanos);
+	}
+
+	/**
+	 * Enregistre la durée d'écriture d'une réponse
+	 * @param type Le type de la réponse
+	 * @param nanos La durée d'écriture en nanosecondes
+	 */
+	public void recordWrite(PacketType type, long nanos)
+	{
+		this.metrics[type.ordinal()].getWrite().record(nanos);
+	}
+
+	/**
+	 * Obtient la durée écoulée depuis la création ou la dernière remise à zéro du registre
+	 * @return La durée de mesure en nanosecondes
+	 */
+	public long getElapsedNanos()
+	{
+		return System.nanoTime() - this.since;
+	}
+
+	/**
+	 * Remet toutes les mesures à zéro, par exemple après chaque restitution périodique
+	 */
+	public void reset()
+	{
+		for(PacketMetrics metrics : this.metrics)
+			metrics.reset();
+		this.since = System.nanoTime();
+	}
+
+	/**
+	 * <h1>Produit le tableau des mesures</h1>
+	 * <p>Une ligne par type de packet mesuré : packets et octets reçus et envoyés, puis médiane et 99e centile
+	 * des durées d'attente, d'exécution et d'écriture en microsecondes.</p>
+	 * @return Le tableau des mesures
+	 */
+	public String report()
+	{
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("Mesures réseau sur %.1f s%n", this.getElapsedNanos() / 1e9));
+		builder.append(String.format("%-24s %10s %12s %10s %12s %21s %21s %21s%n",
+				"Type", "Reçus", "Octets reçus", "Envoyés", "Octets env.", "Attente p50/p99 (µs)", "Exécution p50/p99 (µs)", "Écriture p50/p99 (µs)"));
+
+		for(PacketMetrics metrics : this.metrics)
+		{
+			if(!metrics.isActive())
+				continue;
+
+			builder.append(String.format("%-24s %10d %12d %10d %12d %21s %21s %21s%n",
+					metrics.getType().name(), metrics.getPacketsIn(), metrics.getBytesIn(), metrics.getPacketsOut(), metrics.getBytesOut(),
+					percentiles(metrics.getQueueWait()), percentiles(metrics.getExecution()), percentiles(metrics.getWrite())));
+		}
+		return builder.toString();
+	}
+
+	private static String percentiles(LatencyHistogram histogram)
+	{
+		if(histogram.getCount() == 0)
+			return "-";
+		return String.format("%.1f / %.1f", histogram.getPercentile(50) / 1e3, histogram.getPercentile(99) / 1e3);
+	}
+}
@@ -0,0 +1,150 @@
+package net.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import net.PacketType;
+
+/**
+ * <h1>Mesures d'un type de packet</h1>
+ * <p>Nombre et volume des packets reçus et envoyés, ainsi que les durées de traitement des requêtes :
+ * attente dans la file du gestionnaire de requêtes, exécution et écriture de la réponse.</p>
+ * <p>Les volumes sont exprimés en octets de trame, en-têtes de transport compris.</p>
+ */
+public class PacketMetrics
+{
+	private PacketType type;
+	private LongAdder packetsIn;
+	private LongAdder bytesIn;
+	private LongAdder packetsOut;
+	private LongAdder bytesOut;
+	private LatencyHistogram queueWait;
+	private LatencyHistogram execution;
+	private LatencyHistogram write;
+
+	public PacketMetrics(PacketType type)
+	{
+		this.type = type;
+		this.packetsIn = new LongAdder();
+		this.bytesIn = new LongAdder();
+		this.packetsOut = new LongAdder();
+		this.bytesOut = new LongAdder();
+		this.queueWait = new LatencyHistogram();
+		this.execution = new LatencyHistogram();
+		this.write = new LatencyHistogram();
+	}
+
+	/**
+	 * Enregistre la réception d'un packet
+	 * @param bytes La taille de la trame reçue
+	 */
+	public void recordReceived(int bytes)
+	{
+		this.packetsIn.increment();
+		this.bytesIn.add(bytes);
+	}
+
+	/**
+	 * Enregistre l'envoi d'un packet
+	 * @param bytes La taille de la trame envoyée
+	 */
+	public void recordSent(int bytes)
+	{
+		this.packetsOut.increment();
+		this.bytesOut.add(bytes);
+	}
+
+	/**
+	 * Obtient le type de packet mesuré
+	 * @return Le type de packet
+	 */
+	public PacketType getType()
+	{
+		return this.type;
+	}
+
+	/**
+	 * Obtient le nombre de packets reçus
+	 * @return Le nombre de packets reçus
+	 */
+	public long getPacketsIn()
+	{
+		return this.packetsIn.sum();
+	}
+
+	/**
+	 * Obtient le volume des packets reçus
+	 * @return Le volume reçu en octets
+	 */
+	public long getBytesIn()
+	{
+		return this.bytesIn.sum();
+	}
+
+	/**
+	 * Obtient le nombre de packets envoyés
+	 * @return Le nombre de packets envoyés
+	 */
+	public long getPacketsOut()
+	{
+		return this.packetsOut.sum();
+	}
+
+	/**
+	 * Obtient le volume des packets envoyés
+	 * @return Le volume envoyé en octets
+	 */
+	public long getBytesOut()
+	{
+		return this.bytesOut.sum();
+	}
+
+	/**
+	 * Obtient les durées d'attente des requêtes de ce type avant leur exécution
+	 * @return L'histogramme des durées d'attente, en nanosecondes
+	 */
+	public LatencyHistogram getQueueWait()
+	{
+		return this.queueWait;
+	}
+
+	/**
+	 * Obtient les durées d'exécution des requêtes de ce type, envoi de la réponse exclu
+	 * @return L'histogramme des durées d'exécution, en nanosecondes
+	 */
+	public LatencyHistogram getExecution()
+	{
+		return this.execution;
+	}
+
+	/**
+	 * Obtient les durées d'écriture des réponses de ce type
+	 * @return L'histogramme des durées d'écriture, en nanosecondes
+	 */
+	public LatencyHistogram getWrite()
+	{
+		return this.write;
+	}
+
+	/**
+	 * Indique si au moins une mesure a été enregistrée
+	 * @return True si le type de packet a été reçu, envoyé ou exécuté
+	 */
+	public boolean isActive()
+	{
+		return this.packetsIn.sum() > 0 || this.packetsOut.sum() > 0 || this.execution.getCount() > 0 || this.write.getCount() > 0;
+	}
+
+	/**
+	 * Remet les mesures à zéro
+	 */
+	public void reset()
+	{
+		this.packetsIn.reset();
+		this.bytesIn.reset();
+		this.packetsOut.reset();
+		this.bytesOut.reset();
+		this.queueWait.reset();
+		this.execution.reset();
+		this.write.reset();
+	}
+}
@@ -0,0 +1,124 @@
+package net.replication;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import net.Packet;
+import net.PacketType;
+import utils.FrogException;
+
+/**
+ * <h1>État répliqué côté client</h1>
+ * <p>Applique les packets SYNC reçus du serveur et produit les acquittements associés.
+ * Les derniers états reçus sont conservés, le serveur pouvant envoyer des différences
+ * par rapport à n'importe quel état précédemment acquitté.</p>
+ */
+public class ReplicatedState
+{
+	public static final int DEFAULT_HISTORY_SIZE = 32;
+	
+	private int historySize;
+	private LinkedHashMap<Long, Snapshot> history;
+	private Snapshot current;
+	
+	public ReplicatedState()
+	{
+		this(DEFAULT_HISTORY_SIZE);
+	}
+	
+	/**
+	 * Constructeur d'état répliqué
+	 * @param historySize Le nombre d'états reçus conservés
+	 */
+	public ReplicatedState(int historySize)
+	{
+		this.historySize = Math.max(1, historySize);
+		this.history = new LinkedHashMap<Long, Snapshot>();
+	}
+	
+	/**
+	 * Applique un packet SYNC reçu du serveur
+	 * @param payload Le contenu du packet SYNC
+	 * @return Le packet d'acquittement à renvoyer au serveur
+	 * @throws FrogException Exception jetée si le contenu du packet est invalide
+	 */
+	public Packet apply(String payload) throws FrogException
+	{
+		long tick;
+		try
+		{
+			JSONObject obj = new JSONObject(payload);
+			tick = obj.getLong(Snapshot.TICK_KEY);
+			long baselineTick = obj.getLong(Snapshot.BASELINE_KEY);
+			
+			Map<String, String> values;
+			if(baselineTick == Snapshot.NO_BASELINE)
+			{
+				values = new HashMap<String, String>();
+			}
+			else
+			{
+				Snapshot baseline = this.history.get(baselineTick);
+				if(baseline == null)
+				{
+					// État de référence inconnu : demande d'un état complet
+					return acknowledge(Snapshot.NO_BASELINE);
+				}
+				values = new HashMap<String, String>(baseline.getValues());
+			}
+			
+			JSONObject set = obj.getJSONObject(Snapshot.SET_KEY);
+			for(String key : set.keySet())
+				values.put(key, JSONObject.valueToString(set.get(key)));
+			
+			JSONArray remove = obj.getJSONArray(Snapshot.REMOVE_KEY);
+			for(int i = 0; i < remove.length(); i++)
+				values.remove(remove.getString(i));
+			
+			this.current = new Snapshot(tick, values);
+		}
+		catch(Exception e)
+		{
+			throw new FrogException("Packet de synchronisation invalide");
+		}
+		
+		this.history.put(tick, this.current);
+		Iterator<Long> ticks = this.history.keySet().iterator();
+		while(this.history.size() > this.historySize)
+		{
+			ticks.next();
+			ticks.remove();
+		}
+		
+		return acknowledge(tick);
+	}
+	
+	/**
+	 * Obtient le dernier état reçu
+	 * @return Le dernier état reçu, null si aucun état n'a été reçu
+	 */
+	public Snapshot getCurrent()
+	{
+		return this.current;
+	}
+	
+	/**
+	 * Obtient la valeur courante associée à une clé
+	 * @param key La clé de la valeur
+	 * @return La valeur (texte JSON), null si inexistante
+	 */
+	public String getValue(String key)
+	{
+		return this.current == null ? null : this.current.getValues().get(key);
+	}
+	
+	private static Packet acknowledge(long tick)
+	{
+		return new Packet(PacketType.SYNC, "{\"" + Snapshot.ACK_KEY + "\":" + tick + "}");
+	}
+}
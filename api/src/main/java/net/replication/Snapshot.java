@@ -0,0 +1,122 @@
+package net.replication;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.json.JSONObject;
+
+/**
+ * <h1>État répliqué à un instant donné</h1>
+ * <p>L'état est représenté par un ensemble de valeurs indexées par clé (valeur d'un composant
+ * d'entité, valeur d'une tuile...). Chaque valeur est un texte JSON (objet, nombre, chaîne...).</p>
+ * <p>Un packet SYNC contient soit l'état complet, soit uniquement les différences par rapport à un
+ * état de référence précédemment acquitté par le client :</p>
+ * <pre>{"tick":12,"baseline":9,"set":{"clé":valeur,...},"remove":["clé",...]}</pre>
+ * <p>Un état complet est signalé par une référence égale à {@value #NO_BASELINE}.</p>
+ */
+public class Snapshot
+{
+	public static final long NO_BASELINE = -1;
+	
+	public static final String TICK_KEY = "tick";
+	public static final String BASELINE_KEY = "baseline";
+	public static final String SET_KEY = "set";
+	public static final String REMOVE_KEY = "remove";
+	public static final String ACK_KEY = "ack";
+	
+	private long tick;
+	private Map<String, String> values;
+	
+	/**
+	 * Constructeur d'état répliqué
+	 * @param tick Le numéro de cycle de l'état
+	 * @param values Les valeurs de l'état (texte JSON), la map ne doit plus être modifiée
+	 */
+	public Snapshot(long tick, Map<String, String> values)
+	{
+		this.tick = tick;
+		this.values = Collections.unmodifiableMap(values);
+	}
+	
+	/**
+	 * Obtient le numéro de cycle de l'état
+	 * @return Le numéro de cycle
+	 */
+	public long getTick()
+	{
+		return this.tick;
+	}
+	
+	/**
+	 * Obtient les valeurs de l'état
+	 * @return Les valeurs de l'état, non modifiables
+	 */
+	public Map<String, String> getValues()
+	{
+		return this.values;
+	}
+	
+	/**
+	 * Sérialise l'état complet
+	 * @return Le contenu du packet SYNC
+	 */
+	public String toFullPayload()
+	{
+		StringBuilder builder = this.beginPayload(NO_BASELINE);
+		boolean first = true;
+		for(Map.Entry<String, String> entry : this.values.entrySet())
+			first = appendValue(builder, entry.getKey(), entry.getValue(), first);
+		return builder.append("},\"").append(REMOVE_KEY).append("\":[]}").toString();
+	}
+	
+	/**
+	 * Sérialise les différences entre l'état de référence spécifié et cet état
+	 * @param baseline L'état de référence acquitté par le client
+	 * @return Le contenu du packet SYNC, null si les deux états sont identiques
+	 */
+	public String toDeltaPayload(Snapshot baseline)
+	{
+		StringBuilder builder = this.beginPayload(baseline.tick);
+		boolean first = true;
+		for(Map.Entry<String, String> entry : this.values.entrySet())
+		{
+			if(!entry.getValue().equals(baseline.values.get(entry.getKey())))
+				first = appendValue(builder, entry.getKey(), entry.getValue(), first);
+		}
+		boolean unchanged = first;
+		
+		builder.append("},\"").append(REMOVE_KEY).append("\":[");
+		first = true;
+		for(String key : baseline.values.keySet())
+		{
+			if(!this.values.containsKey(key))
+			{
+				if(!first)
+					builder.append(',');
+				builder.append(JSONObject.quote(key));
+				first = false;
+				unchanged = false;
+			}
+		}
+		
+		return unchanged ? null : builder.append("]}").toString();
+	}
+	
+	private StringBuilder beginPayload(long baselineTick)
+	{
+		StringBuilder builder = new StringBuilder();
+		builder.append("{\"").append(TICK_KEY).append("\":").append(this.tick);
+		builder.append(",\"").append(BASELINE_KEY).append("\":").append(baselineTick);
+		builder.append(",\"").append(SET_KEY).append("\":{");
+		return builder;
+	}
+	
+	private static boolean appendValue(StringBuilder builder, String key, String value, boolean first)
+	{
+		if(!first)
+			builder.append(',');
+		// Les valeurs sont déjà au format JSON : aucune ré-sérialisation
+		builder.append(JSONObject.quote(key)).append(':').append(value);
+		return false;
+	}
+}
@@ -0,0 +1,238 @@
+package net.socket;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import net.Packet;
+import net.PacketType;
+
+/**
+ * <h1>Estimation de la latence et du décalage d'horloge avec l'hôte distant</h1>
+ * <p>Chaque hôte envoie périodiquement un packet PING horodaté, auquel l'hôte distant répond immédiatement
+ * par un packet PONG portant ses horodatages de réception et d'envoi. Les quatre horodatages donnent le temps
+ * d'aller-retour hors temps de traitement distant, ainsi que le décalage entre les deux horloges.</p>
+ * <p>Les packets PING et PONG sont traités par le thread de lecture de la connexion (voir {@link #handle(Packet)}),
+ * sans passer par la file des requêtes : la mesure reflète le réseau et non la charge du serveur.</p>
+ * <p>Le temps d'aller-retour et le décalage sont lissés par moyenne exponentielle (coefficient 1/8),
+ * la gigue est la moyenne (coefficient 1/16) des variations du temps d'aller-retour entre deux mesures.</p>
+ */
+public class ClockSync
+{
+	/**
+	 * Période d'envoi par défaut des packets PING, en millisecondes
+	 */
+	public static final long DEFAULT_PERIOD = 1000;
+
+	public static final String SENT_KEY = "t0";
+	public static final String RECEIVED_KEY = "t1";
+	public static final String ANSWERED_KEY = "t2";
+
+	private static final ScheduledThreadPoolExecutor SCHEDULER = new ScheduledThreadPoolExecutor(1, runnable ->
+	{
+		Thread thread = new Thread(runnable, "ClockSync");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	// Origine de l'horloge locale : horloge monotone de résolution nanoseconde, calée sur l'horloge système
+	private static final long EPOCH_OFFSET = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) - System.nanoTime();
+
+	static
+	{
+		// Les envois des connexions fermées ne sont pas conservés
+		SCHEDULER.setRemoveOnCancelPolicy(true);
+	}
+
+	private Predicate<Packet> sender;
+	private ScheduledFuture<?> task;
+	private volatile long roundTripTime;
+	private volatile long jitter;
+	private volatile long clockOffset;
+	private volatile long samples;
+	private long lastRoundTripTime;
+
+	/**
+	 * Constructeur de l'estimateur
+	 * @param sender L'envoi d'un packet à l'hôte distant, retournant False si la connexion est fermée
+	 */
+	public ClockSync(Predicate<Packet> sender)
+	{
+		this.sender = sender;
+	}
+
+	/**
+	 * Obtient l'heure de l'horloge locale
+	 * @return Le nombre de nanosecondes écoulées depuis le 1er janvier 1970, croissant
+	 */
+	public static long now()
+	{
+		return System.nanoTime() + EPOCH_OFFSET;
+	}
+
+	/**
+	 * Démarre l'envoi périodique des packets PING, arrêté automatiquement à la fermeture de la connexion.
+	 * Le premier PING est envoyé après une période, une fois les échanges d'ouverture de la connexion terminés.
+	 * @param period La période d'envoi en millisecondes
+	 */
+	public synchronized void start(long period)
+	{
+		if(this.task != null)
+			return;
+
+		this.task = SCHEDULER.scheduleAtFixedRate(this::ping, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Arrête l'envoi périodique des packets PING, les estimations sont conservées
+	 */
+	public synchronized void stop()
+	{
+		if(this.task == null)
+			return;
+
+		this.task.cancel(false);
+		this.task = null;
+	}
+
+	/**
+	 * <h1>Traite un packet reçu de l'hôte distant</h1>
+	 * <p>Un packet PING reçoit immédiatement sa réponse PONG, un packet PONG met à jour les estimations.
+	 * À appeler depuis le thread de lecture de la connexion, dès le décodage du packet.</p>
+	 * @param packet Le packet reçu
+	 * @return True si le packet a été traité, False s'il doit être transmis au reste de l'application
+	 */
+	public boolean handle(Packet packet)
+	{
+		long receivedAt = now();
+		switch(packet.getType())
+		{
+			case PING:
+				try
+				{
+					JSONObject ping = new JSONObject(packet.getSerializedObject());
+					JSONObject obj = new JSONObject();
+					obj.put(SENT_KEY, ping.getLong(SENT_KEY));
+					obj.put(RECEIVED_KEY, receivedAt);
+					obj.put(ANSWERED_KEY, now());
+					this.sender.test(new Packet(PacketType.PONG, obj.toString()));
+				}
+				catch(JSONException e)
+				{
+					System.err.println("Packet PING invalide : " + packet.getSerializedObject());
+				}
+				return true;
+			case PONG:
+				try
+				{
+					JSONObject obj = new JSONObject(packet.getSerializedObject());
+					this.record(obj.getLong(SENT_KEY), obj.getLong(RECEIVED_KEY), obj.getLong(ANSWERED_KEY), receivedAt);
+				}
+				catch(JSONException e)
+				{
+					System.err.println("Packet PONG invalide : " + packet.getSerializedObject());
+				}
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * <h1>Enregistre une mesure</h1>
+	 * <p>Le temps d'aller-retour exclut le temps de traitement distant, le décalage suppose des trajets
+	 * aller et retour de même durée.</p>
+	 * @param sent L'heure locale d'envoi du PING
+	 * @param received L'heure distante de réception du PING
+	 * @param answered L'heure distante d'envoi du PONG
+	 * @param returned L'heure locale de réception du PONG
+	 */
+	public synchronized void record(long sent, long received, long answered, long returned)
+	{
+		long roundTripTime = Math.max(0, (returned - sent) - (answered - received));
+		long clockOffset = ((received - sent) + (answered - returned)) / 2;
+
+		if(this.samples == 0)
+		{
+			this.roundTripTime = roundTripTime;
+			this.clockOffset = clockOffset;
+			this.jitter = 0;
+		}
+		else
+		{
+			this.roundTripTime += (roundTripTime - this.roundTripTime) / 8;
+			this.clockOffset += (clockOffset - this.clockOffset) / 8;
+			this.jitter += (Math.abs(roundTripTime - this.lastRoundTripTime) - this.jitter) / 16;
+		}
+
+		this.lastRoundTripTime = roundTripTime;
+		this.samples++;
+	}
+
+	/**
+	 * Obtient le temps d'aller-retour lissé avec l'hôte distant
+	 * @return Le temps d'aller-retour en nanosecondes, 0 si aucune mesure
+	 */
+	public long getRoundTripTime()
+	{
+		return this.roundTripTime;
+	}
+
+	/**
+	 * Obtient la gigue du temps d'aller-retour
+	 * @return La variation moyenne entre deux mesures en nanosecondes
+	 */
+	public long getJitter()
+	{
+		return this.jitter;
+	}
+
+	/**
+	 * Obtient le décalage lissé de l'horloge distante
+	 * @return L'avance de l'horloge distante sur l'horloge locale en nanosecondes, négative en cas de retard
+	 */
+	public long getClockOffset()
+	{
+		return this.clockOffset;
+	}
+
+	/**
+	 * Convertit une heure locale en heure de l'hôte distant
+	 * @param localTime L'heure locale, au sens de {@link #now()}
+	 * @return L'heure correspondante de l'horloge distante
+	 */
+	public long toRemoteTime(long localTime)
+	{
+		return localTime + this.clockOffset;
+	}
+
+	/**
+	 * Obtient le nombre de mesures réalisées
+	 * @return Le nombre de réponses PONG reçues
+	 */
+	public long getSamplesCount()
+	{
+		return this.samples;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("aller-retour %.2f ms, gigue %.2f ms, décalage d'horloge %.2f ms (%d mesures)",
+				this.roundTripTime / 1e6, this.jitter / 1e6, this.clockOffset / 1e6, this.samples);
+	}
+
+	private void ping()
+	{
+		JSONObject obj = new JSONObject();
+		obj.put(SENT_KEY, now());
+
+		// Connexion fermée, la tâche est retirée
+		if(!this.sender.test(new Packet(PacketType.PING, obj.toString())))
+			this.stop();
+	}
+}
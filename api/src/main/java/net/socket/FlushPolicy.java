@@ -0,0 +1,125 @@
+package net.socket;
+
+import java.util.EnumSet;
+
+import net.PacketType;
+
+/**
+ * <h1>Politique d'envoi groupé des packets</h1>
+ * <p>Les packets produits pendant une courte fenêtre sont regroupés puis envoyés en une seule écriture.
+ * L'envoi est anticipé lorsque le volume en attente atteint le seuil défini, ou dès l'ajout d'un packet
+ * dont le type est marqué comme immédiat (packets sensibles à la latence).</p>
+ * <p>Une connexion bloquante dont une écriture dépasse le délai d'écriture est fermée : un client ne lisant plus
+ * ses packets ne bloque pas indéfiniment les threads lui envoyant des packets.</p>
+ */
+public class FlushPolicy
+{
+	public static final long DEFAULT_WINDOW = 2;
+	public static final int DEFAULT_THRESHOLD = 16 * 1024;
+	public static final long DEFAULT_WRITE_TIMEOUT = 5000;
+	
+	private static final EnumSet<PacketType> DEFAULT_IMMEDIATE_TYPES = EnumSet.of(
+			PacketType.PROTOCOL_VERSION,
+			PacketType.PROTOCOL_VERSION_RESULT,
+			PacketType.CONNECT,
+			PacketType.CONNECT_RESULT,
+			PacketType.DISCONNECT,
+			PacketType.PING,
+			PacketType.PONG);
+	
+	private long window;
+	private int threshold;
+	private boolean[] immediateTypes;
+	private volatile long writeTimeout;
+	private FlushStatistics statistics;
+	
+	/**
+	 * Constructeur de la politique par défaut
+	 */
+	public FlushPolicy()
+	{
+		this(DEFAULT_WINDOW, DEFAULT_THRESHOLD, DEFAULT_IMMEDIATE_TYPES);
+	}
+	
+	/**
+	 * Constructeur de politique d'envoi groupé, avec les types de packets immédiats par défaut
+	 * @param window La durée de la fenêtre de regroupement en millisecondes (0 : envoi de chaque packet)
+	 * @param threshold Le volume en octets au-delà duquel les packets en attente sont envoyés sans attendre
+	 */
+	public FlushPolicy(long window, int threshold)
+	{
+		this(window, threshold, DEFAULT_IMMEDIATE_TYPES);
+	}
+	
+	/**
+	 * Constructeur de politique d'envoi groupé
+	 * @param window La durée de la fenêtre de regroupement en millisecondes (0 : envoi de chaque packet)
+	 * @param threshold Le volume en octets au-delà duquel les packets en attente sont envoyés sans attendre
+	 * @param immediateTypes Les types de packets envoyés sans attendre
+	 */
+	public FlushPolicy(long window, int threshold, EnumSet<PacketType> immediateTypes)
+	{
+		this.window = Math.max(0, window);
+		this.threshold = threshold;
+		this.immediateTypes = new boolean[PacketType.values().length];
+		for(PacketType type : immediateTypes)
+			this.immediateTypes[type.ordinal()] = true;
+		this.writeTimeout = DEFAULT_WRITE_TIMEOUT;
+		this.statistics = new FlushStatistics();
+	}
+	
+	/**
+	 * Obtient l'état d'envoi immédiat d'un type de packet
+	 * @param type Le type de packet
+	 * @return True si les packets de ce type doivent être envoyés sans attendre
+	 */
+	public boolean isImmediate(PacketType type)
+	{
+		return this.window == 0 || this.immediateTypes[type.ordinal()];
+	}
+	
+	/**
+	 * Obtient la durée de la fenêtre de regroupement
+	 * @return La durée de la fenêtre en millisecondes
+	 */
+	public long getWindow()
+	{
+		return this.window;
+	}
+	
+	/**
+	 * Obtient le volume déclenchant un envoi anticipé
+	 * @return Le volume en octets
+	 */
+	public int getThreshold()
+	{
+		return this.threshold;
+	}
+	
+	/**
+	 * Obtient le délai maximum d'une écriture sur une connexion bloquante
+	 * @return Le délai en millisecondes, 0 si aucun délai n'est appliqué
+	 */
+	public long getWriteTimeout()
+	{
+		return this.writeTimeout;
+	}
+	
+	/**
+	 * Met à jour le délai maximum d'une écriture, au-delà la connexion est fermée
+	 * @param writeTimeout Le délai en millisecondes (0 : aucun délai)
+	 */
+	public void setWriteTimeout(long writeTimeout)
+	{
+		this.writeTimeout = Math.max(0, writeTimeout);
+	}
+	
+	/**
+	 * Obtient les statistiques d'envoi des connexions utilisant cette politique
+	 * @return Les statistiques d'envoi
+	 */
+	public FlushStatistics getStatistics()
+	{
+		return this.statistics;
+	}
+}
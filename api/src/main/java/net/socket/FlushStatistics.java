@@ -0,0 +1,69 @@
+package net.socket;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <h1>Statistiques d'envoi groupé</h1>
+ * <p>Compteurs partagés par l'ensemble des connexions utilisant une même {@link FlushPolicy},
+ * permettant d'ajuster la fenêtre et le seuil d'envoi.</p>
+ */
+public class FlushStatistics
+{
+	private LongAdder flushes;
+	private LongAdder packets;
+	private LongAdder bytes;
+	
+	public FlushStatistics()
+	{
+		this.flushes = new LongAdder();
+		this.packets = new LongAdder();
+		this.bytes = new LongAdder();
+	}
+	
+	/**
+	 * Enregistre un envoi
+	 * @param packetsCount Le nombre de packets envoyés
+	 * @param bytesCount Le nombre d'octets envoyés
+	 */
+	public void record(int packetsCount, long bytesCount)
+	{
+		this.flushes.increment();
+		this.packets.add(packetsCount);
+		this.bytes.add(bytesCount);
+	}
+	
+	/**
+	 * Obtient le nombre total d'envois
+	 * @return Le nombre d'envois
+	 */
+	public long getFlushesCount()
+	{
+		return this.flushes.sum();
+	}
+	
+	/**
+	 * Obtient le nombre moyen de packets par envoi
+	 * @return Le nombre moyen de packets par envoi, 0 si aucun envoi
+	 */
+	public double getPacketsPerFlush()
+	{
+		long count = this.flushes.sum();
+		return count == 0 ? 0 : (double)this.packets.sum() / count;
+	}
+	
+	/**
+	 * Obtient le nombre moyen d'octets par envoi
+	 * @return Le nombre moyen d'octets par envoi, 0 si aucun envoi
+	 */
+	public double getBytesPerFlush()
+	{
+		long count = this.flushes.sum();
+		return count == 0 ? 0 : (double)this.bytes.sum() / count;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return String.format("%d envois, %.2f packets/envoi, %.1f octets/envoi", this.getFlushesCount(), this.getPacketsPerFlush(), this.getBytesPerFlush());
+	}
+}
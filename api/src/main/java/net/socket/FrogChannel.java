@@ -0,0 +1,413 @@
+package net.socket;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.IPacketListener;
+import net.Packet;
+import net.PacketType;
+import net.codec.PacketCodec;
+import net.codec.PacketCodecs;
+import utils.FrogException;
+
+/**
+ * <h1>Connexion cliente non bloquante</h1>
+ * <p>Connexion gérée par une boucle d'évènements ({@link SelectorLoop}).
+ * Les packets sont découpés directement depuis le flux d'octets reçu, puis transmis
+ * au souscripteur de la connexion depuis le thread de la boucle d'évènements.</p>
+ * <p>L'envoi de packets peut être réalisé depuis n'importe quel thread.</p>
+ */
+public class FrogChannel
+{
+	private static final int INITIAL_PENDING_SIZE = 256;
+
+	private FrogSelectorServerSocket server;
+	private SocketChannel channel;
+	private SelectorLoop loop;
+	private SelectionKey key;
+	private SocketAddress remoteAddress;
+	private IPacketListener packetListener;
+	private Object attachment;
+
+	private volatile PacketCodec codec;
+	
+	// Données d'une trame incomplète, allouées uniquement lorsqu'un packet est reçu en plusieurs fois
+	private ByteBuffer pending;
+	private long receivedBytes;
+
+	private Queue<ByteBuffer> outbound;
+	private AtomicBoolean writeScheduled;
+	private AtomicInteger queuedBytes;
+	private AtomicBoolean closed;
+	private volatile boolean closeRequested;
+
+	FrogChannel(FrogSelectorServerSocket server, SocketChannel channel, SelectorLoop loop)
+	{
+		this.server = server;
+		this.channel = channel;
+		this.loop = loop;
+		this.remoteAddress = channel.socket().getRemoteSocketAddress();
+		this.outbound = new ConcurrentLinkedQueue<ByteBuffer>();
+		this.writeScheduled = new AtomicBoolean(false);
+		this.queuedBytes = new AtomicInteger(0);
+		this.closed = new AtomicBoolean(false);
+		this.codec = PacketCodecs.JSON;
+	}
+	
+	/**
+	 * <h1>Met à jour le format de transport de la connexion</h1>
+	 * <p>Le nouveau format s'applique aux packets envoyés après l'appel, ainsi qu'aux trames
+	 * décodées après l'appel lorsque celui-ci est réalisé depuis le souscripteur de la connexion</p>
+	 * @param codec Le nouveau format de transport
+	 */
+	public void setCodec(PacketCodec codec)
+	{
+		this.codec = codec;
+	}
+	
+	/**
+	 * Obtient le format de transport de la connexion
+	 * @return Le format de transport courant
+	 */
+	public PacketCodec getCodec()
+	{
+		return this.codec;
+	}
+
+	/**
+	 * <h1>Met à jour le souscripteur de la connexion</h1>
+	 * <p>Le souscripteur sera notifié, depuis la boucle d'évènements, à chaque packet reçu</p>
+	 * @param listener Le nouveau souscripteur
+	 */
+	public void setPacketListener(IPacketListener listener)
+	{
+		this.packetListener = listener;
+	}
+
+	/**
+	 * Associe un objet quelconque à la connexion
+	 * @param attachment L'objet à associer
+	 */
+	public void attach(Object attachment)
+	{
+		this.attachment = attachment;
+	}
+
+	/**
+	 * Obtient l'objet associé à la connexion
+	 * @return L'objet associé, null si inexistant
+	 */
+	public Object attachment()
+	{
+		return this.attachment;
+	}
+
+	/**
+	 * Obtient l'adresse de l'hôte distant
+	 * @return L'adresse de l'hôte distant, conservée après la fermeture de la connexion
+	 */
+	public SocketAddress getRemoteAddress()
+	{
+		return this.remoteAddress;
+	}
+
+	/**
+	 * <h1>Obtient le volume des trames reçues</h1>
+	 * <p>Le volume inclut la trame du packet en cours de notification : la différence entre deux
+	 * notifications du souscripteur donne la taille de la trame du dernier packet reçu.</p>
+	 * @return Le volume reçu en octets, à lire depuis le souscripteur de la connexion
+	 */
+	public long getReceivedBytes()
+	{
+		return this.receivedBytes;
+	}
+
+	/**
+	 * Obtient l'état de la connexion
+	 * @return True si la connexion est ouverte, False dans le cas contraire
+	 */
+	public boolean isOpen()
+	{
+		return !this.closed.get() && this.channel.isOpen();
+	}
+
+	/**
+	 * <h1>Envoie un packet à l'hôte distant</h1>
+	 * <p>Le packet est placé dans la file d'envoi de la connexion puis écrit par la boucle d'évènements,
+	 * immédiatement ou à la fin de la fenêtre de regroupement selon la {@link FlushPolicy} du serveur</p>
+	 * @param packet Le packet à envoyer
+	 * @throws FrogException Exception jetée si la connexion est fermée
+	 */
+	public void sendPacket(Packet packet) throws FrogException
+	{
+		if(!this.isOpen())
+			throw new FrogException("Tentative d'envoi d'un packet sur une connexion fermée");
+
+		this.enqueue(this.codec.encode(packet), packet.getType());
+	}
+
+	/**
+	 * <h1>Envoie une trame déjà encodée à l'hôte distant</h1>
+	 * <p>La trame doit être encodée au format de transport de la connexion (voir {@link #getCodec()}).
+	 * Seule une vue de la trame est placée dans la file d'envoi : une même trame peut être envoyée
+	 * à plusieurs connexions sans copie, son contenu ne doit alors plus être modifié.</p>
+	 * @param frame La trame à envoyer, prête à être lue
+	 * @param type Le type du packet contenu dans la trame
+	 * @throws FrogException Exception jetée si la connexion est fermée
+	 */
+	public void sendFrame(ByteBuffer frame, PacketType type) throws FrogException
+	{
+		if(!this.isOpen())
+			throw new FrogException("Tentative d'envoi d'un packet sur une connexion fermée");
+
+		// Vue indépendante débutant à la position courante, la trame partagée n'est jamais déplacée
+		this.enqueue(frame.slice(), type);
+	}
+
+	private void enqueue(ByteBuffer frame, PacketType type)
+	{
+		this.outbound.add(frame);
+		int queued = this.queuedBytes.addAndGet(frame.remaining());
+
+		FlushPolicy policy = this.server.getFlushPolicy();
+		if(policy.isImmediate(type) || queued >= policy.getThreshold())
+		{
+			this.writeScheduled.set(true);
+			this.loop.scheduleWrite(this);
+		}
+		else if(this.writeScheduled.compareAndSet(false, true))
+		{
+			// Une seule demande d'écriture différée par fenêtre de regroupement
+			this.loop.scheduleDelayedWrite(this, policy.getWindow());
+		}
+	}
+
+	/**
+	 * Ferme la connexion une fois l'ensemble des packets en attente écrits
+	 */
+	public void closeAfterWrite()
+	{
+		this.closeRequested = true;
+		if(this.writeScheduled.compareAndSet(false, true))
+			this.loop.scheduleWrite(this);
+	}
+	
+	/**
+	 * Ferme la connexion, le souscripteur du serveur est notifié une unique fois
+	 */
+	public void close()
+	{
+		if(!this.closed.compareAndSet(false, true))
+			return;
+
+		try
+		{
+			this.channel.close();
+		}
+		catch(IOException e)
+		{
+			e.printStackTrace();
+		}
+
+		this.outbound.clear();
+		this.codec.close();
+		this.server.raiseChannelCloseEvent(this);
+	}
+
+	SocketChannel getSocketChannel()
+	{
+		return this.channel;
+	}
+
+	/**
+	 * Méthode appelée par la boucle d'évènements une fois la connexion enregistrée
+	 * @param key La clé de sélection de la connexion
+	 */
+	void onRegistered(SelectionKey key)
+	{
+		this.key = key;
+
+		// Packets envoyés avant l'enregistrement de la connexion
+		if(!this.outbound.isEmpty())
+			this.onWritable();
+	}
+
+	/**
+	 * Lit les données disponibles et notifie le souscripteur pour chaque packet complet
+	 * @param buffer Le tampon de lecture partagé de la boucle d'évènements
+	 */
+	void onReadable(ByteBuffer buffer)
+	{
+		try
+		{
+			buffer.clear();
+			int count = this.channel.read(buffer);
+			if(count < 0)
+			{
+				this.close();
+				return;
+			}
+			buffer.flip();
+			
+			ByteBuffer source = buffer;
+			if(this.pending != null)
+			{
+				this.appendToPending(buffer);
+				this.pending.flip();
+				source = this.pending;
+			}
+			
+			this.decodeFrames(source);
+			
+			if(!source.hasRemaining())
+			{
+				// Libère le tampon pour que les connexions inactives ne conservent aucune donnée
+				this.pending = null;
+			}
+			else if(source == this.pending)
+			{
+				this.pending.compact();
+			}
+			else
+			{
+				// Trame incomplète, conservée jusqu'à la prochaine lecture
+				this.appendToPending(source);
+			}
+		}
+		catch(IOException e)
+		{
+			this.close();
+		}
+		catch(RuntimeException e)
+		{
+			// Erreur inattendue du décodage ou du souscripteur : seule cette connexion est fermée, la boucle continue
+			e.printStackTrace();
+			this.close();
+		}
+	}
+
+	/**
+	 * Écrit autant de données en attente que possible, en regroupant les packets dans une même écriture
+	 */
+	void onWritable()
+	{
+		// Connexion non enregistrée, l'écriture sera réalisée lors de l'enregistrement
+		if(this.key == null)
+			return;
+		
+		ByteBuffer[] gather = this.loop.getGatherBuffers();
+		int packets = 0;
+		long bytes = 0;
+		
+		try
+		{
+			while(true)
+			{
+				int count = 0;
+				for(ByteBuffer data : this.outbound)
+				{
+					if(count == gather.length)
+						break;
+					gather[count++] = data;
+				}
+				
+				if(count == 0)
+					break;
+				
+				bytes += this.channel.write(gather, 0, count);
+				
+				int completed = 0;
+				while(completed < count && !gather[completed].hasRemaining())
+				{
+					this.queuedBytes.addAndGet(-gather[completed].limit());
+					this.outbound.poll();
+					completed++;
+				}
+				packets += completed;
+				Arrays.fill(gather, 0, count, null);
+				
+				if(completed < count)
+				{
+					// Tampon système plein, reprise lorsque la connexion sera de nouveau disponible en écriture
+					this.recordFlush(packets, bytes);
+					this.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+					return;
+				}
+			}
+			
+			this.recordFlush(packets, bytes);
+
+			if(this.closeRequested)
+			{
+				this.close();
+				return;
+			}
+			
+			this.key.interestOps(SelectionKey.OP_READ);
+			this.writeScheduled.set(false);
+
+			// Packets ajoutés entre la dernière lecture de la file et la libération du drapeau
+			if(!this.outbound.isEmpty() && this.writeScheduled.compareAndSet(false, true))
+				this.loop.scheduleWrite(this);
+		}
+		catch(IOException e)
+		{
+			Arrays.fill(gather, null);
+			this.close();
+		}
+	}
+	
+	private void recordFlush(int packets, long bytes)
+	{
+		if(bytes > 0)
+			this.server.getFlushPolicy().getStatistics().record(packets, bytes);
+	}
+
+	private void decodeFrames(ByteBuffer buffer) throws IOException
+	{
+		while(this.isOpen())
+		{
+			try
+			{
+				int position = buffer.position();
+				Packet packet = this.codec.decode(buffer);
+				if(packet == null)
+					return;
+				
+				this.receivedBytes += buffer.position() - position;
+				if(this.packetListener != null)
+					this.packetListener.onPacketReceived(packet);
+			}
+			catch(FrogException e)
+			{
+				// Packet invalide ignoré, comme pour les connexions bloquantes
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	private void appendToPending(ByteBuffer buffer)
+	{
+		if(this.pending == null)
+		{
+			this.pending = ByteBuffer.allocate(Math.max(INITIAL_PENDING_SIZE, buffer.remaining()));
+		}
+		else if(this.pending.remaining() < buffer.remaining())
+		{
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(this.pending.capacity() * 2, this.pending.position() + buffer.remaining()));
+			this.pending.flip();
+			larger.put(this.pending);
+			this.pending = larger;
+		}
+		
+		this.pending.put(buffer);
+	}
+}
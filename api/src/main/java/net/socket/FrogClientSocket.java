@@ -1,19 +1,35 @@
 package net.socket;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.json.JSONObject;
 
 import net.IPacketListener;
 import net.Packet;
+import net.PacketPool;
 import net.PacketReaderWorker;
 import net.PacketSubscriber;
 import net.PacketType;
+import net.PooledPacket;
+import net.codec.DeflatePacketCodec;
+import net.codec.PacketCodec;
+import net.codec.PacketCodecs;
+import net.replication.ReplicatedState;
+import net.replication.Snapshot;
 import utils.FrogException;
 
 /**
@@ -24,20 +40,70 @@ public class FrogClientSocket implements IPacketListener
 {
 	public static final String PROTOCOL_VERSION = "v0.0.0.1";
 	
+	/**
+	 * Clé du résultat de la reprise de session dans la réponse PROTOCOL_VERSION_RESULT
+	 */
+	public static final String RESUMED_KEY = "resumed";
+	
 	private static final int DURATION_BETWEEN_TENTATIVES = 1000;
 	private static final int TENTATIVES = 10;
 	
+	/**
+	 * Délai d'attente par défaut de la réponse à une requête, en millisecondes
+	 */
+	public static final long DEFAULT_REQUEST_TIMEOUT = 10000;
+	
+	private static final ScheduledThreadPoolExecutor TIMEOUTS = new ScheduledThreadPoolExecutor(1, runnable -> 
+	{
+		Thread thread = new Thread(runnable, "RequestTimeout");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	static
+	{
+		// Les délais des requêtes ayant reçu leur réponse ne sont pas conservés jusqu'à leur échéance
+		TIMEOUTS.setRemoveOnCancelPolicy(true);
+	}
+	
 	private List<PacketSubscriber> balancers;
 	private Socket socket;
 	private String token;
 	private boolean isRunning;
-	private BufferedReader reader;
-	private PrintWriter writer;
+	private InputStream in;
+	private OutboundBuffer out;
+	private FlushPolicy flushPolicy;
+	private PacketCodec codec;
+	private ReplicatedState replicatedState;
+	private AtomicInteger nextRequestId;
+	private Map<Integer, CompletableFuture<Packet>> pendingRequests;
+	private PacketPool pool;
+	private boolean isDatagramEnabled;
+	private volatile FrogDatagramSocket datagram;
+	private boolean isResumed;
+	private ClockSync clockSync;
 	
 	public FrogClientSocket()
 	{
+		this(new FlushPolicy());
+	}
+	
+	/**
+	 * Constructeur du gestionnaire de communication
+	 * @param flushPolicy La politique d'envoi groupé des packets à destination du serveur
+	 */
+	public FrogClientSocket(FlushPolicy flushPolicy)
+	{
+		this.flushPolicy = flushPolicy;
 		this.balancers = new ArrayList<PacketSubscriber>();
 		this.isRunning = false;
+		this.codec = PacketCodecs.JSON;
+		this.replicatedState = new ReplicatedState();
+		this.nextRequestId = new AtomicInteger(Packet.NO_REQUEST_ID);
+		this.pendingRequests = new ConcurrentHashMap<Integer, CompletableFuture<Packet>>();
+		this.pool = new PacketPool();
+		this.isDatagramEnabled = true;
+		this.clockSync = new ClockSync(this::sendClockPacket);
 	}
 	
 	/**
@@ -61,7 +127,10 @@ public class FrogClientSocket implements IPacketListener
 	}
 	
 	/**
-	 * Démarre la communication avec le serveur de jeu si possible
+	 * <h1>Démarre la communication avec le serveur de jeu si possible</h1>
+	 * <p>Après une déconnexion, la session obtenue lors de l'authentification précédente est reprise
+	 * si le serveur la conserve encore (voir {@link #isResumed()}) : aucune nouvelle authentification
+	 * n'est nécessaire et seules les différences avec le dernier état répliqué reçu sont envoyées.</p>
 	 * @param ip L'adresse du serveur hôte
 	 * @param port Le port d'écoute du serveur hôte
 	 * @throws FrogException
@@ -77,12 +146,19 @@ public class FrogClientSocket implements IPacketListener
 			PacketReaderWorker worker = new PacketReaderWorker(this);
 			worker.addListener(this);
 			worker.start(); // Lancement du thread de lecture des packets en reception
+			
+			// Mesure de la latence au format négocié
+			this.clockSync.start(ClockSync.DEFAULT_PERIOD);
 		}
 	}
 	
 	@Override
 	public void onPacketReceived(Packet packet) 
 	{
+		// PING et PONG traités dès leur lecture, sans notification des aiguilleurs
+		if(this.clockSync.handle(packet))
+			return;
+		
 		switch(packet.getType())
 		{
 			case CONNECT_RESULT:
@@ -91,13 +167,34 @@ public class FrogClientSocket implements IPacketListener
 					JSONObject obj = new JSONObject(packet.getSerializedObject());
 					boolean result = obj.getBoolean("result");
 					if(result)
-						this.token = obj.getString("token");
+					{
+						this.token = obj.optString(FrogDatagramSocket.TOKEN_KEY, null);
+						this.openDatagramChannel(obj.optInt(FrogDatagramSocket.PORT_KEY, -1));
+					}
+				}
+				break;
+			case SYNC:
+				try
+				{
+					// Acquittement de l'état reçu, référence des prochaines différences
+					this.sendPacket(this.replicatedState.apply(packet.getSerializedObject()));
+				}
+				catch(FrogException e)
+				{
+					e.printStackTrace();
 				}
 				break;
 			default:
 				break;
 		}
 		
+		// Réponse à une requête en attente, le callback est exécuté par le thread de lecture
+		if(packet.getRequestId() != Packet.NO_REQUEST_ID)
+		{
+			CompletableFuture<Packet> request = this.pendingRequests.remove(packet.getRequestId());
+			if(request != null)
+				request.complete(packet.detach());
+		}
 		
 		this.raiseEventToBalancers(packet);
 		
@@ -120,24 +217,140 @@ public class FrogClientSocket implements IPacketListener
 	public synchronized void stop()
 	{
 		this.isRunning = false;
+		this.clockSync.stop();
+		
+		FrogDatagramSocket datagram = this.datagram;
+		if(datagram != null)
+		{
+			this.datagram = null;
+			datagram.close();
+		}
 	}
 	
 	/**
-	 * Obtient le gestionnaire de flux en entrée
-	 * @return Le gestionnaire de flux en entrée
+	 * Indique si la session précédente a été reprise lors du dernier démarrage de la communication
+	 * @return True si la session a été reprise, False si une authentification est nécessaire
 	 */
-	public BufferedReader getReader()
+	public boolean isResumed()
 	{
-		return this.reader;
+		return this.isResumed;
 	}
 	
 	/**
-	 * Obtient le gestionnaire de flux en sortie
-	 * @return Le gestionnaire de flux en sortie
+	 * Obtient les estimations de latence et de décalage d'horloge avec le serveur, mesurées pendant la communication
+	 * @return L'estimateur de la communication
 	 */
-	public PrintWriter getWriter()
+	public ClockSync getClockSync()
 	{
-		return this.writer;
+		return this.clockSync;
+	}
+	
+	/**
+	 * Autorise ou non l'ouverture d'un canal de datagrammes proposé par le serveur, à définir avant l'authentification
+	 * @param enabled True pour transmettre par datagramme les packets dont la perte est tolérée
+	 */
+	public void setDatagramEnabled(boolean enabled)
+	{
+		this.isDatagramEnabled = enabled;
+	}
+	
+	/**
+	 * Obtient le canal de datagrammes de la session
+	 * @return Le canal de datagrammes, null si le serveur n'en propose pas ou s'il est désactivé
+	 */
+	public FrogDatagramSocket getDatagramSocket()
+	{
+		return this.datagram;
+	}
+	
+	/**
+	 * Lit le prochain packet reçu, au format de transport négocié
+	 * @return Le packet reçu
+	 * @throws IOException Exception jetée si la communication est fermée ou corrompue
+	 * @throws FrogException Exception jetée si le packet reçu est invalide
+	 */
+	public Packet readPacket() throws IOException, FrogException
+	{
+		Packet packet = this.codec.read(this.in);
+		if(packet == null)
+			throw new IOException("Fermeture de la communication par le serveur");
+		return packet;
+	}
+	
+	/**
+	 * <h1>Lit le prochain packet reçu dans un packet réutilisable</h1>
+	 * <p>Aucune allocation en régime établi avec le format binaire. Le packet retourné doit être libéré
+	 * par {@link PooledPacket#release()} après sa notification.</p>
+	 * @return Le packet reçu
+	 * @throws IOException Exception jetée si la communication est fermée ou corrompue
+	 * @throws FrogException Exception jetée si le packet reçu est invalide
+	 */
+	public PooledPacket readPooledPacket() throws IOException, FrogException
+	{
+		PooledPacket packet = this.pool.acquire();
+		try
+		{
+			if(!this.codec.readInto(this.in, packet))
+				throw new IOException("Fermeture de la communication par le serveur");
+			return packet;
+		}
+		catch(IOException | FrogException e)
+		{
+			packet.release();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Obtient la réserve des packets reçus
+	 * @return La réserve, dont le nombre de packets créés se stabilise en régime établi
+	 */
+	public PacketPool getPacketPool()
+	{
+		return this.pool;
+	}
+	
+	/**
+	 * Envoie immédiatement les packets en attente de la fenêtre de regroupement
+	 * @throws FrogException Exception jetée si l'envoi échoue
+	 */
+	public void flush() throws FrogException
+	{
+		try
+		{
+			this.out.flush();
+		}
+		catch(IOException e)
+		{
+			throw new FrogException(e.getMessage());
+		}
+	}
+	
+	/**
+	 * Obtient la politique d'envoi groupé des packets
+	 * @return La politique d'envoi, incluant ses statistiques
+	 */
+	public FlushPolicy getFlushPolicy()
+	{
+		return this.flushPolicy;
+	}
+	
+	/**
+	 * Obtient le format de transport négocié avec le serveur
+	 * @return Le format de transport courant
+	 */
+	public PacketCodec getCodec()
+	{
+		return this.codec;
+	}
+	
+	/**
+	 * Obtient l'état de jeu répliqué par le serveur
+	 * @return L'état répliqué, mis à jour à chaque packet SYNC reçu
+	 */
+	public ReplicatedState getReplicatedState()
+	{
+		return this.replicatedState;
 	}
 	
 	/**
@@ -177,13 +390,28 @@ public class FrogClientSocket implements IPacketListener
 			
 			if(result)
 			{
-				this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-				this.writer = new PrintWriter(this.socket.getOutputStream(), true);
+				this.in = new BufferedInputStream(this.socket.getInputStream());
+				this.out = new OutboundBuffer(this.socket.getOutputStream(), this.flushPolicy, this.socket);
+				
+				// La négociation est toujours réalisée au format JSON
+				this.codec = PacketCodecs.JSON;
+				this.out.setCodec(this.codec);
 				
 				JSONObject obj = new JSONObject();
 				obj.put("version", PROTOCOL_VERSION);
+				obj.put(PacketCodecs.CODECS_KEY, PacketCodecs.getSupportedNames());
+				obj.put(PacketCodecs.COMPRESSIONS_KEY, PacketCodecs.getSupportedCompressions());
+				
+				// Reprise de la session précédente, à partir du dernier état répliqué reçu
+				if(this.token != null)
+				{
+					obj.put(FrogDatagramSocket.TOKEN_KEY, this.token);
+					Snapshot current = this.replicatedState.getCurrent();
+					if(current != null)
+						obj.put(Snapshot.ACK_KEY, current.getTick());
+				}
 				this.sendPacket(new Packet(PacketType.PROTOCOL_VERSION, obj.toString()));
-				Packet p = Packet.getPacket(this.reader.readLine());
+				Packet p = this.readPacket();
 				
 				if(p.getType() != PacketType.PROTOCOL_VERSION_RESULT)
 					throw new FrogException("Mauvais packet reçu; Attendu : PROTOCOL_VERSION_RESULT");
@@ -196,6 +424,19 @@ public class FrogClientSocket implements IPacketListener
 					this.isRunning = false;
 					throw new FrogException("Mauvaise version du protocol de communication");
 				}
+				
+				// Les serveurs ne proposant aucun format conservent le format JSON
+				this.codec = PacketCodecs.get(versionPacket.optString(PacketCodecs.CODEC_KEY, null), 
+						versionPacket.optString(PacketCodecs.COMPRESSION_KEY, null), 
+						versionPacket.optInt(PacketCodecs.COMPRESSION_THRESHOLD_KEY, DeflatePacketCodec.DEFAULT_THRESHOLD));
+				this.out.setCodec(this.codec);
+				
+				// Session expirée ou inconnue du serveur : le token sera remplacé par la prochaine authentification
+				this.isResumed = this.token != null && versionPacket.optBoolean(RESUMED_KEY, false);
+				if(this.isResumed)
+					this.openDatagramChannel(versionPacket.optInt(FrogDatagramSocket.PORT_KEY, -1));
+				else
+					this.token = null;
 			}
 		}
 		catch(Exception e)
@@ -211,19 +452,99 @@ public class FrogClientSocket implements IPacketListener
 	 * <p>Tente une connexion au serveur de jeu avec les informations d'authentification spécifiées.</p>
 	 * @param account Le nom de compte joueur
 	 * @param password Le mot de passe du compte joueur
+	 * @return La réponse CONNECT_RESULT du serveur, disponible de façon asynchrone
 	 * @throws FrogException
 	 */
-	public void connect(String account, String password) throws FrogException
+	public CompletableFuture<Packet> connect(String account, String password) throws FrogException
+	{
+		return this.request(new Packet(PacketType.CONNECT, "Nothing"));
+	}
+	
+	/**
+	 * Envoie une requête au serveur et attend sa réponse de façon asynchrone
+	 * @param packet Le packet de la requête
+	 * @return La réponse du serveur, voir {@link #request(Packet, long)}
+	 * @throws FrogException Exception jetée si l'envoi de la requête échoue
+	 */
+	public CompletableFuture<Packet> request(Packet packet) throws FrogException
+	{
+		return this.request(packet, DEFAULT_REQUEST_TIMEOUT);
+	}
+	
+	/**
+	 * <h1>Envoie une requête au serveur et attend sa réponse de façon asynchrone</h1>
+	 * <p>Un identifiant est attribué au packet et repris par la réponse du serveur : plusieurs requêtes,
+	 * y compris du même type, peuvent être envoyées sans attendre les réponses précédentes.</p>
+	 * <p>La réponse est complétée par le thread de lecture des packets, les traitements longs doivent
+	 * être déportés (voir {@link CompletableFuture#thenApplyAsync(java.util.function.Function)}).
+	 * Une requête refusée par le serveur surchargé est complétée par un packet ERROR_RESULT.</p>
+	 * @param packet Le packet de la requête
+	 * @param timeout Le délai d'attente de la réponse en millisecondes, au-delà la réponse est complétée par une {@link TimeoutException}
+	 * @return La réponse du serveur
+	 * @throws FrogException Exception jetée si l'envoi de la requête échoue
+	 */
+	public CompletableFuture<Packet> request(Packet packet, long timeout) throws FrogException
+	{
+		int requestId = this.nextRequestId.incrementAndGet();
+		if(requestId == Packet.NO_REQUEST_ID)
+			requestId = this.nextRequestId.incrementAndGet();
+		
+		CompletableFuture<Packet> request = new CompletableFuture<Packet>();
+		this.pendingRequests.put(requestId, request);
+		
+		final int id = requestId;
+		ScheduledFuture<?> expiration = TIMEOUTS.schedule(() -> 
+		{
+			if(this.pendingRequests.remove(id, request))
+				request.completeExceptionally(new TimeoutException("Aucune réponse du serveur à la requête " + id));
+		}, timeout, TimeUnit.MILLISECONDS);
+		request.whenComplete((result, error) -> expiration.cancel(false));
+		
+		packet.setRequestId(requestId);
+		try
+		{
+			this.sendPacket(packet);
+		}
+		catch(FrogException e)
+		{
+			this.pendingRequests.remove(requestId);
+			request.completeExceptionally(e);
+			throw e;
+		}
+		
+		return request;
+	}
+	
+	/**
+	 * Obtient le nombre de requêtes en attente de réponse
+	 * @return Le nombre de requêtes en attente
+	 */
+	public int getInFlightRequestsCount()
 	{
-		this.sendPacket(new Packet(PacketType.CONNECT, "Nothing"));
+		return this.pendingRequests.size();
 	}
 	
 	public void sendPacket(Packet packet) throws FrogException
 	{
+		// Packets dont la perte est tolérée transmis hors de la connexion fiable si possible
+		if(packet.getType().isDropTolerant())
+		{
+			FrogDatagramSocket datagram = this.datagram;
+			if(datagram != null && datagram.send(packet))
+				return;
+		}
+		
 		if(!this.socket.isConnected())
 			throw new FrogException("Tentative de connection au serveur de jeu sur un channel de communication non établi");
 		
-		writer.println(packet.toJSON());
+		try
+		{
+			this.out.send(packet);
+		}
+		catch(IOException e)
+		{
+			throw new FrogException(e.getMessage());
+		}
 	}
 	
 	/**
@@ -247,6 +568,39 @@ public class FrogClientSocket implements IPacketListener
 		return token;
 	}
 	
+	private void openDatagramChannel(int port)
+	{
+		if(port <= 0 || !this.isDatagramEnabled || this.datagram != null)
+			return;
+		
+		try
+		{
+			// Packets reçus par datagramme notifiés directement aux aiguilleurs
+			this.datagram = new FrogDatagramSocket(new InetSocketAddress(this.socket.getInetAddress(), port), this.token, this::raiseEventToBalancers);
+			this.datagram.start();
+		}
+		catch(FrogException e)
+		{
+			System.err.println("Canal de datagrammes indisponible : " + e.getMessage());
+		}
+	}
+	
+	private boolean sendClockPacket(Packet packet)
+	{
+		if(!this.isRunning())
+			return false;
+		
+		try
+		{
+			this.sendPacket(packet);
+			return true;
+		}
+		catch(FrogException e)
+		{
+			return false;
+		}
+	}
+	
 	private void raiseEventToBalancers(Packet packet)
 	{
 		for(int i = 0; i < this.balancers.size(); i++)
@@ -0,0 +1,258 @@
+package net.socket;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.json.JSONObject;
+
+import net.IPacketListener;
+import net.Packet;
+import net.PacketPool;
+import net.PacketType;
+import net.PooledPacket;
+import net.codec.DatagramCodec;
+import utils.FrogException;
+
+/**
+ * <h1>Canal de datagrammes d'une session de jeu</h1>
+ * <p>Canal non fiable complétant la connexion au serveur pour les packets dont la perte est tolérée
+ * (voir {@link PacketType#isDropTolerant()}) : un datagramme perdu ne retarde pas les suivants,
+ * contrairement à un segment perdu de la connexion fiable.</p>
+ * <p>Le canal est associé à la session par le token obtenu lors de l'authentification : un datagramme CONNECT
+ * contenant le token est envoyé jusqu'à la confirmation du serveur (datagramme CONNECT_RESULT). Tant que le
+ * canal n'est pas confirmé, les packets sont envoyés par la connexion fiable.</p>
+ * <p>Les packets reçus sont notifiés par le thread de lecture du canal, dans des packets réutilisables
+ * (voir {@link PooledPacket}), après élimination des datagrammes obsolètes.</p>
+ */
+public class FrogDatagramSocket
+{
+	/**
+	 * Clé du port de datagrammes du serveur dans la réponse CONNECT_RESULT
+	 */
+	public static final String PORT_KEY = "udpPort";
+	public static final String TOKEN_KEY = "token";
+
+	private static final int BIND_ATTEMPTS = 10;
+	private static final int BIND_INTERVAL = 200;
+
+	private DatagramSocket socket;
+	private InetSocketAddress server;
+	private String token;
+	private IPacketListener listener;
+	private PacketPool pool;
+	private SequenceFilter filter;
+	private int sequence;
+	private ReentrantLock sendLock;
+	private byte[] sendBuffer;
+	private DatagramPacket sendDatagram;
+	private volatile boolean isBound;
+	private volatile boolean isRunning;
+
+	/**
+	 * Constructeur du canal de datagrammes
+	 * @param server L'adresse du canal de datagrammes du serveur
+	 * @param token Le token de la session authentifiée
+	 * @param listener Le destinataire des packets reçus
+	 * @throws FrogException Exception jetée si le canal ne peut pas être ouvert
+	 */
+	public FrogDatagramSocket(InetSocketAddress server, String token, IPacketListener listener) throws FrogException
+	{
+		try
+		{
+			this.socket = new DatagramSocket();
+		}
+		catch(SocketException e)
+		{
+			throw new FrogException(e.getMessage());
+		}
+
+		this.server = server;
+		this.token = token;
+		this.listener = listener;
+		this.pool = new PacketPool();
+		this.filter = new SequenceFilter();
+		this.sendLock = new ReentrantLock();
+		this.sendBuffer = new byte[DatagramCodec.MAX_DATAGRAM_SIZE];
+		this.sendDatagram = new DatagramPacket(this.sendBuffer, 0, server);
+	}
+
+	/**
+	 * Démarre l'association du canal à la session puis la lecture des datagrammes, sur un thread dédié
+	 */
+	public void start()
+	{
+		this.isRunning = true;
+		Thread reader = new Thread(this::run, "DatagramReader");
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	/**
+	 * Envoie un packet par datagramme si le canal est associé à la session
+	 * @param packet Le packet à envoyer
+	 * @return True si le packet a été envoyé, False s'il doit être envoyé par la connexion fiable
+	 */
+	public boolean send(Packet packet)
+	{
+		return this.isBound && this.sendDatagram(packet);
+	}
+
+	/**
+	 * Indique si le canal est associé à la session par le serveur
+	 * @return True si les packets peuvent être envoyés par datagramme
+	 */
+	public boolean isBound()
+	{
+		return this.isBound;
+	}
+
+	/**
+	 * Obtient le nombre de datagrammes reçus ignorés car obsolètes ou dupliqués
+	 * @return Le nombre de datagrammes ignorés
+	 */
+	public long getDroppedCount()
+	{
+		return this.filter.getDroppedCount();
+	}
+
+	/**
+	 * Ferme le canal, les packets suivants sont envoyés par la connexion fiable
+	 */
+	public void close()
+	{
+		this.isRunning = false;
+		this.isBound = false;
+		this.socket.close();
+	}
+
+	private void run()
+	{
+		byte[] buffer = new byte[DatagramCodec.MAX_DATAGRAM_SIZE];
+		DatagramPacket datagram = new DatagramPacket(buffer, buffer.length);
+
+		try
+		{
+			if(!this.bind(datagram))
+			{
+				System.err.println("Canal de datagrammes refusé par le serveur, utilisation de la connexion fiable");
+				this.close();
+				return;
+			}
+
+			while(this.isRunning)
+			{
+				datagram.setLength(buffer.length);
+				this.socket.receive(datagram);
+				if(this.isFromServer(datagram))
+					this.dispatch(buffer, datagram.getLength());
+			}
+		}
+		catch(IOException e)
+		{
+			// Canal fermé
+			this.isBound = false;
+		}
+	}
+
+	private boolean bind(DatagramPacket datagram) throws IOException
+	{
+		JSONObject obj = new JSONObject();
+		obj.put(TOKEN_KEY, this.token);
+		Packet request = new Packet(PacketType.CONNECT, obj.toString());
+
+		this.socket.setSoTimeout(BIND_INTERVAL);
+		for(int attempt = 0; attempt < BIND_ATTEMPTS && this.isRunning; attempt++)
+		{
+			this.sendDatagram(request);
+
+			long deadline = System.currentTimeMillis() + BIND_INTERVAL;
+			while(System.currentTimeMillis() < deadline)
+			{
+				try
+				{
+					datagram.setLength(datagram.getData().length);
+					this.socket.receive(datagram);
+				}
+				catch(SocketTimeoutException e)
+				{
+					break;
+				}
+
+				if(!this.isFromServer(datagram))
+					continue;
+
+				try
+				{
+					if(DatagramCodec.getType(datagram.getData(), datagram.getLength()) != PacketType.CONNECT_RESULT)
+						continue;
+
+					Packet result = DatagramCodec.decode(datagram.getData(), datagram.getLength());
+					this.isBound = new JSONObject(result.getSerializedObject()).optBoolean("result", false);
+					this.socket.setSoTimeout(0);
+					return this.isBound;
+				}
+				catch(FrogException e)
+				{
+					// Datagramme invalide ignoré
+				}
+			}
+		}
+		return false;
+	}
+
+	private boolean isFromServer(DatagramPacket datagram)
+	{
+		// Comparaison sans allocation d'adresse de socket
+		return datagram.getPort() == this.server.getPort() && this.server.getAddress().equals(datagram.getAddress());
+	}
+
+	private void dispatch(byte[] buffer, int length)
+	{
+		PooledPacket packet = this.pool.acquire();
+		try
+		{
+			PacketType type = DatagramCodec.getType(buffer, length);
+			if(type == PacketType.CONNECT_RESULT || !this.filter.accept(type, DatagramCodec.getSequence(buffer, length)))
+				return;
+
+			DatagramCodec.decodeInto(buffer, length, packet);
+			this.listener.onPacketReceived(packet);
+		}
+		catch(FrogException e)
+		{
+			// Datagramme invalide ignoré, les suivants restent lisibles
+		}
+		finally
+		{
+			packet.release();
+		}
+	}
+
+	private boolean sendDatagram(Packet packet)
+	{
+		this.sendLock.lock();
+		try
+		{
+			int length = DatagramCodec.encode(packet, ++this.sequence, this.sendBuffer);
+			if(length < 0)
+				return false;
+
+			this.sendDatagram.setLength(length);
+			this.socket.send(this.sendDatagram);
+			return true;
+		}
+		catch(IOException e)
+		{
+			return false;
+		}
+		finally
+		{
+			this.sendLock.unlock();
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package net.socket;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import net.IChannelListener;
+
+/**
+ * <h1>Serveur de jeu non bloquant</h1>
+ * <p>Les connexions acceptées sont réparties entre un petit nombre de boucles d'évènements
+ * ({@link SelectorLoop}), ce qui permet de maintenir un grand nombre de connexions
+ * inactives sans leur dédier de thread.</p>
+ * <p>Les souscripteurs de connexions bloquantes ({@link net.IClientListener}) ne sont pas notifiés
+ * par ce serveur, voir {@link #setChannelListener(IChannelListener)}.</p>
+ */
+public class FrogSelectorServerSocket extends FrogServerSocket
+{
+	private int loopsCount;
+	private SelectorLoop[] loops;
+	private int nextLoop;
+	private IChannelListener channelListener;
+	private FlushPolicy flushPolicy;
+
+	/**
+	 * Constructeur de serveur non bloquant
+	 * @param loopsCount Le nombre de boucles d'évènements (threads) du serveur
+	 */
+	public FrogSelectorServerSocket(int loopsCount)
+	{
+		super();
+		this.loopsCount = Math.max(1, loopsCount);
+		this.flushPolicy = new FlushPolicy();
+	}
+
+	@Override
+	public void start(int port)
+	{
+		try (ServerSocketChannel server = ServerSocketChannel.open())
+		{
+			server.bind(new InetSocketAddress(port));
+			this.setRunning(true);
+			this.startLoops();
+			this.raiseServerStartUpEvent();
+
+			while(this.isRunning())
+			{
+				// Attente d'une connexion entrante
+				SocketChannel client = server.accept();
+				client.configureBlocking(false);
+				client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+				SelectorLoop loop = this.loops[this.nextLoop];
+				this.nextLoop = (this.nextLoop + 1) % this.loops.length;
+
+				FrogChannel channel = new FrogChannel(this, client, loop);
+				this.raiseChannelAcceptEvent(channel);
+				loop.register(channel);
+			}
+		}
+		catch(BindException ex)
+		{
+			System.err.println("Impossible de lancer le serveur, le port est actuellement utilisé");
+		}
+		catch(Exception e)
+		{
+			e.printStackTrace();
+		}
+		finally
+		{
+			this.setRunning(false);
+			this.stopLoops();
+		}
+	}
+
+	/**
+	 * <h1>Met à jour l'entité en écoute de nouvelles connexions non bloquantes</h1>
+	 * <p>Le souscripteur recevra des notifications à chaque ouverture et fermeture de connexion</p>
+	 * @param listener Le nouveau souscripteur
+	 */
+	public void setChannelListener(IChannelListener listener)
+	{
+		this.channelListener = listener;
+	}
+
+	/**
+	 * Met à jour la politique d'envoi groupé des connexions, à définir avant le démarrage du serveur
+	 * @param policy La nouvelle politique d'envoi
+	 */
+	public void setFlushPolicy(FlushPolicy policy)
+	{
+		this.flushPolicy = policy;
+	}
+
+	/**
+	 * Obtient la politique d'envoi groupé des connexions
+	 * @return La politique d'envoi
+	 */
+	public FlushPolicy getFlushPolicy()
+	{
+		return this.flushPolicy;
+	}
+
+	private void startLoops() throws IOException
+	{
+		this.loops = new SelectorLoop[this.loopsCount];
+		for(int i = 0; i < this.loops.length; i++)
+		{
+			this.loops[i] = new SelectorLoop(this, i);
+			this.loops[i].start();
+		}
+	}
+
+	private void stopLoops()
+	{
+		if(this.loops == null)
+			return;
+
+		for(SelectorLoop loop : this.loops)
+		{
+			if(loop != null)
+				loop.shutdown();
+		}
+	}
+
+	private void raiseChannelAcceptEvent(FrogChannel channel)
+	{
+		if(this.channelListener != null)
+			this.channelListener.onChannelAccept(channel);
+	}
+
+	void raiseChannelCloseEvent(FrogChannel channel)
+	{
+		if(this.channelListener != null)
+			this.channelListener.onChannelClose(channel);
+	}
+}
@@ -24,7 +24,7 @@ public class FrogServerSocket
 	{
 		try (ServerSocket server = new ServerSocket(port))
 		{
-			this.isRunning = true;
+			this.setRunning(true);
 			this.raiseServerStartUpEvent();
 			
 			while(this.isRunning())
@@ -45,7 +45,7 @@ public class FrogServerSocket
 		}
 		finally
 		{
-			this.isRunning = false;
+			this.setRunning(false);
 		}
 	}
 
@@ -59,6 +59,15 @@ public class FrogServerSocket
 		return this.isRunning;
 	}
 	
+	/**
+	 * Met à jour l'état du serveur
+	 * @param isRunning True si le serveur est actif, False dans le cas contraire
+	 */
+	protected synchronized void setRunning(boolean isRunning)
+	{
+		this.isRunning = isRunning;
+	}
+	
 	/**
 	 * <h1>Met à jour l'entité en écoute de nouveaux clients</h1>
 	 * <p>Le souscripteur recevra des notifications à chaque nouvelle connexion cliente</p>
@@ -79,7 +88,7 @@ public class FrogServerSocket
 		this.serverListener = listener;
 	}
 	
-	private void raiseServerStartUpEvent()
+	protected void raiseServerStartUpEvent()
 	{
 		if(this.serverListener != null)
 			this.serverListener.onStartUp(this);
@@ -0,0 +1,244 @@
+package net.socket;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.Packet;
+import net.PacketType;
+import net.codec.PacketCodec;
+import net.codec.PacketCodecs;
+
+/**
+ * <h1>Tampon d'envoi d'une connexion bloquante</h1>
+ * <p>Regroupe les packets selon la {@link FlushPolicy} de la connexion. La fin des fenêtres de regroupement
+ * est planifiée par un unique thread partagé, qui n'écrit jamais : chaque envoi différé est réalisé par un thread
+ * d'écriture propre à la connexion le temps de l'envoi. Une connexion dont le client ne lit plus ne retarde donc
+ * que ses propres envois.</p>
+ * <p>Une écriture dépassant le délai d'écriture de la politique ferme la connexion, libérant les threads
+ * bloqués sur son flux.</p>
+ * <p>L'accès au flux est protégé par un verrou non synchronisé afin de ne pas épingler les threads virtuels.</p>
+ */
+public class OutboundBuffer
+{
+	private static final int INITIAL_SIZE = 512;
+	
+	private static final ScheduledThreadPoolExecutor SCHEDULER = createScheduler();
+	
+	private static final AtomicInteger WRITERS_COUNT = new AtomicInteger();
+	private static final ExecutorService WRITERS = Executors.newCachedThreadPool(runnable -> 
+	{
+		Thread thread = new Thread(runnable, "OutboundFlush-" + WRITERS_COUNT.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	private OutputStream out;
+	private Closeable connection;
+	private FlushPolicy policy;
+	private volatile PacketCodec codec;
+	private ReentrantLock lock;
+	private Runnable flushTask;
+	private Runnable writeTask;
+	private Runnable expireTask;
+	
+	private byte[] buffer;
+	private int length;
+	private int packets;
+	private boolean flushScheduled;
+	
+	public OutboundBuffer(OutputStream out, FlushPolicy policy)
+	{
+		this(out, policy, null);
+	}
+	
+	/**
+	 * Constructeur du tampon d'envoi
+	 * @param out Le flux de la connexion
+	 * @param policy La politique d'envoi groupé
+	 * @param connection La connexion fermée si une écriture dépasse le délai d'écriture, null si aucun délai n'est appliqué
+	 */
+	public OutboundBuffer(OutputStream out, FlushPolicy policy, Closeable connection)
+	{
+		this.out = out;
+		this.connection = connection;
+		this.policy = policy;
+		this.codec = PacketCodecs.JSON;
+		this.lock = new ReentrantLock();
+		this.flushTask = this::scheduledFlush;
+		this.writeTask = () -> WRITERS.execute(this.flushTask);
+		this.expireTask = this::expire;
+	}
+	
+	/**
+	 * Met à jour le format de transport des packets envoyés après l'appel
+	 * @param codec Le nouveau format de transport
+	 */
+	public void setCodec(PacketCodec codec)
+	{
+		this.codec = codec;
+	}
+	
+	/**
+	 * <h1>Ajoute un packet au tampon d'envoi</h1>
+	 * <p>Le packet est envoyé immédiatement si son type l'exige ou si le seuil d'envoi est atteint,
+	 * à la fin de la fenêtre de regroupement dans le cas contraire</p>
+	 * @param packet Le packet à envoyer
+	 * @throws IOException Exception jetée si l'envoi immédiat échoue
+	 */
+	public void send(Packet packet) throws IOException
+	{
+		this.sendFrame(this.codec.encode(packet), packet.getType());
+	}
+	
+	/**
+	 * <h1>Ajoute une trame déjà encodée au tampon d'envoi</h1>
+	 * <p>La trame doit être encodée au format de transport courant. Sa position n'est pas modifiée,
+	 * elle peut donc être partagée entre plusieurs connexions.</p>
+	 * @param frame La trame à envoyer, prête à être lue
+	 * @param type Le type du packet contenu dans la trame
+	 * @throws IOException Exception jetée si l'envoi immédiat échoue
+	 */
+	public void sendFrame(ByteBuffer frame, PacketType type) throws IOException
+	{
+		this.lock.lock();
+		try
+		{
+			// Copie inévitable vers un flux bloquant, réalisée directement dans le tampon d'envoi
+			this.append(frame.duplicate());
+			
+			if(this.policy.isImmediate(type) || this.length >= this.policy.getThreshold())
+			{
+				this.flushLocked();
+			}
+			else if(!this.flushScheduled)
+			{
+				this.flushScheduled = true;
+				SCHEDULER.schedule(this.writeTask, this.policy.getWindow(), TimeUnit.MILLISECONDS);
+			}
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+	
+	/**
+	 * Envoie immédiatement l'ensemble des packets en attente
+	 * @throws IOException Exception jetée si l'envoi échoue
+	 */
+	public void flush() throws IOException
+	{
+		this.lock.lock();
+		try
+		{
+			this.flushLocked();
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+	
+	private void scheduledFlush()
+	{
+		this.lock.lock();
+		try
+		{
+			this.flushScheduled = false;
+			this.flushLocked();
+		}
+		catch(IOException e)
+		{
+			// Communication fermée, constatée par le thread de lecture de la connexion
+			this.length = 0;
+			this.packets = 0;
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+	
+	private void expire()
+	{
+		System.err.println("Écriture bloquée depuis plus de " + this.policy.getWriteTimeout() + " ms, fermeture de la connexion");
+		try
+		{
+			this.connection.close();
+		}
+		catch(IOException e)
+		{
+			System.err.println(e.getMessage());
+		}
+	}
+	
+	private void append(ByteBuffer frame)
+	{
+		int size = frame.remaining();
+		if(this.buffer == null)
+			this.buffer = new byte[Math.max(INITIAL_SIZE, size)];
+		else if(this.buffer.length - this.length < size)
+			this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.length + size));
+		
+		frame.get(this.buffer, this.length, size);
+		this.length += size;
+		this.packets++;
+	}
+	
+	private void flushLocked() throws IOException
+	{
+		if(this.length == 0)
+			return;
+		
+		int bytes = this.length;
+		int count = this.packets;
+		this.length = 0;
+		this.packets = 0;
+		
+		// Échéance de l'écriture : la fermeture de la connexion interrompt une écriture bloquée
+		long timeout = this.policy.getWriteTimeout();
+		ScheduledFuture<?> deadline = null;
+		if(this.connection != null && timeout > 0)
+			deadline = SCHEDULER.schedule(this.expireTask, timeout, TimeUnit.MILLISECONDS);
+		
+		try
+		{
+			this.out.write(this.buffer, 0, bytes);
+			this.out.flush();
+		}
+		finally
+		{
+			if(deadline != null)
+				deadline.cancel(false);
+		}
+		this.policy.getStatistics().record(count, bytes);
+		
+		// Libère les tampons agrandis par une rafale ponctuelle
+		if(this.buffer.length > this.policy.getThreshold() * 2)
+			this.buffer = null;
+	}
+	
+	private static ScheduledThreadPoolExecutor createScheduler()
+	{
+		ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> 
+		{
+			Thread thread = new Thread(runnable, "OutboundSchedule");
+			thread.setDaemon(true);
+			return thread;
+		});
+		
+		// Les échéances annulées à la fin de chaque écriture ne s'accumulent pas dans la file
+		scheduler.setRemoveOnCancelPolicy(true);
+		return scheduler;
+	}
+}
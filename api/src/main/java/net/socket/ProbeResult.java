@@ -0,0 +1,118 @@
+package net.socket;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Résultat du sondage d'un serveur de jeu</h1>
+ * <p>Les résultats sont ordonnés par disponibilité puis par latence croissante : les serveurs
+ * utilisables les plus proches en premier.</p>
+ */
+public class ProbeResult implements Comparable<ProbeResult>
+{
+	private InetSocketAddress address;
+	private boolean accepted;
+	private long connectNanos;
+	private long rttNanos;
+	private String error;
+	
+	/**
+	 * Constructeur du résultat d'un serveur ayant répondu à la négociation du protocole
+	 * @param address L'adresse du serveur
+	 * @param accepted True si le serveur accepte la version du protocole du client
+	 * @param connectNanos La durée d'établissement de la connexion en nanosecondes
+	 * @param rttNanos La durée de l'aller-retour de la négociation en nanosecondes
+	 */
+	public ProbeResult(InetSocketAddress address, boolean accepted, long connectNanos, long rttNanos)
+	{
+		this.address = address;
+		this.accepted = accepted;
+		this.connectNanos = connectNanos;
+		this.rttNanos = rttNanos;
+	}
+	
+	/**
+	 * Constructeur du résultat d'un serveur injoignable
+	 * @param address L'adresse du serveur
+	 * @param error La cause de l'échec
+	 */
+	public ProbeResult(InetSocketAddress address, String error)
+	{
+		this(address, false, -1, -1);
+		this.error = error;
+	}
+	
+	public InetSocketAddress getAddress()
+	{
+		return this.address;
+	}
+	
+	/**
+	 * Indique si une connexion de jeu peut être établie avec le serveur
+	 * @return True si le serveur a répondu et accepte la version du protocole
+	 */
+	public boolean isUsable()
+	{
+		return this.error == null && this.accepted;
+	}
+	
+	/**
+	 * Indique si le serveur a répondu à la négociation du protocole
+	 * @return True si le serveur est joignable, False dans le cas contraire (voir {@link #getError()})
+	 */
+	public boolean isReachable()
+	{
+		return this.error == null;
+	}
+	
+	/**
+	 * Obtient la durée d'établissement de la connexion
+	 * @return La durée en millisecondes, -1 si le serveur est injoignable
+	 */
+	public double getConnectTime()
+	{
+		return toMillis(this.connectNanos);
+	}
+	
+	/**
+	 * Obtient la latence mesurée du serveur (aller-retour de la négociation du protocole)
+	 * @return La latence en millisecondes, -1 si le serveur est injoignable
+	 */
+	public double getRtt()
+	{
+		return toMillis(this.rttNanos);
+	}
+	
+	/**
+	 * Obtient la cause de l'échec du sondage
+	 * @return Null si le serveur a répondu, un message dans le cas contraire
+	 */
+	public String getError()
+	{
+		return this.error;
+	}
+	
+	@Override
+	public int compareTo(ProbeResult other)
+	{
+		if(this.isUsable() != other.isUsable())
+			return this.isUsable() ? -1 : 1;
+		if(this.isReachable() != other.isReachable())
+			return this.isReachable() ? -1 : 1;
+		return Long.compare(this.rttNanos, other.rttNanos);
+	}
+	
+	@Override
+	public String toString()
+	{
+		if(!this.isReachable())
+			return this.address + " injoignable (" + this.error + ")";
+		return String.format("%s %s, connexion %.1f ms, latence %.1f ms", this.address, 
+				this.accepted ? "disponible" : "version refusée", this.getConnectTime(), this.getRtt());
+	}
+	
+	private static double toMillis(long nanos)
+	{
+		return nanos < 0 ? -1 : nanos / (double)TimeUnit.MILLISECONDS.toNanos(1);
+	}
+}
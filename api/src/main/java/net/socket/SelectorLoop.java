@@ -0,0 +1,210 @@
+package net.socket;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Boucle d'évènements réseau</h1>
+ * <p>Thread multiplexant un ensemble de connexions non bloquantes à l'aide d'un unique {@link Selector}.
+ * Le tampon de lecture est partagé par toutes les connexions de la boucle afin qu'une connexion
+ * inactive ne consomme aucune mémoire de lecture.</p>
+ */
+class SelectorLoop extends Thread
+{
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+	private static final int GATHER_SIZE = 64;
+
+	private FrogSelectorServerSocket server;
+	private Selector selector;
+	private ByteBuffer readBuffer;
+	private Queue<FrogChannel> registrations;
+	private Queue<FrogChannel> writes;
+	private Queue<DelayedWrite> delayedWrites;
+	private ByteBuffer[] gatherBuffers;
+
+	public SelectorLoop(FrogSelectorServerSocket server, int index) throws IOException
+	{
+		super("SelectorLoop-" + index);
+		this.server = server;
+		this.selector = Selector.open();
+		this.readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+		this.registrations = new ConcurrentLinkedQueue<FrogChannel>();
+		this.writes = new ConcurrentLinkedQueue<FrogChannel>();
+		this.delayedWrites = new ConcurrentLinkedQueue<DelayedWrite>();
+		this.gatherBuffers = new ByteBuffer[GATHER_SIZE];
+	}
+
+	/**
+	 * Enregistre une nouvelle connexion auprès de la boucle
+	 * @param channel La connexion à enregistrer
+	 */
+	public void register(FrogChannel channel)
+	{
+		this.registrations.add(channel);
+		this.selector.wakeup();
+	}
+
+	/**
+	 * Demande l'écriture des données en attente d'une connexion
+	 * @param channel La connexion disposant de données à écrire
+	 */
+	public void scheduleWrite(FrogChannel channel)
+	{
+		this.writes.add(channel);
+		this.selector.wakeup();
+	}
+
+	/**
+	 * Demande l'écriture différée des données en attente d'une connexion
+	 * @param channel La connexion disposant de données à écrire
+	 * @param delay Le délai avant écriture en millisecondes
+	 */
+	public void scheduleDelayedWrite(FrogChannel channel, long delay)
+	{
+		this.delayedWrites.add(new DelayedWrite(channel, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay)));
+		// Réveil nécessaire pour que la boucle prenne en compte la nouvelle échéance
+		this.selector.wakeup();
+	}
+
+	/**
+	 * Obtient le tableau de regroupement des écritures, réservé au thread de la boucle
+	 * @return Le tableau de regroupement des écritures
+	 */
+	ByteBuffer[] getGatherBuffers()
+	{
+		return this.gatherBuffers;
+	}
+
+	/**
+	 * Réveille la boucle afin qu'elle constate l'arrêt du serveur
+	 */
+	public void shutdown()
+	{
+		this.selector.wakeup();
+	}
+
+	@Override
+	public void run()
+	{
+		try
+		{
+			while(this.server.isRunning())
+			{
+				long timeout = this.processDelayedWrites();
+				if(timeout > 0)
+					this.selector.select(timeout);
+				else
+					this.selector.select();
+
+				this.processRegistrations();
+				this.processWrites();
+
+				Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+				while(keys.hasNext())
+				{
+					SelectionKey key = keys.next();
+					keys.remove();
+
+					FrogChannel channel = (FrogChannel)key.attachment();
+					if(key.isValid() && key.isReadable())
+						channel.onReadable(this.readBuffer);
+					if(key.isValid() && key.isWritable())
+						channel.onWritable();
+				}
+			}
+		}
+		catch(IOException e)
+		{
+			e.printStackTrace();
+		}
+		finally
+		{
+			this.closeAll();
+		}
+	}
+
+	private void processRegistrations()
+	{
+		FrogChannel channel;
+		while((channel = this.registrations.poll()) != null)
+		{
+			try
+			{
+				SelectionKey key = channel.getSocketChannel().register(this.selector, SelectionKey.OP_READ, channel);
+				channel.onRegistered(key);
+			}
+			catch(ClosedChannelException e)
+			{
+				channel.close();
+			}
+		}
+	}
+
+	private void processWrites()
+	{
+		FrogChannel channel;
+		while((channel = this.writes.poll()) != null)
+		{
+			if(channel.isOpen())
+				channel.onWritable();
+		}
+	}
+
+	/**
+	 * Réalise les écritures différées arrivées à échéance
+	 * @return Le délai en millisecondes avant la prochaine échéance, 0 si aucune écriture n'est différée
+	 */
+	private long processDelayedWrites()
+	{
+		// Même fenêtre pour toutes les connexions du serveur : les échéances sont ordonnées
+		DelayedWrite delayed;
+		while((delayed = this.delayedWrites.peek()) != null)
+		{
+			long remaining = delayed.deadline - System.nanoTime();
+			if(remaining > 0)
+				return Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining));
+
+			this.delayedWrites.poll();
+			if(delayed.channel.isOpen())
+				delayed.channel.onWritable();
+		}
+		return 0;
+	}
+
+	private void closeAll()
+	{
+		for(SelectionKey key : this.selector.keys())
+		{
+			if(key.attachment() instanceof FrogChannel)
+				((FrogChannel)key.attachment()).close();
+		}
+
+		try
+		{
+			this.selector.close();
+		}
+		catch(IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	private static class DelayedWrite
+	{
+		private FrogChannel channel;
+		private long deadline;
+
+		public DelayedWrite(FrogChannel channel, long deadline)
+		{
+			this.channel = channel;
+			this.deadline = deadline;
+		}
+	}
+}
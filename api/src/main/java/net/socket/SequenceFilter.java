@@ -0,0 +1,53 @@
+package net.socket;
+
+import net.PacketType;
+
+/**
+ * <h1>Filtre des datagrammes obsolètes</h1>
+ * <p>Les datagrammes peuvent être perdus, dupliqués ou reçus dans le désordre. Seuls les packets dont le numéro
+ * de séquence est plus récent que celui du dernier packet accepté du même type sont conservés : un état
+ * ancien n'écrase jamais un état plus récent.</p>
+ * <p>Les numéros de séquence sont comparés par différence afin de supporter leur dépassement de capacité.
+ * Une instance est destinée à un unique thread de réception.</p>
+ */
+public class SequenceFilter
+{
+	private int[] last;
+	private boolean[] received;
+	private long dropped;
+	
+	public SequenceFilter()
+	{
+		this.last = new int[PacketType.values().length];
+		this.received = new boolean[PacketType.values().length];
+	}
+	
+	/**
+	 * Indique si un packet reçu doit être conservé, et le retient comme dernier packet de son type le cas échéant
+	 * @param type Le type du packet reçu
+	 * @param sequence Le numéro de séquence du datagramme
+	 * @return True si le packet est plus récent que le dernier packet accepté de son type
+	 */
+	public boolean accept(PacketType type, int sequence)
+	{
+		int index = type.ordinal();
+		if(this.received[index] && sequence - this.last[index] <= 0)
+		{
+			this.dropped++;
+			return false;
+		}
+		
+		this.received[index] = true;
+		this.last[index] = sequence;
+		return true;
+	}
+	
+	/**
+	 * Obtient le nombre de packets ignorés car obsolètes ou dupliqués
+	 * @return Le nombre de packets ignorés
+	 */
+	public long getDroppedCount()
+	{
+		return this.dropped;
+	}
+}
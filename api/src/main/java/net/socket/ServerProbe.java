@@ -0,0 +1,155 @@
+package net.socket;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import net.Packet;
+import net.PacketType;
+import net.codec.PacketCodecs;
+import utils.FrogException;
+
+/**
+ * <h1>Sondage des serveurs de jeu</h1>
+ * <p>Sonde simultanément une liste de serveurs : connexion avec un délai court, négociation du protocole
+ * puis fermeture. La latence mesurée est la durée de l'aller-retour de la négociation.</p>
+ * <p>Contrairement à {@link FrogClientSocket#start(String, int)}, un serveur injoignable n'est pas
+ * sollicité de nouveau : le sondage complet dure au plus le délai d'un serveur, et le premier
+ * serveur utilisable est connu après environ un aller-retour.</p>
+ */
+public class ServerProbe
+{
+	/**
+	 * Délai par défaut de la connexion puis de la réponse d'un serveur, en millisecondes
+	 */
+	public static final int DEFAULT_TIMEOUT = 1000;
+	public static final int DEFAULT_PARALLELISM = 16;
+	
+	private static final AtomicInteger INSTANCES = new AtomicInteger();
+	
+	private int timeout;
+	private ExecutorService executor;
+	
+	public ServerProbe()
+	{
+		this(DEFAULT_TIMEOUT, DEFAULT_PARALLELISM);
+	}
+	
+	/**
+	 * Constructeur du service de sondage
+	 * @param timeout Le délai de la connexion puis de la réponse d'un serveur, en millisecondes
+	 * @param parallelism Le nombre maximum de serveurs sondés simultanément
+	 */
+	public ServerProbe(int timeout, int parallelism)
+	{
+		int instance = INSTANCES.incrementAndGet();
+		AtomicInteger threads = new AtomicInteger();
+		this.timeout = Math.max(1, timeout);
+		this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> 
+		{
+			Thread thread = new Thread(runnable, "ServerProbe-" + instance + "-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/**
+	 * <h1>Sonde une liste de serveurs</h1>
+	 * <p>Chaque résultat est transmis dès son obtention, par le thread du sondage concerné : les serveurs
+	 * les plus proches sont donc généralement connus en premier.</p>
+	 * @param servers Les adresses des serveurs à sonder
+	 * @param listener Le destinataire de chaque résultat (peut être null)
+	 * @return L'ensemble des résultats, triés par disponibilité puis latence (voir {@link ProbeResult})
+	 */
+	public CompletableFuture<List<ProbeResult>> probe(List<InetSocketAddress> servers, Consumer<ProbeResult> listener)
+	{
+		List<ProbeResult> results = Collections.synchronizedList(new ArrayList<ProbeResult>());
+		CompletableFuture<?>[] probes = new CompletableFuture<?>[servers.size()];
+		for(int i = 0; i < probes.length; i++)
+		{
+			InetSocketAddress server = servers.get(i);
+			probes[i] = CompletableFuture.runAsync(() -> 
+			{
+				ProbeResult result = this.probe(server);
+				results.add(result);
+				if(listener != null)
+					listener.accept(result);
+			}, this.executor);
+		}
+		
+		return CompletableFuture.allOf(probes).thenApply(done -> 
+		{
+			List<ProbeResult> sorted = new ArrayList<ProbeResult>(results);
+			Collections.sort(sorted);
+			return sorted;
+		});
+	}
+	
+	/**
+	 * Sonde un serveur sur le thread appelant
+	 * @param server L'adresse du serveur à sonder
+	 * @return Le résultat du sondage
+	 */
+	public ProbeResult probe(InetSocketAddress server)
+	{
+		if(server.isUnresolved())
+			return new ProbeResult(server, "Adresse inconnue");
+		
+		try(Socket socket = new Socket())
+		{
+			socket.setTcpNoDelay(true);
+			
+			long start = System.nanoTime();
+			socket.connect(server, this.timeout);
+			long connected = System.nanoTime();
+			
+			socket.setSoTimeout(this.timeout);
+			InputStream in = new BufferedInputStream(socket.getInputStream());
+			OutputStream out = socket.getOutputStream();
+			
+			// Négociation minimale, sans proposition de format : le serveur répond au format JSON
+			JSONObject obj = new JSONObject();
+			obj.put("version", FrogClientSocket.PROTOCOL_VERSION);
+			long sent = System.nanoTime();
+			PacketCodecs.JSON.write(new Packet(PacketType.PROTOCOL_VERSION, obj.toString()), out);
+			out.flush();
+			
+			Packet response = PacketCodecs.JSON.read(in);
+			long received = System.nanoTime();
+			
+			if(response == null)
+				return new ProbeResult(server, "Fermeture de la communication par le serveur");
+			if(response.getType() != PacketType.PROTOCOL_VERSION_RESULT)
+				return new ProbeResult(server, "Mauvais packet reçu : " + response.getType());
+			
+			boolean accepted = new JSONObject(response.getSerializedObject()).optBoolean("result", false);
+			return new ProbeResult(server, accepted, connected - start, received - sent);
+		}
+		catch(IOException | FrogException | JSONException e)
+		{
+			return new ProbeResult(server, e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+		}
+	}
+	
+	/**
+	 * Arrête le service, les sondages en cours sont interrompus au plus tard à l'échéance de leur délai
+	 */
+	public void shutdown()
+	{
+		this.executor.shutdownNow();
+	}
+}
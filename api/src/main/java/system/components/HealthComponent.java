@@ -1,10 +1,13 @@
 package system.components;
 
+import org.json.JSONObject;
+
 import system.GameSystem;
 import system.events.GameEvent;
 import system.events.GameEventType;
+import system.objects.SerializableObject;
 
-public class HealthComponent extends AbstractComponent 
+public class HealthComponent extends AbstractComponent implements SerializableObject
 {
 	public static final String COMPONENT_KEY = "HealthComponentKey";
 	private int health;
@@ -75,4 +78,13 @@ public class HealthComponent extends AbstractComponent
 	public String getKey() {
 		return COMPONENT_KEY;
 	}
+
+	@Override
+	public String toJSON()
+	{
+		JSONObject obj = new JSONObject();
+		obj.put("health", this.health);
+		obj.put("maxHealth", this.maxHealth);
+		return obj.toString();
+	}
 }
@@ -0,0 +1,230 @@
+package environment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import environment.map.ChunkResidencyManager;
+import environment.map.ChunkResidencyStatistics;
+import environment.map.GameMap;
+import environment.map.GameMapChunk;
+import environment.map.MappedGameMap;
+import utils.FrogException;
+
+public class ChunkResidencyTest
+{
+	private static final int CHUNK_SIZE = 8;
+	private static final int CHUNKS = 10;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File file;
+	private long chunkBytes;
+
+	@Before
+	public void initialize() throws IOException, FrogException
+	{
+		GameMap map = new GameMap(32, 32, CHUNK_SIZE, CHUNK_SIZE);
+		for(int y = 0; y < CHUNKS; y++)
+		{
+			for(int x = 0; x < CHUNKS; x++)
+				map.setTile(0, x * CHUNK_SIZE, y * CHUNK_SIZE, y * CHUNKS + x);
+		}
+		this.chunkBytes = map.getChunk(0, 0).getMemorySize();
+
+		this.file = this.folder.newFile("map.frog");
+		MappedGameMap.write(map, this.file);
+	}
+
+	@Test
+	public void budgetTest() throws IOException, FrogException
+	{
+		try(MappedGameMap map = MappedGameMap.open(this.file))
+		{
+			ChunkResidencyManager residency = new ChunkResidencyManager(map, 5 * this.chunkBytes, 0);
+			ChunkResidencyStatistics statistics = residency.getStatistics();
+			for(int x = 0; x < CHUNKS; x++)
+				assertEquals(x, residency.getChunk(x, 0).getTileId(0, 0, 0));
+
+			assertEquals(5, statistics.getResidentChunks());
+			assertEquals(5 * this.chunkBytes, statistics.getResidentBytes());
+			assertEquals(5, map.getResidentCount());
+			assertEquals(10, statistics.getMissesCount());
+			assertEquals(5, statistics.getEvictionsCount());
+
+			residency.getChunk(CHUNKS - 1, 0);
+			assertEquals(1, statistics.getHitsCount());
+			assertNull("Chunk absent conservé", residency.getChunk(CHUNKS, 0));
+			residency.stop();
+		}
+	}
+
+	@Test
+	public void clockTest() throws IOException, FrogException
+	{
+		try(MappedGameMap map = MappedGameMap.open(this.file))
+		{
+			ChunkResidencyManager residency = new ChunkResidencyManager(map, 5 * this.chunkBytes, 0);
+			for(int x = 0; x < 5; x++)
+				residency.getChunk(x, 0);
+
+			// Le chunk accédé de nouveau est conservé, le plus ancien chunk non accédé est libéré
+			residency.getChunk(0, 0);
+			residency.getChunk(5, 0);
+			assertNotNull("Chunk récemment accédé libéré", map.getResidentChunk(0, 0));
+			assertNull("Chunk le moins récemment accédé conservé", map.getResidentChunk(1, 0));
+			assertNotNull(map.getResidentChunk(5, 0));
+			residency.stop();
+		}
+	}
+
+	@Test
+	public void persistenceTest() throws IOException, FrogException
+	{
+		try(MappedGameMap map = MappedGameMap.open(this.file, true))
+		{
+			ChunkResidencyManager residency = new ChunkResidencyManager(map, 2 * this.chunkBytes, 0);
+			residency.getChunk(0, 0).setTile(0, 1, 1, 500);
+			residency.getChunk(1, 0).addLayer(1);
+			for(int x = 2; x < CHUNKS; x++)
+				residency.getChunk(x, 0);
+
+			assertNull("Chunk modifié conservé", map.getResidentChunk(0, 0));
+			assertEquals(2, residency.getStatistics().getPersistedCount());
+			assertEquals(500, residency.getChunk(0, 0).getTileId(0, 1, 1));
+
+			residency.getChunk(2, 0).setTile(0, 2, 2, 600);
+			assertEquals("Chunk modifié non enregistré à l'arrêt", 1, residency.stop());
+		}
+
+		try(MappedGameMap map = MappedGameMap.open(this.file))
+		{
+			assertEquals(500, map.getChunk(0, 0).getTileId(0, 1, 1));
+			assertTrue("Couche ajoutée non enregistrée", map.getChunk(1, 0).hasLayer(1));
+			assertEquals(600, map.getChunk(2, 0).getTileId(0, 2, 2));
+			assertEquals(3, map.getChunk(3, 0).getTileId(0, 0, 0));
+		}
+	}
+
+	@Test
+	public void readOnlyTest() throws IOException, FrogException
+	{
+		try(MappedGameMap map = MappedGameMap.open(this.file))
+		{
+			ChunkResidencyManager residency = new ChunkResidencyManager(map, 0, 0);
+			residency.getChunk(0, 0).setTile(0, 1, 1, 500);
+			residency.getChunk(1, 0);
+			residency.getChunk(2, 0);
+
+			// Seul le dernier chunk chargé est conservé au-delà du budget, ainsi que les chunks modifiés
+			assertNotNull("Chunk modifié libéré sans enregistrement", map.getResidentChunk(0, 0));
+			assertNull(map.getResidentChunk(1, 0));
+			assertNotNull(map.getResidentChunk(2, 0));
+			assertEquals(0, residency.stop());
+		}
+	}
+
+	@Test
+	public void preloadTest() throws IOException, FrogException
+	{
+		try(MappedGameMap map = MappedGameMap.open(this.file))
+		{
+			// Budget nul : seuls les chunks épinglés et le dernier chunk chargé sont conservés
+			ChunkResidencyManager residency = new ChunkResidencyManager(map, 0, 1);
+			ChunkResidencyStatistics statistics = residency.getStatistics();
+			Object player = new Object();
+
+			residency.updatePosition(player, 5 * CHUNK_SIZE, 5 * CHUNK_SIZE);
+			awaitPreloads(statistics, 9);
+			assertEquals(9, statistics.getResidentChunks());
+			assertNotNull(map.getResidentChunk(4, 4));
+
+			// Déplacement vers la droite : colonne 7 épinglée, colonne 8 chargée par anticipation, colonne 4 libérée
+			residency.updatePosition(player, 6 * CHUNK_SIZE + 3, 5 * CHUNK_SIZE);
+			awaitPreloads(statistics, 15);
+			assertEquals(10, statistics.getResidentChunks());
+			assertNotNull("Dernier chunk chargé libéré", map.getResidentChunk(8, 6));
+			assertNull("Chunk hors de la zone conservé", map.getResidentChunk(4, 4));
+			assertNotNull(map.getResidentChunk(7, 6));
+
+			residency.getChunk(6, 5);
+			assertEquals(1, statistics.getHitsCount());
+			assertEquals(0, statistics.getMissesCount());
+
+			residency.remove(player);
+			assertEquals(0, statistics.getResidentChunks());
+			residency.stop();
+		}
+	}
+
+	@Test
+	public void resizeTest() throws IOException, FrogException
+	{
+		try(MappedGameMap map = MappedGameMap.open(this.file, true))
+		{
+			ChunkResidencyManager residency = new ChunkResidencyManager(map, 3 * this.chunkBytes, 0);
+			ChunkResidencyStatistics statistics = residency.getStatistics();
+			GameMapChunk chunk = residency.getChunk(0, 0);
+			for(int i = 0; i < CHUNK_SIZE; i++)
+				chunk.setTile(0, i, i, 1000 + i);
+			assertEquals(this.chunkBytes, statistics.getResidentBytes());
+
+			// Taille du chunk modifié réévaluée au contrôle du budget suivant
+			residency.getChunk(1, 0);
+			assertEquals(chunk.getMemorySize() + this.chunkBytes, statistics.getResidentBytes());
+
+			// Budget dépassé par la croissance du chunk modifié : le chunk non marqué est libéré
+			residency.getChunk(0, 0).addLayer(1);
+			residency.getChunk(2, 0);
+			assertNull(map.getResidentChunk(1, 0));
+			assertEquals(2, statistics.getResidentChunks());
+			assertEquals(chunk.getMemorySize() + this.chunkBytes, statistics.getResidentBytes());
+			residency.stop();
+		}
+	}
+
+	@Test
+	public void evictedHitTest() throws IOException, FrogException
+	{
+		try(MappedGameMap map = MappedGameMap.open(this.file))
+		{
+			ChunkResidencyManager residency = new ChunkResidencyManager(map, 5 * this.chunkBytes, 0);
+			ChunkResidencyStatistics statistics = residency.getStatistics();
+			GameMapChunk first = residency.getChunk(0, 0);
+
+			// Chunk libéré entre la recherche et l'accès : décodé de nouveau et toujours suivi
+			assertTrue(map.unloadChunk(0, 0));
+			GameMapChunk second = residency.getChunk(0, 0);
+			assertNotSame(first, second);
+			assertSame(second, map.getResidentChunk(0, 0));
+			assertEquals(2, statistics.getMissesCount());
+			assertEquals(1, statistics.getResidentChunks());
+
+			assertSame(second, residency.getChunk(0, 0));
+			assertEquals(1, statistics.getHitsCount());
+			residency.stop();
+		}
+	}
+
+	private static void awaitPreloads(ChunkResidencyStatistics statistics, long count)
+	{
+		long deadline = System.currentTimeMillis() + 5000;
+		while(statistics.getPreloadsCount() < count && System.currentTimeMillis() < deadline)
+			Thread.yield();
+		assertEquals(statistics.toString(), count, statistics.getPreloadsCount());
+		assertFalse(statistics.getResidentChunks() < 0);
+	}
+}
@@ -1,12 +1,18 @@
 package environment;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import environment.map.GameMap;
 import environment.map.GameMapChunk;
+import environment.map.GameMapLayer;
 import math.Vector2;
 import utils.FrogException;
 
@@ -45,25 +51,30 @@ public class EnvironmentTest {
 		this.map.setChunk(chunk, 13, 9);
 	}
 	
-	@Test(expected=FrogException.class)
+	@Test
 	public void addChunkNegativeIndexs1() throws FrogException
 	{
 		GameMapChunk chunk = new GameMapChunk(this.map);
 		this.map.setChunk(chunk, -3, 0);
+		assertEquals("Le chunk obtenu n'est pas le même que celui enregistré", chunk, this.map.getChunk(-3, 0));
 	}
 	
-	@Test(expected=FrogException.class)
+	@Test
 	public void addChunkNegativeIndexs2() throws FrogException
 	{
 		GameMapChunk chunk = new GameMapChunk(this.map);
 		this.map.setChunk(chunk, -1, -6);
+		assertEquals("Le chunk obtenu n'est pas le même que celui enregistré", chunk, this.map.getChunk(-1, -6));
+		assertNull("Chunk symétrique existant", this.map.getChunk(1, 6));
 	}
 	
-	@Test(expected=FrogException.class)
+	@Test
 	public void addChunkNegativeIndexs3() throws FrogException
 	{
 		GameMapChunk chunk = new GameMapChunk(this.map);
 		this.map.setChunk(chunk, 0, -12);
+		assertEquals("Map ne disposant pas de la bonne origine", -12, this.map.getMinY());
+		assertEquals("Map ne disposant pas de la bonne hauteur courante", 1, this.map.getHeight());
 	}
 	
 	@Test
@@ -86,6 +97,17 @@ public class EnvironmentTest {
 	{
 		Vector2<Integer> v = this.map.getChunkCoordinatesFromAbsLocation(-1, 170);
 		assertEquals("Le chunk obtenu n'est pas le même que celui enregistré", null, this.map.getChunk(v.getX(), v.getY()));
+		
+		GameMapChunk chunk = new GameMapChunk(this.map);
+		this.map.setChunk(chunk, -1, 17);
+		assertEquals("Le chunk obtenu n'est pas le même que celui enregistré", chunk, this.map.getChunk(v.getX(), v.getY()));
+	}
+	
+	@Test
+	public void setTileFromNegativeAbsoluteCoordinates() throws FrogException
+	{
+		this.map.setTile(0, -1, -CHUNK_HEIGHT, 5);
+		assertEquals("Tuile incorrecte", 5, this.map.getChunk(-1, -1).getTileId(0, CHUNK_WIDTH - 1, 0));
 	}
 	
 	@Test
@@ -110,36 +132,186 @@ public class EnvironmentTest {
 	}
 	
 	@Test
-	public void cropMap() throws FrogException
+	public void layerTiles() throws FrogException
+	{
+		GameMapLayer layer = new GameMapLayer(CHUNK_WIDTH, CHUNK_HEIGHT);
+		assertEquals("Tuile vide incorrecte", GameMapLayer.EMPTY_TILE, layer.getTileId(3, 4));
+		assertNull("Tuile vide incorrecte", layer.getTile(3, 4));
+		
+		layer.setTile(3, 4, 1500);
+		assertEquals("Tuile incorrecte", 1500, layer.getTileId(3, 4));
+		assertEquals("Tuile incorrecte", Integer.valueOf(1500), layer.getTile(3, 4));
+		assertEquals("Tuile voisine modifiée", GameMapLayer.EMPTY_TILE, layer.getTileId(4, 3));
+		
+		layer.setTile(3, 4, (Integer)null);
+		assertEquals("Tuile supprimée incorrecte", GameMapLayer.EMPTY_TILE, layer.getTileId(3, 4));
+		assertEquals("Tuile hors limites incorrecte", GameMapLayer.EMPTY_TILE, layer.getTileId(CHUNK_WIDTH, 0));
+	}
+	
+	@Test
+	public void layerPalette() throws FrogException
+	{
+		GameMapLayer layer = new GameMapLayer(CHUNK_WIDTH, CHUNK_HEIGHT);
+		long emptySize = layer.getMemorySize();
+		assertEquals("Couche vide non uniforme", 1, layer.getPaletteSize());
+		
+		for(int i = 0; i < CHUNK_WIDTH * CHUNK_HEIGHT; i++)
+			layer.setTile(i % CHUNK_WIDTH, i / CHUNK_WIDTH, i % 16);
+		assertEquals("Palette incorrecte", 17, layer.getPaletteSize());
+		for(int i = 0; i < CHUNK_WIDTH * CHUNK_HEIGHT; i++)
+			assertEquals("Tuile incorrecte", i % 16, layer.getTileId(i % CHUNK_WIDTH, i / CHUNK_WIDTH));
+		assertTrue("Couche par palette plus grande qu'un tableau", layer.getMemorySize() < 4 * CHUNK_WIDTH * CHUNK_HEIGHT);
+		
+		// Les valeurs qui ne sont plus utilisées sont libérées
+		for(int i = 0; i < CHUNK_WIDTH * CHUNK_HEIGHT; i++)
+			layer.setTile(i % CHUNK_WIDTH, i / CHUNK_WIDTH, 7);
+		layer.compact();
+		assertEquals("Palette non reconstruite", 1, layer.getPaletteSize());
+		assertEquals("Tuile incorrecte", 7, layer.getTileId(CHUNK_WIDTH - 1, CHUNK_HEIGHT - 1));
+		assertEquals("Couche uniforme plus grande qu'une couche vide", emptySize, layer.getMemorySize());
+	}
+	
+	@Test
+	public void layerPaletteUpgrade() throws FrogException
+	{
+		GameMapLayer layer = new GameMapLayer(32, 32);
+		for(int i = 0; i < 32 * 32; i++)
+			layer.setTile(i % 32, i / 32, 1000 + i);
+		assertEquals("Couche variée toujours stockée par palette", 0, layer.getPaletteSize());
+		for(int i = 0; i < 32 * 32; i++)
+			assertEquals("Tuile incorrecte", 1000 + i, layer.getTileId(i % 32, i / 32));
+		
+		// Suppression des tuiles variées : retour à la palette
+		for(int i = 0; i < 32 * 32; i++)
+			layer.setTile(i % 32, i / 32, i % 3 == 0 ? 5 : GameMapLayer.EMPTY_TILE);
+		assertEquals(0, layer.getPaletteSize());
+		layer.compact();
+		assertEquals("Couche non reconstruite par palette", 2, layer.getPaletteSize());
+		assertEquals("Tuile incorrecte", 5, layer.getTileId(3, 0));
+		assertNull("Tuile vide incorrecte", layer.getTile(1, 0));
+	}
+	
+	@Test(timeout=30000)
+	public void layerConcurrentAccess() throws Exception
+	{
+		final int size = 32;
+		GameMapLayer layer = new GameMapLayer(size, size);
+		AtomicBoolean running = new AtomicBoolean(true);
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		
+		// Lecteurs : chaque tuile vaut successivement vide, 1000 + i ou i % 3
+		Thread[] readers = new Thread[3];
+		for(int r = 0; r < readers.length; r++)
+		{
+			readers[r] = new Thread(() ->
+			{
+				try
+				{
+					while(running.get())
+					{
+						for(int i = 0; i < size * size; i++)
+						{
+							int tile = layer.getTileId(i % size, i / size);
+							if(tile != GameMapLayer.EMPTY_TILE && tile != 1000 + i && tile != i % 3)
+								throw new AssertionError("Tuile " + i + " incorrecte : " + tile);
+							layer.getMemorySize();
+						}
+					}
+				}
+				catch(Throwable e)
+				{
+					failure.compareAndSet(null, e);
+				}
+			});
+			readers[r].start();
+		}
+		
+		// Écrivain : palette agrandie jusqu'au passage au tableau, puis retour à la palette
+		try
+		{
+			for(int cycle = 0; cycle < 20 && failure.get() == null; cycle++)
+			{
+				for(int i = 0; i < size * size; i++)
+					layer.setTile(i % size, i / size, 1000 + i);
+				assertEquals(0, layer.getPaletteSize());
+				for(int i = 0; i < size * size; i++)
+					layer.setTile(i % size, i / size, i % 3);
+				layer.compact();
+				assertEquals(3, layer.getPaletteSize());
+			}
+		}
+		finally
+		{
+			running.set(false);
+			for(Thread reader : readers)
+				reader.join();
+		}
+		assertNull(String.valueOf(failure.get()), failure.get());
+	}
+	
+	@Test(expected=FrogException.class)
+	public void layerTileOutOfBounds() throws FrogException
+	{
+		new GameMapLayer(CHUNK_WIDTH, CHUNK_HEIGHT).setTile(0, CHUNK_HEIGHT, 1);
+	}
+	
+	@Test
+	public void mapBounds() throws FrogException
 	{
 		GameMapChunk chunk = new GameMapChunk(this.map);
 		this.map.setChunk(chunk, 1, 10);
 		this.map.setChunk(chunk, 3, 5);
 		this.map.setChunk(chunk, 10, 11);
 		this.map.setChunk(chunk, 13, 9);
-		assertEquals("Map ne disposant pas de la bonne largeur courante", 13, this.map.getWidth() - 1);
-		assertEquals("Map ne disposant pas de la bonne hauteur courante", 11, this.map.getHeight() - 1);
+		assertEquals("Map ne disposant pas de la bonne origine", 1, this.map.getMinX());
+		assertEquals("Map ne disposant pas de la bonne origine", 5, this.map.getMinY());
+		assertEquals("Map ne disposant pas de la bonne largeur courante", 13, this.map.getWidth());
+		assertEquals("Map ne disposant pas de la bonne hauteur courante", 7, this.map.getHeight());
 		
 		this.map.setChunk(null, 10, 11);
-		this.map.autoCrop();
-		assertEquals("Map ne disposant pas de la bonne largeur courante", 13, this.map.getWidth() - 1);
-		assertEquals("Map ne disposant pas de la bonne hauteur courante", 10, this.map.getHeight() - 1);
+		assertEquals("Map ne disposant pas de la bonne largeur courante", 13, this.map.getWidth());
+		assertEquals("Map ne disposant pas de la bonne hauteur courante", 6, this.map.getHeight());
 	
 		this.map.setChunk(null, 13, 9);
-		this.map.autoCrop();
-		assertEquals("Map ne disposant pas de la bonne largeur courante", 3, this.map.getWidth() - 1);
-		assertEquals("Map ne disposant pas de la bonne hauteur courante", 10, this.map.getHeight() - 1);
+		assertEquals("Map ne disposant pas de la bonne largeur courante", 3, this.map.getWidth());
+		assertEquals("Map ne disposant pas de la bonne hauteur courante", 6, this.map.getHeight());
+		
+		this.map.setChunk(null, 1, 10);
+		this.map.setChunk(null, 3, 5);
+		assertEquals("Map vide ne disposant pas d'une largeur nulle", 0, this.map.getWidth());
+		assertEquals("Map vide ne disposant pas d'une hauteur nulle", 0, this.map.getHeight());
+	}
+	
+	@Test
+	public void chunkIndexCollisions() throws FrogException
+	{
+		// Ajouts et suppressions entremêlés : les chunks restants sont toujours retrouvés
+		for(int i = -500; i < 500; i++)
+			this.map.setChunk(new GameMapChunk(this.map), i, i * 7);
+		for(int i = -500; i < 500; i += 2)
+			this.map.setChunk(null, i, i * 7);
+		
+		for(int i = -500; i < 500; i++)
+		{
+			if(i % 2 == 0)
+				assertNull("Chunk supprimé toujours présent", this.map.getChunk(i, i * 7));
+			else
+				assertEquals("Chunk perdu", CHUNK_WIDTH * 32, this.map.getChunk(i, i * 7).getWidth());
+		}
+		assertEquals("Map ne disposant pas de la bonne origine", -499, this.map.getMinX());
+		assertEquals("Map ne disposant pas de la bonne largeur courante", 999, this.map.getWidth());
 	}
 	
 	@Test(timeout=10000)
 	public void BoostTest() throws FrogException
 	{
-		final int wmax = 10000;
-		final int hmax = 10000;
+		final int wmax = 10000000;
+		final int hmax = 10000000;
 		
+		this.map.setChunk(new GameMapChunk(this.map), -wmax, -hmax);
 		this.map.setChunk(new GameMapChunk(this.map), wmax, hmax);
-		this.map.autoCrop();
+		assertEquals("Map ne disposant pas de la bonne largeur courante", 2 * wmax + 1, this.map.getWidth());
 		this.map.setChunk(null, wmax, hmax);
-		this.map.autoCrop();
+		assertEquals("Map ne disposant pas de la bonne largeur courante", 1, this.map.getWidth());
 	}
 }
@@ -0,0 +1,107 @@
+package environment;
+
+import java.io.File;
+import java.util.Random;
+
+import environment.map.GameMap;
+import environment.map.GameMapChunk;
+import environment.map.MappedGameMap;
+import utils.FrogException;
+
+/**
+ * <h1>Mesure de l'ouverture d'un fichier de carte volumineux</h1>
+ * <p>Écrit une carte de N x N chunks de 32 x 32 tuiles à 3 couches (environ 12 Ko par chunk, 1,2 Go par défaut)
+ * sans la conserver en mémoire, puis mesure la durée d'ouverture du fichier et du premier accès à des chunks
+ * tirés au hasard.</p>
+ * <p>Exécution : <code>java -cp api/target/classes:api/target/test-classes environment.MappedGameMapBenchmark [chunks par côté] [fichier]</code></p>
+ */
+public class MappedGameMapBenchmark
+{
+	private static final int CHUNK_SIZE = 32;
+	private static final int LAYERS = 3;
+	private static final int TEMPLATES = 16;
+	private static final int ACCESSES = 10000;
+
+	public static void main(String[] args) throws Exception
+	{
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 320;
+		File file = args.length > 1 ? new File(args[1]) : File.createTempFile("frog", ".map");
+		file.deleteOnExit();
+
+		long start = System.nanoTime();
+		MappedGameMap.write(generate(size), file);
+		System.out.println(String.format("Écriture : %d x %d chunks, %d Mo en %d ms", size, size, file.length() >> 20, (System.nanoTime() - start) / 1000000));
+
+		start = System.nanoTime();
+		try(MappedGameMap map = MappedGameMap.open(file))
+		{
+			System.out.println(String.format("Ouverture : %.2f ms", (System.nanoTime() - start) / 1e6));
+
+			Random random = new Random(42);
+			long tiles = 0;
+			start = System.nanoTime();
+			for(int i = 0; i < ACCESSES; i++)
+			{
+				GameMapChunk chunk = map.getChunk(random.nextInt(size), random.nextInt(size));
+				tiles += chunk.getTileId(0, 0, 0);
+			}
+			System.out.println(String.format("Premier accès : %.2f µs par chunk (%d chunks conservés, somme %d)",
+					(System.nanoTime() - start) / 1e3 / ACCESSES, map.getResidentCount(), tiles));
+
+			start = System.nanoTime();
+			map.unload();
+			System.out.println(String.format("Libération : %.2f ms, %d chunks conservés", (System.nanoTime() - start) / 1e6, map.getResidentCount()));
+		}
+		file.delete();
+	}
+
+	/**
+	 * Carte générée à la demande, aucun chunk n'est conservé
+	 */
+	private static GameMap generate(int size) throws FrogException
+	{
+		GameMap map = new GameMap(32, 32, CHUNK_SIZE, CHUNK_SIZE)
+		{
+			private GameMapChunk[] templates = new GameMapChunk[TEMPLATES];
+
+			@Override
+			public GameMapChunk getChunk(int x, int y)
+			{
+				return this.templates[(x * 31 + y) % TEMPLATES];
+			}
+
+			@Override
+			public int getWidth()
+			{
+				return size;
+			}
+
+			@Override
+			public int getHeight()
+			{
+				return size;
+			}
+
+			@Override
+			public void setChunk(GameMapChunk chunk, int x, int y)
+			{
+				this.templates[x] = chunk;
+			}
+		};
+
+		Random random = new Random(42);
+		for(int t = 0; t < TEMPLATES; t++)
+		{
+			GameMapChunk chunk = new GameMapChunk(map);
+			for(int l = 0; l < LAYERS; l++)
+			{
+				chunk.addLayer(l);
+				for(int j = 0; j < CHUNK_SIZE; j++)
+					for(int i = 0; i < CHUNK_SIZE; i++)
+						chunk.setTile(l, i, j, random.nextInt(2048));
+			}
+			map.setChunk(chunk, t, 0);
+		}
+		return map;
+	}
+}
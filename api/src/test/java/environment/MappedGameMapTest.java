@@ -0,0 +1,173 @@
+package environment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import environment.map.GameMap;
+import environment.map.GameMapChunk;
+import environment.map.MappedGameMap;
+import utils.FrogException;
+
+public class MappedGameMapTest
+{
+	private static final int CHUNK_SIZE = 8;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File file;
+
+	@Before
+	public void initialize() throws IOException, FrogException
+	{
+		GameMap map = new GameMap(32, 32, CHUNK_SIZE, CHUNK_SIZE);
+		map.setTile(0, 3, 4, 7);
+		map.setTile(0, 2 * CHUNK_SIZE + 1, CHUNK_SIZE, 42);
+		map.getChunk(2, 1).addLayer(1);
+		map.getChunk(2, 1).setTile(1, 5, 5, 9);
+
+		this.file = this.folder.newFile("map.frog");
+		MappedGameMap.write(map, this.file);
+	}
+
+	@Test
+	public void lazyLoadingTest() throws IOException, FrogException
+	{
+		try(MappedGameMap map = MappedGameMap.open(this.file))
+		{
+			assertEquals(3, map.getWidth());
+			assertEquals(2, map.getHeight());
+			assertEquals("Chunks décodés à l'ouverture", 0, map.getResidentCount());
+
+			GameMapChunk chunk = map.getChunk(2, 1);
+			assertEquals(1, map.getResidentCount());
+			assertSame("Chunk décodé à chaque accès", chunk, map.getChunk(2, 1));
+			assertEquals(42, chunk.getTileId(0, 1, 0));
+			assertEquals(9, chunk.getTileId(1, 5, 5));
+			assertFalse(chunk.isModified());
+
+			assertEquals(Integer.valueOf(7), map.getChunk(0, 0).getTile(0, 3, 4));
+			assertNull("Chunk inexistant dans le fichier", map.getChunk(1, 0));
+			assertNull("Chunk en dehors de la carte", map.getChunk(5, 5));
+			assertEquals(2, map.getResidentCount());
+		}
+	}
+
+	@Test
+	public void unloadTest() throws IOException, FrogException
+	{
+		try(MappedGameMap map = MappedGameMap.open(this.file))
+		{
+			GameMapChunk chunk = map.getChunk(2, 1);
+			assertTrue(map.unloadChunk(2, 1));
+			assertEquals(0, map.getResidentCount());
+
+			GameMapChunk reloaded = map.getChunk(2, 1);
+			assertNotSame("Chunk libéré toujours conservé", chunk, reloaded);
+			assertEquals(42, reloaded.getTileId(0, 1, 0));
+
+			// Les modifications n'existent qu'en mémoire
+			map.setTile(0, 2 * CHUNK_SIZE + 1, CHUNK_SIZE, 43);
+			assertTrue(reloaded.isModified());
+			assertFalse("Chunk modifié libéré", map.unloadChunk(2, 1));
+			assertEquals(43, map.getChunk(2, 1).getTileId(0, 1, 0));
+
+			map.setChunk(null, 0, 0);
+			assertNull(map.getChunk(0, 0));
+			assertFalse("Chunk supprimé libéré", map.unloadChunk(0, 0));
+			assertNull(map.getChunk(0, 0));
+		}
+	}
+
+	@Test
+	public void unloadListenerTest() throws IOException, FrogException
+	{
+		List<String> unloaded = new ArrayList<String>();
+		try(MappedGameMap map = MappedGameMap.open(this.file))
+		{
+			map.setUnloadListener((x, y) -> unloaded.add(x + "/" + y));
+			map.getChunk(2, 1);
+			map.getChunk(0, 0).setTile(0, 0, 0, 1);
+
+			assertTrue(map.unloadChunk(2, 1));
+			assertTrue("Chunk non conservé libéré", map.unloadChunk(2, 1));
+			assertFalse(map.unloadChunk(0, 0));
+			assertEquals("Seules les libérations effectives sont notifiées", Arrays.asList("2/1"), unloaded);
+		}
+	}
+
+	@Test
+	public void rewriteTest() throws IOException, FrogException
+	{
+		File copy = this.folder.newFile("copy.frog");
+		try(MappedGameMap map = MappedGameMap.open(this.file))
+		{
+			map.setTile(0, 0, 0, 1);
+			MappedGameMap.write(map, copy);
+			assertFalse("Chunk écrit toujours modifié", map.getChunk(0, 0).isModified());
+		}
+
+		try(MappedGameMap map = MappedGameMap.open(copy))
+		{
+			assertEquals(1, map.getChunk(0, 0).getTileId(0, 0, 0));
+			assertEquals(7, map.getChunk(0, 0).getTileId(0, 3, 4));
+			assertEquals(9, map.getChunk(2, 1).getTileId(1, 5, 5));
+		}
+	}
+
+	@Test
+	public void negativeOriginTest() throws IOException, FrogException
+	{
+		GameMap source = new GameMap(32, 32, CHUNK_SIZE, CHUNK_SIZE);
+		source.setTile(0, -2 * CHUNK_SIZE, -1, 3);
+		source.setTile(0, CHUNK_SIZE, 0, 4);
+		MappedGameMap.write(source, this.file);
+
+		try(MappedGameMap map = MappedGameMap.open(this.file))
+		{
+			assertEquals(-2, map.getMinX());
+			assertEquals(-1, map.getMinY());
+			assertEquals(4, map.getWidth());
+			assertEquals(2, map.getHeight());
+			assertEquals(3, map.getChunk(-2, -1).getTileId(0, 0, CHUNK_SIZE - 1));
+			assertEquals(4, map.getChunk(1, 0).getTileId(0, 0, 0));
+			assertNull(map.getChunk(0, 0));
+			assertNull(map.getChunk(-3, -1));
+		}
+	}
+
+	@Test(expected=FrogException.class)
+	public void fixedSizeTest() throws IOException, FrogException
+	{
+		try(MappedGameMap map = MappedGameMap.open(this.file))
+		{
+			map.setChunk(null, 3, 0);
+		}
+	}
+
+	@Test(expected=FrogException.class)
+	public void invalidFileTest() throws IOException, FrogException
+	{
+		try(RandomAccessFile invalid = new RandomAccessFile(this.file, "rw"))
+		{
+			invalid.writeInt(0);
+		}
+		MappedGameMap.open(this.file);
+	}
+}
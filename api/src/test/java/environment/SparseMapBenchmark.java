@@ -0,0 +1,143 @@
+package environment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import environment.map.GameMap;
+import environment.map.GameMapChunk;
+import utils.FrogException;
+
+/**
+ * <h1>Mesure de l'index des chunks sur une carte creuse</h1>
+ * <p>Monde de 100 000 x 100 000 tuiles (chunks de 32 x 32) centré sur l'origine, dont seuls quelques milliers
+ * de chunks existent. Mesure la mémoire de l'index (un même chunk est partagé par toutes les positions), puis
+ * la durée de <code>getChunk</code> et de <code>setTile</code> à des positions tirées au hasard, comparées
+ * au stockage précédent (listes de lignes complétées par des null, reproduit ici, sans position négative).</p>
+ * <p>Exécution : <code>java -cp api/target/classes:api/target/test-classes environment.SparseMapBenchmark [chunks]</code></p>
+ */
+public class SparseMapBenchmark
+{
+	private static final int WORLD_SIZE = 100000;
+	private static final int CHUNK_SIZE = 32;
+	private static final int CHUNKS = WORLD_SIZE / CHUNK_SIZE;
+	private static final int OPERATIONS = 5000000;
+
+	public static void main(String[] args) throws Exception
+	{
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int[] xs = new int[count], ys = new int[count];
+		Random random = new Random(42);
+		for(int i = 0; i < count; i++)
+		{
+			xs[i] = random.nextInt(CHUNKS) - CHUNKS / 2;
+			ys[i] = random.nextInt(CHUNKS) - CHUNKS / 2;
+		}
+
+		GameMap map = new GameMap(32, 32, CHUNK_SIZE, CHUNK_SIZE);
+		GameMapChunk shared = new GameMapChunk(map);
+		shared.addLayer(0);
+
+		long before = usedMemory();
+		long start = System.nanoTime();
+		for(int i = 0; i < count; i++)
+			map.setChunk(shared, xs[i], ys[i]);
+		long elapsed = System.nanoTime() - start;
+		long indexBytes = usedMemory() - before;
+		System.out.println(String.format("Index creux  : %d chunks, %.1f octets/chunk, remplissage %d ms, limites (%d, %d) %d x %d",
+				count, (double)indexBytes / count, elapsed / 1000000, map.getMinX(), map.getMinY(), map.getWidth(), map.getHeight()));
+
+		LegacyIndex legacy = new LegacyIndex();
+		before = usedMemory();
+		start = System.nanoTime();
+		for(int i = 0; i < count; i++)
+			legacy.setChunk(shared, xs[i] + CHUNKS / 2, ys[i] + CHUNKS / 2);
+		elapsed = System.nanoTime() - start;
+		long legacyBytes = usedMemory() - before;
+		System.out.println(String.format("Listes       : %d chunks, %.1f octets/chunk, remplissage %d ms",
+				count, (double)legacyBytes / count, elapsed / 1000000));
+
+		for(int round = 0; round < 3; round++)
+		{
+			random = new Random(round);
+			long found = 0;
+			start = System.nanoTime();
+			for(int i = 0; i < OPERATIONS; i++)
+			{
+				// Une recherche sur deux porte sur un chunk existant
+				int c = random.nextInt(count);
+				int x = (i & 1) == 0 ? xs[c] : xs[c] + 1, y = ys[c];
+				if(map.getChunk(x, y) != null)
+					found++;
+			}
+			long sparseLookup = System.nanoTime() - start;
+
+			random = new Random(round);
+			start = System.nanoTime();
+			for(int i = 0; i < OPERATIONS; i++)
+			{
+				int c = random.nextInt(count);
+				int x = (i & 1) == 0 ? xs[c] : xs[c] + 1, y = ys[c];
+				if(legacy.getChunk(x + CHUNKS / 2, y + CHUNKS / 2) != null)
+					found--;
+			}
+			long legacyLookup = System.nanoTime() - start;
+
+			random = new Random(round);
+			start = System.nanoTime();
+			for(int i = 0; i < OPERATIONS; i++)
+			{
+				int c = random.nextInt(count);
+				map.setTile(0, xs[c] * CHUNK_SIZE + random.nextInt(CHUNK_SIZE), ys[c] * CHUNK_SIZE + random.nextInt(CHUNK_SIZE), i & 0x7FF);
+			}
+			long setTile = System.nanoTime() - start;
+
+			System.out.println(String.format("getChunk : %.1f ns (listes : %.1f ns), setTile : %.1f ns (écart %d)",
+					(double)sparseLookup / OPERATIONS, (double)legacyLookup / OPERATIONS, (double)setTile / OPERATIONS, found));
+		}
+	}
+
+	private static long usedMemory() throws InterruptedException
+	{
+		Runtime runtime = Runtime.getRuntime();
+		for(int i = 0; i < 5; i++)
+		{
+			System.gc();
+			Thread.sleep(50);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Stockage précédent des chunks : une liste par ligne, chaque ligne complétée jusqu'à la colonne la plus éloignée
+	 */
+	private static class LegacyIndex
+	{
+		private List<List<GameMapChunk>> chunks = new ArrayList<List<GameMapChunk>>();
+
+		public GameMapChunk getChunk(int x, int y)
+		{
+			if(this.chunks.size() > y && this.chunks.get(y).size() > x)
+				return this.chunks.get(y).get(x);
+			return null;
+		}
+
+		public void setChunk(GameMapChunk chunk, int x, int y) throws FrogException
+		{
+			if(x < 0 || y < 0)
+				throw new FrogException("Les indexs ne peuvent être négatifs");
+
+			while(this.chunks.size() <= y)
+				this.chunks.add(new ArrayList<GameMapChunk>());
+			if(this.chunks.get(y).size() <= x)
+			{
+				for(List<GameMapChunk> row : this.chunks)
+				{
+					while(row.size() <= x)
+						row.add(null);
+				}
+			}
+			this.chunks.get(y).set(x, chunk);
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package environment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import environment.map.GameMap;
+import environment.map.GameMapChunk;
+import utils.FrogException;
+
+/**
+ * <h1>Mesure de l'occupation mémoire des tuiles</h1>
+ * <p>Remplit une carte de 1024 x 1024 tuiles (chunks de 32 x 32, 3 couches : sol complet, décor à 40%,
+ * objets à 10%) puis mesure le tas occupé par tuile, comparé au stockage précédent des couches
+ * (<code>Integer[][]</code>, reproduit ici) rempli à l'identique.</p>
+ * <p>Deux remplissages : tuiles tirées parmi tout le jeu de tuiles (couches trop variées pour une palette),
+ * puis tuiles tirées parmi quelques dizaines de tuiles par couche, comme sur une carte dessinée (herbe et
+ * chemins au sol, quelques arbres et rochers en décor). La taille d'une couche stockée dans un tableau
+ * (4 octets par tuile) est indiquée en regard.</p>
+ * <p>Exécution : <code>java -cp api/target/classes:api/target/test-classes environment.TileStorageBenchmark [tuiles par côté]</code></p>
+ */
+public class TileStorageBenchmark
+{
+	private static final int CHUNK_SIZE = 32;
+	private static final int LAYERS = 3;
+	private static final double[] FILL_RATES = { 1.0, 0.4, 0.1 };
+	private static final int TILESET_SIZE = 2048;
+	private static final int[] DRAWN_TILESETS = { 6, 12, 40 };
+
+	public static void main(String[] args) throws Exception
+	{
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+		int chunks = size / CHUNK_SIZE;
+		long tiles = (long)size * size * LAYERS;
+
+		long before = usedMemory();
+		List<Integer[][]> legacy = fillLegacy(chunks);
+		long legacyBytes = usedMemory() - before;
+		System.out.println(String.format("Integer[][] : %6.2f octets/tuile (%d Mo, %d couches)", (double)legacyBytes / tiles, legacyBytes >> 20, legacy.size()));
+		legacy = null;
+
+		before = usedMemory();
+		GameMap map = fill(chunks, new int[] { TILESET_SIZE, TILESET_SIZE, TILESET_SIZE });
+		long randomBytes = usedMemory() - before;
+		System.out.println(String.format("Aléatoire   : %6.2f octets/tuile (%d Mo, %d x %d chunks, %s)", (double)randomBytes / tiles, randomBytes >> 20,
+				map.getWidth(), map.getHeight(), describe(map, chunks)));
+		map = null;
+
+		before = usedMemory();
+		map = fill(chunks, DRAWN_TILESETS);
+		long drawnBytes = usedMemory() - before;
+		System.out.println(String.format("Dessinée    : %6.2f octets/tuile (%d Mo, %d x %d chunks, %s)", (double)drawnBytes / tiles, drawnBytes >> 20,
+				map.getWidth(), map.getHeight(), describe(map, chunks)));
+		System.out.println(String.format("int[]       : %6.2f octets/tuile (%d Mo)", 4 + 48.0 / (CHUNK_SIZE * CHUNK_SIZE), (tiles * 4) >> 20));
+	}
+
+	private static GameMap fill(int chunks, int[] tilesets) throws FrogException
+	{
+		Random random = new Random(42);
+		GameMap map = new GameMap(32, 32, CHUNK_SIZE, CHUNK_SIZE);
+		for(int y = 0; y < chunks; y++)
+		{
+			for(int x = 0; x < chunks; x++)
+			{
+				GameMapChunk chunk = new GameMapChunk(map);
+				for(int l = 0; l < LAYERS; l++)
+				{
+					chunk.addLayer(l);
+					for(int j = 0; j < CHUNK_SIZE; j++)
+						for(int i = 0; i < CHUNK_SIZE; i++)
+							if(random.nextDouble() < FILL_RATES[l])
+								chunk.setTile(l, i, j, random.nextInt(tilesets[l]));
+				}
+				map.setChunk(chunk, x, y);
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Décrit la mémoire estimée des chunks, comparée à la mesure du tas
+	 */
+	private static String describe(GameMap map, int chunks)
+	{
+		long bytes = 0;
+		for(int y = 0; y < chunks; y++)
+			for(int x = 0; x < chunks; x++)
+				bytes += map.getChunk(x, y).getMemorySize();
+		return String.format("estimation %.2f octets/tuile", (double)bytes / ((long)chunks * chunks * CHUNK_SIZE * CHUNK_SIZE * LAYERS));
+	}
+
+	private static List<Integer[][]> fillLegacy(int chunks)
+	{
+		Random random = new Random(42);
+		List<Integer[][]> layers = new ArrayList<Integer[][]>();
+		for(int c = 0; c < chunks * chunks; c++)
+		{
+			for(int l = 0; l < LAYERS; l++)
+			{
+				Integer[][] tiles = new Integer[CHUNK_SIZE][CHUNK_SIZE];
+				for(int j = 0; j < CHUNK_SIZE; j++)
+					for(int i = 0; i < CHUNK_SIZE; i++)
+						if(random.nextDouble() < FILL_RATES[l])
+							tiles[j][i] = random.nextInt(TILESET_SIZE);
+				layers.add(tiles);
+			}
+		}
+		return layers;
+	}
+
+	private static long usedMemory() throws InterruptedException
+	{
+		Runtime runtime = Runtime.getRuntime();
+		for(int i = 0; i < 5; i++)
+		{
+			System.gc();
+			Thread.sleep(50);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,144 @@
+package net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import environment.map.GameMap;
+import environment.map.GameMapChunk;
+import environment.map.GameMapChunkCodec;
+import net.codec.ChunkFrameCache;
+import net.codec.PacketCodecs;
+import net.socket.FrogChannel;
+import net.socket.FrogSelectorServerSocket;
+import utils.FrogException;
+
+/**
+ * <h1>Mesure du débit de transfert de chunks</h1>
+ * <p>Envoie le même chunk à un ensemble de clients connectés à un serveur non bloquant local,
+ * en ré-encodant le chunk pour chaque client puis en partageant la trame mise en cache
+ * ({@link ChunkFrameCache}). Le débit est exprimé en chunks reçus par seconde, tous clients confondus.</p>
+ * <p>Exécution : <code>java -cp api/target/classes:api/target/test-classes:json.jar net.ChunkTransferBenchmark [clients] [envois par client]</code></p>
+ */
+public class ChunkTransferBenchmark
+{
+	private static final int PORT = 5101;
+	private static final int CHUNK_SIZE = 32;
+	private static final int LAYERS = 2;
+	
+	private static List<FrogChannel> channels = new CopyOnWriteArrayList<FrogChannel>();
+	private static AtomicLong received = new AtomicLong();
+	
+	public static void main(String[] args) throws Exception
+	{
+		int clients = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		
+		GameMap map = new GameMap(32, 32, CHUNK_SIZE, CHUNK_SIZE);
+		GameMapChunk chunk = new GameMapChunk(map);
+		for(int l = 0; l < LAYERS; l++)
+		{
+			chunk.addLayer(l);
+			for(int i = 0; i < CHUNK_SIZE; i++)
+				for(int j = 0; j < CHUNK_SIZE; j++)
+					chunk.setTile(l, i, j, (i * 31 + j * 17 + l) % 256);
+		}
+		map.setChunk(chunk, 0, 0);
+		
+		startServer(clients);
+		long frameSize = new ChunkFrameCache().getFrame(chunk, 0, 0, PacketCodecs.BINARY).remaining();
+		System.out.println(String.format("%d clients, %d envois par client, trame de %d octets", clients, rounds, frameSize));
+		
+		// Premier passage : préchauffage
+		for(int pass = 0; pass < 2; pass++)
+		{
+			long encoded = run(clients, rounds, frameSize, () -> {
+				for(int r = 0; r < rounds; r++)
+					for(FrogChannel channel : channels)
+						channel.sendPacket(new Packet(PacketType.CHUNK_DATA, GameMapChunkCodec.encode(chunk, 0, 0)));
+			});
+			
+			ChunkFrameCache cache = new ChunkFrameCache();
+			long cached = run(clients, rounds, frameSize, () -> {
+				for(int r = 0; r < rounds; r++)
+					for(FrogChannel channel : channels)
+						channel.sendFrame(cache.getFrame(chunk, 0, 0, channel.getCodec()), PacketType.CHUNK_DATA);
+			});
+			
+			if(pass > 0)
+			{
+				long total = (long)clients * rounds;
+				System.out.println(String.format("Encodage par client : %10.0f chunks/s", total * 1e9 / encoded));
+				System.out.println(String.format("Trame partagée      : %10.0f chunks/s (%d encodage)", total * 1e9 / cached, cache.getEncodesCount()));
+			}
+		}
+		System.exit(0);
+	}
+	
+	private static long run(int clients, int rounds, long frameSize, Sender sender) throws Exception
+	{
+		long expected = received.get() + (long)clients * rounds * frameSize;
+		long start = System.nanoTime();
+		sender.send();
+		while(received.get() < expected)
+			Thread.sleep(1);
+		return System.nanoTime() - start;
+	}
+	
+	private static void startServer(int clients) throws Exception
+	{
+		FrogSelectorServerSocket server = new FrogSelectorServerSocket(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+		server.setChannelListener(new IChannelListener()
+		{
+			public void onChannelAccept(FrogChannel channel)
+			{
+				channel.setCodec(PacketCodecs.BINARY);
+				channels.add(channel);
+			}
+			
+			public void onChannelClose(FrogChannel channel)
+			{
+				channels.remove(channel);
+			}
+		});
+		
+		Thread serverThread = new Thread(() -> server.start(PORT), "BenchmarkServer");
+		serverThread.setDaemon(true);
+		serverThread.start();
+		Thread.sleep(500);
+		
+		for(int i = 0; i < clients; i++)
+		{
+			Socket socket = new Socket("127.0.0.1", PORT);
+			Thread reader = new Thread(() -> drain(socket), "BenchmarkClient-" + i);
+			reader.setDaemon(true);
+			reader.start();
+		}
+		
+		while(channels.size() < clients)
+			Thread.sleep(10);
+	}
+	
+	private static void drain(Socket socket)
+	{
+		byte[] buffer = new byte[64 * 1024];
+		try(InputStream in = socket.getInputStream())
+		{
+			int count;
+			while((count = in.read(buffer)) >= 0)
+				received.addAndGet(count);
+		}
+		catch(IOException e)
+		{
+			// Fin du banc de mesure
+		}
+	}
+	
+	private interface Sender
+	{
+		void send() throws FrogException;
+	}
+}
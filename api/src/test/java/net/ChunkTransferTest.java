@@ -0,0 +1,135 @@
+package net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import environment.map.GameMap;
+import environment.map.GameMapChunk;
+import environment.map.GameMapChunkCodec;
+import net.codec.ChunkFrameCache;
+import net.codec.DeflatePacketCodec;
+import net.codec.PacketCodec;
+import net.codec.PacketCodecs;
+import net.socket.FlushPolicy;
+import net.socket.OutboundBuffer;
+import utils.FrogException;
+
+public class ChunkTransferTest
+{
+	private static final int CHUNK_SIZE = 16;
+	
+	private GameMap map;
+	private GameMapChunk chunk;
+	
+	@Before
+	public void initialize() throws FrogException
+	{
+		this.map = new GameMap(32, 32, CHUNK_SIZE, CHUNK_SIZE);
+		this.chunk = new GameMapChunk(this.map);
+		this.chunk.addLayer(0);
+		for(int i = 0; i < CHUNK_SIZE; i++)
+			this.chunk.setTile(0, i, i, i);
+		this.map.setChunk(this.chunk, 1, 2);
+	}
+	
+	@Test
+	public void roundTripTest() throws IOException, FrogException
+	{
+		ChunkFrameCache cache = new ChunkFrameCache();
+		for(PacketCodec codec : new PacketCodec[] { PacketCodecs.JSON, PacketCodecs.BINARY, new DeflatePacketCodec(0) })
+		{
+			Packet packet = codec.decode(cache.getFrame(this.chunk, 1, 2, codec));
+			assertEquals("Type de packet incorrect", PacketType.CHUNK_DATA, packet.getType());
+			
+			GameMap received = new GameMap(32, 32, CHUNK_SIZE, CHUNK_SIZE);
+			GameMapChunk chunk = GameMapChunkCodec.decode(packet.getData(), received);
+			assertEquals("Chunk non placé à sa position", chunk, received.getChunk(1, 2));
+			assertEquals("Tuile incorrecte", 5, (int)chunk.getTile(0, 5, 5));
+			assertNull("Tuile vide incorrecte", chunk.getTile(0, 5, 6));
+		}
+	}
+	
+	@Test
+	public void cacheTest() throws FrogException
+	{
+		ChunkFrameCache cache = new ChunkFrameCache();
+		ByteBuffer first = cache.getFrame(this.chunk, 1, 2, PacketCodecs.BINARY);
+		for(int i = 0; i < 100; i++)
+			cache.getFrame(this.chunk, 1, 2, PacketCodecs.BINARY);
+		assertEquals("Le chunk ne doit être encodé qu'une seule fois", 1, cache.getEncodesCount());
+		
+		this.chunk.setTile(0, 0, 1, 7);
+		ByteBuffer second = cache.getFrame(this.chunk, 1, 2, PacketCodecs.BINARY);
+		assertEquals("La modification du chunk doit provoquer un nouvel encodage", 2, cache.getEncodesCount());
+		assertEquals("Taille de trame incorrecte", first.remaining(), second.remaining());
+	}
+	
+	@Test
+	public void budgetTest() throws FrogException
+	{
+		long size = new ChunkFrameCache().getFrame(this.chunk, 1, 2, PacketCodecs.BINARY).capacity()
+				+ GameMapChunkCodec.encode(this.chunk, 1, 2).length;
+		ChunkFrameCache cache = new ChunkFrameCache(2 * size);
+		
+		cache.getFrame(this.chunk, 0, 0, PacketCodecs.BINARY);
+		cache.getFrame(this.chunk, 1, 0, PacketCodecs.BINARY);
+		cache.getFrame(this.chunk, 0, 0, PacketCodecs.BINARY);
+		cache.getFrame(this.chunk, 2, 0, PacketCodecs.BINARY);
+		assertEquals("Budget mémoire dépassé", 2, cache.getEntriesCount());
+		assertEquals(2 * size, cache.getCachedBytes());
+		assertEquals(1, cache.getEvictionsCount());
+		
+		// Le chunk le moins récemment envoyé a été supprimé
+		cache.getFrame(this.chunk, 0, 0, PacketCodecs.BINARY);
+		assertEquals(3, cache.getEncodesCount());
+		cache.getFrame(this.chunk, 1, 0, PacketCodecs.BINARY);
+		assertEquals(4, cache.getEncodesCount());
+		
+		cache.invalidate(1, 0);
+		assertEquals(size, cache.getCachedBytes());
+		
+		// Le chunk demandé est conservé même au-delà du budget, afin que sa trame soit envoyée
+		ChunkFrameCache empty = new ChunkFrameCache(0);
+		empty.getFrame(this.chunk, 1, 2, PacketCodecs.BINARY);
+		empty.getFrame(this.chunk, 1, 2, PacketCodecs.BINARY);
+		assertEquals(1, empty.getEncodesCount());
+	}
+	
+	@Test
+	public void replacedChunkTest() throws FrogException
+	{
+		ChunkFrameCache cache = new ChunkFrameCache();
+		cache.getFrame(this.chunk, 1, 2, PacketCodecs.BINARY);
+		
+		// Chunk de même version à la même position, par exemple décodé de nouveau après sa libération
+		GameMapChunk replacement = new GameMapChunk(this.map);
+		replacement.addLayer(0);
+		this.map.setChunk(replacement, 1, 2);
+		ByteBuffer frame = cache.getFrame(replacement, 1, 2, PacketCodecs.BINARY);
+		assertEquals("Le remplacement du chunk doit provoquer un nouvel encodage", 2, cache.getEncodesCount());
+		assertEquals(1, cache.getEntriesCount());
+		assertEquals(frame.capacity() + GameMapChunkCodec.encode(replacement, 1, 2).length, cache.getCachedBytes());
+	}
+	
+	@Test
+	public void sharedFrameTest() throws IOException
+	{
+		ByteBuffer frame = new ChunkFrameCache().getFrame(this.chunk, 1, 2, PacketCodecs.BINARY);
+		int size = frame.remaining();
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		OutboundBuffer buffer = new OutboundBuffer(out, new FlushPolicy(0, 1));
+		buffer.sendFrame(frame, PacketType.CHUNK_DATA);
+		buffer.sendFrame(frame, PacketType.CHUNK_DATA);
+		
+		assertEquals("La trame partagée ne doit pas être consommée", size, frame.remaining());
+		assertEquals("Trames envoyées incorrectes", size * 2, out.size());
+	}
+}
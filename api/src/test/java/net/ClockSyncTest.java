@@ -0,0 +1,63 @@
+package net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import net.socket.ClockSync;
+
+public class ClockSyncTest
+{
+	private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	@Test
+	public void estimationTest()
+	{
+		ClockSync sync = new ClockSync(packet -> true);
+
+		// Horloge distante en avance de 500 ms, trajets de 20 ms, 5 ms de traitement distant
+		sync.record(1000 * MS, 1520 * MS, 1525 * MS, 1045 * MS);
+		assertEquals(40 * MS, sync.getRoundTripTime());
+		assertEquals(500 * MS, sync.getClockOffset());
+		assertEquals(0, sync.getJitter());
+		assertEquals(1500 * MS, sync.toRemoteTime(1000 * MS));
+
+		// Trajet retour ralenti de 16 ms : le temps d'aller-retour et la gigue augmentent progressivement
+		sync.record(2000 * MS, 2520 * MS, 2525 * MS, 2061 * MS);
+		assertEquals(42 * MS, sync.getRoundTripTime());
+		assertEquals(1 * MS, sync.getJitter());
+		assertEquals(2, sync.getSamplesCount());
+	}
+
+	@Test
+	public void exchangeTest()
+	{
+		AtomicReference<ClockSync> server = new AtomicReference<ClockSync>();
+		AtomicReference<ClockSync> client = new AtomicReference<ClockSync>();
+
+		// Connexion directe entre les deux estimateurs, chaque packet est traité dès son envoi
+		server.set(new ClockSync(packet -> client.get().handle(packet)));
+		client.set(new ClockSync(packet -> server.get().handle(packet)));
+
+		Packet other = new Packet(PacketType.NONE, "{}");
+		assertFalse("Packets applicatifs non traités", client.get().handle(other));
+
+		client.get().start(10);
+		long deadline = System.currentTimeMillis() + 5000;
+		while(client.get().getSamplesCount() < 3 && System.currentTimeMillis() < deadline)
+			Thread.yield();
+		client.get().stop();
+
+		assertTrue(client.get().toString(), client.get().getSamplesCount() >= 3);
+		assertEquals("Aucun PING envoyé par le serveur", 0, server.get().getSamplesCount());
+
+		// Même horloge des deux côtés
+		assertTrue(client.get().toString(), Math.abs(client.get().getClockOffset()) < 5 * MS);
+		assertTrue(client.get().toString(), client.get().getRoundTripTime() < 5 * MS);
+	}
+}
@@ -0,0 +1,84 @@
+package net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import net.codec.DeflatePacketCodec;
+import net.codec.PacketCodec;
+import net.codec.PacketCodecs;
+import utils.FrogException;
+
+/**
+ * <h1>Mesure du gain de la compression des packets</h1>
+ * <p>Compare, par classe de taille de contenu, la taille des trames binaires avec et sans compression
+ * ainsi que le coût de la compression et de la décompression d'un packet. Les contenus imitent un état
+ * répliqué (valeurs de composants et de tuiles).</p>
+ * <p>Exécution : <code>java -cp api/target/classes:api/target/test-classes:json.jar net.CompressionBenchmark</code></p>
+ */
+public class CompressionBenchmark
+{
+	private static final int[] SIZES = { 64, 256, 1024, 4 * 1024, 16 * 1024, 64 * 1024 };
+	private static final int WARMUP_BYTES = 64 * 1024 * 1024;
+	private static final int MEASURE_BYTES = 128 * 1024 * 1024;
+	
+	public static void main(String[] args) throws IOException, FrogException
+	{
+		PacketCodec binary = PacketCodecs.BINARY;
+		DeflatePacketCodec sender = new DeflatePacketCodec(0);
+		DeflatePacketCodec receiver = new DeflatePacketCodec(0);
+		Random random = new Random(42);
+		
+		System.out.println(String.format("%8s %10s %12s %8s %14s %14s", "taille", "binaire", "compressé", "gain", "compression", "décompression"));
+		for(int size : SIZES)
+		{
+			Packet packet = new Packet(PacketType.SYNC, newPayload(random, size));
+			int iterations = Math.max(1, MEASURE_BYTES / size);
+			
+			measure(sender, receiver, packet, Math.max(1, WARMUP_BYTES / size));
+			long[] nanos = measure(sender, receiver, packet, iterations);
+			
+			int binarySize = binary.encode(packet).remaining();
+			int compressedSize = sender.encode(packet).remaining();
+			System.out.println(String.format("%8d %10d %12d %7.1f%% %11.2f µs %11.2f µs", size, binarySize, compressedSize, 
+					100.0 * (binarySize - compressedSize) / binarySize, nanos[0] / 1000.0 / iterations, nanos[1] / 1000.0 / iterations));
+		}
+		
+		sender.close();
+		receiver.close();
+	}
+	
+	private static long[] measure(DeflatePacketCodec sender, DeflatePacketCodec receiver, Packet packet, int iterations) throws IOException, FrogException
+	{
+		ByteBuffer frame = sender.encode(packet);
+		long encode = System.nanoTime();
+		for(int i = 0; i < iterations; i++)
+			frame = sender.encode(packet);
+		encode = System.nanoTime() - encode;
+		
+		long decode = System.nanoTime();
+		for(int i = 0; i < iterations; i++)
+			receiver.decode(frame.duplicate());
+		decode = System.nanoTime() - decode;
+		
+		return new long[] { encode, decode };
+	}
+	
+	private static String newPayload(Random random, int size)
+	{
+		StringBuilder builder = new StringBuilder("{\"tick\":1,\"baseline\":-1,\"set\":{");
+		int i = 0;
+		while(builder.length() < size - 2)
+		{
+			if(i > 0)
+				builder.append(',');
+			if(i % 3 == 0)
+				builder.append("\"entity/").append(i).append("/HealthComponentKey\":{\"health\":").append(random.nextInt(100)).append(",\"maxHealth\":100}");
+			else
+				builder.append("\"tile/0/").append(random.nextInt(256)).append('/').append(random.nextInt(256)).append("\":").append(random.nextInt(64));
+			i++;
+		}
+		builder.setLength(Math.min(builder.length(), size - 2));
+		return builder.append("}}").toString();
+	}
+}
@@ -0,0 +1,262 @@
+package net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.codec.DatagramCodec;
+import net.codec.PacketCodecs;
+import net.socket.FlushPolicy;
+import net.socket.FrogClientSocket;
+import net.socket.FrogDatagramSocket;
+import net.socket.SequenceFilter;
+import utils.FrogException;
+
+public class DatagramChannelTest
+{
+	private static final String TOKEN = "token-de-test";
+	private static final int UPDATES = 200;
+	private static final int UPDATE_INTERVAL = 5;
+	private static final double LOSS_RATE = 0.1;
+	private static final long RETRANSMISSION_TIMEOUT = 200;
+
+	private ServerSocket server;
+	private DatagramSocket datagramServer;
+	private Socket connection;
+	private FrogClientSocket client;
+
+	@Before
+	public void initialize() throws IOException
+	{
+		this.server = new ServerSocket(0);
+		this.datagramServer = new DatagramSocket(0);
+	}
+
+	@After
+	public void terminate() throws IOException
+	{
+		if(this.client != null)
+			this.client.stop();
+		if(this.connection != null)
+			this.connection.close();
+		this.server.close();
+		this.datagramServer.close();
+	}
+
+	@Test
+	public void sequenceFilterTest()
+	{
+		SequenceFilter filter = new SequenceFilter();
+
+		assertTrue(filter.accept(PacketType.UPDATE_MOVEMENT_RESULT, 1));
+		assertFalse("Datagramme dupliqué accepté", filter.accept(PacketType.UPDATE_MOVEMENT_RESULT, 1));
+		assertTrue(filter.accept(PacketType.UPDATE_MOVEMENT_RESULT, 5));
+		assertFalse("Datagramme obsolète accepté", filter.accept(PacketType.UPDATE_MOVEMENT_RESULT, 3));
+
+		// Séquences indépendantes d'un type à l'autre
+		assertTrue(filter.accept(PacketType.CHUNK_DATA, 2));
+
+		// Dépassement de capacité du numéro de séquence
+		assertTrue(filter.accept(PacketType.SYNC, Integer.MAX_VALUE));
+		assertTrue("Séquence rebouclée refusée", filter.accept(PacketType.SYNC, Integer.MIN_VALUE));
+		assertFalse(filter.accept(PacketType.SYNC, Integer.MAX_VALUE));
+
+		assertEquals("Nombre de datagrammes ignorés incorrect", 3, filter.getDroppedCount());
+	}
+
+	@Test
+	public void codecTest() throws FrogException
+	{
+		byte[] buffer = new byte[DatagramCodec.MAX_DATAGRAM_SIZE];
+		Packet packet = new Packet(PacketType.UPDATE_MOVEMENT_RESULT, "{\"x\":12,\"y\":-4}");
+
+		int length = DatagramCodec.encode(packet, 42, buffer);
+		assertEquals(DatagramCodec.HEADER_SIZE + packet.getSerializedObject().length(), length);
+		assertEquals(42, DatagramCodec.getSequence(buffer, length));
+		assertEquals(PacketType.UPDATE_MOVEMENT_RESULT, DatagramCodec.getType(buffer, length));
+
+		Packet decoded = DatagramCodec.decode(buffer, length);
+		assertEquals(packet.getType(), decoded.getType());
+		assertEquals(packet.getSerializedObject(), decoded.getSerializedObject());
+
+		PooledPacket pooled = new PacketPool().acquire();
+		DatagramCodec.decodeInto(buffer, length, pooled);
+		assertEquals(12, pooled.getInt("x", 0));
+		assertEquals(-4, pooled.getInt("y", 0));
+		pooled.release();
+
+		// Packet trop volumineux pour un datagramme : la connexion fiable doit être utilisée
+		char[] content = new char[DatagramCodec.MAX_DATAGRAM_SIZE];
+		Arrays.fill(content, 'a');
+		assertEquals(-1, DatagramCodec.encode(new Packet(PacketType.UPDATE_MOVEMENT_RESULT, new String(content)), 1, buffer));
+	}
+
+	/**
+	 * <h1>Latence des déplacements avec perte simulée</h1>
+	 * <p>Le serveur envoie chaque déplacement par les deux canaux en perdant 10% des envois. Sur la connexion,
+	 * la perte d'un segment est émulée par sa retransmission après un délai de retransmission, les segments
+	 * suivants étant retenus jusque-là (blocage en tête de file). Sur le canal de datagrammes, le datagramme est
+	 * simplement perdu : seuls les déplacements les plus récents sont retenus par le client.</p>
+	 */
+	@Test
+	public void movementLatencyTest() throws Exception
+	{
+		List<Long> reliableLatencies = Collections.synchronizedList(new ArrayList<Long>());
+		List<Long> datagramLatencies = Collections.synchronizedList(new ArrayList<Long>());
+
+		PacketSubscriber subscriber = new PacketSubscriber();
+		subscriber.subscribe(PacketType.UPDATE_MOVEMENT_RESULT, packet ->
+		{
+			JSONObject obj = new JSONObject(packet.getSerializedObject());
+			long latency = System.nanoTime() - obj.getLong("sent");
+			if(obj.getBoolean("datagram"))
+				datagramLatencies.add(latency);
+			else
+				reliableLatencies.add(latency);
+		});
+
+		Thread sender = new Thread(() ->
+		{
+			try
+			{
+				this.serve();
+			}
+			catch(IOException | FrogException | InterruptedException e)
+			{
+				e.printStackTrace();
+			}
+		});
+		sender.start();
+
+		this.client = new FrogClientSocket(new FlushPolicy(0, 1));
+		this.client.addPacketSubscribers(subscriber);
+		this.client.start("127.0.0.1", this.server.getLocalPort());
+		this.client.sendPacket(new Packet(PacketType.CONNECT, "{}"));
+		sender.join(10000);
+		Thread.sleep(100);
+
+		FrogDatagramSocket datagram = this.client.getDatagramSocket();
+		assertNotNull("Canal de datagrammes non ouvert", datagram);
+		assertTrue("Canal de datagrammes non associé", datagram.isBound());
+		assertEquals("Token de session incorrect", TOKEN, this.client.getToken());
+		assertEquals("Déplacements perdus par la connexion fiable", UPDATES, reliableLatencies.size());
+		assertTrue("Aucun datagramme perdu", datagramLatencies.size() < UPDATES);
+
+		long reliable = percentile(reliableLatencies, 0.95);
+		long unreliable = percentile(datagramLatencies, 0.95);
+		System.out.println(String.format("Latence des déplacements (95e centile) : connexion %.2f ms, datagrammes %.2f ms (%d/%d reçus)",
+				reliable / 1e6, unreliable / 1e6, datagramLatencies.size(), UPDATES));
+		assertTrue("Latence des datagrammes supérieure à celle de la connexion", unreliable < reliable);
+	}
+
+	/**
+	 * Serveur de test : authentifie le client, associe son canal de datagrammes puis envoie les déplacements
+	 */
+	private void serve() throws IOException, FrogException, InterruptedException
+	{
+		this.connection = this.server.accept();
+		InputStream in = new BufferedInputStream(this.connection.getInputStream());
+		OutputStream out = this.connection.getOutputStream();
+
+		PacketCodecs.JSON.read(in);
+		JSONObject obj = new JSONObject();
+		obj.put("result", true);
+		obj.put(PacketCodecs.CODEC_KEY, PacketCodecs.BINARY.getName());
+		PacketCodecs.JSON.write(new Packet(PacketType.PROTOCOL_VERSION_RESULT, obj.toString()), out);
+		out.flush();
+
+		PacketCodecs.BINARY.read(in);
+		obj = new JSONObject();
+		obj.put("result", true);
+		obj.put(FrogDatagramSocket.TOKEN_KEY, TOKEN);
+		obj.put(FrogDatagramSocket.PORT_KEY, this.datagramServer.getLocalPort());
+		PacketCodecs.BINARY.write(new Packet(PacketType.CONNECT_RESULT, obj.toString()), out);
+		out.flush();
+
+		// Association du canal de datagrammes du client
+		byte[] buffer = new byte[DatagramCodec.MAX_DATAGRAM_SIZE];
+		DatagramPacket datagram = new DatagramPacket(buffer, buffer.length);
+		this.datagramServer.receive(datagram);
+		Packet request = DatagramCodec.decode(buffer, datagram.getLength());
+		obj = new JSONObject();
+		obj.put("result", TOKEN.equals(new JSONObject(request.getSerializedObject()).getString(FrogDatagramSocket.TOKEN_KEY)));
+		this.sendDatagram(new Packet(PacketType.CONNECT_RESULT, obj.toString()), 0, datagram);
+		Thread.sleep(100);
+
+		Random random = new Random(42);
+		Deque<long[]> retained = new ArrayDeque<long[]>();
+		long blockedUntil = 0;
+		for(int i = 1; i <= UPDATES; i++)
+		{
+			long sent = System.nanoTime();
+
+			if(random.nextDouble() >= LOSS_RATE)
+				this.sendDatagram(this.movement(sent, true), i, datagram);
+
+			// Segment perdu retransmis après le délai de retransmission, les suivants sont retenus jusque-là
+			if(random.nextDouble() < LOSS_RATE)
+				blockedUntil = Math.max(blockedUntil, sent + RETRANSMISSION_TIMEOUT * 1000000);
+			retained.add(new long[] { sent, blockedUntil });
+
+			while(!retained.isEmpty() && retained.peek()[1] <= System.nanoTime())
+				PacketCodecs.BINARY.write(this.movement(retained.poll()[0], false), out);
+			out.flush();
+
+			Thread.sleep(UPDATE_INTERVAL);
+		}
+
+		while(!retained.isEmpty())
+		{
+			long[] segment = retained.poll();
+			long delay = segment[1] - System.nanoTime();
+			if(delay > 0)
+				Thread.sleep(delay / 1000000 + 1);
+			PacketCodecs.BINARY.write(this.movement(segment[0], false), out);
+			out.flush();
+		}
+	}
+
+	private Packet movement(long sent, boolean datagram)
+	{
+		JSONObject obj = new JSONObject();
+		obj.put("sent", sent);
+		obj.put("datagram", datagram);
+		return new Packet(PacketType.UPDATE_MOVEMENT_RESULT, obj.toString());
+	}
+
+	private void sendDatagram(Packet packet, int sequence, DatagramPacket client) throws IOException
+	{
+		byte[] buffer = new byte[DatagramCodec.MAX_DATAGRAM_SIZE];
+		int length = DatagramCodec.encode(packet, sequence, buffer);
+		this.datagramServer.send(new DatagramPacket(buffer, length, client.getSocketAddress()));
+	}
+
+	private static long percentile(List<Long> values, double rank)
+	{
+		List<Long> sorted = new ArrayList<Long>(values);
+		Collections.sort(sorted);
+		return sorted.get(Math.min(sorted.size() - 1, (int)(sorted.size() * rank)));
+	}
+}
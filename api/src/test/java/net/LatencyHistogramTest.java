@@ -0,0 +1,53 @@
+package net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import net.metrics.LatencyHistogram;
+
+public class LatencyHistogramTest
+{
+	@Test
+	public void percentileTest()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals("Histogramme vide", 0, histogram.getPercentile(99));
+
+		// De 1 µs à 10 ms
+		for(long i = 1; i <= 10000; i++)
+			histogram.record(i * 1000);
+
+		assertEquals(10000, histogram.getCount());
+		assertEquals(10000000, histogram.getMax());
+		assertEquals(5000500, histogram.getMean());
+		assertNear(5000000, histogram.getPercentile(50));
+		assertNear(9500000, histogram.getPercentile(95));
+		assertNear(9900000, histogram.getPercentile(99));
+		assertEquals("Le centile 100 est le maximum", 10000000, histogram.getPercentile(100));
+
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getPercentile(50));
+	}
+
+	@Test
+	public void smallValuesTest()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		for(long i = 0; i < 64; i++)
+			histogram.record(i);
+		histogram.record(-5);
+
+		// Valeurs inférieures à 64 enregistrées exactement
+		assertEquals(0, histogram.getPercentile(0));
+		assertEquals(31, histogram.getPercentile(50));
+		assertEquals(63, histogram.getPercentile(100));
+	}
+
+	private static void assertNear(long expected, long actual)
+	{
+		assertTrue(String.format("Attendu %d, obtenu %d", expected, actual), Math.abs(actual - expected) <= expected * 0.04);
+	}
+}
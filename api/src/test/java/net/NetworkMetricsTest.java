@@ -0,0 +1,68 @@
+package net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import net.codec.FrameInputStream;
+import net.codec.PacketCodec;
+import net.codec.PacketCodecs;
+import net.metrics.NetworkMetrics;
+import net.metrics.PacketMetrics;
+
+public class NetworkMetricsTest
+{
+	@Test
+	public void registryTest()
+	{
+		NetworkMetrics metrics = new NetworkMetrics();
+		metrics.recordReceived(PacketType.CONNECT, 40);
+		metrics.recordReceived(PacketType.CONNECT, 60);
+		metrics.recordSent(PacketType.CONNECT_RESULT, 80);
+		metrics.recordQueueWait(PacketType.CONNECT, 2000);
+		metrics.recordExecution(PacketType.CONNECT, 50000);
+		metrics.recordWrite(PacketType.CONNECT_RESULT, 3000);
+
+		PacketMetrics connect = metrics.get(PacketType.CONNECT);
+		assertEquals(2, connect.getPacketsIn());
+		assertEquals(100, connect.getBytesIn());
+		assertEquals(0, connect.getPacketsOut());
+		assertEquals(1, connect.getExecution().getCount());
+		assertEquals(80, metrics.get(PacketType.CONNECT_RESULT).getBytesOut());
+
+		String report = metrics.report();
+		assertTrue(report, report.contains("CONNECT_RESULT"));
+		assertFalse("Types sans mesure absents du tableau", report.contains("CHUNK_DATA"));
+
+		metrics.reset();
+		assertFalse(connect.isActive());
+		assertEquals(0, connect.getQueueWait().getCount());
+	}
+
+	@Test
+	public void frameSizeTest() throws Exception
+	{
+		// Taille des trames déduite du nombre d'octets lus, comme pour les connexions bloquantes du serveur
+		PacketCodec codec = PacketCodecs.BINARY;
+		ByteBuffer first = codec.encode(new Packet(PacketType.CONNECT, "{\"account\":\"frog\"}"));
+		ByteBuffer second = codec.encode(new Packet(PacketType.SYNC, "{}"));
+		int firstSize = first.remaining();
+		int secondSize = second.remaining();
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		stream.write(first.array(), first.arrayOffset() + first.position(), firstSize);
+		stream.write(second.array(), second.arrayOffset() + second.position(), secondSize);
+
+		FrameInputStream in = new FrameInputStream(new ByteArrayInputStream(stream.toByteArray()));
+		codec.read(in);
+		assertEquals(firstSize, in.getBytesRead());
+		codec.read(in);
+		assertEquals(firstSize + secondSize, in.getBytesRead());
+	}
+}
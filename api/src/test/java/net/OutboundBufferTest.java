@@ -0,0 +1,120 @@
+package net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import net.codec.PacketCodecs;
+import net.socket.FlushPolicy;
+import net.socket.OutboundBuffer;
+
+public class OutboundBufferTest
+{
+	private static final int WINDOW = 50;
+	private static final int WRITE_TIMEOUT = 500;
+
+	@Test
+	public void coalescedFlushTest() throws IOException, InterruptedException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		FlushPolicy policy = new FlushPolicy(WINDOW, 1024 * 1024);
+		OutboundBuffer buffer = new OutboundBuffer(out, policy);
+		buffer.setCodec(PacketCodecs.BINARY);
+
+		Packet p = new Packet(PacketType.SYNC, "{}");
+		for(int i = 0; i < 10; i++)
+			buffer.send(p);
+		assertEquals("Les packets ne doivent pas être envoyés avant la fin de la fenêtre", 0, out.size());
+
+		Thread.sleep(WINDOW * 4);
+		assertEquals("Les packets doivent être envoyés à la fin de la fenêtre", 10 * PacketCodecs.BINARY.encode(p).remaining(), out.size());
+		assertEquals("Les packets doivent être envoyés en une seule fois", 1, policy.getStatistics().getFlushesCount());
+		assertEquals("Nombre de packets par envoi incorrect", 10, policy.getStatistics().getPacketsPerFlush(), 0);
+	}
+
+	@Test
+	public void immediateFlushTest() throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		FlushPolicy policy = new FlushPolicy(60000, 1024 * 1024);
+		OutboundBuffer buffer = new OutboundBuffer(out, policy);
+
+		buffer.send(new Packet(PacketType.SYNC, "{}"));
+		buffer.send(new Packet(PacketType.CONNECT_RESULT, "{}"));
+		assertTrue("Un packet immédiat doit envoyer les packets en attente", out.size() > 0);
+		assertEquals("Nombre de packets par envoi incorrect", 2, policy.getStatistics().getPacketsPerFlush(), 0);
+	}
+
+	@Test
+	public void thresholdFlushTest() throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Packet p = new Packet(PacketType.SYNC, "{}");
+		int frameSize = PacketCodecs.JSON.encode(p).remaining();
+		OutboundBuffer buffer = new OutboundBuffer(out, new FlushPolicy(60000, frameSize * 3));
+
+		buffer.send(p);
+		buffer.send(p);
+		assertEquals("Seuil non atteint, aucun envoi attendu", 0, out.size());
+		buffer.send(p);
+		assertEquals("Seuil atteint, envoi attendu", frameSize * 3, out.size());
+	}
+
+	@Test
+	public void stalledPeerTest() throws IOException, InterruptedException
+	{
+		FlushPolicy policy = new FlushPolicy(1, 64 * 1024 * 1024);
+		policy.setWriteTimeout(WRITE_TIMEOUT);
+
+		try(ServerSocket server = new ServerSocket())
+		{
+			server.setReceiveBufferSize(4096);
+			server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+			try(Socket stalled = connect(server); Socket stalledPeer = server.accept(); 
+					Socket active = connect(server); Socket activePeer = server.accept())
+			{
+				// Le client de la connexion bloquée ne lit jamais : son envoi différé reste bloqué dans l'écriture
+				OutboundBuffer stalledBuffer = new OutboundBuffer(stalled.getOutputStream(), policy, stalled);
+				stalledBuffer.sendFrame(ByteBuffer.wrap(new byte[16 * 1024 * 1024]), PacketType.SYNC);
+				Thread.sleep(100);
+
+				// Les envois différés des autres connexions ne sont pas retardés
+				OutboundBuffer activeBuffer = new OutboundBuffer(active.getOutputStream(), policy, active);
+				activeBuffer.sendFrame(ByteBuffer.wrap(new byte[] { 1, 2, 3 }), PacketType.SYNC);
+				activePeer.setSoTimeout(WRITE_TIMEOUT / 2);
+				InputStream in = activePeer.getInputStream();
+				byte[] received = new byte[3];
+				for(int read = 0; read < received.length;)
+					read += in.read(received, read, received.length - read);
+				assertEquals(3, received[2]);
+				assertFalse("Connexion bloquée fermée avant son échéance", stalled.isClosed());
+
+				// Échéance dépassée : la connexion bloquée est fermée
+				long deadline = System.currentTimeMillis() + WRITE_TIMEOUT * 10;
+				while(!stalled.isClosed() && System.currentTimeMillis() < deadline)
+					Thread.sleep(10);
+				assertTrue("Connexion bloquée non fermée", stalled.isClosed());
+				assertFalse("Connexion active fermée", active.isClosed());
+			}
+		}
+	}
+
+	private static Socket connect(ServerSocket server) throws IOException
+	{
+		Socket socket = new Socket();
+		socket.setSendBufferSize(4096);
+		socket.connect(server.getLocalSocketAddress());
+		return socket;
+	}
+}
@@ -0,0 +1,137 @@
+package net;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+
+import org.json.JSONObject;
+
+import net.codec.DeflatePacketCodec;
+import net.codec.PacketCodec;
+import net.codec.PacketCodecs;
+import utils.FrogException;
+
+/**
+ * <h1>Mesure des allocations du chemin de lecture des packets</h1>
+ * <p>Compare, pour 1 million de packets de déplacement reçus, les octets alloués par le thread de lecture
+ * avec la lecture historique (packet et objet JSON alloués à chaque packet) et avec la lecture dans des
+ * packets réutilisables lus par les accesseurs typés.</p>
+ * <p>Exécution : <code>java -cp api/target/classes:api/target/test-classes:json.jar net.PacketAllocationBenchmark</code></p>
+ */
+public class PacketAllocationBenchmark
+{
+	private static final int PACKETS = 1000000;
+	private static final int FRAMES = 64;
+	
+	private static long sink;
+	
+	public static void main(String[] args) throws IOException, FrogException
+	{
+		System.out.println(String.format("%14s %12s %16s %12s %16s", "format", "historique", "par packet", "réutilisé", "par packet"));
+		for(PacketCodec codec : new PacketCodec[] { PacketCodecs.BINARY, new DeflatePacketCodec(64), PacketCodecs.JSON })
+		{
+			LoopInputStream in = new LoopInputStream(newFrames(codec));
+			
+			// Préchauffage : compilation des deux chemins et remplissage de la réserve
+			PacketPool pool = new PacketPool();
+			readLegacy(codec, in, PACKETS);
+			readPooled(codec, in, pool, PACKETS);
+			
+			long legacy = allocated();
+			long nanos = System.nanoTime();
+			readLegacy(codec, in, PACKETS);
+			long legacyNanos = System.nanoTime() - nanos;
+			legacy = allocated() - legacy;
+			
+			long pooled = allocated();
+			nanos = System.nanoTime();
+			readPooled(codec, in, pool, PACKETS);
+			long pooledNanos = System.nanoTime() - nanos;
+			pooled = allocated() - pooled;
+			
+			System.out.println(String.format("%14s %9.1f Mo %13.1f o %9.1f Mo %13.1f o   (%.0f ns / %.0f ns par packet)", codec.getName() + (codec instanceof DeflatePacketCodec ? "+deflate" : ""), 
+					legacy / 1e6, (double)legacy / PACKETS, pooled / 1e6, (double)pooled / PACKETS, (double)legacyNanos / PACKETS, (double)pooledNanos / PACKETS));
+			codec.close();
+		}
+	}
+	
+	private static void readLegacy(PacketCodec codec, InputStream in, int count) throws IOException, FrogException
+	{
+		for(int i = 0; i < count; i++)
+		{
+			Packet packet = codec.read(in);
+			JSONObject obj = new JSONObject(packet.getSerializedObject());
+			sink += obj.getInt("x") + obj.getInt("y") + (obj.getBoolean("moving") ? 1 : 0);
+		}
+	}
+	
+	private static void readPooled(PacketCodec codec, InputStream in, PacketPool pool, int count) throws IOException, FrogException
+	{
+		for(int i = 0; i < count; i++)
+		{
+			PooledPacket packet = pool.acquire();
+			codec.readInto(in, packet);
+			sink += packet.getInt("x", 0) + packet.getInt("y", 0) + (packet.getBoolean("moving", false) ? 1 : 0);
+			packet.release();
+		}
+	}
+	
+	private static byte[] newFrames(PacketCodec codec) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for(int i = 0; i < FRAMES; i++)
+		{
+			JSONObject obj = new JSONObject();
+			obj.put("id", i);
+			obj.put("x", 1000 + i * 7);
+			obj.put("y", -500 + i * 3);
+			obj.put("direction", i % 4);
+			obj.put("moving", i % 2 == 0);
+			// Contenu compressible pour une partie des packets seulement
+			if(i % 8 == 0)
+				obj.put("path", "north,north,north,east,east,east,south,south,south,west,west,west");
+			codec.write(new Packet(PacketType.UPDATE_MOVEMENT_RESULT, obj.toString()), out);
+		}
+		return out.toByteArray();
+	}
+	
+	@SuppressWarnings("restriction")
+	private static long allocated()
+	{
+		return ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+	
+	/**
+	 * Flux rejouant indéfiniment les mêmes trames, sans allocation
+	 */
+	private static class LoopInputStream extends InputStream
+	{
+		private byte[] data;
+		private int position;
+		
+		public LoopInputStream(byte[] data)
+		{
+			this.data = data;
+		}
+		
+		@Override
+		public int read()
+		{
+			if(this.position == this.data.length)
+				this.position = 0;
+			return this.data[this.position++] & 0xFF;
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len)
+		{
+			if(this.position == this.data.length)
+				this.position = 0;
+			int count = Math.min(len, this.data.length - this.position);
+			System.arraycopy(this.data, this.position, b, off, count);
+			this.position += count;
+			return count;
+		}
+	}
+}
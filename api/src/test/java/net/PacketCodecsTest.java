@@ -0,0 +1,181 @@
+package net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import net.codec.DeflatePacketCodec;
+import net.codec.PacketCodec;
+import net.codec.PacketCodecs;
+import utils.FrogException;
+
+public class PacketCodecsTest
+{
+	private static Packet newPacket()
+	{
+		JSONObject obj = new JSONObject();
+		obj.put("result", true);
+		obj.put("token", "GENERATEDTOKEN1234567890");
+		obj.put("text", "\"échappé\"\n");
+		return new Packet(PacketType.CONNECT_RESULT, obj.toString());
+	}
+
+	private static void assertPacketEquals(Packet expected, Packet actual)
+	{
+		assertEquals("PacketTypes non égaux", expected.getType(), actual.getType());
+		assertEquals("JSONObjects non égaux", expected.getSerializedObject(), actual.getSerializedObject());
+	}
+
+	@Test
+	public void bufferRoundTripTest() throws IOException, FrogException
+	{
+		for(PacketCodec codec : new PacketCodec[] { PacketCodecs.JSON, PacketCodecs.BINARY })
+		{
+			Packet p1 = newPacket();
+			Packet p2 = codec.decode(codec.encode(p1));
+			assertPacketEquals(p1, p2);
+		}
+	}
+
+	@Test
+	public void streamRoundTripTest() throws IOException, FrogException
+	{
+		for(PacketCodec codec : new PacketCodec[] { PacketCodecs.JSON, PacketCodecs.BINARY })
+		{
+			Packet p1 = newPacket();
+			Packet p2 = new Packet(PacketType.SYNC, "{}");
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			codec.write(p1, out);
+			codec.write(p2, out);
+
+			ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+			assertPacketEquals(p1, codec.read(in));
+			assertPacketEquals(p2, codec.read(in));
+			assertNull("La fin du flux doit retourner null", codec.read(in));
+		}
+	}
+
+	@Test
+	public void partialFrameTest() throws IOException, FrogException
+	{
+		for(PacketCodec codec : new PacketCodec[] { PacketCodecs.JSON, PacketCodecs.BINARY })
+		{
+			Packet p1 = newPacket();
+			ByteBuffer frame = codec.encode(p1);
+
+			// Trame reçue en deux fois
+			ByteBuffer partial = frame.duplicate();
+			partial.limit(frame.limit() / 2);
+			assertNull("Une trame incomplète ne doit pas être décodée", codec.decode(partial));
+			assertEquals("Une trame incomplète ne doit pas être consommée", 0, partial.position());
+
+			assertPacketEquals(p1, codec.decode(frame));
+			assertEquals("La trame doit être entièrement consommée", 0, frame.remaining());
+		}
+	}
+
+	@Test
+	public void windowsLineTest() throws IOException, FrogException
+	{
+		Packet p1 = newPacket();
+		byte[] line = (p1.toJSON() + "\r\n").getBytes("UTF-8");
+		assertPacketEquals(p1, PacketCodecs.JSON.decode(ByteBuffer.wrap(line)));
+	}
+
+	@Test(expected=IOException.class)
+	public void invalidBinaryLengthTest() throws IOException, FrogException
+	{
+		ByteBuffer frame = ByteBuffer.allocate(5);
+		frame.putInt(-1).put((byte)0).flip();
+		PacketCodecs.BINARY.decode(frame);
+	}
+
+	@Test
+	public void binarySizeTest()
+	{
+		Packet p1 = newPacket();
+		int jsonSize = PacketCodecs.JSON.encode(p1).remaining();
+		int binarySize = PacketCodecs.BINARY.encode(p1).remaining();
+		assertTrue("Le format binaire doit être plus compact que le format JSON", binarySize < jsonSize);
+	}
+
+	@Test
+	public void negotiateTest()
+	{
+		assertEquals("Format préféré non retenu", PacketCodecs.BINARY, PacketCodecs.negotiate(PacketCodecs.getSupportedNames()));
+		assertEquals("Absence de proposition non gérée", PacketCodecs.JSON, PacketCodecs.negotiate(null));
+		assertEquals("Format inconnu retenu", PacketCodecs.JSON, PacketCodecs.negotiate(new JSONArray().put("unknown")));
+		assertEquals("Format inconnu retenu", PacketCodecs.JSON, PacketCodecs.get(null));
+	}
+
+	@Test
+	public void compressionTest() throws IOException, FrogException
+	{
+		StringBuilder builder = new StringBuilder();
+		for(int i = 0; i < 200; i++)
+			builder.append("{\"health\":").append(i % 10).append(",\"maxHealth\":100},");
+		Packet large = new Packet(PacketType.SYNC, builder.toString());
+		Packet small = newPacket();
+		
+		DeflatePacketCodec sender = new DeflatePacketCodec(256);
+		DeflatePacketCodec receiver = new DeflatePacketCodec(256);
+		
+		ByteBuffer frame = sender.encode(large);
+		assertTrue("Le packet volumineux doit être compressé", frame.remaining() < PacketCodecs.BINARY.encode(large).remaining());
+		assertPacketEquals(large, receiver.decode(frame));
+		assertEquals("Le packet sous le seuil ne doit pas être compressé", PacketCodecs.BINARY.encode(small), sender.encode(small));
+		
+		// Réutilisation du compresseur et lecture sur flux
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		sender.write(large, out);
+		sender.write(small, out);
+		sender.write(large, out);
+		ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+		assertPacketEquals(large, receiver.read(in));
+		assertPacketEquals(small, receiver.read(in));
+		assertPacketEquals(large, receiver.read(in));
+		assertNull("Fin du flux attendue", receiver.read(in));
+	}
+
+	@Test
+	public void negotiateCompressionTest()
+	{
+		JSONArray offered = PacketCodecs.getSupportedCompressions();
+		assertTrue("Compression non retenue", PacketCodecs.negotiateCompression(PacketCodecs.BINARY, offered, 128) instanceof DeflatePacketCodec);
+		assertEquals("Compression retenue sans format binaire", PacketCodecs.JSON, PacketCodecs.negotiateCompression(PacketCodecs.JSON, offered, 128));
+		assertEquals("Compression retenue alors que désactivée", PacketCodecs.BINARY, PacketCodecs.negotiateCompression(PacketCodecs.BINARY, offered, -1));
+		assertEquals("Compression retenue sans proposition", PacketCodecs.BINARY, PacketCodecs.negotiateCompression(PacketCodecs.BINARY, null, 128));
+	}
+
+	@Test
+	public void requestIdTest() throws IOException, FrogException
+	{
+		for(PacketCodec codec : new PacketCodec[] { PacketCodecs.JSON, PacketCodecs.BINARY, new DeflatePacketCodec(0) })
+		{
+			Packet p1 = newPacket();
+			p1.setRequestId(123456789);
+			Packet p2 = newPacket();
+			
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			codec.write(p1, out);
+			codec.write(p2, out);
+			ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+			
+			Packet r1 = codec.read(in);
+			assertPacketEquals(p1, r1);
+			assertEquals("Identifiant de requête perdu", 123456789, r1.getRequestId());
+			assertEquals("Identifiant de requête inattendu", Packet.NO_REQUEST_ID, codec.read(in).getRequestId());
+			assertEquals("Identifiant de requête perdu", 123456789, codec.decode(codec.encode(p1)).getRequestId());
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package net;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import utils.FrogException;
+
+public class PacketDeliveryQueueTest 
+{
+	@Test
+	public void deferredDeliveryTest() throws FrogException
+	{
+		PacketDeliveryQueue queue = new PacketDeliveryQueue();
+		List<String> received = new ArrayList<String>();
+		queue.subscribe(PacketType.CONNECT_RESULT, p -> received.add(p.getSerializedObject()));
+		queue.subscribe(PacketType.UPDATE_MOVEMENT_RESULT, p -> received.add(p.getSerializedObject()));
+		// Budget de durée large : la première distribution charge les classes des abonnés
+		queue.setBudget(PacketDeliveryQueue.DEFAULT_MAX_PACKETS, 1000);
+		
+		queue.pushPacket(new Packet(PacketType.CONNECT_RESULT, "connect"));
+		queue.pushPacket(new Packet(PacketType.UPDATE_MOVEMENT_RESULT, "move1"));
+		queue.pushPacket(new Packet(PacketType.CONNECT_RESULT, "connect2"));
+		queue.pushPacket(new Packet(PacketType.UPDATE_MOVEMENT_RESULT, "move2"));
+		queue.pushPacket(new Packet(PacketType.UPDATE_MOVEMENT_RESULT, "move3"));
+		assertEquals("Packets distribués avant drain", 0, received.size());
+		assertEquals("Nombre de packets en attente incorrect", 3, queue.getPendingCount());
+		
+		// Le dernier déplacement est distribué à la place du premier
+		assertEquals("Nombre de packets distribués incorrect", 3, queue.drain());
+		assertEquals("Ordre de distribution incorrect", "[connect, move3, connect2]", received.toString());
+		assertEquals("Nombre de packets regroupés incorrect", 2, queue.getCoalescedCount());
+		
+		received.clear();
+		queue.pushPacket(new Packet(PacketType.UPDATE_MOVEMENT_RESULT, "move4"));
+		assertEquals("Nombre de packets distribués incorrect", 1, queue.drain());
+		assertEquals("Regroupement après distribution incorrect", "[move4]", received.toString());
+		assertEquals("Nombre de packets distribués incorrect", 0, queue.drain());
+	}
+	
+	@Test
+	public void budgetTest() throws FrogException
+	{
+		PacketDeliveryQueue queue = new PacketDeliveryQueue();
+		List<Packet> received = new ArrayList<Packet>();
+		queue.subscribe(PacketType.SYNC, received::add);
+		queue.setBudget(10, 1000);
+		
+		for(int i = 0; i < 25; i++)
+			queue.pushPacket(new Packet(PacketType.SYNC, String.valueOf(i)));
+		
+		assertEquals("Budget non respecté", 10, queue.drain());
+		assertEquals("Budget non respecté", 10, queue.drain());
+		assertEquals("Reste non distribué", 5, queue.drain());
+		assertEquals("Nombre de packets distribués incorrect", 25, queue.getDeliveredCount());
+		assertEquals("Ordre de distribution incorrect", "24", received.get(24).getSerializedObject());
+		
+		// Budget de durée nul : un packet par distribution
+		queue.setBudget(10, 0);
+		queue.pushPacket(new Packet(PacketType.SYNC, "a"));
+		queue.pushPacket(new Packet(PacketType.SYNC, "b"));
+		assertEquals("Budget de durée non respecté", 1, queue.drain());
+		assertEquals("Packet restant incorrect", 1, queue.getPendingCount());
+	}
+}
@@ -0,0 +1,127 @@
+package net;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import utils.FrogException;
+
+/**
+ * <h1>Mesure du coût de distribution des packets</h1>
+ * <p>Compare le {@link PacketSubscriber} à une table synchronisée de listes (ancienne implémentation)
+ * pour 1, 10 et 100 abonnés, sur un thread puis sur plusieurs threads distribuant simultanément.</p>
+ * <p>Exécution : <code>java -cp api/target/classes:api/target/test-classes:json.jar net.PacketDispatchBenchmark</code></p>
+ */
+public class PacketDispatchBenchmark
+{
+	private static final int[] LISTENERS = { 1, 10, 100 };
+	private static final int THREADS = 4;
+	private static final long WARMUP_CALLS = 50000000L;
+	private static final long MEASURE_CALLS = 100000000L;
+
+	private static volatile long sink;
+
+	public static void main(String[] args) throws FrogException, InterruptedException
+	{
+		Packet packet = new Packet(PacketType.UPDATE_MOVEMENT_RESULT, "{}");
+
+		System.out.println(String.format("%8s %8s %16s %16s", "abonnés", "threads", "synchronisé", "copie/écriture"));
+		for(int count : LISTENERS)
+		{
+			LockedSubscriber locked = new LockedSubscriber();
+			PacketSubscriber subscriber = new PacketSubscriber();
+			for(int i = 0; i < count; i++)
+			{
+				Counter counter = new Counter();
+				locked.subscribe(PacketType.UPDATE_MOVEMENT_RESULT, counter);
+				subscriber.subscribe(PacketType.UPDATE_MOVEMENT_RESULT, counter);
+			}
+
+			// Nombre d'appels d'abonnés constant quelle que soit la taille de la liste
+			long dispatches = MEASURE_CALLS / count;
+			for(int threads : new int[] { 1, THREADS })
+			{
+				run(locked::pushPacket, packet, WARMUP_CALLS / count, threads);
+				run(subscriber::pushPacket, packet, WARMUP_CALLS / count, threads);
+				double lockedNanos = run(locked::pushPacket, packet, dispatches, threads);
+				double subscriberNanos = run(subscriber::pushPacket, packet, dispatches, threads);
+				System.out.println(String.format("%8d %8d %13.1f ns %13.1f ns", count, threads, lockedNanos, subscriberNanos));
+			}
+		}
+	}
+
+	/**
+	 * Distribue le packet sur plusieurs threads et mesure le temps moyen par distribution
+	 * @return Le temps moyen d'une distribution en nanosecondes (temps écoulé / distributions par thread)
+	 */
+	private static double run(Consumer<Packet> dispatcher, Packet packet, long dispatches, int threads) throws InterruptedException
+	{
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(threads);
+		for(int t = 0; t < threads; t++)
+		{
+			Thread thread = new Thread(() -> 
+			{
+				try
+				{
+					start.await();
+					for(long i = 0; i < dispatches; i++)
+						dispatcher.accept(packet);
+				}
+				catch(InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+				done.countDown();
+			});
+			thread.start();
+		}
+
+		long time = System.nanoTime();
+		start.countDown();
+		done.await();
+		return (double)(System.nanoTime() - time) / dispatches;
+	}
+
+	private static class Counter implements IPacketListener
+	{
+		private long count;
+
+		@Override
+		public void onPacketReceived(Packet packet)
+		{
+			// Compteur volontairement non synchronisé : seul le coût de distribution est mesuré
+			if(++this.count == Long.MIN_VALUE)
+				sink = this.count;
+		}
+	}
+
+	/**
+	 * Ancienne implémentation de l'aiguilleur, conservée comme référence
+	 */
+	private static class LockedSubscriber
+	{
+		private HashMap<PacketType, ArrayList<IPacketListener>> listeners = new HashMap<PacketType, ArrayList<IPacketListener>>();
+
+		public synchronized void subscribe(PacketType type, IPacketListener packetHandler)
+		{
+			if(!this.listeners.containsKey(type))
+				this.listeners.put(type, new ArrayList<IPacketListener>());
+
+			this.listeners.get(type).add(packetHandler);
+		}
+
+		public synchronized void pushPacket(Packet packet)
+		{
+			if(this.listeners.containsKey(packet.getType()))
+			{
+				List<IPacketListener> list = this.listeners.get(packet.getType());
+				int size = list.size();
+				for(int i = 0; i < size; i++)
+					list.get(i).onPacketReceived(packet);
+			}
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package net;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import utils.FrogException;
+
+public class PacketSubscriberTest 
+{
+	@Test
+	public void dispatchTest() throws FrogException
+	{
+		PacketSubscriber subscriber = new PacketSubscriber();
+		List<String> received = new ArrayList<String>();
+		IPacketListener first = p -> received.add("first");
+		IPacketListener second = p -> received.add("second");
+		
+		subscriber.subscribe(PacketType.SYNC, first);
+		subscriber.subscribe(PacketType.SYNC, second);
+		subscriber.subscribe(PacketType.SYNC, first);
+		subscriber.subscribe(PacketType.CONNECT_RESULT, second);
+		assertEquals("Nombre d'abonnés incorrect", 3, subscriber.getListenersCount(PacketType.SYNC));
+		
+		subscriber.pushPacket(new Packet(PacketType.SYNC, "{}"));
+		assertEquals("Ordre de distribution incorrect", "[first, second, first]", received.toString());
+		
+		// Seule la première occurrence est retirée
+		received.clear();
+		subscriber.unsubscribe(PacketType.SYNC, first);
+		subscriber.unsubscribe(PacketType.ERROR_RESULT, first);
+		subscriber.pushPacket(new Packet(PacketType.SYNC, "{}"));
+		assertEquals("Désabonnement incorrect", "[second, first]", received.toString());
+		
+		received.clear();
+		subscriber.unsubscribe(PacketType.SYNC, first);
+		subscriber.unsubscribe(PacketType.SYNC, second);
+		subscriber.pushPacket(new Packet(PacketType.SYNC, "{}"));
+		subscriber.pushPacket(new Packet(PacketType.NONE, "{}"));
+		assertEquals("Packet distribué sans abonné", 0, received.size());
+		assertEquals("Nombre d'abonnés incorrect", 1, subscriber.getListenersCount(PacketType.CONNECT_RESULT));
+	}
+	
+	@Test
+	public void subscribeDuringDispatchTest() throws FrogException, InterruptedException
+	{
+		PacketSubscriber subscriber = new PacketSubscriber();
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		List<String> received = new ArrayList<String>();
+		
+		subscriber.subscribe(PacketType.SYNC, p -> 
+		{
+			entered.countDown();
+			try
+			{
+				release.await();
+			}
+			catch(InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		});
+		
+		Thread slow = new Thread(() -> subscriber.pushPacket(new Packet(PacketType.SYNC, "{}")));
+		slow.start();
+		assertTrue("Distribution non démarrée", entered.await(5, TimeUnit.SECONDS));
+		
+		// Un abonné lent ne bloque ni les abonnements ni les autres distributions
+		subscriber.subscribe(PacketType.CONNECT_RESULT, p -> received.add("connect"));
+		subscriber.pushPacket(new Packet(PacketType.CONNECT_RESULT, "{}"));
+		assertEquals("Distribution bloquée", "[connect]", received.toString());
+		
+		release.countDown();
+		slow.join(5000);
+	}
+}
@@ -0,0 +1,137 @@
+package net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import net.codec.DeflatePacketCodec;
+import net.codec.PacketCodec;
+import net.codec.PacketCodecs;
+import utils.FrogException;
+
+public class PooledPacketTest 
+{
+	@Test
+	public void typedAccessorsTest()
+	{
+		PacketPool pool = new PacketPool();
+		PooledPacket packet = pool.acquire();
+		JSONObject inner = new JSONObject();
+		inner.put("inner", 5);
+		JSONObject obj = new JSONObject();
+		obj.put("result", true);
+		obj.put("token", "a\"b");
+		obj.put("name", "frog");
+		obj.put("x", -12);
+		obj.put("big", 12345678901L);
+		obj.put("ratio", 3.5);
+		obj.put("nested", inner);
+		obj.put("list", new int[] { 1, 2 });
+		packet.set(new Packet(PacketType.CONNECT_RESULT, obj.toString()));
+		
+		assertEquals("Entier incorrect", -12, packet.getInt("x", 0));
+		assertEquals("Entier long incorrect", 12345678901L, packet.getLong("big", 0));
+		assertEquals("Dépassement d'entier non détecté", 7, packet.getInt("big", 7));
+		assertEquals("Nombre décimal lu comme entier", 7, packet.getInt("ratio", 7));
+		assertEquals("Texte lu comme entier", 7, packet.getInt("name", 7));
+		assertTrue("Booléen incorrect", packet.getBoolean("result", false));
+		assertEquals("Texte incorrect", "frog", packet.getString("name"));
+		assertEquals("Texte échappé incorrect", "a\"b", packet.getString("token"));
+		assertTrue("Champ absent", packet.has("nested") && packet.has("list"));
+		assertFalse("Champ imbriqué trouvé au premier niveau", packet.has("inner"));
+		assertNull("Champ inexistant trouvé", packet.getString("missing"));
+		assertEquals("Valeur par défaut incorrecte", 3, packet.getInt("missing", 3));
+		assertEquals("Objet sérialisé incorrect", obj.toString(), packet.getSerializedObject());
+		packet.release();
+	}
+	
+	@Test
+	public void readIntoTest() throws IOException, FrogException
+	{
+		JSONObject obj = new JSONObject();
+		obj.put("x", 10);
+		obj.put("y", 20);
+		StringBuilder large = new StringBuilder();
+		for(int i = 0; i < 200; i++)
+			large.append("tile/").append(i).append(';');
+		obj.put("data", large.toString());
+		
+		for(PacketCodec codec : new PacketCodec[] { PacketCodecs.BINARY, new DeflatePacketCodec(0), PacketCodecs.JSON })
+		{
+			Packet sent = new Packet(PacketType.UPDATE_MOVEMENT_RESULT, obj.toString());
+			sent.setRequestId(42);
+			Packet binary = new Packet(PacketType.CHUNK_DATA, new byte[] { 1, 2, 3 });
+			
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			for(int i = 0; i < 10; i++)
+			{
+				codec.write(sent, out);
+				codec.write(binary, out);
+			}
+			
+			PacketPool pool = new PacketPool();
+			ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+			for(int i = 0; i < 10; i++)
+			{
+				PooledPacket packet = pool.acquire();
+				assertTrue("Trame non lue", codec.readInto(in, packet));
+				assertEquals("Type incorrect (" + codec.getName() + ")", PacketType.UPDATE_MOVEMENT_RESULT, packet.getType());
+				assertEquals("Identifiant de requête incorrect", 42, packet.getRequestId());
+				assertEquals("Champ incorrect", 20, packet.getInt("y", 0));
+				assertEquals("Contenu incorrect", sent.getSerializedObject(), packet.getSerializedObject());
+				packet.release();
+				
+				packet = pool.acquire();
+				assertTrue("Trame non lue", codec.readInto(in, packet));
+				assertEquals("Type incorrect", PacketType.CHUNK_DATA, packet.getType());
+				assertEquals("Contenu binaire incorrect", 3, packet.getPayloadLength());
+				assertEquals("Contenu binaire incorrect", 3, packet.getData()[2]);
+				packet.release();
+			}
+			
+			PooledPacket end = pool.acquire();
+			assertFalse("Fin du flux non détectée", codec.readInto(in, end));
+			end.release();
+			assertEquals("Packets non réutilisés", 1, pool.getCreatedCount());
+			codec.close();
+		}
+	}
+	
+	@Test
+	public void retainTest() throws FrogException
+	{
+		PacketPool pool = new PacketPool();
+		PacketDeliveryQueue queue = new PacketDeliveryQueue();
+		List<Integer> received = new ArrayList<Integer>();
+		List<Packet> detached = new ArrayList<Packet>();
+		queue.subscribe(PacketType.UPDATE_MOVEMENT_RESULT, p -> received.add(((PooledPacket)p).getInt("x", -1)));
+		queue.subscribe(PacketType.CONNECT_RESULT, p -> detached.add(p.detach()));
+		
+		// Cycle du thread de lecture : notification puis libération
+		for(int i = 0; i < 5; i++)
+		{
+			PooledPacket packet = pool.acquire();
+			packet.set(new Packet(i == 2 ? PacketType.CONNECT_RESULT : PacketType.UPDATE_MOVEMENT_RESULT, "{\"x\":" + i + "}"));
+			queue.pushPacket(packet);
+			packet.release();
+		}
+		
+		// Packets de déplacement remplacés rendus à la réserve, les packets en file sont conservés
+		assertEquals("Packets conservés incorrects", 2, pool.getCreatedCount() - pool.getAvailableCount());
+		
+		queue.drain();
+		assertEquals("Regroupement incorrect", "[4]", received.toString());
+		assertEquals("Copie incorrecte", "{\"x\":2}", detached.get(0).getSerializedObject());
+		assertEquals("Packets non libérés", pool.getCreatedCount(), pool.getAvailableCount());
+	}
+}
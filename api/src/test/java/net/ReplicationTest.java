@@ -0,0 +1,75 @@
+package net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import net.replication.ReplicatedState;
+import net.replication.Snapshot;
+import utils.FrogException;
+
+public class ReplicationTest
+{
+	@Test
+	public void deltaTest() throws FrogException
+	{
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("entity/1/health", "{\"health\":10}");
+		values.put("entity/2/health", "{\"health\":5}");
+		values.put("tile/0/3/4", "7");
+		Snapshot baseline = new Snapshot(1, new HashMap<String, String>(values));
+		
+		values.put("entity/1/health", "{\"health\":8}");
+		values.remove("entity/2/health");
+		values.put("tile/0/3/5", "2");
+		Snapshot current = new Snapshot(2, values);
+		
+		ReplicatedState state = new ReplicatedState();
+		Packet ack = state.apply(baseline.toFullPayload());
+		assertEquals("Acquittement attendu", PacketType.SYNC, ack.getType());
+		assertEquals("Cycle acquitté incorrect", 1, new JSONObject(ack.getSerializedObject()).getLong(Snapshot.ACK_KEY));
+		
+		String delta = current.toDeltaPayload(baseline);
+		JSONObject obj = new JSONObject(delta);
+		assertEquals("Seules les valeurs modifiées doivent être envoyées", 2, obj.getJSONObject(Snapshot.SET_KEY).length());
+		assertEquals("Les valeurs supprimées doivent être envoyées", 1, obj.getJSONArray(Snapshot.REMOVE_KEY).length());
+		
+		state.apply(delta);
+		assertEquals("Nombre de valeurs incorrect", 3, state.getCurrent().getValues().size());
+		assertEquals("Valeur modifiée incorrecte", 8, new JSONObject(state.getValue("entity/1/health")).getInt("health"));
+		assertNull("Valeur supprimée toujours présente", state.getValue("entity/2/health"));
+		assertEquals("Valeur ajoutée incorrecte", "2", state.getValue("tile/0/3/5"));
+	}
+	
+	@Test
+	public void unchangedTest()
+	{
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("tile/0/0/0", "1");
+		assertNull("Aucune différence attendue", new Snapshot(2, values).toDeltaPayload(new Snapshot(1, new HashMap<String, String>(values))));
+	}
+	
+	@Test
+	public void unknownBaselineTest() throws FrogException
+	{
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("tile/0/0/0", "1");
+		Snapshot baseline = new Snapshot(1, new HashMap<String, String>(values));
+		values.put("tile/0/0/0", "2");
+		
+		Packet ack = new ReplicatedState().apply(new Snapshot(2, values).toDeltaPayload(baseline));
+		assertEquals("Un état complet doit être demandé", Snapshot.NO_BASELINE, new JSONObject(ack.getSerializedObject()).getLong(Snapshot.ACK_KEY));
+	}
+	
+	@Test(expected = FrogException.class)
+	public void invalidPayloadTest() throws FrogException
+	{
+		new ReplicatedState().apply("{\"tick\":1}");
+	}
+}
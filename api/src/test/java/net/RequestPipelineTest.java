@@ -0,0 +1,143 @@
+package net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.codec.PacketCodecs;
+import net.socket.FlushPolicy;
+import net.socket.FrogClientSocket;
+import utils.FrogException;
+
+public class RequestPipelineTest
+{
+	private static final int REQUESTS = 20;
+	
+	private ServerSocket server;
+	private Socket connection;
+	private InputStream in;
+	private FrogClientSocket client;
+	
+	@Before
+	public void initialize() throws IOException
+	{
+		this.server = new ServerSocket(0);
+	}
+	
+	@After
+	public void terminate() throws IOException
+	{
+		if(this.client != null)
+			this.client.stop();
+		if(this.connection != null)
+			this.connection.close();
+		this.server.close();
+	}
+	
+	@Test
+	public void pipelineTest() throws Exception
+	{
+		// Serveur répondant aux requêtes dans l'ordre inverse de leur réception
+		Thread responder = new Thread(() -> 
+		{
+			try
+			{
+				OutputStream out = this.acceptAndHandshake();
+				List<Packet> requests = new ArrayList<Packet>();
+				for(int i = 0; i < REQUESTS; i++)
+					requests.add(PacketCodecs.BINARY.read(this.in));
+				
+				for(int i = requests.size() - 1; i >= 0; i--)
+				{
+					Packet result = new Packet(PacketType.NONE, requests.get(i).getSerializedObject());
+					result.setRequestId(requests.get(i).getRequestId());
+					PacketCodecs.BINARY.write(result, out);
+				}
+				out.flush();
+			}
+			catch(IOException | FrogException e)
+			{
+				e.printStackTrace();
+			}
+		});
+		responder.start();
+		
+		this.startClient();
+		List<CompletableFuture<Packet>> results = new ArrayList<CompletableFuture<Packet>>();
+		for(int i = 0; i < REQUESTS; i++)
+			results.add(this.client.request(new Packet(PacketType.SYNC, "request-" + i)));
+		
+		for(int i = 0; i < REQUESTS; i++)
+			assertEquals("Réponse associée à une autre requête", "request-" + i, results.get(i).get(5, TimeUnit.SECONDS).getSerializedObject());
+		assertEquals("Aucune requête ne doit rester en attente", 0, this.client.getInFlightRequestsCount());
+	}
+	
+	@Test
+	public void timeoutTest() throws Exception
+	{
+		Thread responder = new Thread(() -> 
+		{
+			try
+			{
+				this.acceptAndHandshake();
+			}
+			catch(IOException | FrogException e)
+			{
+				e.printStackTrace();
+			}
+		});
+		responder.start();
+		
+		this.startClient();
+		CompletableFuture<Packet> result = this.client.request(new Packet(PacketType.SYNC, "{}"), 100);
+		assertEquals("Requête en attente attendue", 1, this.client.getInFlightRequestsCount());
+		
+		try
+		{
+			result.get(5, TimeUnit.SECONDS);
+		}
+		catch(ExecutionException e)
+		{
+			assertTrue("Expiration attendue", e.getCause() instanceof TimeoutException);
+		}
+		assertEquals("La requête expirée ne doit plus être en attente", 0, this.client.getInFlightRequestsCount());
+	}
+	
+	private void startClient() throws FrogException
+	{
+		this.client = new FrogClientSocket(new FlushPolicy(0, 1));
+		this.client.start("127.0.0.1", this.server.getLocalPort());
+	}
+	
+	private OutputStream acceptAndHandshake() throws IOException, FrogException
+	{
+		this.connection = this.server.accept();
+		this.in = new BufferedInputStream(this.connection.getInputStream());
+		OutputStream out = this.connection.getOutputStream();
+		
+		PacketCodecs.JSON.read(this.in);
+		JSONObject obj = new JSONObject();
+		obj.put("result", true);
+		obj.put(PacketCodecs.CODEC_KEY, PacketCodecs.BINARY.getName());
+		PacketCodecs.JSON.write(new Packet(PacketType.PROTOCOL_VERSION_RESULT, obj.toString()), out);
+		out.flush();
+		return out;
+	}
+}
@@ -0,0 +1,111 @@
+package net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import net.codec.PacketCodecs;
+import net.socket.FrogChannel;
+import net.socket.FrogSelectorServerSocket;
+
+public class SelectorLoopTest
+{
+	private static final String INVALID = "invalide";
+
+	@Test
+	public void listenerFailureTest() throws Exception
+	{
+		BlockingQueue<String> received = new LinkedBlockingQueue<String>();
+		BlockingQueue<FrogChannel> closed = new LinkedBlockingQueue<FrogChannel>();
+		int port = freePort();
+
+		// Une seule boucle : toutes les connexions partagent le même thread
+		FrogSelectorServerSocket server = new FrogSelectorServerSocket(1);
+		server.setChannelListener(new IChannelListener()
+		{
+			public void onChannelAccept(FrogChannel channel)
+			{
+				channel.setPacketListener(packet ->
+				{
+					if(packet.getSerializedObject().equals(INVALID))
+						throw new IllegalStateException("Packet invalide");
+					received.add(packet.getSerializedObject());
+				});
+			}
+
+			public void onChannelClose(FrogChannel channel)
+			{
+				closed.add(channel);
+			}
+		});
+
+		Thread serverThread = new Thread(() -> server.start(port), "SelectorLoopTestServer");
+		serverThread.setDaemon(true);
+		serverThread.start();
+
+		try(Socket faulty = connect(port); Socket valid = connect(port))
+		{
+			send(faulty, INVALID);
+			send(valid, "avant");
+			assertTrue("Connexion fautive non fermée", closed.poll(5, TimeUnit.SECONDS) != null);
+			assertEquals("Connexion fautive fermée sans fin de flux", -1, faulty.getInputStream().read());
+
+			// La boucle survit : les autres connexions et les nouvelles connexions sont toujours servies
+			send(valid, "après");
+			assertEquals("avant", received.poll(5, TimeUnit.SECONDS));
+			assertEquals("après", received.poll(5, TimeUnit.SECONDS));
+			try(Socket late = connect(port))
+			{
+				send(late, "nouvelle");
+				assertEquals("nouvelle", received.poll(5, TimeUnit.SECONDS));
+			}
+		}
+	}
+
+	private static void send(Socket socket, String content) throws IOException
+	{
+		ByteBuffer frame = PacketCodecs.JSON.encode(new Packet(PacketType.SYNC, content));
+		OutputStream out = socket.getOutputStream();
+		out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+		out.flush();
+	}
+
+	private static Socket connect(int port) throws Exception
+	{
+		long deadline = System.currentTimeMillis() + 5000;
+		while(true)
+		{
+			try
+			{
+				Socket socket = new Socket("127.0.0.1", port);
+				socket.setSoTimeout(5000);
+				return socket;
+			}
+			catch(IOException e)
+			{
+				// Serveur en cours de démarrage
+				if(System.currentTimeMillis() > deadline)
+					throw e;
+				Thread.sleep(10);
+			}
+		}
+	}
+
+	private static int freePort() throws IOException
+	{
+		try(ServerSocket socket = new ServerSocket(0))
+		{
+			return socket.getLocalPort();
+		}
+	}
+}
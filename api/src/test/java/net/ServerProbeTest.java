@@ -0,0 +1,126 @@
+package net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+import net.codec.PacketCodecs;
+import net.socket.ProbeResult;
+import net.socket.ServerProbe;
+import utils.FrogException;
+
+public class ServerProbeTest
+{
+	private static final int TIMEOUT = 500;
+	
+	private List<ServerSocket> servers = new ArrayList<ServerSocket>();
+	
+	@After
+	public void terminate() throws IOException
+	{
+		for(ServerSocket server : this.servers)
+			server.close();
+	}
+	
+	@Test
+	public void probeTest() throws Exception
+	{
+		InetSocketAddress slow = this.startServer(200, true);
+		InetSocketAddress fast = this.startServer(0, true);
+		InetSocketAddress refused = this.startServer(0, false);
+		InetSocketAddress silent = this.startServer(-1, true);
+		InetSocketAddress closed = this.closedAddress();
+		
+		ServerProbe probe = new ServerProbe(TIMEOUT, 8);
+		List<ProbeResult> received = Collections.synchronizedList(new ArrayList<ProbeResult>());
+		long start = System.nanoTime();
+		List<ProbeResult> results = probe.probe(Arrays.asList(slow, fast, refused, silent, closed), received::add).get(5, TimeUnit.SECONDS);
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		probe.shutdown();
+		
+		// Sondages simultanés : la durée totale est bornée par le délai d'un seul serveur
+		assertTrue("Sondage séquentiel : " + elapsed + " ms", elapsed < TIMEOUT * 3);
+		assertEquals("Nombre de résultats incorrect", 5, results.size());
+		assertEquals("Nombre de résultats transmis incorrect", 5, received.size());
+		
+		// Les échecs immédiats (connexion refusée) peuvent être transmis avant le serveur le plus proche
+		ProbeResult firstUsable = null;
+		for(ProbeResult result : received)
+		{
+			if(firstUsable == null && result.isUsable())
+				firstUsable = result;
+		}
+		assertEquals("Premier serveur utilisable transmis incorrect", fast, firstUsable.getAddress());
+		
+		assertEquals("Classement incorrect", fast, results.get(0).getAddress());
+		assertEquals("Classement incorrect", slow, results.get(1).getAddress());
+		assertEquals("Classement incorrect", refused, results.get(2).getAddress());
+		assertTrue("Serveur utilisable", results.get(0).isUsable() && results.get(1).isUsable());
+		assertTrue("Latence incorrecte", results.get(1).getRtt() >= 200);
+		assertTrue("Version refusée", results.get(2).isReachable() && !results.get(2).isUsable());
+		assertFalse("Serveur silencieux joignable", results.get(3).isReachable());
+		assertFalse("Serveur fermé joignable", results.get(4).isReachable());
+	}
+	
+	/**
+	 * Démarre un serveur répondant à la négociation du protocole
+	 * @param delay Le délai de réponse en millisecondes, négatif pour ne jamais répondre
+	 * @param accepted Le résultat de la négociation
+	 */
+	private InetSocketAddress startServer(int delay, boolean accepted) throws IOException
+	{
+		ServerSocket server = new ServerSocket(0);
+		this.servers.add(server);
+		
+		Thread thread = new Thread(() -> 
+		{
+			try(Socket connection = server.accept())
+			{
+				Packet packet = PacketCodecs.JSON.read(new BufferedInputStream(connection.getInputStream()));
+				if(delay < 0)
+				{
+					Thread.sleep(TIMEOUT * 2);
+					return;
+				}
+				Thread.sleep(delay);
+				
+				JSONObject obj = new JSONObject();
+				obj.put("result", accepted && packet.getType() == PacketType.PROTOCOL_VERSION);
+				OutputStream out = connection.getOutputStream();
+				PacketCodecs.JSON.write(new Packet(PacketType.PROTOCOL_VERSION_RESULT, obj.toString()), out);
+				out.flush();
+			}
+			catch(IOException | FrogException | InterruptedException e)
+			{
+				// Serveur fermé à la fin du test
+			}
+		});
+		thread.setDaemon(true);
+		thread.start();
+		return new InetSocketAddress("127.0.0.1", server.getLocalPort());
+	}
+	
+	private InetSocketAddress closedAddress() throws IOException
+	{
+		try(ServerSocket server = new ServerSocket(0))
+		{
+			return new InetSocketAddress("127.0.0.1", server.getLocalPort());
+		}
+	}
+}
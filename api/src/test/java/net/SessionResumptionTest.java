@@ -0,0 +1,179 @@
+package net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.codec.PacketCodecs;
+import net.replication.Snapshot;
+import net.socket.FlushPolicy;
+import net.socket.FrogClientSocket;
+import net.socket.FrogDatagramSocket;
+import utils.FrogException;
+
+public class SessionResumptionTest
+{
+	private static final String TOKEN = "token-de-test";
+
+	private ServerSocket server;
+	private FrogClientSocket client;
+	private BlockingQueue<JSONObject> handshakes;
+
+	@Before
+	public void initialize() throws IOException
+	{
+		this.server = new ServerSocket(0);
+		this.handshakes = new LinkedBlockingQueue<JSONObject>();
+	}
+
+	@After
+	public void terminate() throws IOException
+	{
+		if(this.client != null)
+			this.client.stop();
+		this.server.close();
+	}
+
+	@Test
+	public void resumeTest() throws Exception
+	{
+		Snapshot first = this.snapshot(5, "1");
+		Snapshot second = this.snapshot(6, "2");
+		Snapshot missed = this.snapshot(7, "3");
+
+		Thread responder = new Thread(() ->
+		{
+			try
+			{
+				// Authentification puis réception de deux états avant la déconnexion
+				try(Socket connection = this.server.accept())
+				{
+					InputStream in = new BufferedInputStream(connection.getInputStream());
+					OutputStream out = this.handshake(connection, in, null);
+
+					Packet request = PacketCodecs.BINARY.read(in);
+					JSONObject obj = new JSONObject();
+					obj.put("result", true);
+					obj.put(FrogDatagramSocket.TOKEN_KEY, TOKEN);
+					Packet result = new Packet(PacketType.CONNECT_RESULT, obj.toString());
+					result.setRequestId(request.getRequestId());
+					PacketCodecs.BINARY.write(result, out);
+
+					PacketCodecs.BINARY.write(new Packet(PacketType.SYNC, first.toFullPayload()), out);
+					out.flush();
+					PacketCodecs.BINARY.read(in);
+					PacketCodecs.BINARY.write(new Packet(PacketType.SYNC, second.toDeltaPayload(first)), out);
+					out.flush();
+					PacketCodecs.BINARY.read(in);
+				}
+
+				// Reprise : seule la différence manquée est envoyée
+				try(Socket connection = this.server.accept())
+				{
+					InputStream in = new BufferedInputStream(connection.getInputStream());
+					OutputStream out = this.handshake(connection, in, true);
+					PacketCodecs.BINARY.write(new Packet(PacketType.SYNC, missed.toDeltaPayload(second)), out);
+					out.flush();
+					PacketCodecs.BINARY.read(in);
+				}
+
+				// Session expirée
+				try(Socket connection = this.server.accept())
+				{
+					this.handshake(connection, new BufferedInputStream(connection.getInputStream()), false);
+					connection.getInputStream().read();
+				}
+			}
+			catch(IOException | FrogException e)
+			{
+				e.printStackTrace();
+			}
+		});
+		responder.setDaemon(true);
+		responder.start();
+
+		this.client = new FrogClientSocket(new FlushPolicy(0, 1));
+		this.client.start("127.0.0.1", this.server.getLocalPort());
+		assertFalse("Aucune session à reprendre", this.client.isResumed());
+		assertFalse("Token transmis sans session", this.poll().has(FrogDatagramSocket.TOKEN_KEY));
+		this.client.connect("account", "password").get(5, TimeUnit.SECONDS);
+		assertEquals(TOKEN, this.client.getToken());
+
+		this.awaitDisconnection();
+		assertEquals("État reçu avant la déconnexion incorrect", 6, this.client.getReplicatedState().getCurrent().getTick());
+
+		this.client.start("127.0.0.1", this.server.getLocalPort());
+		JSONObject resume = this.poll();
+		assertEquals("Token de session non transmis", TOKEN, resume.getString(FrogDatagramSocket.TOKEN_KEY));
+		assertEquals("Dernier état acquitté non transmis", 6, resume.getLong(Snapshot.ACK_KEY));
+		assertTrue("Session non reprise", this.client.isResumed());
+		assertEquals("Token de session perdu", TOKEN, this.client.getToken());
+
+		this.awaitDisconnection();
+		assertEquals("Différence manquée non appliquée", "3", this.client.getReplicatedState().getValue("tile/0/0/0"));
+
+		this.client.start("127.0.0.1", this.server.getLocalPort());
+		this.poll();
+		assertFalse("Session expirée reprise", this.client.isResumed());
+		assertNull("Le token d'une session expirée doit être oublié", this.client.getToken());
+	}
+
+	private Snapshot snapshot(long tick, String value)
+	{
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("tile/0/0/0", value);
+		return new Snapshot(tick, values);
+	}
+
+	/**
+	 * Répond à la négociation du protocole
+	 * @param resumed Le résultat de la reprise de session, null si le client n'en demande aucune
+	 */
+	private OutputStream handshake(Socket connection, InputStream in, Boolean resumed) throws IOException, FrogException
+	{
+		OutputStream out = connection.getOutputStream();
+		this.handshakes.add(new JSONObject(PacketCodecs.JSON.read(in).getSerializedObject()));
+
+		JSONObject obj = new JSONObject();
+		obj.put("result", true);
+		obj.put(PacketCodecs.CODEC_KEY, PacketCodecs.BINARY.getName());
+		if(resumed != null)
+			obj.put(FrogClientSocket.RESUMED_KEY, resumed);
+		PacketCodecs.JSON.write(new Packet(PacketType.PROTOCOL_VERSION_RESULT, obj.toString()), out);
+		out.flush();
+		return out;
+	}
+
+	private JSONObject poll() throws InterruptedException
+	{
+		JSONObject obj = this.handshakes.poll(5, TimeUnit.SECONDS);
+		assertTrue("Aucune négociation reçue", obj != null);
+		return obj;
+	}
+
+	private void awaitDisconnection() throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + 5000;
+		while(this.client.isRunning() && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+		assertFalse("Déconnexion non détectée", this.client.isRunning());
+	}
+}
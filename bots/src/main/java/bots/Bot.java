@@ -0,0 +1,169 @@
+package bots;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONObject;
+
+import net.Packet;
+import net.PacketType;
+import net.socket.FlushPolicy;
+import net.socket.FrogClientSocket;
+import utils.FrogException;
+
+/**
+ * <h1>Client de jeu simulé</h1>
+ * <p>Client sans affichage reposant sur {@link FrogClientSocket} : négociation du protocole, authentification
+ * puis envoi des requêtes scriptées. Les réponses sont traitées par le thread de lecture du client, aucun
+ * thread d'envoi n'est dédié au bot.</p>
+ */
+public class Bot
+{
+	private int id;
+	private FrogClientSocket socket;
+	private SwarmMetrics metrics;
+	private String filler;
+	private long timeout;
+	private AtomicInteger sequence;
+	private volatile boolean isAuthenticated;
+
+	/**
+	 * Constructeur du bot
+	 * @param id L'identifiant du bot, transmis dans ses requêtes
+	 * @param metrics Les statistiques alimentées par le bot
+	 * @param payloadSize La taille du contenu de remplissage des requêtes, en octets
+	 * @param timeout Le délai d'attente de la réponse à une requête, en millisecondes
+	 */
+	public Bot(int id, SwarmMetrics metrics, int payloadSize, long timeout)
+	{
+		this.id = id;
+		this.metrics = metrics;
+		this.timeout = timeout;
+		this.sequence = new AtomicInteger();
+
+		// Requêtes envoyées immédiatement, la latence mesurée ne dépend pas de la fenêtre de regroupement
+		this.socket = new FrogClientSocket(new FlushPolicy(0, 1));
+
+		StringBuilder filler = new StringBuilder(payloadSize);
+		for(int i = 0; i < payloadSize; i++)
+			filler.append((char)('a' + i % 26));
+		this.filler = filler.toString();
+	}
+
+	/**
+	 * <h1>Connecte le bot au serveur</h1>
+	 * <p>La négociation du protocole est bloquante, l'authentification est asynchrone : le bot envoie
+	 * ses requêtes scriptées une fois la réponse CONNECT_RESULT reçue.</p>
+	 * @param host L'adresse du serveur
+	 * @param port Le port d'écoute du serveur
+	 * @return La réponse à l'authentification
+	 */
+	public CompletableFuture<Boolean> connect(String host, int port)
+	{
+		long start = System.nanoTime();
+		this.metrics.onSent(PacketType.PROTOCOL_VERSION);
+		try
+		{
+			this.socket.start(host, port);
+		}
+		catch(FrogException e)
+		{
+			this.metrics.onFailed(PacketType.PROTOCOL_VERSION, e);
+			this.metrics.onConnection(false);
+			return CompletableFuture.completedFuture(false);
+		}
+
+		if(!this.socket.isRunning())
+		{
+			this.metrics.onFailed(PacketType.PROTOCOL_VERSION, new FrogException("Serveur injoignable"));
+			this.metrics.onConnection(false);
+			return CompletableFuture.completedFuture(false);
+		}
+		this.metrics.onCompleted(PacketType.PROTOCOL_VERSION, System.nanoTime() - start);
+
+		return this.send(PacketType.CONNECT).handle((result, error) ->
+		{
+			this.isAuthenticated = error == null && result.getType() == PacketType.CONNECT_RESULT
+					&& new JSONObject(result.getSerializedObject()).optBoolean("result", false);
+			this.metrics.onConnection(this.isAuthenticated);
+			return this.isAuthenticated;
+		});
+	}
+
+	/**
+	 * Envoie une requête scriptée, ignorée si le bot n'est pas authentifié
+	 * @param type Le type de la requête
+	 */
+	public void sendScripted(PacketType type)
+	{
+		if(!this.isAuthenticated)
+			return;
+
+		// Communication fermée par le serveur
+		if(!this.socket.isRunning())
+		{
+			this.isAuthenticated = false;
+			return;
+		}
+
+		this.send(type);
+	}
+
+	/**
+	 * Autorise ou non l'utilisation du canal de datagrammes proposé par le serveur, à définir avant la connexion
+	 * @param enabled True pour transmettre par datagramme les packets dont la perte est tolérée
+	 */
+	public void setDatagramEnabled(boolean enabled)
+	{
+		this.socket.setDatagramEnabled(enabled);
+	}
+
+	/**
+	 * Indique si le bot est authentifié et envoie ses requêtes scriptées
+	 * @return True si le bot est authentifié
+	 */
+	public boolean isAuthenticated()
+	{
+		return this.isAuthenticated;
+	}
+
+	/**
+	 * Arrête le bot, les réponses en attente sont ignorées
+	 */
+	public void stop()
+	{
+		this.isAuthenticated = false;
+		this.socket.stop();
+	}
+
+	private CompletableFuture<Packet> send(PacketType type)
+	{
+		JSONObject obj = new JSONObject();
+		obj.put("bot", this.id);
+		obj.put("seq", this.sequence.incrementAndGet());
+		obj.put("filler", this.filler);
+
+		long start = System.nanoTime();
+		this.metrics.onSent(type);
+		try
+		{
+			CompletableFuture<Packet> result = this.socket.request(new Packet(type, obj.toString()), this.timeout);
+			result.whenComplete((packet, error) ->
+			{
+				if(error != null)
+					this.metrics.onFailed(type, error);
+				else
+					this.metrics.onCompleted(type, System.nanoTime() - start, packet);
+			});
+			return result;
+		}
+		catch(FrogException e)
+		{
+			// Communication rompue, la requête n'a pas été envoyée
+			this.metrics.onFailed(type, e);
+			CompletableFuture<Packet> result = new CompletableFuture<Packet>();
+			result.completeExceptionally(e);
+			return result;
+		}
+	}
+}
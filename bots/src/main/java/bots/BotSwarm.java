@@ -0,0 +1,173 @@
+package bots;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import net.PacketType;
+
+/**
+ * <h1>Essaim de clients simulés</h1>
+ * <p>Connecte des bots à un serveur de jeu en répartissant les connexions sur une durée de montée en charge,
+ * puis leur fait envoyer un trafic scripté : pour chaque type de packet, un nombre de requêtes par seconde
+ * et par bot. Les envois de tous les bots sont planifiés sur un pool de threads partagé, les réponses sont
+ * reçues par le thread de lecture de chaque bot.</p>
+ * <p>Les types de packet auxquels le serveur ne répond pas (SYNC, sans acquittement valide) sont comptabilisés
+ * comme des requêtes expirées.</p>
+ */
+public class BotSwarm
+{
+	private String host;
+	private int port;
+	private Map<PacketType, Double> rates;
+	private int payloadSize;
+	private long timeout;
+	private boolean isDatagramEnabled;
+	private ScheduledExecutorService senders;
+	private List<Bot> bots;
+	private SwarmMetrics metrics;
+
+	/**
+	 * Constructeur de l'essaim
+	 * @param host L'adresse du serveur de jeu
+	 * @param port Le port d'écoute du serveur de jeu
+	 * @param rates Le nombre de requêtes envoyées par seconde et par bot, pour chaque type de packet
+	 * @param payloadSize La taille du contenu de remplissage des requêtes, en octets
+	 * @param timeout Le délai d'attente de la réponse à une requête, en millisecondes
+	 * @param sendersCount Le nombre de threads d'envoi partagés par les bots
+	 */
+	public BotSwarm(String host, int port, Map<PacketType, Double> rates, int payloadSize, long timeout, int sendersCount)
+	{
+		this.host = host;
+		this.port = port;
+		this.rates = rates;
+		this.payloadSize = payloadSize;
+		this.timeout = timeout;
+		this.bots = new ArrayList<Bot>();
+		this.metrics = new SwarmMetrics();
+
+		AtomicInteger threadsCount = new AtomicInteger();
+		this.senders = Executors.newScheduledThreadPool(sendersCount, runnable ->
+		{
+			Thread thread = new Thread(runnable, "bots-sender-" + threadsCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Autorise ou non l'utilisation du canal de datagrammes par les bots, à définir avant leur connexion
+	 * @param enabled True pour transmettre par datagramme les packets dont la perte est tolérée
+	 */
+	public void setDatagramEnabled(boolean enabled)
+	{
+		this.isDatagramEnabled = enabled;
+	}
+
+	/**
+	 * <h1>Connecte les bots au serveur</h1>
+	 * <p>Les connexions sont réparties uniformément sur la durée de montée en charge, la méthode rend la main
+	 * lorsque tous les bots sont authentifiés ou ont échoué.</p>
+	 * @param botsCount Le nombre de bots
+	 * @param rampUp La durée de montée en charge, en millisecondes
+	 * @throws InterruptedException
+	 */
+	public void connect(int botsCount, long rampUp) throws InterruptedException
+	{
+		List<CompletableFuture<Boolean>> connections = new ArrayList<CompletableFuture<Boolean>>(botsCount);
+		long step = TimeUnit.MILLISECONDS.toNanos(rampUp) / botsCount;
+
+		for(int i = 0; i < botsCount; i++)
+		{
+			Bot bot = new Bot(i, this.metrics, this.payloadSize, this.timeout);
+			bot.setDatagramEnabled(this.isDatagramEnabled);
+			this.bots.add(bot);
+
+			CompletableFuture<Boolean> connection = new CompletableFuture<Boolean>();
+			connections.add(connection);
+			this.senders.schedule(() ->
+			{
+				bot.connect(this.host, this.port).whenComplete((result, error) -> connection.complete(error == null && result));
+			}, i * step, TimeUnit.NANOSECONDS);
+		}
+
+		try
+		{
+			CompletableFuture.allOf(connections.toArray(new CompletableFuture<?>[connections.size()])).get();
+		}
+		catch(ExecutionException e)
+		{
+			// Résultats toujours complétés normalement
+		}
+	}
+
+	/**
+	 * <h1>Envoie le trafic scripté</h1>
+	 * <p>Chaque bot authentifié envoie chaque type de packet au rythme demandé, avec un décalage aléatoire
+	 * pour ne pas synchroniser les envois des bots. Les statistiques sont transmises à intervalle régulier
+	 * puis à la fin de l'envoi.</p>
+	 * @param duration La durée de l'envoi, en millisecondes
+	 * @param reportPeriod La période de transmission des statistiques intermédiaires en millisecondes, 0 pour aucune
+	 * @param reporter Le destinataire des statistiques
+	 * @throws InterruptedException
+	 */
+	public void run(long duration, long reportPeriod, Consumer<String> reporter) throws InterruptedException
+	{
+		List<ScheduledFuture<?>> tasks = new ArrayList<ScheduledFuture<?>>();
+		long start = System.nanoTime();
+
+		for(Bot bot : this.bots)
+		{
+			if(!bot.isAuthenticated())
+				continue;
+
+			for(Map.Entry<PacketType, Double> rate : this.rates.entrySet())
+			{
+				PacketType type = rate.getKey();
+				long period = Math.max(1, (long)(TimeUnit.SECONDS.toNanos(1) / rate.getValue()));
+				long delay = ThreadLocalRandom.current().nextLong(period);
+				tasks.add(this.senders.scheduleAtFixedRate(() -> bot.sendScripted(type), delay, period, TimeUnit.NANOSECONDS));
+			}
+		}
+
+		if(reportPeriod > 0)
+			tasks.add(this.senders.scheduleAtFixedRate(() -> reporter.accept(this.metrics.report(System.nanoTime() - start)),
+					reportPeriod, reportPeriod, TimeUnit.MILLISECONDS));
+
+		Thread.sleep(duration);
+		for(ScheduledFuture<?> task : tasks)
+			task.cancel(false);
+
+		// Attente des réponses aux dernières requêtes envoyées
+		Thread.sleep(Math.min(this.timeout, 1000));
+		reporter.accept(this.metrics.report(System.nanoTime() - start));
+	}
+
+	/**
+	 * Arrête les bots et les threads d'envoi
+	 */
+	public void stop()
+	{
+		this.senders.shutdownNow();
+		for(Bot bot : this.bots)
+			bot.stop();
+	}
+
+	/**
+	 * Obtient les statistiques de l'essaim
+	 * @return Les statistiques
+	 */
+	public SwarmMetrics getMetrics()
+	{
+		return this.metrics;
+	}
+}
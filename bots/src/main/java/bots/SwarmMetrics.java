@@ -0,0 +1,172 @@
+package bots;
+
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.Packet;
+import net.PacketType;
+import net.metrics.LatencyHistogram;
+
+/**
+ * <h1>Statistiques de l'essaim de bots</h1>
+ * <p>Requêtes envoyées, réponses reçues et latences par type de packet, enregistrées sans verrou par
+ * les threads d'envoi et de lecture de tous les bots.</p>
+ * <p>La négociation du protocole est comptabilisée comme une requête PROTOCOL_VERSION, l'authentification
+ * comme une requête CONNECT.</p>
+ */
+public class SwarmMetrics
+{
+	private static final int TYPES_COUNT = PacketType.values().length;
+
+	private LatencyHistogram[] latencies;
+	private LongAdder[] sent;
+	private LongAdder[] completed;
+	private LongAdder[] rejected;
+	private LongAdder[] timedOut;
+	private LongAdder[] failed;
+	private LongAdder connected;
+	private LongAdder connectionFailures;
+
+	public SwarmMetrics()
+	{
+		this.latencies = new LatencyHistogram[TYPES_COUNT];
+		this.sent = new LongAdder[TYPES_COUNT];
+		this.completed = new LongAdder[TYPES_COUNT];
+		this.rejected = new LongAdder[TYPES_COUNT];
+		this.timedOut = new LongAdder[TYPES_COUNT];
+		this.failed = new LongAdder[TYPES_COUNT];
+
+		for(int i = 0; i < TYPES_COUNT; i++)
+		{
+			this.latencies[i] = new LatencyHistogram();
+			this.sent[i] = new LongAdder();
+			this.completed[i] = new LongAdder();
+			this.rejected[i] = new LongAdder();
+			this.timedOut[i] = new LongAdder();
+			this.failed[i] = new LongAdder();
+		}
+
+		this.connected = new LongAdder();
+		this.connectionFailures = new LongAdder();
+	}
+
+	/**
+	 * Enregistre l'envoi d'une requête
+	 * @param type Le type de la requête
+	 */
+	public void onSent(PacketType type)
+	{
+		this.sent[type.ordinal()].increment();
+	}
+
+	/**
+	 * Enregistre la réponse à une requête
+	 * @param type Le type de la requête
+	 * @param nanos La durée entre l'envoi de la requête et la réception de la réponse
+	 * @param result La réponse du serveur
+	 */
+	public void onCompleted(PacketType type, long nanos, Packet result)
+	{
+		// Requête refusée par le serveur surchargé, sa latence ne reflète pas un traitement
+		if(result.getType() == PacketType.ERROR_RESULT)
+		{
+			this.rejected[type.ordinal()].increment();
+			return;
+		}
+
+		this.onCompleted(type, nanos);
+	}
+
+	/**
+	 * Enregistre l'aboutissement d'une requête
+	 * @param type Le type de la requête
+	 * @param nanos La durée de la requête
+	 */
+	public void onCompleted(PacketType type, long nanos)
+	{
+		this.completed[type.ordinal()].increment();
+		this.latencies[type.ordinal()].record(nanos);
+	}
+
+	/**
+	 * Enregistre l'échec d'une requête
+	 * @param type Le type de la requête
+	 * @param error La cause de l'échec
+	 */
+	public void onFailed(PacketType type, Throwable error)
+	{
+		if(error instanceof TimeoutException || error.getCause() instanceof TimeoutException)
+			this.timedOut[type.ordinal()].increment();
+		else
+			this.failed[type.ordinal()].increment();
+	}
+
+	/**
+	 * Enregistre le résultat de la connexion d'un bot
+	 * @param success True si le bot est authentifié, False dans le cas contraire
+	 */
+	public void onConnection(boolean success)
+	{
+		if(success)
+			this.connected.increment();
+		else
+			this.connectionFailures.increment();
+	}
+
+	/**
+	 * Obtient l'histogramme des latences d'un type de requête
+	 * @param type Le type de la requête
+	 * @return L'histogramme des latences, en nanosecondes
+	 */
+	public LatencyHistogram getLatencies(PacketType type)
+	{
+		return this.latencies[type.ordinal()];
+	}
+
+	/**
+	 * Obtient le nombre de bots authentifiés
+	 * @return Le nombre de bots connectés
+	 */
+	public long getConnectedCount()
+	{
+		return this.connected.sum();
+	}
+
+	/**
+	 * Obtient le nombre de bots n'ayant pas pu se connecter
+	 * @return Le nombre d'échecs de connexion
+	 */
+	public long getConnectionFailuresCount()
+	{
+		return this.connectionFailures.sum();
+	}
+
+	/**
+	 * Produit le tableau des statistiques de chaque type de requête envoyé
+	 * @param elapsedNanos La durée de la mesure, référence du débit
+	 * @return Le tableau des statistiques
+	 */
+	public String report(long elapsedNanos)
+	{
+		double seconds = Math.max(1, elapsedNanos) / 1e9;
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("Bots connectés : %d (%d échecs), mesure sur %.1f s%n",
+				this.connected.sum(), this.connectionFailures.sum(), seconds));
+		builder.append(String.format("%-24s %10s %10s %9s %9s %9s %11s %9s %9s %9s %9s%n",
+				"Type", "Envoyées", "Réponses", "Refusées", "Expirées", "Échecs", "Débit (/s)", "p50 (ms)", "p95 (ms)", "p99 (ms)", "max (ms)"));
+
+		for(PacketType type : PacketType.values())
+		{
+			int i = type.ordinal();
+			if(this.sent[i].sum() == 0)
+				continue;
+
+			LatencyHistogram latencies = this.latencies[i];
+			builder.append(String.format("%-24s %10d %10d %9d %9d %9d %11.1f %9.2f %9.2f %9.2f %9.2f%n",
+					type.name(), this.sent[i].sum(), this.completed[i].sum(), this.rejected[i].sum(), this.timedOut[i].sum(), this.failed[i].sum(),
+					this.completed[i].sum() / seconds,
+					latencies.getPercentile(50) / 1e6, latencies.getPercentile(95) / 1e6, latencies.getPercentile(99) / 1e6, latencies.getMax() / 1e6));
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,40 @@
+package program;
+
+import java.util.Map;
+
+import bots.BotSwarm;
+import net.PacketType;
+
+public class Program
+{
+	public static void main(String[] args)
+	{
+		SwarmOptions options = new SwarmOptions(args);
+		Map<PacketType, Double> rates = options.getRates();
+
+		System.out.println(String.format("Essaim de %d bots vers %s:%d, montée en charge sur %d ms, trafic %s pendant %d s",
+				options.getBotsCount(), options.getHost(), options.getPort(), options.getRampUp(), rates, options.getDuration()));
+
+		BotSwarm swarm = new BotSwarm(options.getHost(), options.getPort(), rates, options.getPayloadSize(), options.getTimeout(), options.getSendersCount());
+		swarm.setDatagramEnabled(options.isDatagramEnabled());
+		try
+		{
+			swarm.connect(options.getBotsCount(), options.getRampUp());
+			System.out.println(String.format("%d bots connectés, %d échecs",
+					swarm.getMetrics().getConnectedCount(), swarm.getMetrics().getConnectionFailuresCount()));
+
+			swarm.run(options.getDuration() * 1000L, options.getReportPeriod() * 1000L, System.out::println);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		finally
+		{
+			swarm.stop();
+		}
+
+		// Threads de lecture des bots bloqués sur leur socket, arrêtés avec la JVM
+		System.exit(0);
+	}
+}
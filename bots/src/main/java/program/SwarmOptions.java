@@ -0,0 +1,197 @@
+package program;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.PacketType;
+import net.socket.FrogClientSocket;
+
+/**
+ * <h1>Options de démarrage de l'essaim de bots</h1>
+ * <p>Options transmises en ligne de commande sous la forme <code>--clé=valeur</code></p>
+ * <ul>
+ * <li><code>--host=ADRESSE</code> : adresse du serveur de jeu (défaut : 127.0.0.1)</li>
+ * <li><code>--port=PORT</code> : port d'écoute du serveur de jeu (défaut : 5000)</li>
+ * <li><code>--bots=N</code> : nombre de clients simulés</li>
+ * <li><code>--ramp-up=MS</code> : durée sur laquelle les connexions des bots sont réparties</li>
+ * <li><code>--duration=S</code> : durée de l'envoi du trafic scripté, en secondes</li>
+ * <li><code>--rate.TYPE=N</code> : nombre de requêtes de ce type envoyées par seconde et par bot (défaut : --rate.none=10)</li>
+ * <li><code>--payload=OCTETS</code> : taille du contenu de remplissage des requêtes</li>
+ * <li><code>--timeout=MS</code> : délai d'attente de la réponse à une requête</li>
+ * <li><code>--senders=N</code> : nombre de threads d'envoi partagés par les bots (défaut : nombre de processeurs)</li>
+ * <li><code>--report=S</code> : période d'affichage des statistiques intermédiaires, en secondes (0 : aucun affichage)</li>
+ * <li><code>--datagram=true|false</code> : utilisation du canal de datagrammes proposé par le serveur (défaut : false)</li>
+ * </ul>
+ */
+public class SwarmOptions
+{
+	private static final String OPTION_PREFIX = "--";
+	private static final String RATE_PREFIX = "rate.";
+	private static final double DEFAULT_RATE = 10;
+
+	private Map<String, String> values;
+
+	public SwarmOptions(String[] args)
+	{
+		this.values = new HashMap<String, String>();
+
+		for(String arg : args)
+		{
+			int separator = arg.indexOf('=');
+			if(!arg.startsWith(OPTION_PREFIX) || separator < 0)
+			{
+				System.err.println("Option de démarrage ignorée : " + arg);
+				continue;
+			}
+
+			this.values.put(arg.substring(OPTION_PREFIX.length(), separator).toLowerCase(), arg.substring(separator + 1));
+		}
+	}
+
+	/**
+	 * Obtient l'adresse du serveur de jeu
+	 * @return L'adresse du serveur
+	 */
+	public String getHost()
+	{
+		String host = this.values.get("host");
+		return host == null ? "127.0.0.1" : host;
+	}
+
+	/**
+	 * Obtient le port d'écoute du serveur de jeu
+	 * @return Le port d'écoute
+	 */
+	public int getPort()
+	{
+		return this.getInt("port", 5000);
+	}
+
+	/**
+	 * Obtient le nombre de clients simulés
+	 * @return Le nombre de bots
+	 */
+	public int getBotsCount()
+	{
+		return Math.max(1, this.getInt("bots", 100));
+	}
+
+	/**
+	 * Obtient la durée sur laquelle les connexions des bots sont réparties
+	 * @return La durée en millisecondes
+	 */
+	public int getRampUp()
+	{
+		return Math.max(0, this.getInt("ramp-up", 1000));
+	}
+
+	/**
+	 * Obtient la durée de l'envoi du trafic scripté
+	 * @return La durée en secondes
+	 */
+	public int getDuration()
+	{
+		return Math.max(1, this.getInt("duration", 30));
+	}
+
+	/**
+	 * Obtient le trafic scripté de chaque bot
+	 * @return Le nombre de requêtes envoyées par seconde et par bot, pour chaque type de packet
+	 */
+	public Map<PacketType, Double> getRates()
+	{
+		Map<PacketType, Double> rates = new EnumMap<PacketType, Double>(PacketType.class);
+
+		for(PacketType type : PacketType.values())
+		{
+			double rate = this.getDouble(RATE_PREFIX + type.name().toLowerCase(), 0);
+			if(rate > 0)
+				rates.put(type, rate);
+		}
+
+		// Requête générique, à laquelle le serveur répond sans traitement
+		if(rates.isEmpty())
+			rates.put(PacketType.NONE, DEFAULT_RATE);
+		return rates;
+	}
+
+	/**
+	 * Obtient la taille du contenu de remplissage des requêtes
+	 * @return La taille en octets
+	 */
+	public int getPayloadSize()
+	{
+		return Math.max(0, this.getInt("payload", 32));
+	}
+
+	/**
+	 * Obtient le délai d'attente de la réponse à une requête
+	 * @return Le délai en millisecondes
+	 */
+	public int getTimeout()
+	{
+		return this.getInt("timeout", (int)FrogClientSocket.DEFAULT_REQUEST_TIMEOUT);
+	}
+
+	/**
+	 * Obtient le nombre de threads d'envoi partagés par les bots
+	 * @return Le nombre de threads d'envoi
+	 */
+	public int getSendersCount()
+	{
+		return Math.max(1, this.getInt("senders", Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Obtient la période d'affichage des statistiques intermédiaires
+	 * @return La période en secondes, 0 si aucune statistique intermédiaire n'est affichée
+	 */
+	public int getReportPeriod()
+	{
+		return Math.max(0, this.getInt("report", 5));
+	}
+
+	/**
+	 * Indique si les bots utilisent le canal de datagrammes proposé par le serveur
+	 * @return True si le canal de datagrammes est utilisé
+	 */
+	public boolean isDatagramEnabled()
+	{
+		return Boolean.parseBoolean(this.values.get("datagram"));
+	}
+
+	private int getInt(String key, int defaultValue)
+	{
+		String value = this.values.get(key);
+		if(value == null)
+			return defaultValue;
+
+		try
+		{
+			return Integer.parseInt(value);
+		}
+		catch(NumberFormatException e)
+		{
+			System.err.println(String.format("Valeur invalide pour l'option %s : %s", key, value));
+			return defaultValue;
+		}
+	}
+
+	private double getDouble(String key, double defaultValue)
+	{
+		String value = this.values.get(key);
+		if(value == null)
+			return defaultValue;
+
+		try
+		{
+			return Double.parseDouble(value);
+		}
+		catch(NumberFormatException e)
+		{
+			System.err.println(String.format("Valeur invalide pour l'option %s : %s", key, value));
+			return defaultValue;
+		}
+	}
+}
@@ -23,7 +23,7 @@ public class DesktopLauncher
 		new LwjglApplication(GameClient.getInstance(), config); // new thread
 		
 		FrogClientSocket network = new FrogClientSocket();
-		PacketSubscriber packetSubscribers = new PacketSubscriber();
+		PacketSubscriber packetSubscribers = GameClient.getInstance().getPacketQueue();
 		packetSubscribers.subscribe(PacketType.CONNECT_RESULT, new IPacketListener() 
 		{
 			public void onPacketReceived(Packet packet) 
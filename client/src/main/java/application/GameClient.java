@@ -16,6 +16,7 @@ import game.graphics.screens.effects.ShakeEffect;
 import game.graphics.screens.transitions.FadeInTransition;
 import game.graphics.screens.transitions.FadeOutTransition;
 import math.Vector2;
+import net.PacketDeliveryQueue;
 
 public class GameClient extends ApplicationAdapter implements FrogGame
 {
@@ -25,6 +26,12 @@ public class GameClient extends ApplicationAdapter implements FrogGame
 	private GameBatch batch;
 	private OrthographicCamera camera;
 	private Viewport viewport;
+	private PacketDeliveryQueue packets;
+	
+	private GameClient()
+	{
+		this.packets = new PacketDeliveryQueue();
+	}
 	
 	public static GameClient getInstance()
 	{
@@ -49,6 +56,9 @@ public class GameClient extends ApplicationAdapter implements FrogGame
 	@Override
 	public void render() 
 	{		
+		// Packets reçus distribués sur le thread de rendu, dans la limite du budget de l'image
+		this.packets.drain();
+		
 		this.camera.update();
 		ScreenManager.getCurrentScreen().update(Gdx.graphics.getDeltaTime());
 		
@@ -85,4 +95,14 @@ public class GameClient extends ApplicationAdapter implements FrogGame
 	{
 		return this.batch;
 	}
+	
+	/**
+	 * <h1>Obtient l'aiguilleur des packets distribués au jeu</h1>
+	 * <p>Ses abonnés sont notifiés par le thread de rendu, au début de chaque image</p>
+	 * @return L'aiguilleur à ajouter aux aiguilleurs de la communication avec le serveur
+	 */
+	public PacketDeliveryQueue getPacketQueue()
+	{
+		return this.packets;
+	}
 }
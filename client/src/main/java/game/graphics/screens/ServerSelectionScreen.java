@@ -1,13 +1,40 @@
 package game.graphics.screens;
 
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
 import game.FrogGame;
 import game.graphics.GameBatch;
+import net.socket.ProbeResult;
+import net.socket.ServerProbe;
 
 public class ServerSelectionScreen extends AbstractScreen 
 {
+	private List<InetSocketAddress> addresses;
+	private ServerProbe probe;
+	private Queue<ProbeResult> received;
+	private List<ProbeResult> servers;
+	
 	public ServerSelectionScreen(FrogGame game) 
+	{
+		this(game, Collections.singletonList(new InetSocketAddress("127.0.0.1", 5000)));
+	}
+	
+	/**
+	 * Constructeur de l'écran de sélection du serveur
+	 * @param game Le jeu
+	 * @param addresses Les adresses des serveurs proposés, sondés au chargement de l'écran
+	 */
+	public ServerSelectionScreen(FrogGame game, List<InetSocketAddress> addresses) 
 	{
 		super(game);
+		this.addresses = new ArrayList<InetSocketAddress>(addresses);
+		this.received = new ConcurrentLinkedQueue<ProbeResult>();
+		this.servers = new ArrayList<ProbeResult>();
 	}
 
 	@Override
@@ -20,21 +47,31 @@ public class ServerSelectionScreen extends AbstractScreen
 	@Override
 	public void update(float delta) 
 	{
-		// TODO Auto-generated method stub
+		super.update(delta);
 		
+		// Résultats transmis par les threads du sondage, classés par latence au fil de leur arrivée
+		ProbeResult result;
+		while((result = this.received.poll()) != null)
+		{
+			int index = Collections.binarySearch(this.servers, result);
+			this.servers.add(index < 0 ? -index - 1 : index, result);
+		}
 	}
 
 	@Override
 	public void load() 
 	{
-		
+		this.refresh();
 	}
 
 	@Override
 	public void unload() 
 	{
-		// TODO Auto-generated method stub
-		
+		if(this.probe != null)
+		{
+			this.probe.shutdown();
+			this.probe = null;
+		}
 	}
 
 	@Override
@@ -43,4 +80,38 @@ public class ServerSelectionScreen extends AbstractScreen
 		// TODO Auto-generated method stub
 		
 	}
+	
+	/**
+	 * Relance le sondage de l'ensemble des serveurs proposés
+	 */
+	public void refresh()
+	{
+		if(this.probe == null)
+			this.probe = new ServerProbe();
+		
+		// Nouvelle file : les résultats d'un sondage précédent encore en cours sont ignorés
+		this.received = new ConcurrentLinkedQueue<ProbeResult>();
+		this.servers.clear();
+		this.probe.probe(this.addresses, this.received::offer);
+	}
+	
+	/**
+	 * Obtient les serveurs sondés
+	 * @return Les résultats reçus, triés par disponibilité puis latence croissante
+	 */
+	public List<ProbeResult> getServers()
+	{
+		return Collections.unmodifiableList(this.servers);
+	}
+	
+	/**
+	 * Obtient le serveur utilisable de plus faible latence
+	 * @return Le meilleur serveur connu, null si aucun serveur utilisable n'a encore répondu
+	 */
+	public ProbeResult getBestServer()
+	{
+		if(this.servers.isEmpty() || !this.servers.get(0).isUsable())
+			return null;
+		return this.servers.get(0);
+	}
 }
@@ -0,0 +1,182 @@
+package concurrent;
+
+import java.nio.ByteBuffer;
+
+import net.IPacketListener;
+import net.Packet;
+import net.PacketType;
+import net.codec.DeflatePacketCodec;
+import net.codec.PacketCodec;
+import net.metrics.NetworkMetrics;
+import net.socket.ClockSync;
+import net.socket.FrogChannel;
+import utils.FrogException;
+
+/**
+ * <h1>Équivalent non bloquant de {@link ClientWorker}</h1>
+ * <p>Reçoit les packets découpés par la boucle d'évènements de la connexion et les transmet
+ * au gestionnaire de requêtes. Aucun thread n'est dédié à la connexion.</p>
+ */
+public class ChannelWorker implements IPacketListener, RequestListener, ClientConnection
+{
+	private FrogChannel channel;
+	private RequestManager manager;
+	private ProtocolHandshake handshake;
+	private boolean isHandshakeDone;
+	private volatile DatagramRoute datagramRoute;
+	private NetworkMetrics metrics;
+	private long receivedBytes;
+	private ClockSync clockSync;
+
+	public ChannelWorker(FrogChannel channel, RequestManager manager)
+	{
+		this(channel, manager, DeflatePacketCodec.DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Constructeur du gestionnaire de connexion non bloquante
+	 * @param channel La connexion prise en charge
+	 * @param manager Le gestionnaire de requêtes
+	 * @param compressionThreshold Le seuil de compression des packets en octets, négatif pour refuser la compression
+	 */
+	public ChannelWorker(FrogChannel channel, RequestManager manager, int compressionThreshold)
+	{
+		this.channel = channel;
+		this.manager = manager;
+		this.handshake = new ProtocolHandshake(compressionThreshold, manager.getSessionRegistry());
+		this.isHandshakeDone = false;
+		this.metrics = manager.getMetrics();
+		this.clockSync = new ClockSync(this::sendClockPacket);
+
+		this.channel.attach(this);
+		this.channel.setPacketListener(this);
+	}
+
+	@Override
+	public void onPacketReceived(Packet packet)
+	{
+		// Taille de la trame du packet, notifié depuis la boucle d'évènements de la connexion
+		long receivedBytes = this.channel.getReceivedBytes();
+		this.metrics.recordReceived(packet.getType(), (int)(receivedBytes - this.receivedBytes));
+		this.receivedBytes = receivedBytes;
+		
+		if(this.handshake.isAccepted())
+		{
+			// PING et PONG traités par la boucle d'évènements, hors de la file des requêtes
+			if(!this.clockSync.handle(packet))
+				this.manager.submit(packet, this);
+			return;
+		}
+		
+		// Protocole refusé, la connexion est en cours de fermeture
+		if(this.isHandshakeDone)
+			return;
+
+		try
+		{
+			this.sendPacket(this.handshake.process(packet, this));
+			this.channel.setCodec(this.handshake.getCodec());
+			this.isHandshakeDone = true;
+			
+			// Session reprise : la réplication reprend au format négocié
+			if(this.handshake.isResumed())
+				this.manager.resume(this, this.handshake.getAcknowledgedTick());
+
+			// Coupe la communication si la version du protocol de communication est invalide
+			if(!this.handshake.isAccepted())
+				this.channel.closeAfterWrite();
+			else
+				this.clockSync.start(ClockSync.DEFAULT_PERIOD);
+		}
+		catch(FrogException e)
+		{
+			e.printStackTrace();
+			this.channel.close();
+		}
+	}
+
+	@Override
+	public void onRequestExecutionFinished(Packet result)
+	{
+		// Envoi de la réponse au client
+		long start = System.nanoTime();
+		this.send(result);
+		this.metrics.recordWrite(result.getType(), System.nanoTime() - start);
+	}
+
+	@Override
+	public void send(Packet packet)
+	{
+		// Packets dont la perte est tolérée transmis par datagramme si le client a associé son canal
+		DatagramRoute route = this.datagramRoute;
+		if(route != null && packet.getType().isDropTolerant() && route.send(packet))
+			return;
+		
+		try
+		{
+			this.sendPacket(packet);
+		}
+		catch(FrogException e)
+		{
+			// Connexion fermée pendant l'exécution de la requête
+		}
+	}
+
+	@Override
+	public void sendFrame(ByteBuffer frame, PacketType type)
+	{
+		try
+		{
+			this.metrics.recordSent(type, frame.remaining());
+			this.channel.sendFrame(frame, type);
+		}
+		catch(FrogException e)
+		{
+			// Connexion fermée pendant l'envoi
+		}
+	}
+
+	@Override
+	public void setDatagramRoute(DatagramRoute route)
+	{
+		this.datagramRoute = route;
+	}
+	
+	@Override
+	public PacketCodec getCodec()
+	{
+		return this.channel.getCodec();
+	}
+
+	@Override
+	public ClockSync getClockSync()
+	{
+		return this.clockSync;
+	}
+
+	@Override
+	public boolean isOpen()
+	{
+		return this.channel.isOpen();
+	}
+	
+	private boolean sendClockPacket(Packet packet)
+	{
+		if(!this.channel.isOpen())
+			return false;
+		
+		this.send(packet);
+		return true;
+	}
+	
+	private void sendPacket(Packet packet) throws FrogException
+	{
+		if(!this.channel.isOpen())
+			throw new FrogException("Tentative d'envoi d'un packet sur une connexion fermée");
+		
+		// Encodage réalisé ici pour mesurer la taille de la trame
+		ByteBuffer frame = this.channel.getCodec().encode(packet);
+		this.metrics.recordSent(packet.getType(), frame.remaining());
+		this.channel.sendFrame(frame, packet.getType());
+	}
+}
@@ -0,0 +1,53 @@
+package concurrent;
+
+import java.nio.ByteBuffer;
+
+import net.Packet;
+import net.PacketType;
+import net.codec.PacketCodec;
+import net.socket.ClockSync;
+
+/**
+ * <h1>Connexion cliente côté serveur</h1>
+ * <p>Permet aux traitements du serveur (réplication, diffusion...) d'envoyer des packets
+ * à un client indépendamment du mode d'entrée/sortie réseau utilisé.</p>
+ */
+public interface ClientConnection
+{
+	/**
+	 * Envoie un packet au client, le packet est ignoré si la connexion est fermée
+	 * @param packet Le packet à envoyer
+	 */
+	void send(Packet packet);
+	
+	/**
+	 * Envoie une trame déjà encodée au format de la connexion, sans copie lorsque le mode d'entrée/sortie le permet
+	 * @param frame La trame à envoyer, partageable entre plusieurs connexions
+	 * @param type Le type du packet contenu dans la trame
+	 */
+	void sendFrame(ByteBuffer frame, PacketType type);
+	
+	/**
+	 * Met à jour la route de datagrammes de la connexion, empruntée par les packets dont la perte est tolérée
+	 * @param route La route de datagrammes, null pour tout envoyer par la connexion
+	 */
+	void setDatagramRoute(DatagramRoute route);
+	
+	/**
+	 * Obtient le format de transport négocié de la connexion
+	 * @return Le format de transport courant
+	 */
+	PacketCodec getCodec();
+	
+	/**
+	 * Obtient les estimations de latence et de décalage d'horloge avec le client, mesurées une fois le protocole négocié
+	 * @return L'estimateur de la connexion
+	 */
+	ClockSync getClockSync();
+	
+	/**
+	 * Obtient l'état de la connexion
+	 * @return True si la connexion est ouverte, False dans le cas contraire
+	 */
+	boolean isOpen();
+}
@@ -1,58 +1,76 @@
 package concurrent;
 
-import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
 import java.net.Socket;
-import java.net.SocketException;
-
-import org.json.JSONObject;
+import java.nio.ByteBuffer;
 
 import net.Packet;
 import net.PacketType;
+import net.codec.DeflatePacketCodec;
+import net.codec.FrameInputStream;
+import net.codec.PacketCodec;
+import net.codec.PacketCodecs;
+import net.metrics.NetworkMetrics;
+import net.socket.ClockSync;
+import net.socket.FlushPolicy;
 import net.socket.FrogServerSocket;
+import net.socket.OutboundBuffer;
 import utils.FrogException;
 
-public class ClientWorker implements Runnable, RequestListener
+public class ClientWorker implements Runnable, RequestListener, ClientConnection
 {
 	private FrogServerSocket server;
 	private Socket socket;
 	private RequestManager manager;
-	private BufferedReader in;
-	private PrintWriter out;
+	private FrameInputStream in;
+	private OutboundBuffer out;
+	private volatile PacketCodec codec;
+	private int compressionThreshold;
+	private volatile DatagramRoute datagramRoute;
+	private NetworkMetrics metrics;
+	private ClockSync clockSync;
 	
 	public ClientWorker(FrogServerSocket server, Socket socket, RequestManager manager) throws IOException
+	{
+		this(server, socket, manager, new FlushPolicy(), DeflatePacketCodec.DEFAULT_THRESHOLD);
+	}
+	
+	public ClientWorker(FrogServerSocket server, Socket socket, RequestManager manager, FlushPolicy flushPolicy, int compressionThreshold) throws IOException
 	{
 		this.server = server;
+		this.compressionThreshold = compressionThreshold;
 		this.socket = socket;
 		this.manager = manager;
+		this.metrics = manager.getMetrics();
+		this.clockSync = new ClockSync(this::sendClockPacket);
 		
 		// Création des objets de communication
-		this.out = new PrintWriter(socket.getOutputStream(), true);
-		this.in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+		this.out = new OutboundBuffer(socket.getOutputStream(), flushPolicy, socket);
+		this.in = new FrameInputStream(socket.getInputStream());
+		
+		// Format de la négociation du protocole
+		this.codec = PacketCodecs.JSON;
 	}
 	
 	private boolean isProtocolVersionValid() throws FrogException, IOException
 	{
 		// Coupe la communication si la version du protocol de communication est invalide
-		Packet firstPacket = Packet.getPacket(this.in.readLine());
-		
-		if(firstPacket.getType() != PacketType.PROTOCOL_VERSION)
-			throw new FrogException("Premier packet reçu incorrect");
+		Packet firstPacket = this.readPacket();
 		
-		String packetJSON = firstPacket.getSerializedObject();
-		JSONObject receivedObj = new JSONObject(packetJSON);
-		String version = receivedObj.getString("version");
+		ProtocolHandshake handshake = new ProtocolHandshake(this.compressionThreshold, this.manager.getSessionRegistry());
+		Packet packetResult = handshake.process(firstPacket, this);
+		this.sendPacket(packetResult);
 		
-		boolean result = version.equals(FrogServerSocket.PROTOCOL_VERSION);
+		// Le client n'utilise le format négocié qu'après réception de la réponse
+		this.codec = handshake.getCodec();
+		this.out.setCodec(this.codec);
 		
-		JSONObject obj = new JSONObject();
-		obj.put("result", result);
-		Packet packetResult = new Packet(PacketType.PROTOCOL_VERSION_RESULT, obj.toString());
-		this.out.println(packetResult.toJSON());
+		// Session reprise : la réplication reprend au format négocié
+		if(handshake.isResumed())
+			this.manager.resume(this, handshake.getAcknowledgedTick());
 
-		return result;
+		return handshake.isAccepted();
 	}
 	
 	@Override
@@ -65,12 +83,17 @@ public class ClientWorker implements Runnable, RequestListener
 			if(!isProtocolVersionValid())
 				throw new FrogException("Mauvaise version du protocol de communication");
 			
+			// Mesure de la latence au format négocié
+			this.clockSync.start(ClockSync.DEFAULT_PERIOD);
+			
 			while(this.socket.isConnected() && !this.socket.isClosed() && this.server.isRunning())
 			{
 				try 
 				{
-					String str = this.in.readLine();
-					this.manager.submit(Packet.getPacket(str), this);
+					// PING et PONG traités par le thread de lecture, hors de la file des requêtes
+					Packet packet = this.readPacket();
+					if(!this.clockSync.handle(packet))
+						this.manager.submit(packet, this);
 				} 
 				catch (FrogException e) 
 				{
@@ -90,9 +113,12 @@ public class ClientWorker implements Runnable, RequestListener
 		finally
 		{
 			try { this.socket.close(); } catch (IOException ex) { ex.printStackTrace(); }
+			this.clockSync.stop();
+			this.codec.close();
+			this.manager.onConnectionClosed(this);
 			
 			// Socket closed
-			System.out.println(String.format("Client %s déconnecté %s", this.socket.getInetAddress(), reason));
+			System.out.println(String.format("Client %s déconnecté %s, %s", this.socket.getInetAddress(), reason, this.clockSync));
 		}
 	}
 
@@ -100,6 +126,92 @@ public class ClientWorker implements Runnable, RequestListener
 	public void onRequestExecutionFinished(Packet result) 
 	{
 		// Envoi de la réponse au client
-		this.out.println(result.toJSON());
+		long start = System.nanoTime();
+		this.send(result);
+		this.metrics.recordWrite(result.getType(), System.nanoTime() - start);
+	}
+	
+	@Override
+	public void send(Packet packet)
+	{
+		// Packets dont la perte est tolérée transmis par datagramme si le client a associé son canal
+		DatagramRoute route = this.datagramRoute;
+		if(route != null && packet.getType().isDropTolerant() && route.send(packet))
+			return;
+		
+		try
+		{
+			this.sendPacket(packet);
+		}
+		catch(IOException e)
+		{
+			// Communication fermée pendant l'exécution de la requête
+		}
+	}
+	
+	@Override
+	public void sendFrame(ByteBuffer frame, PacketType type)
+	{
+		try
+		{
+			this.metrics.recordSent(type, frame.remaining());
+			this.out.sendFrame(frame, type);
+		}
+		catch(IOException e)
+		{
+			// Communication fermée pendant l'envoi
+		}
+	}
+	
+	@Override
+	public void setDatagramRoute(DatagramRoute route)
+	{
+		this.datagramRoute = route;
+	}
+	
+	@Override
+	public PacketCodec getCodec()
+	{
+		return this.codec;
+	}
+	
+	@Override
+	public ClockSync getClockSync()
+	{
+		return this.clockSync;
+	}
+	
+	@Override
+	public boolean isOpen()
+	{
+		return !this.socket.isClosed();
+	}
+	
+	private Packet readPacket() throws IOException, FrogException
+	{
+		long position = this.in.getBytesRead();
+		Packet packet = this.codec.read(this.in);
+		if(packet == null)
+			throw new EOFException();
+		
+		this.metrics.recordReceived(packet.getType(), (int)(this.in.getBytesRead() - position));
+		return packet;
+	}
+	
+	private boolean sendClockPacket(Packet packet)
+	{
+		if(!this.isOpen())
+			return false;
+		
+		this.send(packet);
+		return true;
+	}
+	
+	private void sendPacket(Packet packet) throws IOException
+	{
+		// Encodage réalisé ici pour mesurer la taille de la trame
+		ByteBuffer frame = this.codec.encode(packet);
+		this.metrics.recordSent(packet.getType(), frame.remaining());
+		this.out.sendFrame(frame, packet.getType());
 	}
 }
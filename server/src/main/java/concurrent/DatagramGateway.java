@@ -0,0 +1,277 @@
+package concurrent;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import net.Packet;
+import net.PacketType;
+import net.codec.DatagramCodec;
+import net.socket.FrogDatagramSocket;
+import session.Session;
+import session.SessionRegistry;
+import utils.FrogException;
+
+/**
+ * <h1>Passerelle de datagrammes du serveur</h1>
+ * <p>Canal non fiable partagé par toutes les sessions, utilisé pour les packets dont la perte est tolérée.
+ * Un client associe son canal à sa session en envoyant un datagramme CONNECT contenant son token, confirmé
+ * par un datagramme CONNECT_RESULT. Les packets de ce type envoyés ensuite à sa connexion sont transmis
+ * par datagramme (voir {@link DatagramRoute}).</p>
+ * <p>Les datagrammes reçus d'un client associé sont soumis au gestionnaire de requêtes comme les packets de
+ * sa connexion, après élimination des datagrammes obsolètes. Seuls les packets dont la perte est tolérée sont
+ * acceptés, les autres devant emprunter la connexion fiable.</p>
+ * <p>Une demande d'association dont le token est inconnu reste sans réponse : l'adresse source d'un datagramme
+ * pouvant être usurpée, le serveur ne répond qu'aux clients authentifiés.</p>
+ */
+public class DatagramGateway extends Thread
+{
+	private DatagramSocket socket;
+	private SessionRegistry sessions;
+	private RequestManager manager;
+	private Map<InetSocketAddress, Session> bindings;
+	private ReentrantLock sendLock;
+	private byte[] sendBuffer;
+	private DatagramPacket sendDatagram;
+	private LongAdder sent;
+	private LongAdder received;
+	private LongAdder dropped;
+	private volatile boolean isRunning;
+
+	/**
+	 * Constructeur de la passerelle de datagrammes
+	 * @param port Le port d'écoute des datagrammes, 0 pour un port attribué par le système
+	 * @param sessions Le registre des sessions, auquel le port d'écoute est communiqué
+	 * @param manager Le gestionnaire des requêtes reçues par datagramme
+	 * @throws FrogException Exception jetée si le port ne peut pas être ouvert
+	 */
+	public DatagramGateway(int port, SessionRegistry sessions, RequestManager manager) throws FrogException
+	{
+		super("DatagramGateway");
+		this.setDaemon(true);
+
+		try
+		{
+			this.socket = new DatagramSocket(port);
+		}
+		catch(SocketException e)
+		{
+			throw new FrogException("Impossible d'ouvrir le canal de datagrammes : " + e.getMessage());
+		}
+
+		this.sessions = sessions;
+		this.manager = manager;
+		this.bindings = new ConcurrentHashMap<InetSocketAddress, Session>();
+		this.sendLock = new ReentrantLock();
+		this.sendBuffer = new byte[DatagramCodec.MAX_DATAGRAM_SIZE];
+		this.sendDatagram = new DatagramPacket(this.sendBuffer, 0);
+		this.sent = new LongAdder();
+		this.received = new LongAdder();
+		this.dropped = new LongAdder();
+	}
+
+	@Override
+	public synchronized void start()
+	{
+		this.isRunning = true;
+		this.sessions.setDatagramPort(this.getPort());
+		super.start();
+	}
+
+	@Override
+	public void run()
+	{
+		byte[] buffer = new byte[DatagramCodec.MAX_DATAGRAM_SIZE];
+		DatagramPacket datagram = new DatagramPacket(buffer, buffer.length);
+
+		while(this.isRunning)
+		{
+			try
+			{
+				datagram.setLength(buffer.length);
+				this.socket.receive(datagram);
+				this.received.increment();
+				this.handle(datagram);
+			}
+			catch(FrogException e)
+			{
+				// Datagramme invalide ignoré
+				this.dropped.increment();
+			}
+			catch(IOException e)
+			{
+				// Canal fermé par stopGateway
+				if(this.isRunning)
+					e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Ferme le canal de datagrammes, les packets suivants sont envoyés par les connexions fiables
+	 */
+	public void stopGateway()
+	{
+		this.isRunning = false;
+		this.sessions.setDatagramPort(-1);
+		this.socket.close();
+	}
+
+	/**
+	 * Envoie un packet par datagramme au client d'une session
+	 * @param session La session du client, dont le canal de datagrammes est associé
+	 * @param packet Le packet à envoyer
+	 * @return True si le packet a été envoyé, False s'il doit être envoyé par la connexion fiable
+	 */
+	public boolean send(Session session, Packet packet)
+	{
+		InetSocketAddress address = session.getDatagramAddress();
+		if(address == null || !this.isRunning)
+			return false;
+
+		this.sendLock.lock();
+		try
+		{
+			int length = DatagramCodec.encode(packet, session.nextDatagramSequence(), this.sendBuffer);
+			if(length < 0)
+				return false;
+
+			this.sendDatagram.setLength(length);
+			this.sendDatagram.setSocketAddress(address);
+			this.socket.send(this.sendDatagram);
+			this.sent.increment();
+			this.manager.getMetrics().recordSent(packet.getType(), length);
+			return true;
+		}
+		catch(IOException e)
+		{
+			return false;
+		}
+		finally
+		{
+			this.sendLock.unlock();
+		}
+	}
+
+	/**
+	 * Obtient le port d'écoute des datagrammes
+	 * @return Le port d'écoute
+	 */
+	public int getPort()
+	{
+		return this.socket.getLocalPort();
+	}
+
+	/**
+	 * Obtient le nombre de clients dont le canal de datagrammes est associé
+	 * @return Le nombre de canaux associés
+	 */
+	public int getBindingsCount()
+	{
+		return this.bindings.size();
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%d datagrammes envoyés, %d reçus, %d ignorés, %d canaux associés",
+				this.sent.sum(), this.received.sum(), this.dropped.sum(), this.bindings.size());
+	}
+
+	private void handle(DatagramPacket datagram) throws FrogException
+	{
+		byte[] data = datagram.getData();
+		int length = datagram.getLength();
+		PacketType type = DatagramCodec.getType(data, length);
+		this.manager.getMetrics().recordReceived(type, length);
+
+		if(type == PacketType.CONNECT)
+		{
+			this.bind((InetSocketAddress)datagram.getSocketAddress(), DatagramCodec.decode(data, length));
+			return;
+		}
+
+		// Packets fiables (déconnexion...) ou bloquant la passerelle lorsque leur partition est pleine
+		if(!type.isDropTolerant())
+		{
+			this.dropped.increment();
+			return;
+		}
+
+		Session session = this.bindings.get(datagram.getSocketAddress());
+		if(session == null)
+		{
+			this.dropped.increment();
+			return;
+		}
+
+		if(!session.isOpen())
+		{
+			this.bindings.remove(datagram.getSocketAddress(), session);
+			this.dropped.increment();
+			return;
+		}
+
+		if(!session.getDatagramFilter().accept(type, DatagramCodec.getSequence(data, length)))
+		{
+			this.dropped.increment();
+			return;
+		}
+
+		ClientConnection connection = session.getConnection();
+		this.manager.submit(DatagramCodec.decode(data, length), connection instanceof RequestListener ? (RequestListener)connection : null);
+	}
+
+	private void bind(InetSocketAddress address, Packet request)
+	{
+		Session session = null;
+		try
+		{
+			session = this.sessions.get(new JSONObject(request.getSerializedObject()).optString(FrogDatagramSocket.TOKEN_KEY, null));
+		}
+		catch(JSONException e)
+		{
+			// Token absent, association refusée
+		}
+
+		// Aucune réponse à une adresse non authentifiée, éventuellement usurpée
+		if(session == null)
+		{
+			this.dropped.increment();
+			return;
+		}
+
+		JSONObject obj = new JSONObject();
+		obj.put("result", true);
+		Packet result = new Packet(PacketType.CONNECT_RESULT, obj.toString());
+
+		// Canaux des sessions fermées et canal précédent de la session (session reprise) retirés à chaque nouvelle association,
+		// les datagrammes CONNECT répétés par le client avant la confirmation sont confirmés de nouveau
+		Session bound = session;
+		this.bindings.values().removeIf(other -> other == bound || !other.isOpen());
+
+		// Numéros de séquence d'un nouveau canal réinitialisés hors de tout envoi en cours
+		this.sendLock.lock();
+		try
+		{
+			session.bindDatagram(address);
+		}
+		finally
+		{
+			this.sendLock.unlock();
+		}
+		this.bindings.put(address, session);
+
+		session.getConnection().setDatagramRoute(packet -> this.send(bound, packet));
+		this.send(session, result);
+	}
+}
@@ -0,0 +1,18 @@
+package concurrent;
+
+import net.Packet;
+
+/**
+ * <h1>Route de datagrammes d'une connexion cliente</h1>
+ * <p>Transmet hors de la connexion fiable les packets dont la perte est tolérée
+ * (voir {@link net.PacketType#isDropTolerant()}).</p>
+ */
+public interface DatagramRoute
+{
+	/**
+	 * Envoie un packet par datagramme
+	 * @param packet Le packet à envoyer
+	 * @return True si le packet a été envoyé, False s'il doit être envoyé par la connexion fiable
+	 */
+	boolean send(Packet packet);
+}
@@ -6,11 +6,13 @@ public class FrogTask
 {
 	private Packet packet;
 	private RequestListener callback;
+	private long submittedAt;
 	
 	public FrogTask(Packet packet, RequestListener callback)
 	{
 		this.packet = packet;
 		this.callback = callback;
+		this.submittedAt = System.nanoTime();
 	}
 	
 	public Packet getPacket()
@@ -22,4 +24,13 @@ public class FrogTask
 	{
 		return this.callback;
 	}
+	
+	/**
+	 * Obtient l'instant de soumission de la tâche, origine de sa durée d'attente
+	 * @return L'instant de soumission, au sens de {@link System#nanoTime()}
+	 */
+	public long getSubmittedAt()
+	{
+		return this.submittedAt;
+	}
 }
@@ -0,0 +1,22 @@
+package concurrent;
+
+/**
+ * <h1>Comportement d'une file de requêtes pleine</h1>
+ */
+public enum OverflowPolicy
+{
+	/**
+	 * Bloque le thread de lecture de la connexion jusqu'à libération d'une place.
+	 * En mode selector, l'ensemble des connexions de la boucle d'évènements est suspendu.
+	 */
+	BLOCK,
+	/**
+	 * Supprime la plus ancienne requête en attente de même politique et de la même connexion, puis ajoute
+	 * la nouvelle requête. La nouvelle requête est supprimée si aucune requête en attente ne peut l'être.
+	 */
+	DROP_OLDEST,
+	/**
+	 * Refuse la nouvelle requête, le client reçoit un packet ERROR_RESULT
+	 */
+	REJECT
+}
@@ -0,0 +1,184 @@
+package concurrent;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import net.Packet;
+import net.PacketType;
+import net.codec.PacketCodec;
+import net.codec.DeflatePacketCodec;
+import net.codec.PacketCodecs;
+import net.replication.Snapshot;
+import net.socket.FrogClientSocket;
+import net.socket.FrogDatagramSocket;
+import net.socket.FrogServerSocket;
+import session.Session;
+import session.SessionRegistry;
+import utils.FrogException;
+
+/**
+ * <h1>Négociation du protocole de communication</h1>
+ * <p>Traite le premier packet d'une connexion cliente, quel que soit le mode d'entrée/sortie du serveur</p>
+ * <p>Un client déconnecté peut joindre à ce packet le token de sa session et le dernier état répliqué
+ * qu'il a acquitté : la session est alors reprise dans la réponse, sans nouvelle authentification.</p>
+ */
+public class ProtocolHandshake
+{
+	private boolean accepted;
+	private PacketCodec codec;
+	private int compressionThreshold;
+	private SessionRegistry sessions;
+	private Session session;
+	private long acknowledgedTick;
+
+	public ProtocolHandshake()
+	{
+		this(DeflatePacketCodec.DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Constructeur de la négociation du protocole
+	 * @param compressionThreshold Le seuil de compression des packets en octets, négatif pour refuser la compression
+	 */
+	public ProtocolHandshake(int compressionThreshold)
+	{
+		this(compressionThreshold, null);
+	}
+
+	/**
+	 * Constructeur de la négociation du protocole
+	 * @param compressionThreshold Le seuil de compression des packets en octets, négatif pour refuser la compression
+	 * @param sessions Le registre des sessions pouvant être reprises, null pour refuser toute reprise
+	 */
+	public ProtocolHandshake(int compressionThreshold, SessionRegistry sessions)
+	{
+		this.accepted = false;
+		this.codec = PacketCodecs.JSON;
+		this.compressionThreshold = compressionThreshold;
+		this.sessions = sessions;
+		this.acknowledgedTick = Snapshot.NO_BASELINE;
+	}
+
+	/**
+	 * Traite le premier packet reçu et produit la réponse à envoyer au client
+	 * @param firstPacket Le premier packet reçu
+	 * @return Le packet de réponse PROTOCOL_VERSION_RESULT
+	 * @throws FrogException Exception jetée si le premier packet n'est pas un packet PROTOCOL_VERSION valide
+	 */
+	public Packet process(Packet firstPacket) throws FrogException
+	{
+		return this.process(firstPacket, null);
+	}
+
+	/**
+	 * Traite le premier packet reçu et produit la réponse à envoyer au client, en reprenant sa session si demandé
+	 * @param firstPacket Le premier packet reçu
+	 * @param connection La connexion du client, à laquelle la session reprise est rattachée
+	 * @return Le packet de réponse PROTOCOL_VERSION_RESULT
+	 * @throws FrogException Exception jetée si le premier packet n'est pas un packet PROTOCOL_VERSION valide
+	 */
+	public Packet process(Packet firstPacket, ClientConnection connection) throws FrogException
+	{
+		if(firstPacket.getType() != PacketType.PROTOCOL_VERSION)
+			throw new FrogException("Premier packet reçu incorrect");
+
+		JSONObject receivedObj;
+		String version;
+		try
+		{
+			receivedObj = new JSONObject(firstPacket.getSerializedObject());
+			version = receivedObj.getString("version");
+		}
+		catch(JSONException e)
+		{
+			throw new FrogException("Premier packet reçu invalide : " + e.getMessage());
+		}
+
+		this.accepted = version.equals(FrogServerSocket.PROTOCOL_VERSION);
+
+		JSONObject obj = new JSONObject();
+		obj.put("result", this.accepted);
+		
+		if(this.accepted)
+		{
+			// Les clients ne proposant aucun format conservent le format JSON
+			this.codec = PacketCodecs.negotiate(receivedObj.optJSONArray(PacketCodecs.CODECS_KEY));
+			obj.put(PacketCodecs.CODEC_KEY, this.codec.getName());
+			
+			// Instance propre à la connexion si la compression est retenue
+			this.codec = PacketCodecs.negotiateCompression(this.codec, receivedObj.optJSONArray(PacketCodecs.COMPRESSIONS_KEY), this.compressionThreshold);
+			if(this.codec instanceof DeflatePacketCodec)
+			{
+				obj.put(PacketCodecs.COMPRESSION_KEY, DeflatePacketCodec.COMPRESSION);
+				obj.put(PacketCodecs.COMPRESSION_THRESHOLD_KEY, this.compressionThreshold);
+			}
+			
+			String token = receivedObj.optString(FrogDatagramSocket.TOKEN_KEY, null);
+			if(token != null)
+				this.resume(token, receivedObj.optLong(Snapshot.ACK_KEY, Snapshot.NO_BASELINE), connection, obj);
+		}
+		
+		return new Packet(PacketType.PROTOCOL_VERSION_RESULT, obj.toString());
+	}
+
+	/**
+	 * Obtient le format de transport retenu, à utiliser après l'envoi de la réponse
+	 * @return Le format de transport négocié
+	 */
+	public PacketCodec getCodec()
+	{
+		return this.codec;
+	}
+
+	/**
+	 * Indique si la session du client a été reprise
+	 * @return True si le client est authentifié par la reprise de sa session
+	 */
+	public boolean isResumed()
+	{
+		return this.session != null;
+	}
+
+	/**
+	 * Obtient la session reprise par le client
+	 * @return La session reprise, null si aucune session n'a été reprise
+	 */
+	public Session getSession()
+	{
+		return this.session;
+	}
+
+	/**
+	 * Obtient le dernier état répliqué acquitté par le client avant sa déconnexion
+	 * @return Le cycle acquitté, {@link Snapshot#NO_BASELINE} si le client n'a rien acquitté
+	 */
+	public long getAcknowledgedTick()
+	{
+		return this.acknowledgedTick;
+	}
+
+	/**
+	 * Obtient le résultat de la négociation
+	 * @return True si la version du protocole du client est acceptée, False dans le cas contraire
+	 */
+	public boolean isAccepted()
+	{
+		return this.accepted;
+	}
+
+	private void resume(String token, long acknowledgedTick, ClientConnection connection, JSONObject result)
+	{
+		if(this.sessions != null && connection != null)
+			this.session = this.sessions.resume(token, connection);
+		
+		// Session inconnue ou expirée : le client doit s'authentifier de nouveau
+		result.put(FrogClientSocket.RESUMED_KEY, this.session != null);
+		if(this.session == null)
+			return;
+		
+		this.acknowledgedTick = acknowledgedTick;
+		int datagramPort = this.sessions.getDatagramPort();
+		if(datagramPort > 0)
+			result.put(FrogDatagramSocket.PORT_KEY, datagramPort);
+	}
+}
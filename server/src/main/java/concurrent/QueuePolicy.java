@@ -0,0 +1,72 @@
+package concurrent;
+
+import net.PacketType;
+
+/**
+ * <h1>Politique des files de requêtes</h1>
+ * <p>Définit la capacité de chaque partition du {@link RequestManager} ainsi que le comportement
+ * à adopter, pour chaque type de packet, lorsque la partition est pleine.</p>
+ */
+public class QueuePolicy
+{
+	public static final int DEFAULT_CAPACITY = 10000;
+	
+	private int capacity;
+	private OverflowPolicy[] overflowPolicies;
+	
+	/**
+	 * Constructeur de la politique par défaut
+	 */
+	public QueuePolicy()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Constructeur de politique de files de requêtes
+	 * <p>Par défaut, les requêtes de connexion bloquent, les synchronisations d'état
+	 * remplacent les plus anciennes et les autres requêtes sont refusées.</p>
+	 * @param capacity La capacité de chaque partition
+	 */
+	public QueuePolicy(int capacity)
+	{
+		this.capacity = Math.max(1, capacity);
+		this.overflowPolicies = new OverflowPolicy[PacketType.values().length];
+		
+		for(int i = 0; i < this.overflowPolicies.length; i++)
+			this.overflowPolicies[i] = OverflowPolicy.REJECT;
+		
+		this.setOverflowPolicy(PacketType.CONNECT, OverflowPolicy.BLOCK);
+		this.setOverflowPolicy(PacketType.DISCONNECT, OverflowPolicy.BLOCK);
+		this.setOverflowPolicy(PacketType.SYNC, OverflowPolicy.DROP_OLDEST);
+	}
+	
+	/**
+	 * Met à jour le comportement adopté pour un type de packet lorsque la partition est pleine
+	 * @param type Le type de packet
+	 * @param policy Le nouveau comportement
+	 */
+	public void setOverflowPolicy(PacketType type, OverflowPolicy policy)
+	{
+		this.overflowPolicies[type.ordinal()] = policy;
+	}
+	
+	/**
+	 * Obtient le comportement adopté pour un type de packet lorsque la partition est pleine
+	 * @param type Le type de packet
+	 * @return Le comportement associé au type
+	 */
+	public OverflowPolicy getOverflowPolicy(PacketType type)
+	{
+		return this.overflowPolicies[type.ordinal()];
+	}
+	
+	/**
+	 * Obtient la capacité de chaque partition
+	 * @return La capacité d'une partition
+	 */
+	public int getCapacity()
+	{
+		return this.capacity;
+	}
+}
@@ -2,21 +2,92 @@ package concurrent;
 
 import java.util.concurrent.BlockingQueue;
 
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import net.Packet;
 import net.PacketType;
+import net.metrics.NetworkMetrics;
+import net.replication.Snapshot;
+import net.socket.FrogDatagramSocket;
 import net.socket.FrogServerSocket;
+import replication.ChunkTransfer;
+import replication.InterestManager;
+import replication.ReplicationStage;
+import session.Session;
+import session.SessionRegistry;
 
 public class RequestExecutor extends Thread
 {
+	/**
+	 * Clé de l'identifiant public du joueur, dans la réponse CONNECT_RESULT et les déplacements diffusés
+	 */
+	public static final String PLAYER_KEY = "player";
+
 	private FrogServerSocket server;
 	private BlockingQueue<FrogTask> queue;
+	private SessionRegistry sessions;
+	private NetworkMetrics metrics;
+	private volatile ReplicationStage replication;
+	private volatile InterestManager interest;
+	private volatile ChunkTransfer chunkTransfer;
 
 	public RequestExecutor(FrogServerSocket server, BlockingQueue<FrogTask> queue)
+	{
+		this(server, queue, new SessionRegistry());
+	}
+
+	/**
+	 * Constructeur de l'exécuteur de requêtes
+	 * @param server Le serveur de jeu
+	 * @param queue La file des requêtes à exécuter
+	 * @param sessions Le registre des sessions ouvertes par les requêtes d'authentification
+	 */
+	public RequestExecutor(FrogServerSocket server, BlockingQueue<FrogTask> queue, SessionRegistry sessions)
+	{
+		this(server, queue, sessions, new NetworkMetrics());
+	}
+
+	/**
+	 * Constructeur de l'exécuteur de requêtes
+	 * @param server Le serveur de jeu
+	 * @param queue La file des requêtes à exécuter
+	 * @param sessions Le registre des sessions ouvertes par les requêtes d'authentification
+	 * @param metrics Le registre des durées d'attente et d'exécution des requêtes
+	 */
+	public RequestExecutor(FrogServerSocket server, BlockingQueue<FrogTask> queue, SessionRegistry sessions, NetworkMetrics metrics)
 	{
 		this.server = server;
 		this.queue = queue;
+		this.sessions = sessions;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Met à jour l'étape de réplication alimentée par les requêtes exécutées
+	 * @param replication L'étape de réplication, null pour désactiver la réplication
+	 */
+	public void setReplicationStage(ReplicationStage replication)
+	{
+		this.replication = replication;
+	}
+
+	/**
+	 * Met à jour le gestionnaire des zones d'intérêt alimenté par les déplacements des joueurs
+	 * @param interest Le gestionnaire des zones d'intérêt, null pour ignorer les déplacements
+	 */
+	public void setInterestManager(InterestManager interest)
+	{
+		this.interest = interest;
+	}
+
+	/**
+	 * Met à jour le transfert des chunks envoyés aux joueurs entrant dans un nouveau chunk
+	 * @param chunkTransfer Le transfert des chunks, null si aucune carte n'est chargée
+	 */
+	public void setChunkTransfer(ChunkTransfer chunkTransfer)
+	{
+		this.chunkTransfer = chunkTransfer;
 	}
 
 	@Override
@@ -30,6 +101,27 @@ public class RequestExecutor extends Thread
 				FrogTask task = this.queue.take();
 				// Extrait la requête associée
 				Packet packet = task.getPacket();
+				// Extrait le callback de la requête
+				RequestListener callback = task.getCallback();
+				
+				long startedAt = System.nanoTime();
+				this.metrics.recordQueueWait(packet.getType(), startedAt - task.getSubmittedAt());
+				
+				// Acquittement d'un état répliqué, aucune réponse attendue
+				if(packet.getType() == PacketType.SYNC)
+				{
+					this.acknowledge(packet, callback);
+					this.metrics.recordExecution(packet.getType(), System.nanoTime() - startedAt);
+					continue;
+				}
+				
+				// Déplacement d'un joueur, diffusé aux seuls joueurs proches, aucune réponse attendue
+				if(packet.getType() == PacketType.UPDATE_MOVEMENT_RESULT)
+				{
+					this.move(packet, callback);
+					this.metrics.recordExecution(packet.getType(), System.nanoTime() - startedAt);
+					continue;
+				}
 				
 				JSONObject obj = new JSONObject();
 				PacketType resultType = PacketType.NONE;
@@ -41,7 +133,7 @@ public class RequestExecutor extends Thread
 						System.out.println("CONNECT : Do something with DB : " + packet.getSerializedObject());
 						// if account OK
 						obj.put("result", true);
-						obj.put("token", "GENERATEDTOKEN1234567890");
+						this.openSession(obj, callback);
 						// else
 						// obj.put("result", false);
 						resultType = PacketType.CONNECT_RESULT;
@@ -52,11 +144,20 @@ public class RequestExecutor extends Thread
 				}
 				
 				Packet packetResult = new Packet(resultType, obj.toString()); // Resultat de l'execution
+				packetResult.setRequestId(packet.getRequestId()); // Corrélation avec la requête du client
 				
-				// Extrait le callback de la requête
-				RequestListener callback = task.getCallback();
+				// Écriture de la réponse mesurée par la connexion
+				this.metrics.recordExecution(packet.getType(), System.nanoTime() - startedAt);
 				if(callback != null)
 					callback.onRequestExecutionFinished(packetResult);
+				
+				// Le client authentifié reçoit l'état de jeu à partir du prochain cycle de réplication
+				if(resultType == PacketType.CONNECT_RESULT && obj.getBoolean("result"))
+				{
+					ReplicationStage replication = this.replication;
+					if(replication != null && callback instanceof ClientConnection)
+						replication.addClient((ClientConnection)callback);
+				}
 			}
 			catch (InterruptedException e)
 			{
@@ -64,4 +165,79 @@ public class RequestExecutor extends Thread
 			}
 		}
 	}
+
+	private void openSession(JSONObject result, RequestListener callback)
+	{
+		if(!(callback instanceof ClientConnection))
+			return;
+		
+		// Token de session permettant au client d'associer son canal de datagrammes, identifiant public du joueur
+		Session session = this.sessions.open((ClientConnection)callback);
+		result.put(FrogDatagramSocket.TOKEN_KEY, session.getToken());
+		result.put(PLAYER_KEY, session.getId());
+		int datagramPort = this.sessions.getDatagramPort();
+		if(datagramPort > 0)
+			result.put(FrogDatagramSocket.PORT_KEY, datagramPort);
+	}
+
+	private void move(Packet packet, RequestListener callback)
+	{
+		InterestManager interest = this.interest;
+		if(interest == null || !(callback instanceof ClientConnection))
+			return;
+		
+		try
+		{
+			JSONObject obj = new JSONObject(packet.getSerializedObject());
+			int x = obj.getInt("x"), y = obj.getInt("y");
+			ClientConnection client = (ClientConnection)callback;
+			Session session = this.sessions.get(client);
+			if(session == null)
+			{
+				System.err.println("Déplacement d'un client non authentifié ignoré");
+				return;
+			}
+			
+			ChunkTransfer chunkTransfer = this.chunkTransfer;
+			if(interest.updatePosition(client, x, y) && chunkTransfer != null)
+				chunkTransfer.enter(client, x, y, interest.getRadius());
+			
+			// Nouveau packet identifiant le joueur, sans l'identifiant de requête de l'émetteur : un packet relayé
+			// ne doit jamais compléter une requête en attente d'un autre client
+			JSONObject relay = new JSONObject();
+			relay.put(PLAYER_KEY, session.getId());
+			relay.put("x", x);
+			relay.put("y", y);
+			interest.broadcast(x, y, new Packet(PacketType.UPDATE_MOVEMENT_RESULT, relay.toString()), client);
+			
+			// Confirmation d'un déplacement envoyé comme requête
+			if(packet.getRequestId() != Packet.NO_REQUEST_ID)
+			{
+				Packet result = new Packet(PacketType.UPDATE_MOVEMENT_RESULT, relay.toString());
+				result.setRequestId(packet.getRequestId());
+				callback.onRequestExecutionFinished(result);
+			}
+		}
+		catch(JSONException e)
+		{
+			System.err.println("Déplacement invalide : " + packet.getSerializedObject());
+		}
+	}
+
+	private void acknowledge(Packet packet, RequestListener callback)
+	{
+		ReplicationStage replication = this.replication;
+		if(replication == null || !(callback instanceof ClientConnection))
+			return;
+		
+		try
+		{
+			JSONObject obj = new JSONObject(packet.getSerializedObject());
+			replication.acknowledge((ClientConnection)callback, obj.getLong(Snapshot.ACK_KEY));
+		}
+		catch(JSONException e)
+		{
+			System.err.println("Acquittement de synchronisation invalide : " + packet.getSerializedObject());
+		}
+	}
 }
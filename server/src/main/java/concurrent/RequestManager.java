@@ -2,29 +2,337 @@ package concurrent;
 
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.json.JSONObject;
 
 import net.Packet;
+import net.PacketType;
+import net.metrics.NetworkMetrics;
 import net.socket.FrogServerSocket;
+import replication.ChunkTransfer;
+import replication.InterestManager;
+import replication.ReplicationStage;
+import session.SessionRegistry;
 
-public class RequestManager 
+/**
+ * <h1>Gestionnaire de requêtes</h1>
+ * <p>Les requêtes sont réparties entre plusieurs partitions, chacune disposant de sa propre file
+ * et de son propre {@link RequestExecutor}. Toutes les requêtes d'une même connexion (identifiée
+ * par son callback) sont dirigées vers la même partition : leur ordre d'exécution est conservé,
+ * tandis que les requêtes de connexions différentes sont exécutées en parallèle.</p>
+ * <p>Les partitions sont bornées, le comportement adopté lorsqu'une partition est pleine
+ * dépend du type de la requête (voir {@link QueuePolicy}).</p>
+ */
+public class RequestManager
 {
-	private BlockingQueue<FrogTask> queue;
-	private RequestExecutor executor;
-	
+	private BlockingQueue<FrogTask>[] queues;
+	private RequestExecutor[] executors;
+	private QueuePolicy policy;
+	private AtomicLongArray rejected;
+	private AtomicLongArray dropped;
+	private SessionRegistry sessions;
+	private NetworkMetrics metrics;
+	private volatile ReplicationStage replication;
+	private volatile InterestManager interest;
+	private volatile ChunkTransfer chunkTransfer;
+
 	public RequestManager(FrogServerSocket server)
 	{
-		this.queue = new LinkedBlockingQueue<FrogTask>();
-		this.executor = new RequestExecutor(server, this.queue);
+		this(server, 1);
 	}
-	
-	public synchronized void submit(Packet packet, RequestListener callback)
+
+	public RequestManager(FrogServerSocket server, int partitionsCount)
 	{
-		this.queue.add(new FrogTask(packet, callback));
+		this(server, partitionsCount, new QueuePolicy());
 	}
-	
+
+	/**
+	 * Constructeur du gestionnaire de requêtes
+	 * @param server Le serveur de jeu
+	 * @param partitionsCount Le nombre de partitions (threads d'exécution)
+	 * @param policy La politique des files de requêtes
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public RequestManager(FrogServerSocket server, int partitionsCount, QueuePolicy policy)
+	{
+		int count = Math.max(1, partitionsCount);
+		this.policy = policy;
+		this.rejected = new AtomicLongArray(PacketType.values().length);
+		this.dropped = new AtomicLongArray(PacketType.values().length);
+		this.sessions = new SessionRegistry();
+		this.metrics = new NetworkMetrics();
+		this.queues = new BlockingQueue[count];
+		this.executors = new RequestExecutor[count];
+
+		for(int i = 0; i < count; i++)
+		{
+			this.queues[i] = new LinkedBlockingQueue<FrogTask>(policy.getCapacity());
+			this.executors[i] = new RequestExecutor(server, this.queues[i], this.sessions, this.metrics);
+			this.executors[i].setName("RequestExecutor-" + i);
+		}
+	}
+
+	public void submit(Packet packet, RequestListener callback)
+	{
+		BlockingQueue<FrogTask> queue = this.queues[this.getPartition(callback)];
+		FrogTask task = new FrogTask(packet, callback);
+		
+		if(queue.offer(task))
+			return;
+		
+		switch(this.policy.getOverflowPolicy(packet.getType()))
+		{
+			case BLOCK:
+				try
+				{
+					queue.put(task);
+				}
+				catch(InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					this.reject(task);
+				}
+				break;
+			case DROP_OLDEST:
+				this.dropOldest(queue, task);
+				break;
+			default:
+				this.reject(task);
+				break;
+		}
+	}
+
 	public void start()
 	{
-		if(!this.executor.isAlive() || this.executor.isInterrupted())
-			this.executor.start();
+		for(RequestExecutor executor : this.executors)
+		{
+			if(!executor.isAlive() || executor.isInterrupted())
+				executor.start();
+		}
+	}
+
+	/**
+	 * Met à jour l'étape de réplication des exécuteurs, à définir avant le démarrage du gestionnaire
+	 * @param replication L'étape de réplication alimentée par les requêtes (connexions, acquittements)
+	 */
+	public void setReplicationStage(ReplicationStage replication)
+	{
+		this.replication = replication;
+		for(RequestExecutor executor : this.executors)
+			executor.setReplicationStage(replication);
+	}
+
+	/**
+	 * Met à jour le gestionnaire des zones d'intérêt des exécuteurs, à définir avant le démarrage du gestionnaire
+	 * @param interest Le gestionnaire des zones d'intérêt alimenté par les déplacements des joueurs
+	 */
+	public void setInterestManager(InterestManager interest)
+	{
+		this.interest = interest;
+		for(RequestExecutor executor : this.executors)
+			executor.setInterestManager(interest);
+	}
+
+	/**
+	 * Met à jour le transfert des chunks des exécuteurs, à définir avant le démarrage du gestionnaire
+	 * @param chunkTransfer Le transfert des chunks envoyés aux joueurs entrant dans un nouveau chunk
+	 */
+	public void setChunkTransfer(ChunkTransfer chunkTransfer)
+	{
+		this.chunkTransfer = chunkTransfer;
+		for(RequestExecutor executor : this.executors)
+			executor.setChunkTransfer(chunkTransfer);
+	}
+
+	/**
+	 * <h1>Reprend la réplication d'une session reprise sur une nouvelle connexion</h1>
+	 * <p>Le client ne reçoit que les différences avec le dernier état acquitté avant sa déconnexion,
+	 * si celui-ci est encore conservé. À appeler une fois le format de transport de la connexion défini.</p>
+	 * @param connection La nouvelle connexion du client
+	 * @param acknowledgedTick Le dernier cycle acquitté par le client, {@link net.replication.Snapshot#NO_BASELINE} si aucun
+	 */
+	public void resume(ClientConnection connection, long acknowledgedTick)
+	{
+		ReplicationStage replication = this.replication;
+		if(replication != null)
+			replication.addClient(connection, acknowledgedTick);
+	}
+
+	/**
+	 * Signale la fermeture d'une connexion, sa session reste disponible pendant le délai de reprise
+	 * @param connection La connexion fermée
+	 */
+	public void onConnectionClosed(ClientConnection connection)
+	{
+		this.sessions.detach(connection);
+		
+		// Le joueur ne reçoit plus les évènements de sa zone
+		InterestManager interest = this.interest;
+		if(interest != null)
+			interest.remove(connection);
+		
+		// Les chunks de sa zone ne sont plus épinglés
+		ChunkTransfer chunkTransfer = this.chunkTransfer;
+		if(chunkTransfer != null)
+			chunkTransfer.remove(connection);
+	}
+
+	/**
+	 * Obtient le registre des sessions ouvertes par les requêtes d'authentification
+	 * @return Le registre des sessions
+	 */
+	public SessionRegistry getSessionRegistry()
+	{
+		return this.sessions;
+	}
+
+	/**
+	 * Obtient les mesures réseau par type de packet, alimentées par les connexions et les exécuteurs de requêtes
+	 * @return Le registre des mesures réseau
+	 */
+	public NetworkMetrics getMetrics()
+	{
+		return this.metrics;
+	}
+
+	/**
+	 * Obtient le nombre de partitions du gestionnaire
+	 * @return Le nombre de partitions
+	 */
+	public int getPartitionsCount()
+	{
+		return this.queues.length;
+	}
+
+	/**
+	 * Obtient le nombre de requêtes en attente dans la partition spécifiée
+	 * @param partition L'index de la partition
+	 * @return Le nombre de requêtes en attente
+	 */
+	public int getQueueDepth(int partition)
+	{
+		return this.queues[partition].size();
+	}
+
+	/**
+	 * Obtient le nombre de requêtes en attente de chaque partition
+	 * @return Le nombre de requêtes en attente, indexé par partition
+	 */
+	public int[] getQueueDepths()
+	{
+		int[] depths = new int[this.queues.length];
+		for(int i = 0; i < depths.length; i++)
+			depths[i] = this.queues[i].size();
+		return depths;
+	}
+
+	/**
+	 * Obtient le nombre de requêtes refusées pour un type de packet
+	 * @param type Le type de packet
+	 * @return Le nombre de requêtes refusées
+	 */
+	public long getRejectedCount(PacketType type)
+	{
+		return this.rejected.get(type.ordinal());
+	}
+
+	/**
+	 * Obtient le nombre de requêtes supprimées pour un type de packet
+	 * @param type Le type de packet
+	 * @return Le nombre de requêtes supprimées
+	 */
+	public long getDroppedCount(PacketType type)
+	{
+		return this.dropped.get(type.ordinal());
+	}
+
+	/**
+	 * Obtient le nombre total de requêtes refusées
+	 * @return Le nombre de requêtes refusées, tous types confondus
+	 */
+	public long getRejectedCount()
+	{
+		return sum(this.rejected);
+	}
+
+	/**
+	 * Obtient le nombre total de requêtes supprimées
+	 * @return Le nombre de requêtes supprimées, tous types confondus
+	 */
+	public long getDroppedCount()
+	{
+		return sum(this.dropped);
+	}
+
+	/**
+	 * Obtient la partition associée à une connexion
+	 * @param callback Le callback de la connexion
+	 * @return L'index de la partition
+	 */
+	public int getPartition(RequestListener callback)
+	{
+		if(callback == null || this.queues.length == 1)
+			return 0;
+
+		// Dispersion des bits de poids fort, les identités consécutives ne diffèrent souvent que par ceux-ci
+		int hash = System.identityHashCode(callback);
+		hash ^= (hash >>> 16);
+		return (hash & Integer.MAX_VALUE) % this.queues.length;
+	}
+
+	private void dropOldest(BlockingQueue<FrogTask> queue, FrogTask task)
+	{
+		while(!queue.offer(task))
+		{
+			// Seules les requêtes de la même connexion sont remplacées : une connexion bruyante ne supprime jamais
+			// les requêtes des autres connexions de sa partition
+			FrogTask oldest = null;
+			for(FrogTask pending : queue)
+			{
+				if(pending.getCallback() == task.getCallback() && this.policy.getOverflowPolicy(pending.getPacket().getType()) == OverflowPolicy.DROP_OLDEST)
+				{
+					oldest = pending;
+					break;
+				}
+			}
+			
+			if(oldest == null)
+			{
+				// Aucune requête remplaçable, la nouvelle requête est supprimée
+				this.dropped.incrementAndGet(task.getPacket().getType().ordinal());
+				return;
+			}
+			
+			// La requête a pu être prise en charge entre temps par l'exécuteur
+			if(queue.remove(oldest))
+				this.dropped.incrementAndGet(oldest.getPacket().getType().ordinal());
+		}
+	}
+
+	private void reject(FrogTask task)
+	{
+		PacketType type = task.getPacket().getType();
+		this.rejected.incrementAndGet(type.ordinal());
+		
+		RequestListener callback = task.getCallback();
+		if(callback != null)
+		{
+			JSONObject obj = new JSONObject();
+			obj.put("result", false);
+			obj.put("type", type.ordinal());
+			obj.put("error", "Serveur surchargé, requête refusée");
+			Packet result = new Packet(PacketType.ERROR_RESULT, obj.toString());
+			result.setRequestId(task.getPacket().getRequestId());
+			callback.onRequestExecutionFinished(result);
+		}
+	}
+
+	private static long sum(AtomicLongArray counters)
+	{
+		long total = 0;
+		for(int i = 0; i < counters.length(); i++)
+			total += counters.get(i);
+		return total;
 	}
 }
@@ -1,23 +1,39 @@
 package program;
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.net.Socket;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import concurrent.ChannelWorker;
 import concurrent.ClientWorker;
+import concurrent.DatagramGateway;
 import concurrent.RequestManager;
+import environment.map.ChunkResidencyManager;
+import environment.map.MappedGameMap;
+import net.IChannelListener;
 import net.IClientListener;
 import net.IServerListener;
+import net.socket.FlushPolicy;
+import net.socket.FrogChannel;
+import net.socket.FrogSelectorServerSocket;
 import net.socket.FrogServerSocket;
 import plugin.FrogPlugin;
 import plugin.Plugin;
 import plugin.PluginLoader;
+import replication.ChunkTransfer;
+import replication.InterestManager;
+import replication.ReplicationStage;
+import utils.FrogException;
 
 public class Program 
 {
-	private final static int MAX_THREAD = 10;
 	private final static int PORT = 5000;
+	// Taille des chunks en nombre de tuiles, sans fichier de carte
+	private final static int DEFAULT_CHUNK_SIZE = 32;
 	
 	private final static String PLUGINS_FOLDER = "plugins";
 	private final static Class<FrogPlugin> PLUGIN_ANNOTATION_CLASS = FrogPlugin.class;
@@ -27,16 +43,102 @@ public class Program
 		PluginLoader<Plugin> pluginLoader = new PluginLoader<Plugin>(PLUGINS_FOLDER, PLUGIN_ANNOTATION_CLASS);
 		List<Plugin> plugins = pluginLoader.getPlugins();
 		
-		// Pool de threads client
-		ExecutorService threadPool = Executors.newFixedThreadPool(MAX_THREAD);
+		ServerOptions options = new ServerOptions(args);
 		
 		loadPlugins(plugins);
-		startServerLoop(threadPool);
+		MappedGameMap map = openMap(options);
+		ChunkResidencyManager residency = map == null ? null : new ChunkResidencyManager(map, options.getMapBudget(), ChunkResidencyManager.DEFAULT_RADIUS);
 		
-		stopServer(threadPool);
+		if(options.getIoMode() == ServerOptions.IoMode.SELECTOR)
+		{
+			startSelectorServerLoop(options, residency);
+		}
+		else
+		{
+			// Pool de threads client
+			ExecutorService threadPool = createThreadPool(options);
+			startServerLoop(threadPool, options, residency);
+			stopServer(threadPool);
+		}
+		
+		closeMap(map, residency);
 		unloadPlugins(plugins);
 	}
 	
+	private static MappedGameMap openMap(ServerOptions options)
+	{
+		if(options.getMapFile() == null)
+			return null;
+		
+		try
+		{
+			long start = System.nanoTime();
+			// Ouverte en écriture : les chunks modifiés sont enregistrés avant leur libération
+			MappedGameMap map = MappedGameMap.open(options.getMapFile(), true);
+			System.out.println(String.format("Carte %s : %d x %d chunks, %d Mo, ouverte en %.2f ms", options.getMapFile(), 
+					map.getWidth(), map.getHeight(), map.getFileSize() >> 20, (System.nanoTime() - start) / 1e6));
+			return map;
+		}
+		catch(IOException | FrogException e)
+		{
+			System.err.println("Impossible d'ouvrir la carte " + options.getMapFile() + " : " + e.getMessage());
+			return null;
+		}
+	}
+	
+	private static void closeMap(MappedGameMap map, ChunkResidencyManager residency)
+	{
+		if(map == null)
+			return;
+		
+		int saved = residency.stop();
+		System.out.println(String.format("Résidence des chunks : %s, %d chunks enregistrés à l'arrêt", residency.getStatistics(), saved));
+		try
+		{
+			map.close();
+		}
+		catch(IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Crée la pool de threads client du mode blocking
+	 * @param options Les options de démarrage, dont le type de pool
+	 * @return La pool exécutant un {@link ClientWorker} par connexion
+	 */
+	static ExecutorService createThreadPool(ServerOptions options)
+	{
+		switch(options.getPoolType())
+		{
+			case VIRTUAL:
+				try
+				{
+					// Java 21+, obtenu par réflexion pour conserver la compatibilité Java 8
+					Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+					System.out.println("Pool de threads client : un thread virtuel par connexion");
+					return (ExecutorService) factory.invoke(null);
+				}
+				catch(ReflectiveOperationException e)
+				{
+					System.err.println("Threads virtuels indisponibles sur cette JVM, utilisation d'un thread système par connexion");
+					return createCachedThreadPool();
+				}
+			case CACHED:
+				return createCachedThreadPool();
+			default:
+				System.out.println("Pool de threads client : " + options.getThreadsCount() + " threads système");
+				return Executors.newFixedThreadPool(options.getThreadsCount());
+		}
+	}
+	
+	private static ExecutorService createCachedThreadPool()
+	{
+		System.out.println("Pool de threads client : un thread système par connexion");
+		return Executors.newCachedThreadPool();
+	}
+	
 	private static void loadPlugins(List<Plugin> plugins)
 	{
 		System.out.println("Chargement des plugins...");
@@ -64,13 +166,25 @@ public class Program
 			plugin.unload();
 	}
 	
-	private static void startServerLoop(ExecutorService threadPool)
+	private static void startServerLoop(ExecutorService threadPool, ServerOptions options, ChunkResidencyManager residency)
 	{
 		FrogServerSocket server = new FrogServerSocket();
 		
 		System.out.println("Création du gestionnaire de requêtes...");
 		// Création du gestionnaire de requêtes
-		RequestManager requestManager = new RequestManager(server);
+		RequestManager requestManager = new RequestManager(server, options.getExecutorsCount(), options.getQueuePolicy());
+		// Réplication de l'état de jeu vers les clients authentifiés
+		ReplicationStage replication = createReplicationStage(options, requestManager);
+		// Diffusion des déplacements aux seuls joueurs proches
+		createInterestManager(residency, requestManager);
+		// Envoi des chunks de la carte aux joueurs entrant dans un nouveau chunk
+		createChunkTransfer(residency, requestManager);
+		// Canal de datagrammes des packets dont la perte est tolérée
+		DatagramGateway datagramGateway = createDatagramGateway(options, requestManager);
+		// Affichage périodique des mesures réseau
+		ScheduledExecutorService metricsReporter = createMetricsReporter(options, requestManager);
+		// Politique d'envoi partagée par toutes les connexions
+		FlushPolicy flushPolicy = options.getFlushPolicy();
 		
 		server.setServerListener(new IServerListener() 
 		{
@@ -78,6 +192,10 @@ public class Program
 			{
 				// Lancement du request Manager au démarrage du serveur
 				requestManager.start();
+				if(replication != null)
+					replication.start(options.getTickPeriod());
+				if(datagramGateway != null)
+					datagramGateway.start();
 			}
 		});
 		server.setClientListener(new IClientListener() 
@@ -88,7 +206,7 @@ public class Program
 				
 				// Ajout du client stub dans la pool
 				try {
-					threadPool.submit(new ClientWorker(server, client, requestManager));
+					threadPool.submit(new ClientWorker(server, client, requestManager, flushPolicy, options.getCompressionThreshold()));
 				} catch (IOException e) {
 					e.printStackTrace();
 				}
@@ -99,6 +217,177 @@ public class Program
 		System.out.println("Lancement du serveur d'écoute sur le port " + PORT);
 		server.start(PORT);
 		
+		System.out.println("Statistiques d'envoi : " + flushPolicy.getStatistics());
+		stopReplicationStage(replication);
+		stopDatagramGateway(datagramGateway);
+		stopMetricsReporter(metricsReporter, requestManager);
+	}
+	
+	private static void startSelectorServerLoop(ServerOptions options, ChunkResidencyManager residency)
+	{
+		int selectorsCount = options.getSelectorsCount();
+		FrogSelectorServerSocket server = new FrogSelectorServerSocket(selectorsCount);
+		server.setFlushPolicy(options.getFlushPolicy());
+		
+		System.out.println("Création du gestionnaire de requêtes...");
+		// Création du gestionnaire de requêtes
+		RequestManager requestManager = new RequestManager(server, options.getExecutorsCount(), options.getQueuePolicy());
+		// Réplication de l'état de jeu vers les clients authentifiés
+		ReplicationStage replication = createReplicationStage(options, requestManager);
+		// Diffusion des déplacements aux seuls joueurs proches
+		createInterestManager(residency, requestManager);
+		// Envoi des chunks de la carte aux joueurs entrant dans un nouveau chunk
+		createChunkTransfer(residency, requestManager);
+		// Canal de datagrammes des packets dont la perte est tolérée
+		DatagramGateway datagramGateway = createDatagramGateway(options, requestManager);
+		// Affichage périodique des mesures réseau
+		ScheduledExecutorService metricsReporter = createMetricsReporter(options, requestManager);
+		
+		server.setServerListener(new IServerListener() 
+		{
+			public void onStartUp(FrogServerSocket server) 
+			{
+				// Lancement du request Manager au démarrage du serveur
+				requestManager.start();
+				if(replication != null)
+					replication.start(options.getTickPeriod());
+				if(datagramGateway != null)
+					datagramGateway.start();
+			}
+		});
+		server.setChannelListener(new IChannelListener() 
+		{
+			public void onChannelAccept(FrogChannel channel) 
+			{
+				System.out.println("Nouveau client " + channel.getRemoteAddress());
+				
+				// Aucun thread dédié, la connexion est prise en charge par une boucle d'évènements
+				new ChannelWorker(channel, requestManager, options.getCompressionThreshold());
+			}
+			
+			public void onChannelClose(FrogChannel channel) 
+			{
+				// Début du délai de reprise de la session du client
+				if(channel.attachment() instanceof ChannelWorker)
+				{
+					ChannelWorker worker = (ChannelWorker)channel.attachment();
+					requestManager.onConnectionClosed(worker);
+					System.out.println(String.format("Client %s déconnecté, %s", channel.getRemoteAddress(), worker.getClockSync()));
+				}
+				else
+				{
+					System.out.println(String.format("Client %s déconnecté", channel.getRemoteAddress()));
+				}
+			}
+		});
+		
+		// Serveur d'écoute
+		System.out.println(String.format("Lancement du serveur d'écoute non bloquant sur le port %d (%d boucles d'évènements)", PORT, selectorsCount));
+		server.start(PORT);
+		
+		System.out.println("Statistiques d'envoi : " + server.getFlushPolicy().getStatistics());
+		stopReplicationStage(replication);
+		stopDatagramGateway(datagramGateway);
+		stopMetricsReporter(metricsReporter, requestManager);
+	}
+	
+	private static ReplicationStage createReplicationStage(ServerOptions options, RequestManager requestManager)
+	{
+		if(options.getTickPeriod() == 0)
+			return null;
+		
+		ReplicationStage replication = new ReplicationStage(options.getReplicationHistorySize());
+		requestManager.setReplicationStage(replication);
+		return replication;
+	}
+	
+	private static InterestManager createInterestManager(ChunkResidencyManager residency, RequestManager requestManager)
+	{
+		// Sans fichier de carte, seul le découpage en chunks de taille par défaut est utilisé
+		InterestManager interest;
+		if(residency == null)
+			interest = new InterestManager(DEFAULT_CHUNK_SIZE, DEFAULT_CHUNK_SIZE, InterestManager.DEFAULT_RADIUS);
+		else
+			interest = new InterestManager(residency.getMap());
+		requestManager.setInterestManager(interest);
+		return interest;
+	}
+	
+	private static ChunkTransfer createChunkTransfer(ChunkResidencyManager residency, RequestManager requestManager)
+	{
+		if(residency == null)
+			return null;
+		
+		// Chunks obtenus par le gestionnaire de résidence, la zone de chaque joueur est épinglée
+		ChunkTransfer chunkTransfer = new ChunkTransfer(residency);
+		requestManager.setChunkTransfer(chunkTransfer);
+		return chunkTransfer;
+	}
+	
+	private static void stopReplicationStage(ReplicationStage replication)
+	{
+		if(replication == null)
+			return;
+		
+		replication.stop();
+		System.out.println("Statistiques de réplication : " + replication.getStatistics());
+	}
+	
+	private static DatagramGateway createDatagramGateway(ServerOptions options, RequestManager requestManager)
+	{
+		if(options.getDatagramPort() < 0)
+			return null;
+		
+		try
+		{
+			DatagramGateway gateway = new DatagramGateway(options.getDatagramPort(), requestManager.getSessionRegistry(), requestManager);
+			System.out.println("Canal de datagrammes sur le port " + gateway.getPort());
+			return gateway;
+		}
+		catch(FrogException e)
+		{
+			// Le serveur reste utilisable, tous les packets empruntent les connexions
+			System.err.println(e.getMessage());
+			return null;
+		}
+	}
+	
+	private static void stopDatagramGateway(DatagramGateway gateway)
+	{
+		if(gateway == null)
+			return;
+		
+		gateway.stopGateway();
+		System.out.println("Statistiques du canal de datagrammes : " + gateway);
+	}
+	
+	private static ScheduledExecutorService createMetricsReporter(ServerOptions options, RequestManager requestManager)
+	{
+		if(options.getMetricsPeriod() == 0)
+			return null;
+		
+		ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> 
+		{
+			Thread thread = new Thread(runnable, "MetricsReporter");
+			thread.setDaemon(true);
+			return thread;
+		});
+		
+		// Mesures remises à zéro après chaque affichage : chaque tableau couvre une période
+		reporter.scheduleAtFixedRate(() -> 
+		{
+			System.out.print(requestManager.getMetrics().report());
+			requestManager.getMetrics().reset();
+		}, options.getMetricsPeriod(), options.getMetricsPeriod(), TimeUnit.SECONDS);
+		return reporter;
+	}
+	
+	private static void stopMetricsReporter(ScheduledExecutorService reporter, RequestManager requestManager)
+	{
+		if(reporter != null)
+			reporter.shutdownNow();
+		
+		System.out.print(requestManager.getMetrics().report());
 	}
 	
 	private static void stopServer(ExecutorService threadPool)
@@ -0,0 +1,257 @@
+package program;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import concurrent.OverflowPolicy;
+import concurrent.QueuePolicy;
+import environment.map.ChunkResidencyManager;
+import net.PacketType;
+import net.codec.DeflatePacketCodec;
+import net.socket.FlushPolicy;
+import replication.ReplicationStage;
+
+/**
+ * <h1>Options de démarrage du serveur</h1>
+ * <p>Options transmises en ligne de commande sous la forme <code>--clé=valeur</code></p>
+ * <ul>
+ * <li><code>--io=blocking|selector</code> : mode d'entrée/sortie réseau (défaut : blocking)</li>
+ * <li><code>--selectors=N</code> : nombre de boucles d'évènements du mode selector</li>
+ * <li><code>--pool=fixed|cached|virtual</code> : type de pool de threads client du mode blocking (défaut : fixed)</li>
+ * <li><code>--threads=N</code> : nombre de threads client de la pool fixed</li>
+ * <li><code>--flush-window=MS</code> : fenêtre de regroupement des envois en millisecondes (0 : aucun regroupement)</li>
+ * <li><code>--flush-threshold=OCTETS</code> : volume déclenchant un envoi sans attendre la fin de la fenêtre</li>
+ * <li><code>--write-timeout=MS</code> : délai d'une écriture du mode blocking, au-delà le client est déconnecté (0 : aucun délai)</li>
+ * <li><code>--compression-threshold=OCTETS</code> : taille de packet à partir de laquelle le contenu est compressé (-1 : aucune compression)</li>
+ * <li><code>--executors=N</code> : nombre de partitions d'exécution des requêtes (défaut : nombre de processeurs)</li>
+ * <li><code>--queue-capacity=N</code> : capacité de chaque partition d'exécution des requêtes</li>
+ * <li><code>--overflow.TYPE=block|drop_oldest|reject</code> : comportement d'une partition pleine pour un type de packet</li>
+ * <li><code>--tick=MS</code> : période de réplication de l'état de jeu en millisecondes (0 : aucune réplication)</li>
+ * <li><code>--replication-history=N</code> : nombre d'états conservés, au-delà un état complet est renvoyé</li>
+ * <li><code>--udp-port=PORT</code> : port du canal de datagrammes des packets dont la perte est tolérée (-1 : aucun canal)</li>
+ * <li><code>--metrics=S</code> : période d'affichage des mesures réseau par type de packet, en secondes (0 : affichage à l'arrêt uniquement)</li>
+ * <li><code>--map=FICHIER</code> : fichier de carte projeté en mémoire, les chunks étant décodés à leur premier accès</li>
+ * <li><code>--map-budget=MO</code> : mémoire maximum des chunks conservés, les chunks modifiés étant enregistrés avant leur libération</li>
+ * </ul>
+ */
+public class ServerOptions
+{
+	public enum IoMode
+	{
+		BLOCKING,
+		SELECTOR
+	}
+	
+	public enum PoolType
+	{
+		/**
+		 * Nombre fixe de threads système, les connexions excédentaires sont mises en attente
+		 */
+		FIXED,
+		/**
+		 * Un thread système par connexion
+		 */
+		CACHED,
+		/**
+		 * Un thread virtuel par connexion (Java 21+, à défaut équivalent à CACHED)
+		 */
+		VIRTUAL
+	}
+
+	private static final String OPTION_PREFIX = "--";
+	private static final int DEFAULT_THREADS = 10;
+	private static final int DEFAULT_TICK = 50;
+
+	private Map<String, String> values;
+
+	public ServerOptions(String[] args)
+	{
+		this.values = new HashMap<String, String>();
+
+		for(String arg : args)
+		{
+			int separator = arg.indexOf('=');
+			if(!arg.startsWith(OPTION_PREFIX) || separator < 0)
+			{
+				System.err.println("Option de démarrage ignorée : " + arg);
+				continue;
+			}
+
+			this.values.put(arg.substring(OPTION_PREFIX.length(), separator).toLowerCase(), arg.substring(separator + 1));
+		}
+	}
+
+	/**
+	 * Obtient le mode d'entrée/sortie réseau du serveur
+	 * @return Le mode d'entrée/sortie réseau
+	 */
+	public IoMode getIoMode()
+	{
+		return this.getEnum("io", IoMode.class, IoMode.BLOCKING);
+	}
+
+	/**
+	 * Obtient le nombre de boucles d'évènements du mode selector
+	 * @return Le nombre de boucles d'évènements
+	 */
+	public int getSelectorsCount()
+	{
+		return this.getInt("selectors", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+	}
+
+	/**
+	 * Obtient le type de pool de threads client du mode blocking
+	 * @return Le type de pool de threads client
+	 */
+	public PoolType getPoolType()
+	{
+		return this.getEnum("pool", PoolType.class, PoolType.FIXED);
+	}
+	
+	/**
+	 * Obtient le nombre de threads client de la pool fixed
+	 * @return Le nombre de threads client
+	 */
+	public int getThreadsCount()
+	{
+		return this.getInt("threads", DEFAULT_THREADS);
+	}
+
+	/**
+	 * Obtient le nombre de partitions d'exécution des requêtes
+	 * @return Le nombre de partitions du gestionnaire de requêtes
+	 */
+	public int getExecutorsCount()
+	{
+		return this.getInt("executors", Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Obtient la politique d'envoi groupé des connexions
+	 * @return La politique d'envoi groupé
+	 */
+	public FlushPolicy getFlushPolicy()
+	{
+		FlushPolicy policy = new FlushPolicy(this.getInt("flush-window", (int)FlushPolicy.DEFAULT_WINDOW), 
+				this.getInt("flush-threshold", FlushPolicy.DEFAULT_THRESHOLD));
+		policy.setWriteTimeout(this.getInt("write-timeout", (int)FlushPolicy.DEFAULT_WRITE_TIMEOUT));
+		return policy;
+	}
+
+	/**
+	 * Obtient le seuil de compression des packets proposé aux clients
+	 * @return Le seuil de compression en octets, négatif si la compression est désactivée
+	 */
+	public int getCompressionThreshold()
+	{
+		return this.getInt("compression-threshold", DeflatePacketCodec.DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Obtient la politique des files de requêtes
+	 * @return La politique des files de requêtes
+	 */
+	public QueuePolicy getQueuePolicy()
+	{
+		QueuePolicy policy = new QueuePolicy(this.getInt("queue-capacity", QueuePolicy.DEFAULT_CAPACITY));
+		
+		for(PacketType type : PacketType.values())
+		{
+			String key = "overflow." + type.name().toLowerCase();
+			policy.setOverflowPolicy(type, this.getEnum(key, OverflowPolicy.class, policy.getOverflowPolicy(type)));
+		}
+		
+		return policy;
+	}
+
+	/**
+	 * Obtient la période de réplication de l'état de jeu
+	 * @return La période de réplication en millisecondes, 0 si la réplication est désactivée
+	 */
+	public int getTickPeriod()
+	{
+		return Math.max(0, this.getInt("tick", DEFAULT_TICK));
+	}
+
+	/**
+	 * Obtient le nombre d'états conservés par l'étape de réplication
+	 * @return Le nombre d'états conservés
+	 */
+	public int getReplicationHistorySize()
+	{
+		return this.getInt("replication-history", ReplicationStage.DEFAULT_HISTORY_SIZE);
+	}
+
+	/**
+	 * Obtient le port du canal de datagrammes proposé aux clients authentifiés
+	 * @return Le port du canal de datagrammes, négatif si aucun canal n'est proposé
+	 */
+	public int getDatagramPort()
+	{
+		return this.getInt("udp-port", -1);
+	}
+
+	/**
+	 * Obtient la période d'affichage des mesures réseau par type de packet
+	 * @return La période en secondes, 0 si les mesures ne sont affichées qu'à l'arrêt du serveur
+	 */
+	public int getMetricsPeriod()
+	{
+		return Math.max(0, this.getInt("metrics", 0));
+	}
+
+	/**
+	 * Obtient le fichier de carte du serveur
+	 * @return Le fichier de carte, null si aucune carte n'est chargée
+	 */
+	public File getMapFile()
+	{
+		String value = this.values.get("map");
+		return value == null ? null : new File(value);
+	}
+
+	/**
+	 * Obtient le budget mémoire des chunks conservés de la carte
+	 * @return Le budget en octets
+	 */
+	public long getMapBudget()
+	{
+		// Décalage sur 64 bits : un budget de 2048 Mo ou plus dépasse la capacité d'un int
+		return (long)Math.max(0, this.getInt("map-budget", (int)(ChunkResidencyManager.DEFAULT_BUDGET >> 20))) << 20;
+	}
+
+	private int getInt(String key, int defaultValue)
+	{
+		String value = this.values.get(key);
+		if(value == null)
+			return defaultValue;
+
+		try
+		{
+			return Integer.parseInt(value);
+		}
+		catch(NumberFormatException e)
+		{
+			System.err.println(String.format("Valeur invalide pour l'option %s : %s", key, value));
+			return defaultValue;
+		}
+	}
+
+	private <E extends Enum<E>> E getEnum(String key, Class<E> enumClass, E defaultValue)
+	{
+		String value = this.values.get(key);
+		if(value == null)
+			return defaultValue;
+
+		try
+		{
+			return Enum.valueOf(enumClass, value.toUpperCase());
+		}
+		catch(IllegalArgumentException e)
+		{
+			System.err.println(String.format("Valeur invalide pour l'option %s : %s", key, value));
+			return defaultValue;
+		}
+	}
+}
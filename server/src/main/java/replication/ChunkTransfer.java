@@ -0,0 +1,141 @@
+package replication;
+
+import concurrent.ClientConnection;
+import environment.map.ChunkResidencyManager;
+import environment.map.GameMap;
+import environment.map.GameMapChunk;
+import environment.map.MappedGameMap;
+import math.Vector2;
+import net.PacketType;
+import net.codec.ChunkFrameCache;
+
+/**
+ * <h1>Transfert des chunks de la carte aux clients</h1>
+ * <p>Chaque chunk est encodé une seule fois par version et par format de transport
+ * (voir {@link ChunkFrameCache}), la même trame étant envoyée à tous les clients. Les trames sont conservées
+ * dans la limite d'un budget mémoire, et supprimées lorsque la carte libère leur chunk.</p>
+ * <p>Construit sur un {@link ChunkResidencyManager}, les chunks sont obtenus par le gestionnaire de résidence :
+ * la zone de chaque joueur est épinglée lorsqu'il change de chunk (voir {@link #enter(ClientConnection, int, int, int)}),
+ * et les chunks envoyés sont conservés dans la limite du budget de la carte.</p>
+ */
+public class ChunkTransfer
+{
+	private GameMap map;
+	private ChunkResidencyManager residency;
+	private ChunkFrameCache cache;
+	
+	public ChunkTransfer(GameMap map)
+	{
+		this(map, ChunkFrameCache.DEFAULT_BUDGET);
+	}
+	
+	/**
+	 * Constructeur du transfert de chunks
+	 * @param map La carte dont les chunks sont transférés
+	 * @param cacheBudget La mémoire maximum des trames conservées, en octets
+	 */
+	public ChunkTransfer(GameMap map, long cacheBudget)
+	{
+		this.map = map;
+		this.cache = new ChunkFrameCache(cacheBudget);
+		
+		// Les trames d'un chunk libéré par la carte sont supprimées avec lui
+		if(map instanceof MappedGameMap)
+			((MappedGameMap)map).setUnloadListener(this.cache::invalidate);
+	}
+	
+	public ChunkTransfer(ChunkResidencyManager residency)
+	{
+		this(residency, ChunkFrameCache.DEFAULT_BUDGET);
+	}
+	
+	/**
+	 * Constructeur du transfert des chunks conservés par un gestionnaire de résidence
+	 * @param residency Le gestionnaire de résidence des chunks transférés
+	 * @param cacheBudget La mémoire maximum des trames conservées, en octets
+	 */
+	public ChunkTransfer(ChunkResidencyManager residency, long cacheBudget)
+	{
+		this(residency.getMap(), cacheBudget);
+		this.residency = residency;
+	}
+	
+	/**
+	 * Envoie un chunk de la carte à un client
+	 * @param client La connexion du client
+	 * @param chunkX La position horizontale du chunk dans la carte
+	 * @param chunkY La position verticale du chunk dans la carte
+	 * @return True si le chunk a été envoyé, False si le chunk n'existe pas
+	 */
+	public boolean send(ClientConnection client, int chunkX, int chunkY)
+	{
+		GameMapChunk chunk = this.residency != null ? this.residency.getChunk(chunkX, chunkY) : this.map.getChunk(chunkX, chunkY);
+		if(chunk == null)
+		{
+			this.cache.invalidate(chunkX, chunkY);
+			return false;
+		}
+		
+		client.sendFrame(this.cache.getFrame(chunk, chunkX, chunkY, client.getCodec()), PacketType.CHUNK_DATA);
+		return true;
+	}
+	
+	/**
+	 * Envoie à un client l'ensemble des chunks de sa zone d'intérêt
+	 * @param client La connexion du client
+	 * @param chunkX La position horizontale du chunk du joueur
+	 * @param chunkY La position verticale du chunk du joueur
+	 * @param radius Le rayon de la zone d'intérêt en nombre de chunks
+	 * @return Le nombre de chunks envoyés
+	 */
+	public int sendArea(ClientConnection client, int chunkX, int chunkY, int radius)
+	{
+		int count = 0;
+		for(int i = chunkX - radius; i <= chunkX + radius; i++)
+		{
+			for(int j = chunkY - radius; j <= chunkY + radius; j++)
+			{
+				if(this.send(client, i, j))
+					count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Signale l'entrée d'un joueur dans un nouveau chunk : sa zone est épinglée par le gestionnaire de résidence,
+	 * puis les chunks de sa zone d'intérêt lui sont envoyés
+	 * @param client La connexion du joueur
+	 * @param absoluteX La position horizontale absolue du joueur (en nombre de tuiles)
+	 * @param absoluteY La position verticale absolue du joueur (en nombre de tuiles)
+	 * @param radius Le rayon de la zone d'intérêt en nombre de chunks
+	 * @return Le nombre de chunks envoyés
+	 */
+	public int enter(ClientConnection client, int absoluteX, int absoluteY, int radius)
+	{
+		if(this.residency != null)
+			this.residency.updatePosition(client, absoluteX, absoluteY);
+		
+		Vector2<Integer> chunk = this.map.getChunkCoordinatesFromAbsLocation(absoluteX, absoluteY);
+		return this.sendArea(client, chunk.getX(), chunk.getY(), radius);
+	}
+	
+	/**
+	 * Retire un joueur déconnecté, les chunks de sa zone ne sont plus épinglés
+	 * @param client La connexion du joueur
+	 */
+	public void remove(ClientConnection client)
+	{
+		if(this.residency != null)
+			this.residency.remove(client);
+	}
+	
+	/**
+	 * Obtient le cache des trames de chunks
+	 * @return Le cache des trames
+	 */
+	public ChunkFrameCache getCache()
+	{
+		return this.cache;
+	}
+}
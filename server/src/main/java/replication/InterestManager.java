@@ -0,0 +1,222 @@
+package replication;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import concurrent.ClientConnection;
+import environment.map.GameMap;
+import net.Packet;
+
+/**
+ * <h1>Gestionnaire de zones d'intérêt</h1>
+ * <p>Chaque connexion est abonnée aux chunks de la carte entourant la position de son joueur
+ * (chunk courant et chunks voisins dans le rayon défini). Un évènement localisé n'est diffusé
+ * qu'aux abonnés du chunk dans lequel il se produit : le coût d'une diffusion dépend du nombre
+ * de joueurs proches, et non du nombre total de joueurs connectés.</p>
+ * <p>Les abonnements ne sont mis à jour que lorsqu'un joueur change de chunk.</p>
+ */
+public class InterestManager
+{
+	public static final int DEFAULT_RADIUS = 1;
+
+	private int chunkWidth, chunkHeight;
+	private int radius;
+	private Map<Long, Set<ClientConnection>> subscribers;
+	private Map<ClientConnection, Long> centers;
+
+	public InterestManager(GameMap map)
+	{
+		this(map, DEFAULT_RADIUS);
+	}
+
+	/**
+	 * Constructeur du gestionnaire de zones d'intérêt
+	 * @param map La carte de jeu définissant le découpage en chunks
+	 * @param radius Le rayon de la zone d'intérêt en nombre de chunks autour du chunk du joueur
+	 */
+	public InterestManager(GameMap map, int radius)
+	{
+		this(map.getChunkTilesCountRow(), map.getChunkTilesCountColumn(), radius);
+	}
+
+	/**
+	 * Constructeur du gestionnaire de zones d'intérêt, sans carte chargée
+	 * @param chunkWidth La largeur des chunks en nombre de tuiles
+	 * @param chunkHeight La hauteur des chunks en nombre de tuiles
+	 * @param radius Le rayon de la zone d'intérêt en nombre de chunks autour du chunk du joueur
+	 */
+	public InterestManager(int chunkWidth, int chunkHeight, int radius)
+	{
+		this.chunkWidth = chunkWidth;
+		this.chunkHeight = chunkHeight;
+		this.radius = Math.max(0, radius);
+		this.subscribers = new ConcurrentHashMap<Long, Set<ClientConnection>>();
+		this.centers = new ConcurrentHashMap<ClientConnection, Long>();
+	}
+
+	/**
+	 * Met à jour la position du joueur d'une connexion, et ses abonnements si le joueur a changé de chunk
+	 * @param client La connexion du joueur
+	 * @param absoluteX La position horizontale absolue du joueur (en nombre de tuiles)
+	 * @param absoluteY La position verticale absolue du joueur (en nombre de tuiles)
+	 * @return True si le joueur est entré dans un nouveau chunk (ou n'avait aucune position)
+	 */
+	public boolean updatePosition(ClientConnection client, int absoluteX, int absoluteY)
+	{
+		int x = Math.floorDiv(absoluteX, this.chunkWidth), y = Math.floorDiv(absoluteY, this.chunkHeight);
+		long center = key(x, y);
+
+		Long previous = this.centers.put(client, center);
+		if(previous != null && previous == center)
+			return false;
+
+		if(previous != null)
+		{
+			int previousX = keyX(previous), previousY = keyY(previous);
+
+			// Seuls les chunks sortis de la zone d'intérêt sont désabonnés
+			for(int i = previousX - this.radius; i <= previousX + this.radius; i++)
+			{
+				for(int j = previousY - this.radius; j <= previousY + this.radius; j++)
+				{
+					if(Math.abs(i - x) > this.radius || Math.abs(j - y) > this.radius)
+						this.unsubscribe(client, key(i, j));
+				}
+			}
+		}
+
+		for(int i = x - this.radius; i <= x + this.radius; i++)
+		{
+			for(int j = y - this.radius; j <= y + this.radius; j++)
+				this.subscribe(client, key(i, j));
+		}
+		return true;
+	}
+
+	/**
+	 * Retire une connexion de l'ensemble des zones d'intérêt
+	 * @param client La connexion à retirer
+	 */
+	public void remove(ClientConnection client)
+	{
+		Long center = this.centers.remove(client);
+		if(center == null)
+			return;
+
+		int x = keyX(center), y = keyY(center);
+		for(int i = x - this.radius; i <= x + this.radius; i++)
+		{
+			for(int j = y - this.radius; j <= y + this.radius; j++)
+				this.unsubscribe(client, key(i, j));
+		}
+	}
+
+	/**
+	 * Diffuse un packet aux connexions abonnées au chunk de la position spécifiée
+	 * @param absoluteX La position horizontale absolue de l'évènement (en nombre de tuiles)
+	 * @param absoluteY La position verticale absolue de l'évènement (en nombre de tuiles)
+	 * @param packet Le packet à diffuser
+	 * @return Le nombre de connexions destinataires
+	 */
+	public int broadcast(int absoluteX, int absoluteY, Packet packet)
+	{
+		return this.broadcast(absoluteX, absoluteY, packet, null);
+	}
+
+	/**
+	 * Diffuse un packet aux connexions abonnées au chunk de la position spécifiée
+	 * @param absoluteX La position horizontale absolue de l'évènement (en nombre de tuiles)
+	 * @param absoluteY La position verticale absolue de l'évènement (en nombre de tuiles)
+	 * @param packet Le packet à diffuser
+	 * @param except La connexion à l'origine de l'évènement, exclue de la diffusion (peut être null)
+	 * @return Le nombre de connexions destinataires
+	 */
+	public int broadcast(int absoluteX, int absoluteY, Packet packet, ClientConnection except)
+	{
+		int count = 0;
+		for(ClientConnection client : this.getSubscribers(absoluteX, absoluteY))
+		{
+			if(client == except)
+				continue;
+
+			if(!client.isOpen())
+			{
+				// Connexion fermée sans désabonnement explicite
+				this.remove(client);
+				continue;
+			}
+
+			client.send(packet);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Obtient les connexions abonnées au chunk de la position spécifiée
+	 * @param absoluteX La position horizontale absolue (en nombre de tuiles)
+	 * @param absoluteY La position verticale absolue (en nombre de tuiles)
+	 * @return Les connexions abonnées, non modifiables
+	 */
+	public Set<ClientConnection> getSubscribers(int absoluteX, int absoluteY)
+	{
+		// Arrondi vers l'infini négatif : la tuile -1 appartient au chunk -1
+		long chunk = key(Math.floorDiv(absoluteX, this.chunkWidth), Math.floorDiv(absoluteY, this.chunkHeight));
+		Set<ClientConnection> clients = this.subscribers.get(chunk);
+		return clients == null ? Collections.<ClientConnection>emptySet() : Collections.unmodifiableSet(clients);
+	}
+
+	/**
+	 * Obtient le rayon de la zone d'intérêt
+	 * @return Le rayon en nombre de chunks autour du chunk du joueur
+	 */
+	public int getRadius()
+	{
+		return this.radius;
+	}
+
+	/**
+	 * Obtient le nombre de connexions suivies
+	 * @return Le nombre de connexions disposant d'une position
+	 */
+	public int getClientsCount()
+	{
+		return this.centers.size();
+	}
+
+	private void subscribe(ClientConnection client, long chunk)
+	{
+		this.subscribers.compute(chunk, (k, clients) -> {
+			if(clients == null)
+				clients = ConcurrentHashMap.newKeySet();
+			clients.add(client);
+			return clients;
+		});
+	}
+
+	private void unsubscribe(ClientConnection client, long chunk)
+	{
+		// Les chunks sans abonné sont supprimés afin de ne pas conserver toute la carte parcourue
+		this.subscribers.computeIfPresent(chunk, (k, clients) -> {
+			clients.remove(client);
+			return clients.isEmpty() ? null : clients;
+		});
+	}
+
+	private static long key(int x, int y)
+	{
+		return ((long)x << 32) | (y & 0xFFFFFFFFL);
+	}
+
+	private static int keyX(long key)
+	{
+		return (int)(key >> 32);
+	}
+
+	private static int keyY(long key)
+	{
+		return (int)key;
+	}
+}
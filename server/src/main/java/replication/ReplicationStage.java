@@ -0,0 +1,305 @@
+package replication;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import concurrent.ClientConnection;
+import entities.Entity;
+import net.Packet;
+import net.PacketType;
+import net.replication.Snapshot;
+import system.components.AbstractComponent;
+import system.objects.SerializableObject;
+
+/**
+ * <h1>Étape de réplication de l'état de jeu</h1>
+ * <p>À chaque cycle, l'état répliqué (composants sérialisables des entités suivies, tuiles modifiées)
+ * est capturé puis chaque client reçoit uniquement les différences avec le dernier état qu'il a acquitté.
+ * Un état complet est envoyé lorsque le client n'a encore rien acquitté ou lorsque l'état acquitté
+ * est trop ancien pour être conservé.</p>
+ * <p>Les clients partageant le même état de référence partagent la même sérialisation : le coût
+ * d'un cycle dépend du nombre d'états de référence distincts, et non du nombre de clients.</p>
+ * <p>Les entités suivies doivent être modifiées sous verrou de l'entité (<code>synchronized(entity)</code>),
+ * la capture étant réalisée par le thread de réplication.</p>
+ */
+public class ReplicationStage
+{
+	public static final int DEFAULT_HISTORY_SIZE = 32;
+	
+	private static final String ENTITY_PREFIX = "entity/";
+	private static final String TILE_PREFIX = "tile/";
+	
+	private int historySize;
+	private Map<String, Entity> entities;
+	private Map<String, String> tiles;
+	private Map<ClientConnection, ClientState> clients;
+	private Map<Long, Snapshot> history;
+	private long tick;
+	private ReplicationStatistics statistics;
+	private ScheduledExecutorService scheduler;
+	
+	public ReplicationStage()
+	{
+		this(DEFAULT_HISTORY_SIZE);
+	}
+	
+	/**
+	 * Constructeur de l'étape de réplication
+	 * @param historySize Le nombre d'états conservés, au-delà l'état acquitté est considéré trop ancien
+	 */
+	public ReplicationStage(int historySize)
+	{
+		this.historySize = Math.max(1, historySize);
+		this.entities = new ConcurrentHashMap<String, Entity>();
+		this.tiles = new ConcurrentHashMap<String, String>();
+		this.clients = new ConcurrentHashMap<ClientConnection, ClientState>();
+		this.history = new ConcurrentHashMap<Long, Snapshot>();
+		this.statistics = new ReplicationStatistics();
+	}
+	
+	/**
+	 * Démarre la réplication périodique
+	 * @param period La période d'un cycle en millisecondes
+	 */
+	public synchronized void start(long period)
+	{
+		if(this.scheduler != null)
+			return;
+		
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "Replication");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.scheduler.scheduleAtFixedRate(() -> {
+			try
+			{
+				this.tick();
+			}
+			catch(RuntimeException e)
+			{
+				// Une erreur ne doit pas interrompre les cycles suivants
+				e.printStackTrace();
+			}
+		}, period, period, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Arrête la réplication périodique
+	 */
+	public synchronized void stop()
+	{
+		if(this.scheduler != null)
+		{
+			this.scheduler.shutdownNow();
+			this.scheduler = null;
+		}
+	}
+	
+	/**
+	 * Ajoute une entité à l'état répliqué
+	 * @param id L'identifiant unique de l'entité
+	 * @param entity L'entité à répliquer
+	 */
+	public void track(String id, Entity entity)
+	{
+		this.entities.put(id, entity);
+	}
+	
+	/**
+	 * Retire une entité de l'état répliqué, les clients en seront notifiés au prochain cycle
+	 * @param id L'identifiant unique de l'entité
+	 */
+	public void untrack(String id)
+	{
+		this.entities.remove(id);
+	}
+	
+	/**
+	 * Enregistre la modification d'une tuile de la carte
+	 * @param layer L'index de la couche
+	 * @param x La position horizontale absolue de la tuile
+	 * @param y La position verticale absolue de la tuile
+	 * @param value La nouvelle valeur de la tuile
+	 */
+	public void setTile(int layer, int x, int y, int value)
+	{
+		this.tiles.put(TILE_PREFIX + layer + "/" + x + "/" + y, Integer.toString(value));
+	}
+	
+	/**
+	 * Ajoute un client à la réplication, un état complet lui sera envoyé au prochain cycle
+	 * @param client La connexion du client
+	 */
+	public void addClient(ClientConnection client)
+	{
+		this.clients.putIfAbsent(client, new ClientState());
+	}
+	
+	/**
+	 * Ajoute un client à la réplication à partir d'un état qu'il a déjà acquitté, seules les différences
+	 * lui seront envoyées au prochain cycle si cet état est encore conservé
+	 * @param client La connexion du client
+	 * @param ackTick Le cycle acquitté, {@link Snapshot#NO_BASELINE} pour envoyer un état complet
+	 */
+	public void addClient(ClientConnection client, long ackTick)
+	{
+		this.addClient(client);
+		this.acknowledge(client, ackTick);
+	}
+	
+	/**
+	 * Retire un client de la réplication
+	 * @param client La connexion du client
+	 */
+	public void removeClient(ClientConnection client)
+	{
+		this.clients.remove(client);
+	}
+	
+	/**
+	 * Prend en compte l'acquittement d'un état par un client
+	 * @param client La connexion du client
+	 * @param ackTick Le cycle acquitté, {@link Snapshot#NO_BASELINE} pour demander un état complet
+	 */
+	public void acknowledge(ClientConnection client, long ackTick)
+	{
+		ClientState state = this.clients.get(client);
+		if(state == null)
+			return;
+		
+		if(ackTick == Snapshot.NO_BASELINE)
+		{
+			state.baseline = null;
+			return;
+		}
+		
+		// Un acquittement trop ancien ou arrivé dans le désordre est ignoré
+		Snapshot acked = this.history.get(ackTick);
+		Snapshot baseline = state.baseline;
+		if(acked != null && (baseline == null || acked.getTick() > baseline.getTick()))
+			state.baseline = acked;
+	}
+	
+	/**
+	 * Réalise un cycle de réplication : capture de l'état et envoi des différences à chaque client
+	 */
+	public void tick()
+	{
+		long start = System.nanoTime();
+		
+		Snapshot current = this.capture(++this.tick);
+		this.history.put(current.getTick(), current);
+		this.history.remove(current.getTick() - this.historySize);
+		
+		// Sérialisations partagées par état de référence
+		Map<Snapshot, String> deltas = new HashMap<Snapshot, String>();
+		String full = null;
+		int clientsCount = 0, fullCount = 0, deltaCount = 0;
+		long bytes = 0;
+		
+		Iterator<Map.Entry<ClientConnection, ClientState>> it = this.clients.entrySet().iterator();
+		while(it.hasNext())
+		{
+			Map.Entry<ClientConnection, ClientState> entry = it.next();
+			ClientConnection client = entry.getKey();
+			if(!client.isOpen())
+			{
+				it.remove();
+				continue;
+			}
+			clientsCount++;
+			
+			Snapshot baseline = entry.getValue().baseline;
+			String payload = null;
+			if(baseline != null && current.getTick() - baseline.getTick() < this.historySize)
+			{
+				if(!deltas.containsKey(baseline))
+					deltas.put(baseline, current.toDeltaPayload(baseline));
+				payload = deltas.get(baseline);
+				
+				// Aucune différence depuis l'état acquitté
+				if(payload == null)
+					continue;
+			}
+			
+			if(payload == null)
+			{
+				if(full == null)
+					full = current.toFullPayload();
+				payload = full;
+				fullCount++;
+			}
+			else
+			{
+				deltaCount++;
+			}
+			
+			client.send(new Packet(PacketType.SYNC, payload));
+			entry.getValue().bytes += payload.length();
+			bytes += payload.length();
+		}
+		
+		this.statistics.record(clientsCount, fullCount, deltaCount, bytes, System.nanoTime() - start);
+	}
+	
+	/**
+	 * Obtient le volume total envoyé à un client
+	 * @param client La connexion du client
+	 * @return Le volume envoyé depuis l'ajout du client, 0 si le client n'est pas répliqué
+	 */
+	public long getBytesSent(ClientConnection client)
+	{
+		ClientState state = this.clients.get(client);
+		return state == null ? 0 : state.bytes;
+	}
+	
+	/**
+	 * Obtient le nombre de clients répliqués
+	 * @return Le nombre de clients
+	 */
+	public int getClientsCount()
+	{
+		return this.clients.size();
+	}
+	
+	/**
+	 * Obtient les statistiques de réplication
+	 * @return Les statistiques de réplication
+	 */
+	public ReplicationStatistics getStatistics()
+	{
+		return this.statistics;
+	}
+	
+	private Snapshot capture(long tick)
+	{
+		Map<String, String> values = new HashMap<String, String>(this.tiles);
+		
+		for(Map.Entry<String, Entity> entry : this.entities.entrySet())
+		{
+			Entity entity = entry.getValue();
+			synchronized(entity)
+			{
+				for(AbstractComponent component : entity.getComponents())
+				{
+					if(component instanceof SerializableObject)
+						values.put(ENTITY_PREFIX + entry.getKey() + "/" + component.getKey(), ((SerializableObject)component).toJSON());
+				}
+			}
+		}
+		
+		return new Snapshot(tick, values);
+	}
+	
+	private static class ClientState
+	{
+		private volatile Snapshot baseline;
+		private volatile long bytes;
+	}
+}
@@ -0,0 +1,123 @@
+package replication;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <h1>Statistiques de réplication</h1>
+ * <p>Volume envoyé par client et temps de sérialisation par cycle de l'étape de réplication.
+ * Les volumes sont exprimés en nombre de caractères du contenu des packets SYNC, en-têtes de
+ * transport exclus.</p>
+ */
+public class ReplicationStatistics
+{
+	private LongAdder ticks;
+	private LongAdder clients;
+	private LongAdder fullSnapshots;
+	private LongAdder deltas;
+	private LongAdder bytes;
+	private LongAdder nanos;
+	private volatile long lastTickNanos;
+	private volatile long lastTickBytes;
+	
+	public ReplicationStatistics()
+	{
+		this.ticks = new LongAdder();
+		this.clients = new LongAdder();
+		this.fullSnapshots = new LongAdder();
+		this.deltas = new LongAdder();
+		this.bytes = new LongAdder();
+		this.nanos = new LongAdder();
+	}
+	
+	/**
+	 * Enregistre un cycle de réplication
+	 * @param clientsCount Le nombre de clients répliqués durant le cycle
+	 * @param fullCount Le nombre d'états complets envoyés
+	 * @param deltaCount Le nombre de différences envoyées
+	 * @param bytesCount Le volume total envoyé
+	 * @param elapsedNanos Le temps de capture et de sérialisation du cycle en nanosecondes
+	 */
+	public void record(int clientsCount, int fullCount, int deltaCount, long bytesCount, long elapsedNanos)
+	{
+		this.ticks.increment();
+		this.clients.add(clientsCount);
+		this.fullSnapshots.add(fullCount);
+		this.deltas.add(deltaCount);
+		this.bytes.add(bytesCount);
+		this.nanos.add(elapsedNanos);
+		this.lastTickNanos = elapsedNanos;
+		this.lastTickBytes = bytesCount;
+	}
+	
+	/**
+	 * Obtient le nombre de cycles de réplication réalisés
+	 * @return Le nombre de cycles
+	 */
+	public long getTicksCount()
+	{
+		return this.ticks.sum();
+	}
+	
+	/**
+	 * Obtient le nombre d'états complets envoyés
+	 * @return Le nombre d'états complets
+	 */
+	public long getFullSnapshotsCount()
+	{
+		return this.fullSnapshots.sum();
+	}
+	
+	/**
+	 * Obtient le nombre de différences envoyées
+	 * @return Le nombre de différences
+	 */
+	public long getDeltasCount()
+	{
+		return this.deltas.sum();
+	}
+	
+	/**
+	 * Obtient le volume moyen envoyé à un client par cycle
+	 * @return Le volume moyen par client et par cycle, 0 si aucun client n'a été répliqué
+	 */
+	public double getBytesPerClientPerTick()
+	{
+		long count = this.clients.sum();
+		return count == 0 ? 0 : (double)this.bytes.sum() / count;
+	}
+	
+	/**
+	 * Obtient le temps moyen de capture et de sérialisation d'un cycle
+	 * @return Le temps moyen par cycle en microsecondes, 0 si aucun cycle
+	 */
+	public double getMicrosPerTick()
+	{
+		long count = this.ticks.sum();
+		return count == 0 ? 0 : this.nanos.sum() / 1000.0 / count;
+	}
+	
+	/**
+	 * Obtient le temps de capture et de sérialisation du dernier cycle
+	 * @return Le temps du dernier cycle en nanosecondes
+	 */
+	public long getLastTickNanos()
+	{
+		return this.lastTickNanos;
+	}
+	
+	/**
+	 * Obtient le volume total envoyé lors du dernier cycle
+	 * @return Le volume du dernier cycle
+	 */
+	public long getLastTickBytes()
+	{
+		return this.lastTickBytes;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return String.format("%d cycles, %d états complets, %d différences, %.1f octets/client/cycle, %.1f µs/cycle", 
+				this.getTicksCount(), this.getFullSnapshotsCount(), this.getDeltasCount(), this.getBytesPerClientPerTick(), this.getMicrosPerTick());
+	}
+}
@@ -0,0 +1,155 @@
+package session;
+
+import java.net.InetSocketAddress;
+
+import concurrent.ClientConnection;
+import net.socket.SequenceFilter;
+
+/**
+ * <h1>Session de jeu authentifiée</h1>
+ * <p>Associe le token remis au client lors de son authentification à sa connexion, ainsi qu'à
+ * l'adresse de son canal de datagrammes une fois celui-ci associé.</p>
+ * <p>La session survit à la fermeture de sa connexion pendant le délai de reprise du registre :
+ * un client présentant le token sur une nouvelle connexion la reprend sans nouvelle authentification.</p>
+ */
+public class Session
+{
+	private int id;
+	private String token;
+	private volatile ClientConnection connection;
+	private long detachedAt;
+	private volatile InetSocketAddress datagramAddress;
+	private volatile SequenceFilter datagramFilter;
+	private int datagramSequence;
+	
+	Session(int id, String token, ClientConnection connection)
+	{
+		this.id = id;
+		this.token = token;
+		this.connection = connection;
+		this.datagramFilter = new SequenceFilter();
+	}
+	
+	/**
+	 * Obtient l'identifiant public du joueur de la session, transmis aux autres clients à la place du token
+	 * @return L'identifiant du joueur
+	 */
+	public int getId()
+	{
+		return this.id;
+	}
+	
+	public String getToken()
+	{
+		return this.token;
+	}
+	
+	public ClientConnection getConnection()
+	{
+		return this.connection;
+	}
+	
+	/**
+	 * Obtient l'adresse du canal de datagrammes du client
+	 * @return L'adresse du canal, null si le client n'a associé aucun canal
+	 */
+	public InetSocketAddress getDatagramAddress()
+	{
+		return this.datagramAddress;
+	}
+	
+	/**
+	 * <h1>Associe le canal de datagrammes du client à la session</h1>
+	 * <p>Un nouveau canal numérote ses datagrammes à partir de 1 : les numéros de séquence des datagrammes
+	 * reçus et envoyés sont réinitialisés lorsque l'adresse change. À appeler sous le verrou d'envoi.</p>
+	 * @param address L'adresse du canal de datagrammes du client
+	 */
+	public void bindDatagram(InetSocketAddress address)
+	{
+		if(!address.equals(this.datagramAddress))
+			this.resetDatagram();
+		this.datagramAddress = address;
+	}
+	
+	/**
+	 * Obtient le filtre des datagrammes reçus du client, réservé au thread de réception des datagrammes
+	 * @return Le filtre des datagrammes obsolètes
+	 */
+	public SequenceFilter getDatagramFilter()
+	{
+		return this.datagramFilter;
+	}
+	
+	/**
+	 * Obtient le numéro de séquence du prochain datagramme envoyé au client, à appeler sous le verrou d'envoi
+	 * @return Le numéro de séquence
+	 */
+	public int nextDatagramSequence()
+	{
+		return ++this.datagramSequence;
+	}
+	
+	/**
+	 * Indique si la session est toujours active
+	 * @return True si la connexion du client est ouverte
+	 */
+	public boolean isOpen()
+	{
+		return this.connection.isOpen();
+	}
+	
+	/**
+	 * <h1>Reprend la session sur une nouvelle connexion</h1>
+	 * <p>Le canal de datagrammes doit être de nouveau associé par le client. Une connexion précédente
+	 * toujours ouverte (fermeture non encore constatée par le serveur) n'est plus rattachée à la session.</p>
+	 * @param connection La nouvelle connexion du client
+	 * @param now L'instant de la reprise, en millisecondes
+	 * @param timeout Le délai de reprise après la fermeture de la connexion, en millisecondes
+	 * @return True si la session a été reprise, False si elle a expiré
+	 */
+	synchronized boolean resume(ClientConnection connection, long now, long timeout)
+	{
+		if(this.isExpired(now, timeout))
+			return false;
+		
+		this.connection = connection;
+		this.detachedAt = 0;
+		this.datagramAddress = null;
+		this.resetDatagram();
+		return true;
+	}
+	
+	/**
+	 * Signale la fermeture d'une connexion, ignorée si la session a été reprise sur une autre connexion
+	 * @param connection La connexion fermée
+	 * @param now L'instant de la fermeture, en millisecondes
+	 */
+	synchronized void detach(ClientConnection connection, long now)
+	{
+		if(this.connection == connection && this.detachedAt == 0)
+			this.detachedAt = now;
+	}
+	
+	/**
+	 * Indique si le délai de reprise de la session est écoulé
+	 * @param now L'instant courant, en millisecondes
+	 * @param timeout Le délai de reprise après la fermeture de la connexion, en millisecondes
+	 * @return True si la session ne peut plus être reprise
+	 */
+	synchronized boolean isExpired(long now, long timeout)
+	{
+		if(this.connection.isOpen())
+			return false;
+		
+		// Fermeture non signalée par la connexion, constatée à cet instant
+		if(this.detachedAt == 0)
+			this.detachedAt = now;
+		return now - this.detachedAt > timeout;
+	}
+	
+	private void resetDatagram()
+	{
+		this.datagramFilter = new SequenceFilter();
+		this.datagramSequence = 0;
+	}
+}
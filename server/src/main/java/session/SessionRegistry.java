@@ -0,0 +1,233 @@
+package session;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import concurrent.ClientConnection;
+
+/**
+ * <h1>Registre des sessions de jeu</h1>
+ * <p>Attribue à chaque connexion authentifiée un token aléatoire, permettant au client de rattacher
+ * d'autres canaux (datagrammes) à sa session, ou de la reprendre sur une nouvelle connexion après
+ * une déconnexion (voir {@link #resume(String, ClientConnection)}).</p>
+ * <p>Les sessions dont la connexion est fermée depuis plus que le délai de reprise sont retirées
+ * à l'ouverture des sessions et à la fermeture des connexions suivantes. Les fermetures signalées
+ * (voir {@link #detach(ClientConnection)}) forment une file d'expiration, triée par échéance : seules
+ * les sessions échues sont examinées.</p>
+ */
+public class SessionRegistry
+{
+	/**
+	 * Délai de reprise par défaut d'une session après la fermeture de sa connexion, en millisecondes
+	 */
+	public static final long DEFAULT_RESUME_TIMEOUT = 30000;
+	
+	private static final int TOKEN_SIZE = 18;
+	
+	private SecureRandom random;
+	private AtomicInteger lastId;
+	private Map<String, Session> sessions;
+	private Map<ClientConnection, Session> connections;
+	private Queue<Expiration> expirations;
+	private long resumeTimeout;
+	private volatile int datagramPort;
+	
+	public SessionRegistry()
+	{
+		this(DEFAULT_RESUME_TIMEOUT);
+	}
+	
+	/**
+	 * Constructeur du registre des sessions
+	 * @param resumeTimeout Le délai de reprise d'une session après la fermeture de sa connexion, en millisecondes
+	 */
+	public SessionRegistry(long resumeTimeout)
+	{
+		this.resumeTimeout = Math.max(0, resumeTimeout);
+		this.random = new SecureRandom();
+		this.lastId = new AtomicInteger();
+		this.sessions = new ConcurrentHashMap<String, Session>();
+		this.connections = new ConcurrentHashMap<ClientConnection, Session>();
+		this.expirations = new ConcurrentLinkedQueue<Expiration>();
+		this.datagramPort = -1;
+	}
+	
+	/**
+	 * Ouvre une session pour une connexion authentifiée
+	 * @param connection La connexion du client
+	 * @return La nouvelle session, dont le token est à transmettre au client
+	 */
+	public Session open(ClientConnection connection)
+	{
+		this.purge();
+		
+		Session session;
+		int id = this.lastId.incrementAndGet();
+		do
+		{
+			session = new Session(id, this.newToken(), connection);
+		}
+		while(this.sessions.putIfAbsent(session.getToken(), session) != null);
+		
+		this.connections.put(connection, session);
+		return session;
+	}
+	
+	/**
+	 * Obtient une session active à partir de son token
+	 * @param token Le token de la session
+	 * @return La session, null si le token est inconnu ou la connexion fermée
+	 */
+	public Session get(String token)
+	{
+		if(token == null)
+			return null;
+		
+		Session session = this.sessions.get(token);
+		if(session == null || session.isOpen())
+			return session;
+		
+		// Session en attente de reprise, inutilisable jusque-là
+		if(session.isExpired(System.currentTimeMillis(), this.resumeTimeout))
+			this.remove(session);
+		return null;
+	}
+	
+	/**
+	 * Obtient la session rattachée à une connexion
+	 * @param connection La connexion du client
+	 * @return La session, null si le client n'est pas authentifié ou la connexion fermée
+	 */
+	public Session get(ClientConnection connection)
+	{
+		return this.connections.get(connection);
+	}
+	
+	/**
+	 * <h1>Reprend une session sur une nouvelle connexion</h1>
+	 * <p>Le client n'est pas authentifié de nouveau : le token, remis lors de l'authentification, suffit
+	 * tant que le délai de reprise suivant la fermeture de la connexion précédente n'est pas écoulé.</p>
+	 * @param token Le token de la session
+	 * @param connection La nouvelle connexion du client
+	 * @return La session reprise, null si le token est inconnu ou la session expirée
+	 */
+	public Session resume(String token, ClientConnection connection)
+	{
+		Session session = token == null ? null : this.sessions.get(token);
+		if(session == null)
+			return null;
+		
+		ClientConnection previous = session.getConnection();
+		if(!session.resume(connection, System.currentTimeMillis(), this.resumeTimeout))
+		{
+			this.remove(session);
+			return null;
+		}
+		
+		this.connections.remove(previous, session);
+		this.connections.put(connection, session);
+		return session;
+	}
+	
+	/**
+	 * Signale la fermeture d'une connexion, le délai de reprise de sa session débute
+	 * @param connection La connexion fermée
+	 */
+	public void detach(ClientConnection connection)
+	{
+		Session session = this.connections.remove(connection);
+		if(session == null)
+			return;
+		
+		long now = System.currentTimeMillis();
+		session.detach(connection, now);
+		this.expirations.add(new Expiration(session, now + this.resumeTimeout));
+		this.purge();
+	}
+	
+	/**
+	 * Obtient le délai de reprise d'une session après la fermeture de sa connexion
+	 * @return Le délai de reprise en millisecondes
+	 */
+	public long getResumeTimeout()
+	{
+		return this.resumeTimeout;
+	}
+	
+	/**
+	 * Obtient le nombre de sessions enregistrées
+	 * @return Le nombre de sessions, y compris celles en attente de reprise
+	 */
+	public int getSessionsCount()
+	{
+		return this.sessions.size();
+	}
+	
+	/**
+	 * Obtient le port du canal de datagrammes proposé aux clients authentifiés
+	 * @return Le port du canal de datagrammes, négatif si aucun canal n'est proposé
+	 */
+	public int getDatagramPort()
+	{
+		return this.datagramPort;
+	}
+	
+	/**
+	 * Met à jour le port du canal de datagrammes proposé aux clients authentifiés
+	 * @param port Le port du canal de datagrammes, négatif si aucun canal n'est proposé
+	 */
+	public void setDatagramPort(int port)
+	{
+		this.datagramPort = port;
+	}
+	
+	private String newToken()
+	{
+		byte[] bytes = new byte[TOKEN_SIZE];
+		this.random.nextBytes(bytes);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+	}
+	
+	/**
+	 * Retire les sessions échues de la file d'expiration, les sessions reprises entre-temps sont conservées
+	 */
+	private void purge()
+	{
+		long now = System.currentTimeMillis();
+		Expiration expiration;
+		while((expiration = this.expirations.peek()) != null && expiration.deadline < now)
+		{
+			// Échéance consommée par un seul thread
+			if(!this.expirations.remove(expiration))
+				continue;
+			if(expiration.session.isExpired(now, this.resumeTimeout))
+				this.remove(expiration.session);
+		}
+	}
+	
+	private void remove(Session session)
+	{
+		this.sessions.remove(session.getToken(), session);
+		this.connections.remove(session.getConnection(), session);
+	}
+	
+	/**
+	 * Échéance du délai de reprise d'une session
+	 */
+	private static class Expiration
+	{
+		private Session session;
+		private long deadline;
+		
+		Expiration(Session session, long deadline)
+		{
+			this.session = session;
+			this.deadline = deadline;
+		}
+	}
+}
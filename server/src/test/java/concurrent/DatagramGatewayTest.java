@@ -0,0 +1,107 @@
+package concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.Packet;
+import net.PacketType;
+import net.codec.DatagramCodec;
+import net.socket.FrogDatagramSocket;
+import session.Session;
+import utils.FrogException;
+
+public class DatagramGatewayTest
+{
+	private static final int TIMEOUT = 500;
+
+	private RequestManager manager;
+	private DatagramGateway gateway;
+	private DatagramSocket client;
+	private int sequence;
+
+	@Before
+	public void initialize() throws FrogException, IOException
+	{
+		// Exécuteurs non démarrés : les requêtes soumises restent dans leur partition
+		this.manager = new RequestManager(null);
+		this.gateway = new DatagramGateway(0, this.manager.getSessionRegistry(), this.manager);
+		this.gateway.start();
+		this.client = new DatagramSocket();
+		this.client.setSoTimeout(TIMEOUT);
+	}
+
+	@After
+	public void terminate()
+	{
+		this.client.close();
+		this.gateway.stopGateway();
+	}
+
+	@Test
+	public void unknownTokenTest() throws IOException, FrogException
+	{
+		this.send(connect("inconnu"));
+		try
+		{
+			this.receive();
+			fail("Réponse envoyée à une adresse non authentifiée");
+		}
+		catch(SocketTimeoutException e)
+		{
+			// Aucune réponse attendue
+		}
+		assertEquals(0, this.gateway.getBindingsCount());
+	}
+
+	@Test
+	public void reliableTypeTest() throws IOException, FrogException, InterruptedException
+	{
+		Session session = this.manager.getSessionRegistry().open(new RecordingConnection());
+		this.send(connect(session.getToken()));
+		Packet result = this.receive();
+		assertEquals(PacketType.CONNECT_RESULT, result.getType());
+		assertTrue(new JSONObject(result.getSerializedObject()).getBoolean("result"));
+
+		// Seuls les packets dont la perte est tolérée sont soumis
+		this.send(new Packet(PacketType.DISCONNECT, "{}"));
+		this.send(new Packet(PacketType.UPDATE_MOVEMENT_RESULT, "{\"x\":1,\"y\":1}"));
+		long deadline = System.currentTimeMillis() + 5000;
+		while(this.manager.getQueueDepth(0) == 0 && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+		assertEquals(1, this.manager.getQueueDepth(0));
+	}
+
+	private void send(Packet packet) throws IOException
+	{
+		byte[] buffer = new byte[DatagramCodec.MAX_DATAGRAM_SIZE];
+		int length = DatagramCodec.encode(packet, ++this.sequence, buffer);
+		this.client.send(new DatagramPacket(buffer, length, InetAddress.getLoopbackAddress(), this.gateway.getPort()));
+	}
+
+	private Packet receive() throws IOException, FrogException
+	{
+		byte[] buffer = new byte[DatagramCodec.MAX_DATAGRAM_SIZE];
+		DatagramPacket datagram = new DatagramPacket(buffer, buffer.length);
+		this.client.receive(datagram);
+		return DatagramCodec.decode(buffer, datagram.getLength());
+	}
+
+	private static Packet connect(String token)
+	{
+		JSONObject obj = new JSONObject();
+		obj.put(FrogDatagramSocket.TOKEN_KEY, token);
+		return new Packet(PacketType.CONNECT, obj.toString());
+	}
+}
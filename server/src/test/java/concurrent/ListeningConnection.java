@@ -0,0 +1,25 @@
+package concurrent;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import net.Packet;
+
+/**
+ * Connexion de test conservant également les réponses à ses requêtes
+ */
+public class ListeningConnection extends RecordingConnection implements RequestListener
+{
+	private BlockingQueue<Packet> results = new LinkedBlockingQueue<Packet>();
+
+	@Override
+	public void onRequestExecutionFinished(Packet result)
+	{
+		this.results.add(result);
+	}
+
+	public BlockingQueue<Packet> getResults()
+	{
+		return this.results;
+	}
+}
@@ -0,0 +1,96 @@
+package concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import environment.map.GameMap;
+import net.Packet;
+import net.PacketType;
+import replication.InterestManager;
+import session.Session;
+
+public class MovementRelayTest
+{
+	private static final int CHUNK_SIZE = 8;
+
+	private RunningServer server;
+	private RequestManager manager;
+
+	@Before
+	public void initialize()
+	{
+		this.server = new RunningServer();
+		this.manager = new RequestManager(this.server);
+		this.manager.setInterestManager(new InterestManager(new GameMap(32, 32, CHUNK_SIZE, CHUNK_SIZE), 1));
+		this.manager.start();
+	}
+
+	@After
+	public void terminate()
+	{
+		this.server.stop(this.manager);
+	}
+
+	@Test
+	public void relayTest() throws InterruptedException
+	{
+		ListeningConnection mover = new ListeningConnection();
+		ListeningConnection watcher = new ListeningConnection();
+		Session session = this.manager.getSessionRegistry().open(mover);
+		this.manager.getSessionRegistry().open(watcher);
+
+		this.manager.submit(movement(1, 1, Packet.NO_REQUEST_ID), watcher);
+		this.manager.submit(movement(2, 3, 42), mover);
+
+		// Confirmation de la requête de l'émetteur, identifiant de requête conservé
+		Packet result = mover.getResults().poll(5, TimeUnit.SECONDS);
+		assertEquals(PacketType.UPDATE_MOVEMENT_RESULT, result.getType());
+		assertEquals(42, result.getRequestId());
+
+		// Packet relayé : aucun identifiant de requête, joueur identifié sans son token
+		List<Packet> relayed = watcher.getPackets();
+		assertEquals(1, relayed.size());
+		assertEquals(Packet.NO_REQUEST_ID, relayed.get(0).getRequestId());
+		JSONObject obj = new JSONObject(relayed.get(0).getSerializedObject());
+		assertEquals(session.getId(), obj.getInt(RequestExecutor.PLAYER_KEY));
+		assertEquals(2, obj.getInt("x"));
+		assertEquals(3, obj.getInt("y"));
+		assertTrue("Token diffusé", relayed.get(0).getSerializedObject().indexOf(session.getToken()) < 0);
+		assertTrue("Déplacement renvoyé à son émetteur", mover.getPackets().isEmpty());
+	}
+
+	@Test
+	public void unauthenticatedTest() throws InterruptedException
+	{
+		ListeningConnection stranger = new ListeningConnection();
+		ListeningConnection watcher = new ListeningConnection();
+		this.manager.getSessionRegistry().open(watcher);
+
+		this.manager.submit(movement(1, 1, Packet.NO_REQUEST_ID), watcher);
+		this.manager.submit(movement(2, 2, 7), stranger);
+		this.manager.submit(movement(1, 2, 8), watcher);
+		assertEquals(8, watcher.getResults().poll(5, TimeUnit.SECONDS).getRequestId());
+
+		// Partition unique : le déplacement du client non authentifié a été traité avant
+		assertTrue("Déplacement non authentifié diffusé", watcher.getPackets().isEmpty());
+		assertTrue(stranger.getResults().isEmpty());
+	}
+
+	private static Packet movement(int x, int y, int requestId)
+	{
+		JSONObject obj = new JSONObject();
+		obj.put("x", x);
+		obj.put("y", y);
+		Packet packet = new Packet(PacketType.UPDATE_MOVEMENT_RESULT, obj.toString());
+		packet.setRequestId(requestId);
+		return packet;
+	}
+}
@@ -0,0 +1,72 @@
+package concurrent;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.Packet;
+import net.PacketType;
+import net.codec.PacketCodec;
+import net.codec.PacketCodecs;
+import net.socket.ClockSync;
+
+/**
+ * Connexion de test conservant les packets et les trames envoyés
+ */
+public class RecordingConnection implements ClientConnection
+{
+	private List<Packet> packets = new ArrayList<Packet>();
+	private List<PacketType> frames = new ArrayList<PacketType>();
+	private volatile boolean open = true;
+
+	@Override
+	public synchronized void send(Packet packet)
+	{
+		this.packets.add(packet);
+	}
+
+	@Override
+	public synchronized void sendFrame(ByteBuffer frame, PacketType type)
+	{
+		this.frames.add(type);
+	}
+
+	@Override
+	public void setDatagramRoute(DatagramRoute route)
+	{
+		// Aucun canal de datagrammes
+	}
+
+	@Override
+	public PacketCodec getCodec()
+	{
+		return PacketCodecs.BINARY;
+	}
+
+	@Override
+	public ClockSync getClockSync()
+	{
+		return null;
+	}
+
+	@Override
+	public boolean isOpen()
+	{
+		return this.open;
+	}
+
+	public void close()
+	{
+		this.open = false;
+	}
+
+	public synchronized List<Packet> getPackets()
+	{
+		return new ArrayList<Packet>(this.packets);
+	}
+
+	public synchronized int getFramesCount()
+	{
+		return this.frames.size();
+	}
+}
@@ -0,0 +1,181 @@
+package concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+import net.Packet;
+import net.PacketType;
+
+public class RequestManagerTest
+{
+	private RunningServer server = new RunningServer();
+	private RequestManager manager;
+
+	@After
+	public void terminate()
+	{
+		if(this.manager != null)
+			this.server.stop(this.manager);
+	}
+
+	@Test
+	public void rejectTest() throws InterruptedException
+	{
+		this.manager = new RequestManager(this.server, 1, new QueuePolicy(2));
+		ListeningConnection client = new ListeningConnection();
+		for(int id = 1; id <= 3; id++)
+			this.manager.submit(request(PacketType.NONE, id), client);
+
+		// Requête refusée immédiatement, identifiant de requête conservé
+		Packet error = client.getResults().poll();
+		assertEquals(PacketType.ERROR_RESULT, error.getType());
+		assertEquals(3, error.getRequestId());
+		assertEquals(PacketType.NONE.ordinal(), new JSONObject(error.getSerializedObject()).getInt("type"));
+		assertEquals(1, this.manager.getRejectedCount(PacketType.NONE));
+		assertEquals(1, this.manager.getRejectedCount());
+		assertEquals(0, this.manager.getDroppedCount());
+
+		this.manager.start();
+		assertEquals(1, client.getResults().poll(5, TimeUnit.SECONDS).getRequestId());
+		assertEquals(2, client.getResults().poll(5, TimeUnit.SECONDS).getRequestId());
+	}
+
+	@Test
+	public void dropOldestTest() throws InterruptedException
+	{
+		QueuePolicy policy = new QueuePolicy(3);
+		policy.setOverflowPolicy(PacketType.NONE, OverflowPolicy.DROP_OLDEST);
+		this.manager = new RequestManager(this.server, 1, policy);
+		ListeningConnection quiet = new ListeningConnection();
+		ListeningConnection noisy = new ListeningConnection();
+
+		this.manager.submit(request(PacketType.NONE, 1), quiet);
+		this.manager.submit(request(PacketType.NONE, 2), noisy);
+		this.manager.submit(request(PacketType.NONE, 3), noisy);
+
+		// La plus ancienne requête de la connexion bruyante est remplacée, celle de l'autre connexion conservée
+		this.manager.submit(request(PacketType.NONE, 4), noisy);
+		assertEquals(1, this.manager.getDroppedCount(PacketType.NONE));
+		assertEquals(3, this.manager.getQueueDepth(0));
+
+		// Aucune requête en attente de la connexion : la nouvelle requête est supprimée
+		ListeningConnection late = new ListeningConnection();
+		this.manager.submit(request(PacketType.NONE, 5), late);
+		assertEquals(2, this.manager.getDroppedCount(PacketType.NONE));
+		assertEquals(0, this.manager.getRejectedCount());
+
+		this.manager.start();
+		assertEquals(1, quiet.getResults().poll(5, TimeUnit.SECONDS).getRequestId());
+		assertEquals(3, noisy.getResults().poll(5, TimeUnit.SECONDS).getRequestId());
+		assertEquals(4, noisy.getResults().poll(5, TimeUnit.SECONDS).getRequestId());
+		assertNull(late.getResults().poll(100, TimeUnit.MILLISECONDS));
+		assertTrue(quiet.getResults().isEmpty() && noisy.getResults().isEmpty());
+	}
+
+	@Test
+	public void blockTest() throws InterruptedException
+	{
+		this.manager = new RequestManager(this.server, 1, new QueuePolicy(1));
+		ListeningConnection client = new ListeningConnection();
+		this.manager.submit(request(PacketType.DISCONNECT, 1), client);
+
+		// Thread de lecture suspendu jusqu'à libération d'une place
+		Thread reader = new Thread(() -> this.manager.submit(request(PacketType.DISCONNECT, 2), client));
+		reader.start();
+		reader.join(200);
+		assertTrue("Requête bloquante non suspendue", reader.isAlive());
+
+		this.manager.start();
+		reader.join(5000);
+		assertFalse(reader.isAlive());
+		assertEquals(1, client.getResults().poll(5, TimeUnit.SECONDS).getRequestId());
+		assertEquals(2, client.getResults().poll(5, TimeUnit.SECONDS).getRequestId());
+		assertEquals(0, this.manager.getRejectedCount() + this.manager.getDroppedCount());
+	}
+
+	@Test
+	public void partitionOrderTest() throws InterruptedException
+	{
+		final int partitions = 4, clients = 32, requests = 200;
+		this.manager = new RequestManager(this.server, partitions, new QueuePolicy(clients * requests));
+		List<OrderedListener> listeners = new ArrayList<OrderedListener>();
+		boolean[] used = new boolean[partitions];
+		for(int i = 0; i < clients; i++)
+		{
+			OrderedListener listener = new OrderedListener();
+			listeners.add(listener);
+			used[this.manager.getPartition(listener)] = true;
+			assertEquals("Partition instable", this.manager.getPartition(listener), this.manager.getPartition(listener));
+		}
+
+		// Requêtes entrelacées de toutes les connexions, soumises avant le démarrage des exécuteurs
+		for(int id = 1; id <= requests; id++)
+		{
+			for(OrderedListener listener : listeners)
+				this.manager.submit(request(PacketType.NONE, id), listener);
+		}
+		this.manager.start();
+
+		List<String> threads = new ArrayList<String>();
+		for(OrderedListener listener : listeners)
+		{
+			assertTrue("Requêtes non exécutées", listener.await(requests));
+			assertEquals("Ordre des requêtes non conservé", -1, listener.disorder);
+			assertEquals("Connexion répartie sur plusieurs exécuteurs", 1, listener.threads.size());
+			if(!threads.contains(listener.threads.get(0)))
+				threads.add(listener.threads.get(0));
+		}
+
+		int usedCount = 0;
+		for(boolean partition : used)
+			usedCount += partition ? 1 : 0;
+		assertTrue("Connexions regroupées sur une partition", usedCount > 1);
+		assertEquals("Partitions exécutées par un même thread", usedCount, threads.size());
+	}
+
+	private static Packet request(PacketType type, int id)
+	{
+		Packet packet = new Packet(type, "{}");
+		packet.setRequestId(id);
+		return packet;
+	}
+
+	/**
+	 * Connexion vérifiant l'ordre de ses réponses et les threads les exécutant
+	 */
+	private static class OrderedListener implements RequestListener
+	{
+		private List<String> threads = new ArrayList<String>();
+		private int last;
+		private int disorder = -1;
+
+		@Override
+		public synchronized void onRequestExecutionFinished(Packet result)
+		{
+			if(result.getRequestId() != this.last + 1 && this.disorder < 0)
+				this.disorder = result.getRequestId();
+			this.last = result.getRequestId();
+			if(!this.threads.contains(Thread.currentThread().getName()))
+				this.threads.add(Thread.currentThread().getName());
+			this.notifyAll();
+		}
+
+		private synchronized boolean await(int count) throws InterruptedException
+		{
+			long deadline = System.currentTimeMillis() + 10000;
+			while(this.last < count && System.currentTimeMillis() < deadline)
+				this.wait(100);
+			return this.last == count;
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package concurrent;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+
+import org.json.JSONObject;
+
+import net.Packet;
+import net.PacketType;
+import net.replication.Snapshot;
+import replication.ReplicationStage;
+
+/**
+ * <h1>Mesure du débit du gestionnaire de requêtes selon le nombre de partitions</h1>
+ * <p>Chaque connexion s'authentifie (CONNECT) puis acquitte des états répliqués (SYNC), les requêtes
+ * étant soumises par plusieurs threads de lecture. La sortie standard est neutralisée pendant la mesure :
+ * son verrou sérialiserait les partitions à chaque authentification.</p>
+ * <p>Exécution : <code>java -cp api/target/classes:server/target/classes:server/target/test-classes:json.jar concurrent.RequestPartitionBenchmark</code></p>
+ */
+public class RequestPartitionBenchmark
+{
+	private static final int[] PARTITIONS = { 1, 2, 4, 8 };
+	private static final int CONNECTIONS = 256;
+	private static final int SYNC_PER_CONNECTION = 400;
+	private static final int READERS = 4;
+	private static final int RUNS = 5;
+
+	public static void main(String[] args) throws InterruptedException
+	{
+		PrintStream out = System.out;
+		out.println(Runtime.getRuntime().availableProcessors() + " processeurs disponibles");
+		out.println(String.format("%10s %16s %12s", "partitions", "requêtes/s", "supprimées"));
+		System.setOut(new SilentStream());
+		for(int partitions : PARTITIONS)
+		{
+			run(partitions);
+			double best = 0;
+			long dropped = 0;
+			for(int i = 0; i < RUNS; i++)
+			{
+				long[] result = run(partitions);
+				best = Math.max(best, (double)CONNECTIONS * (SYNC_PER_CONNECTION + 2) * 1e9 / result[0]);
+				dropped += result[1];
+			}
+			out.println(String.format("%10d %16.0f %12d", partitions, best, dropped));
+		}
+	}
+
+	/**
+	 * Soumet la charge complète et attend l'exécution de la dernière requête de chaque connexion
+	 * @return La durée de l'exécution en nanosecondes et le nombre de requêtes supprimées
+	 */
+	private static long[] run(int partitions) throws InterruptedException
+	{
+		RunningServer server = new RunningServer();
+		RequestManager manager = new RequestManager(server, partitions, new QueuePolicy(CONNECTIONS * (SYNC_PER_CONNECTION + 2)));
+		manager.setReplicationStage(new ReplicationStage());
+		CountDownLatch done = new CountDownLatch(CONNECTIONS);
+		BenchmarkConnection[] connections = new BenchmarkConnection[CONNECTIONS];
+		for(int i = 0; i < CONNECTIONS; i++)
+			connections[i] = new BenchmarkConnection(done);
+		manager.start();
+
+		long time = System.nanoTime();
+		Thread[] readers = new Thread[READERS];
+		for(int r = 0; r < READERS; r++)
+		{
+			final int first = r;
+			readers[r] = new Thread(() -> submit(manager, connections, first));
+			readers[r].start();
+		}
+		done.await();
+		time = System.nanoTime() - time;
+
+		for(Thread reader : readers)
+			reader.join();
+		server.stop(manager);
+		return new long[] { time, manager.getDroppedCount() + manager.getRejectedCount() };
+	}
+
+	/**
+	 * Requêtes entrelacées des connexions lues par un même thread de lecture
+	 */
+	private static void submit(RequestManager manager, BenchmarkConnection[] connections, int first)
+	{
+		for(int i = first; i < connections.length; i += READERS)
+			manager.submit(new Packet(PacketType.CONNECT, "{}"), connections[i]);
+
+		for(int tick = 1; tick <= SYNC_PER_CONNECTION; tick++)
+		{
+			JSONObject obj = new JSONObject();
+			obj.put(Snapshot.ACK_KEY, tick);
+			String ack = obj.toString();
+			for(int i = first; i < connections.length; i += READERS)
+				manager.submit(new Packet(PacketType.SYNC, ack), connections[i]);
+		}
+
+		// Dernière requête de chaque connexion, sa réponse signale la fin de la charge
+		for(int i = first; i < connections.length; i += READERS)
+			manager.submit(new Packet(PacketType.NONE, "{}"), connections[i]);
+	}
+
+	private static class BenchmarkConnection extends RecordingConnection implements RequestListener
+	{
+		private CountDownLatch done;
+
+		private BenchmarkConnection(CountDownLatch done)
+		{
+			this.done = done;
+		}
+
+		@Override
+		public void onRequestExecutionFinished(Packet result)
+		{
+			if(result.getType() == PacketType.NONE)
+				this.done.countDown();
+		}
+	}
+
+	/**
+	 * Sortie neutralisée sans verrou
+	 */
+	private static class SilentStream extends PrintStream
+	{
+		private SilentStream()
+		{
+			super(new OutputStream()
+			{
+				@Override
+				public void write(int b)
+				{
+					// Sortie ignorée
+				}
+			});
+		}
+
+		@Override
+		public void println(String x)
+		{
+			// Sortie ignorée
+		}
+	}
+}
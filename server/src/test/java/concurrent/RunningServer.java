@@ -0,0 +1,47 @@
+package concurrent;
+
+import net.Packet;
+import net.PacketType;
+import net.socket.FrogServerSocket;
+
+/**
+ * Serveur de test considéré démarré sans écoute réseau, les exécuteurs traitent les requêtes soumises
+ */
+public class RunningServer extends FrogServerSocket
+{
+	private volatile boolean running = true;
+
+	@Override
+	public synchronized boolean isRunning()
+	{
+		return this.running;
+	}
+
+	/**
+	 * Arrête les exécuteurs d'un gestionnaire démarré sur ce serveur, réveillés par une requête vide
+	 * @param manager Le gestionnaire de requêtes
+	 */
+	public void stop(RequestManager manager)
+	{
+		this.running = false;
+		boolean[] woken = new boolean[manager.getPartitionsCount()];
+		for(int count = 0; count < woken.length;)
+		{
+			// Nouvelle instance à chaque essai : un lambda sans capture est partagé et toujours dirigé vers la même partition
+			RequestListener callback = new RequestListener()
+			{
+				@Override
+				public void onRequestExecutionFinished(Packet result)
+				{
+					// Aucune réponse attendue
+				}
+			};
+			int partition = manager.getPartition(callback);
+			if(woken[partition])
+				continue;
+			woken[partition] = true;
+			manager.submit(new Packet(PacketType.NONE, "{}"), callback);
+			count++;
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package program;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.json.JSONObject;
+
+import concurrent.ClientWorker;
+import concurrent.RequestManager;
+import net.Packet;
+import net.PacketType;
+import net.codec.PacketCodecs;
+import net.socket.FlushPolicy;
+import net.socket.FrogServerSocket;
+import utils.FrogException;
+
+/**
+ * <h1>Mesure des connexions simultanées et de la mémoire par connexion du mode blocking</h1>
+ * <p>Démarre le serveur avec la pool de threads client choisie (<code>--pool=fixed|cached|virtual</code>),
+ * ouvre les connexions et attend la réponse à leur négociation du protocole. Seules les connexions
+ * prises en charge par un thread client obtiennent une réponse.</p>
+ * <p>Le tas occupé est mesuré après collecte, avant et après l'ouverture des connexions. Les piles des threads
+ * système étant hors du tas, la mémoire résidente du processus est également relevée (Linux uniquement).
+ * Les sockets des clients, ouverts dans le même processus, sont comptés dans les deux modes.</p>
+ * <p>Exécution, un mode par processus : <code>java -cp api/target/classes:server/target/classes:server/target/test-classes:json.jar
+ * program.ConnectionMemoryBenchmark --pool=virtual --connections=2000</code></p>
+ */
+public class ConnectionMemoryBenchmark
+{
+	private static final int PORT = 5001;
+	private static final int DEFAULT_CONNECTIONS = 2000;
+	private static final long HANDSHAKE_TIMEOUT = 10000;
+
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		ServerOptions options = new ServerOptions(args);
+		int connectionsCount = DEFAULT_CONNECTIONS;
+		for(String arg : args)
+		{
+			if(arg.startsWith("--connections="))
+				connectionsCount = Integer.parseInt(arg.substring("--connections=".length()));
+		}
+
+		ExecutorService threadPool = Program.createThreadPool(options);
+		startServer(threadPool);
+
+		long heapBefore = usedHeap();
+		long residentBefore = residentMemory();
+		int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+		// Toutes les négociations sont envoyées avant d'attendre les réponses
+		List<Socket> clients = new ArrayList<Socket>();
+		ByteBuffer handshake = handshake();
+		for(int i = 0; i < connectionsCount; i++)
+		{
+			Socket socket = new Socket(InetAddress.getLoopbackAddress(), PORT);
+			socket.getOutputStream().write(handshake.array(), handshake.arrayOffset() + handshake.position(), handshake.remaining());
+			clients.add(socket);
+		}
+
+		int served = 0;
+		long deadline = System.currentTimeMillis() + HANDSHAKE_TIMEOUT;
+		for(Socket socket : clients)
+		{
+			if(awaitHandshake(socket, deadline))
+				served++;
+		}
+
+		long heap = usedHeap() - heapBefore;
+		long resident = residentMemory() - residentBefore;
+		int threads = ManagementFactory.getThreadMXBean().getThreadCount() - threadsBefore;
+
+		String residentPerConnection = residentBefore < 0 ? "n/a" : String.format("%.1f Ko", resident / 1024.0 / connectionsCount);
+		System.out.println(String.format("%8s %11s %8s %8s %14s %19s", "pool", "connexions", "servies", "threads", "tas/connexion", "résident/connexion"));
+		System.out.println(String.format("%8s %11d %8d %8d %11.1f Ko %19s", options.getPoolType().name().toLowerCase(), connectionsCount, served, 
+				threads, heap / 1024.0 / connectionsCount, residentPerConnection));
+
+		// Connexions et threads client fermés avec le processus
+		System.exit(0);
+	}
+
+	private static void startServer(ExecutorService threadPool) throws InterruptedException
+	{
+		FrogServerSocket server = new FrogServerSocket();
+		RequestManager requestManager = new RequestManager(server);
+		FlushPolicy flushPolicy = new FlushPolicy();
+		server.setServerListener(started -> requestManager.start());
+		server.setClientListener(client ->
+		{
+			try
+			{
+				threadPool.submit(new ClientWorker(server, client, requestManager, flushPolicy, -1));
+			}
+			catch(IOException e)
+			{
+				e.printStackTrace();
+			}
+		});
+
+		Thread thread = new Thread(() -> server.start(PORT), "ConnectionMemoryBenchmarkServer");
+		thread.setDaemon(true);
+		thread.start();
+		while(!server.isRunning())
+			Thread.sleep(10);
+	}
+
+	private static ByteBuffer handshake()
+	{
+		JSONObject obj = new JSONObject();
+		obj.put("version", FrogServerSocket.PROTOCOL_VERSION);
+		return PacketCodecs.JSON.encode(new Packet(PacketType.PROTOCOL_VERSION, obj.toString()));
+	}
+
+	/**
+	 * Attend la réponse à la négociation du protocole d'une connexion
+	 * @return True si la connexion a été prise en charge par un thread client avant l'échéance
+	 */
+	private static boolean awaitHandshake(Socket socket, long deadline) throws IOException
+	{
+		try
+		{
+			socket.setSoTimeout((int)Math.max(1, deadline - System.currentTimeMillis()));
+			Packet result = PacketCodecs.JSON.read(socket.getInputStream());
+			return result != null && result.getType() == PacketType.PROTOCOL_VERSION_RESULT;
+		}
+		catch(SocketTimeoutException | FrogException e)
+		{
+			return false;
+		}
+	}
+
+	private static long usedHeap() throws InterruptedException
+	{
+		Runtime runtime = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++)
+		{
+			System.gc();
+			Thread.sleep(100);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Obtient la mémoire résidente du processus
+	 * @return La mémoire résidente en octets, -1 si elle n'est pas disponible
+	 */
+	private static long residentMemory()
+	{
+		try
+		{
+			for(String line : Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.UTF_8))
+			{
+				if(line.startsWith("VmRSS:"))
+					return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+			}
+		}
+		catch(IOException | NumberFormatException e)
+		{
+			// Système sans /proc
+		}
+		return -1;
+	}
+}
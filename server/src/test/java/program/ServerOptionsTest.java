@@ -0,0 +1,19 @@
+package program;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import environment.map.ChunkResidencyManager;
+
+public class ServerOptionsTest
+{
+	@Test
+	public void mapBudgetTest()
+	{
+		assertEquals(ChunkResidencyManager.DEFAULT_BUDGET, new ServerOptions(new String[0]).getMapBudget());
+		assertEquals(2048L << 20, new ServerOptions(new String[] { "--map-budget=2048" }).getMapBudget());
+		assertEquals(4096L << 20, new ServerOptions(new String[] { "--map-budget=4096" }).getMapBudget());
+		assertEquals(0, new ServerOptions(new String[] { "--map-budget=-1" }).getMapBudget());
+	}
+}
@@ -0,0 +1,86 @@
+package replication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import concurrent.RecordingConnection;
+import environment.map.ChunkResidencyManager;
+import environment.map.GameMap;
+import environment.map.MappedGameMap;
+import utils.FrogException;
+
+public class ChunkTransferTest
+{
+	private static final int CHUNK_SIZE = 8;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void unloadTest() throws IOException, FrogException
+	{
+		GameMap source = new GameMap(32, 32, CHUNK_SIZE, CHUNK_SIZE);
+		source.setTile(0, 0, 0, 1);
+		source.setTile(0, CHUNK_SIZE, 0, 2);
+		File file = this.folder.newFile("map.frog");
+		MappedGameMap.write(source, file);
+
+		try(MappedGameMap map = MappedGameMap.open(file))
+		{
+			ChunkTransfer transfer = new ChunkTransfer(map);
+			RecordingConnection client = new RecordingConnection();
+			assertEquals(2, transfer.sendArea(client, 0, 0, 1));
+			assertFalse("Chunk inexistant envoyé", transfer.send(client, 0, 1));
+			assertEquals(2, client.getFramesCount());
+			assertEquals(2, transfer.getCache().getEntriesCount());
+
+			// Les trames du chunk libéré ne sont plus conservées
+			assertTrue(map.unloadChunk(1, 0));
+			assertEquals(1, transfer.getCache().getEntriesCount());
+			assertTrue(transfer.send(client, 1, 0));
+			assertEquals(3, transfer.getCache().getEncodesCount());
+		}
+	}
+
+	@Test
+	public void residencyTest() throws IOException, FrogException
+	{
+		GameMap source = new GameMap(32, 32, CHUNK_SIZE, CHUNK_SIZE);
+		for(int x = 0; x < 4; x++)
+			source.setTile(0, x * CHUNK_SIZE, 0, x);
+		File file = this.folder.newFile("map.frog");
+		MappedGameMap.write(source, file);
+
+		try(MappedGameMap map = MappedGameMap.open(file))
+		{
+			// Budget nul : seuls les chunks épinglés et le dernier chunk chargé sont conservés
+			ChunkResidencyManager residency = new ChunkResidencyManager(map, 0, 0);
+			ChunkTransfer transfer = new ChunkTransfer(residency);
+			RecordingConnection client = new RecordingConnection();
+
+			// Chunks de la zone obtenus par le gestionnaire de résidence, chunk du joueur épinglé
+			assertEquals(2, transfer.enter(client, CHUNK_SIZE / 2, 1, 1));
+			assertEquals(2, client.getFramesCount());
+			assertEquals("Chunks non demandés au gestionnaire", 9, residency.getStatistics().getMissesCount() + residency.getStatistics().getHitsCount());
+			assertNotNull(map.getResidentChunk(0, 0));
+
+			assertEquals(3, transfer.enter(client, 2 * CHUNK_SIZE, 0, 1));
+			assertNull("Chunk hors de la zone conservé", map.getResidentChunk(0, 0));
+			assertNotNull(map.getResidentChunk(2, 0));
+
+			transfer.remove(client);
+			assertEquals(0, residency.getStatistics().getResidentChunks());
+			residency.stop();
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package replication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import concurrent.RecordingConnection;
+import environment.map.GameMap;
+import net.Packet;
+import net.PacketType;
+
+public class InterestManagerTest
+{
+	private static final int CHUNK_SIZE = 8;
+
+	private InterestManager interest;
+	private RecordingConnection first;
+	private RecordingConnection second;
+
+	@Before
+	public void initialize()
+	{
+		this.interest = new InterestManager(new GameMap(32, 32, CHUNK_SIZE, CHUNK_SIZE), 1);
+		this.first = new RecordingConnection();
+		this.second = new RecordingConnection();
+	}
+
+	@Test
+	public void enterAndLeaveTest()
+	{
+		assertTrue("Première position non signalée", this.interest.updatePosition(this.first, 0, 0));
+		assertFalse("Déplacement dans le même chunk signalé", this.interest.updatePosition(this.first, CHUNK_SIZE - 1, 1));
+		this.interest.updatePosition(this.second, 5 * CHUNK_SIZE, 0);
+		assertEquals("Joueur éloigné destinataire", 1, this.interest.broadcast(1, 1, event()));
+		assertEquals(0, this.second.getPackets().size());
+
+		// Chunk voisin : la zone d'intérêt inclut le chunk de l'évènement
+		this.interest.updatePosition(this.second, 2 * CHUNK_SIZE, 0);
+		assertEquals("Joueur hors du rayon destinataire", 1, this.interest.broadcast(1, 1, event()));
+		assertTrue(this.interest.updatePosition(this.second, 2 * CHUNK_SIZE - 1, 0));
+		assertEquals("Joueur entré dans la zone non destinataire", 2, this.interest.broadcast(1, 1, event()));
+		assertEquals(1, this.second.getPackets().size());
+
+		// Déplacement dans le même chunk, puis sortie de la zone
+		this.interest.updatePosition(this.second, CHUNK_SIZE, CHUNK_SIZE - 1);
+		assertEquals(2, this.interest.getSubscribers(0, 0).size());
+		this.interest.updatePosition(this.second, 3 * CHUNK_SIZE, 0);
+		assertEquals("Joueur sorti de la zone destinataire", 1, this.interest.broadcast(1, 1, event()));
+		assertEquals(1, this.second.getPackets().size());
+		assertEquals("Évènement du nouveau chunk non reçu", 1, this.interest.broadcast(2 * CHUNK_SIZE, 0, event()));
+		assertEquals(2, this.second.getPackets().size());
+	}
+
+	@Test
+	public void negativeCoordinatesTest()
+	{
+		// Chunk (-1, -1) : la zone couvre les chunks (-2, -2) à (0, 0)
+		this.interest.updatePosition(this.first, -1, -1);
+		assertEquals(1, this.interest.broadcast(0, 0, event()));
+		assertEquals(1, this.interest.broadcast(-2 * CHUNK_SIZE, -2 * CHUNK_SIZE, event()));
+		assertEquals("Chunk hors de la zone", 0, this.interest.broadcast(CHUNK_SIZE, CHUNK_SIZE, event()));
+		assertEquals("Chunk hors de la zone", 0, this.interest.broadcast(-2 * CHUNK_SIZE - 1, 0, event()));
+	}
+
+	@Test
+	public void removeTest()
+	{
+		this.interest.updatePosition(this.first, 0, 0);
+		this.interest.updatePosition(this.second, 1, 1);
+		assertEquals("Origine de l'évènement destinataire", 1, this.interest.broadcast(0, 0, event(), this.first));
+		assertEquals(0, this.first.getPackets().size());
+
+		this.interest.remove(this.first);
+		assertEquals(1, this.interest.getSubscribers(0, 0).size());
+		assertEquals(1, this.interest.getClientsCount());
+
+		// Connexion fermée sans retrait explicite, retirée lors de la diffusion suivante
+		this.second.close();
+		assertEquals(0, this.interest.broadcast(0, 0, event()));
+		assertEquals(0, this.interest.getClientsCount());
+		assertTrue("Chunk sans abonné conservé", this.interest.getSubscribers(CHUNK_SIZE, CHUNK_SIZE).isEmpty());
+	}
+
+	@Test
+	public void chunkSizeTest()
+	{
+		// Découpage sans carte : même zone que celle d'une carte de chunks identiques
+		InterestManager sized = new InterestManager(CHUNK_SIZE, CHUNK_SIZE, 1);
+		sized.updatePosition(this.first, -1, 2 * CHUNK_SIZE - 1);
+		assertEquals(1, sized.broadcast(-2 * CHUNK_SIZE, 0, event()));
+		assertEquals(0, sized.broadcast(CHUNK_SIZE, 3 * CHUNK_SIZE, event()));
+		assertEquals(1, sized.getSubscribers(0, 2 * CHUNK_SIZE).size());
+	}
+
+	private static Packet event()
+	{
+		return new Packet(PacketType.UPDATE_MOVEMENT_RESULT, "{\"x\":0,\"y\":0}");
+	}
+}
@@ -0,0 +1,93 @@
+package session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetSocketAddress;
+
+import org.junit.Test;
+
+import concurrent.RecordingConnection;
+import net.PacketType;
+
+public class SessionRegistryTest
+{
+	private static final PacketType TYPE = PacketType.UPDATE_MOVEMENT_RESULT;
+	private static final long TIMEOUT = 200;
+
+	@Test
+	public void resumeTest()
+	{
+		SessionRegistry registry = new SessionRegistry();
+		RecordingConnection first = new RecordingConnection();
+		Session session = registry.open(first);
+		session.bindDatagram(new InetSocketAddress("127.0.0.1", 4000));
+		assertTrue(session.getDatagramFilter().accept(TYPE, 100));
+		for(int i = 0; i < 3; i++)
+			session.nextDatagramSequence();
+
+		first.close();
+		registry.detach(first);
+		assertNull("Session détachée utilisable", registry.get(session.getToken()));
+
+		// Le client reprend sa session, son nouveau canal numérote de nouveau ses datagrammes à partir de 1
+		RecordingConnection second = new RecordingConnection();
+		assertSame(session, registry.resume(session.getToken(), second));
+		assertNull(session.getDatagramAddress());
+		assertTrue("Datagramme du nouveau canal ignoré", session.getDatagramFilter().accept(TYPE, 1));
+		assertEquals(1, session.nextDatagramSequence());
+
+		// Fermeture de l'ancienne connexion constatée après la reprise : sans effet
+		registry.detach(first);
+		assertSame(session, registry.get(session.getToken()));
+	}
+
+	@Test
+	public void bindDatagramTest()
+	{
+		Session session = new SessionRegistry().open(new RecordingConnection());
+		InetSocketAddress address = new InetSocketAddress("127.0.0.1", 4000);
+		session.bindDatagram(address);
+		assertTrue(session.getDatagramFilter().accept(TYPE, 50));
+		assertEquals(1, session.nextDatagramSequence());
+
+		// Association répétée par le même canal : numérotation conservée
+		session.bindDatagram(new InetSocketAddress("127.0.0.1", 4000));
+		assertFalse(session.getDatagramFilter().accept(TYPE, 10));
+		assertEquals(2, session.nextDatagramSequence());
+
+		session.bindDatagram(new InetSocketAddress("127.0.0.1", 4001));
+		assertTrue("Datagramme du nouveau canal ignoré", session.getDatagramFilter().accept(TYPE, 1));
+		assertEquals(1, session.nextDatagramSequence());
+	}
+
+	@Test
+	public void expirationTest() throws InterruptedException
+	{
+		SessionRegistry registry = new SessionRegistry(TIMEOUT);
+		RecordingConnection closed = new RecordingConnection();
+		RecordingConnection resumed = new RecordingConnection();
+		Session expired = registry.open(closed);
+		Session kept = registry.open(resumed);
+		registry.open(new RecordingConnection());
+
+		// Connexion inconnue du registre ignorée
+		registry.detach(new RecordingConnection());
+		closed.close();
+		registry.detach(closed);
+		resumed.close();
+		registry.detach(resumed);
+		assertSame(kept, registry.resume(kept.getToken(), new RecordingConnection()));
+		assertEquals(3, registry.getSessionsCount());
+
+		// Échéances atteintes : seule la session non reprise est retirée
+		Thread.sleep(2 * TIMEOUT);
+		registry.open(new RecordingConnection());
+		assertEquals(3, registry.getSessionsCount());
+		assertNull(registry.resume(expired.getToken(), new RecordingConnection()));
+		assertSame(kept, registry.get(kept.getToken()));
+	}
+}